@@ -0,0 +1,86 @@
+package com.wuda.benchmarks;
+
+import com.wuda.tree.DoubleArrayTrie;
+import com.wuda.tree.FullDoubleArrayTrie;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 自动补全:输入一个或两个字符,返回前10个补全结果,或者按照词频返回前10个.
+ * 前缀取自词典中的term,因此一个字符的前缀对应的子树很大,两个字符的前缀对应的子树较小.
+ *
+ * @author wuda
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AutocompleteBenchmark {
+
+    @Param({"100000"})
+    public int dictionarySize;
+
+    @Param({"1", "2"})
+    public int prefixLength;
+
+    private String[] prefixes;
+    private DoubleArrayTrie doubleArrayTrie;
+    private FullDoubleArrayTrie fullDoubleArrayTrie;
+    private int next;
+
+    @Setup
+    public void setup() {
+        String[] terms = SyntheticData.dictionary(42, dictionarySize);
+        doubleArrayTrie = DoubleArrayTrie.build(SyntheticData.asList(terms));
+        fullDoubleArrayTrie = new FullDoubleArrayTrie();
+        Random random = new Random(47);
+        for (String term : terms) {
+            int frequency = random.nextInt(10000);
+            doubleArrayTrie.add(term, frequency);
+            fullDoubleArrayTrie.add(term, frequency);
+        }
+        prefixes = new String[1024];
+        for (int index = 0; index < prefixes.length; index++) {
+            String term = terms[random.nextInt(terms.length)];
+            prefixes[index] = term.substring(0, Math.min(prefixLength, term.length()));
+        }
+    }
+
+    private String nextPrefix() {
+        next = (next + 1) & (prefixes.length - 1);
+        return prefixes[next];
+    }
+
+    @Benchmark
+    public void doubleArrayTrieFirst10(Blackhole blackhole) {
+        Iterator<String> iterator = doubleArrayTrie.prefixIterator(nextPrefix(), 10);
+        while (iterator.hasNext()) {
+            blackhole.consume(iterator.next());
+        }
+    }
+
+    @Benchmark
+    public List<String> doubleArrayTrieTop10() {
+        return doubleArrayTrie.topK(nextPrefix(), 10);
+    }
+
+    @Benchmark
+    public void fullDoubleArrayTrieFirst10(Blackhole blackhole) {
+        Iterator<String> iterator = fullDoubleArrayTrie.prefixIterator(nextPrefix(), 10);
+        while (iterator.hasNext()) {
+            blackhole.consume(iterator.next());
+        }
+    }
+
+    @Benchmark
+    public List<String> fullDoubleArrayTrieTop10() {
+        return fullDoubleArrayTrie.topK(nextPrefix(), 10);
+    }
+}
@@ -0,0 +1,119 @@
+package com.wuda.benchmarks;
+
+import com.wuda.lang.CompressedIntSequence;
+import com.wuda.lang.IntArrayList;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CompressedIntSequence}与普通int数组的对比.长序列有一百万个id(平均间隔16),短序列的长度是长序列的1/ratio,
+ * 数组的交集使用双指针合并.ratio小于一个块的长度时,长序列的每个块都要解压,解压的时间抵消了合并的优势;
+ * ratio越大,跳过不需要解压的块越多.两者的内存使用量通过{@link Memory}作为辅助计数器与求交集的结果一起输出.
+ *
+ * @author wuda
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompressedIntSequenceBenchmark {
+
+    private static final int SIZE = 1000000;
+
+    @Param({"1", "10", "100", "1000"})
+    public int ratio;
+
+    private int[] large;
+    private int[] small;
+    private CompressedIntSequence compressedLarge;
+    private CompressedIntSequence compressedSmall;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        large = sorted(random, SIZE, 16);
+        small = sorted(random, SIZE / ratio, 16 * ratio);
+        compressedLarge = CompressedIntSequence.of(large);
+        compressedSmall = CompressedIntSequence.of(small);
+    }
+
+    /**
+     * 两个序列的内存使用量,以b为单位.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Memory {
+
+        public long intArrayBytes;
+        public long compressedBytes;
+
+        /**
+         * JMH在每次迭代开始时把计数器清零,所以在迭代结束时赋值.
+         */
+        @TearDown(Level.Iteration)
+        public void measure(CompressedIntSequenceBenchmark benchmark) {
+            intArrayBytes = (benchmark.large.length + benchmark.small.length) * 4L;
+            compressedBytes = benchmark.compressedLarge.ramUsedB() + benchmark.compressedSmall.ramUsedB();
+        }
+    }
+
+    private static int[] sorted(Random random, int size, int gap) {
+        int[] values = new int[size];
+        int value = 0;
+        for (int index = 0; index < size; index++) {
+            value += 1 + random.nextInt(gap * 2);
+            values[index] = value;
+        }
+        return values;
+    }
+
+    private static int[] merge(int[] one, int[] another) {
+        IntArrayList result = new IntArrayList(Math.min(Math.min(one.length, another.length), CompressedIntSequence.BLOCK_SIZE));
+        int i = 0;
+        int j = 0;
+        while (i < one.length && j < another.length) {
+            int a = one[i];
+            int b = another[j];
+            if (a == b) {
+                result.addInt(a);
+                i++;
+                j++;
+            } else if (a < b) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return result.toIntArray();
+    }
+
+    @Benchmark
+    public int[] intersectArrays(Memory memory) {
+        return merge(small, large);
+    }
+
+    @Benchmark
+    public int[] intersectCompressed(Memory memory) {
+        return CompressedIntSequence.intersection(compressedSmall, compressedLarge);
+    }
+
+    @Benchmark
+    public void iterateArray(Blackhole blackhole) {
+        for (int value : large) {
+            blackhole.consume(value);
+        }
+    }
+
+    @Benchmark
+    public void iterateCompressed(Blackhole blackhole) {
+        CompressedIntSequence.Cursor cursor = compressedLarge.cursor();
+        while (cursor.advance()) {
+            blackhole.consume(cursor.value());
+        }
+    }
+}
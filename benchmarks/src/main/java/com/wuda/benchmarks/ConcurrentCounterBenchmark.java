@@ -0,0 +1,72 @@
+package com.wuda.benchmarks;
+
+import com.wuda.lang.AtomicIntArray;
+import com.wuda.lang.IntArray;
+import com.wuda.lang.StripedIntArray;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多个线程同时统计字符频率的吞吐量,大部分更新集中在少数几个热点下标(常用字).
+ * 对比加锁的{@link IntArray},{@link AtomicIntArray}以及{@link StripedIntArray},
+ * 用<code>-t</code>覆盖线程数,线程数超过机器的核数之后不会再有提升.
+ *
+ * @author wuda
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class ConcurrentCounterBenchmark {
+
+    private static final int LENGTH = 65536;
+
+    private IntArray locked;
+    private AtomicIntArray atomic;
+    private StripedIntArray striped;
+
+    @Setup
+    public void setup() {
+        locked = new IntArray(LENGTH);
+        atomic = new AtomicIntArray(LENGTH);
+        striped = new StripedIntArray(LENGTH);
+    }
+
+    /**
+     * 每个线程有自己的位置,避免多个线程竞争同一个计数器.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private final char[] text = SyntheticData.corpus(SyntheticData.dictionary(42, 1000), 44, 10000).toCharArray();
+        private int next;
+
+        char nextChar() {
+            int index = next;
+            next = index + 1 == text.length ? 0 : index + 1;
+            return text[index];
+        }
+    }
+
+    @Benchmark
+    public void lockedIntArray(Cursor cursor) {
+        char c = cursor.nextChar();
+        synchronized (locked) {
+            locked.set(c, locked.get(c) + 1);
+        }
+    }
+
+    @Benchmark
+    public int atomicIntArray(Cursor cursor) {
+        return atomic.incrementAndGet(cursor.nextChar());
+    }
+
+    @Benchmark
+    public void stripedIntArray(Cursor cursor) {
+        striped.increment(cursor.nextChar());
+    }
+}
@@ -0,0 +1,91 @@
+package com.wuda.benchmarks;
+
+import com.wuda.tree.DoubleArrayTrie;
+import com.wuda.tree.FuzzyMatch;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 模糊查找:查询是词典中的term随机修改一个字符得到的,
+ * 对比{@link DoubleArrayTrie#fuzzySearch(String, int)}与逐个计算词典中每个term的编辑距离.
+ *
+ * @author wuda
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FuzzySearchBenchmark {
+
+    @Param({"100000"})
+    public int dictionarySize;
+
+    @Param({"1", "2"})
+    public int maxEdits;
+
+    private String[] terms;
+    private String[] queries;
+    private DoubleArrayTrie trie;
+    private int next;
+
+    @Setup
+    public void setup() {
+        terms = SyntheticData.dictionary(42, dictionarySize);
+        trie = DoubleArrayTrie.build(SyntheticData.asList(terms));
+        Random random = new Random(48);
+        queries = new String[256];
+        for (int index = 0; index < queries.length; index++) {
+            char[] chars = terms[random.nextInt(terms.length)].toCharArray();
+            chars[random.nextInt(chars.length)] = terms[random.nextInt(terms.length)].charAt(0);
+            queries[index] = new String(chars);
+        }
+    }
+
+    private String nextQuery() {
+        next = (next + 1) & (queries.length - 1);
+        return queries[next];
+    }
+
+    @Benchmark
+    public List<FuzzyMatch> trie() {
+        return trie.fuzzySearch(nextQuery(), maxEdits);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<String> bruteForce() {
+        String query = nextQuery();
+        List<String> matches = new ArrayList<>();
+        for (String term : terms) {
+            if (levenshtein(query, term) <= maxEdits) {
+                matches.add(term);
+            }
+        }
+        return matches;
+    }
+
+    private static int levenshtein(String one, String another) {
+        int[] previous = new int[another.length() + 1];
+        int[] row = new int[another.length() + 1];
+        for (int j = 0; j < previous.length; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= one.length(); i++) {
+            row[0] = i;
+            for (int j = 1; j <= another.length(); j++) {
+                int replace = previous[j - 1] + (one.charAt(i - 1) == another.charAt(j - 1) ? 0 : 1);
+                row[j] = Math.min(Math.min(previous[j], row[j - 1]) + 1, replace);
+            }
+            int[] swap = previous;
+            previous = row;
+            row = swap;
+        }
+        return previous[another.length()];
+    }
+}
@@ -0,0 +1,55 @@
+package com.wuda.benchmarks;
+
+import com.wuda.jdbc.Jdbcs;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * {@link Jdbcs#query(javax.sql.DataSource, String, java.util.function.Function)}把{@link java.sql.ResultSet}
+ * 转换成Stream的开销.数据来自{@link SyntheticDataSource},不连接真实的数据库,
+ * 因此结果中不包含网络和数据库的耗时,只反映分批(spliterator)、映射和并行处理本身的开销.
+ *
+ * @author wuda
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JdbcsBenchmark {
+
+    private static final String SQL = "select id, name from synthetic";
+
+    @Param({"1000", "100000"})
+    public int rows;
+
+    private SyntheticDataSource dataSource;
+
+    @Setup
+    public void setup() {
+        dataSource = new SyntheticDataSource(rows);
+    }
+
+    @Benchmark
+    public long query() {
+        try (Stream<Long> stream = Jdbcs.query(dataSource, SQL, resultSet -> {
+            try {
+                return resultSet.getLong(1);
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        })) {
+            return stream.mapToLong(Long::longValue).sum();
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public boolean isSelectStatement() {
+        return Jdbcs.isSelectStatement(SQL);
+    }
+}
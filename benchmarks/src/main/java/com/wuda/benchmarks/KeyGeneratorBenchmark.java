@@ -0,0 +1,42 @@
+package com.wuda.benchmarks;
+
+import com.wuda.keygen.KenGenTimeBackwardsException;
+import com.wuda.keygen.KeyGenExceedMaxValueException;
+import com.wuda.keygen.KeyGeneratorSnowflake;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link KeyGeneratorSnowflake#next()}的吞吐量.序列号只有12位,每毫秒最多生成4096个key,
+ * 用完之后要自旋等待下一毫秒,因此单个生成器的吞吐量上限大约是每秒4百万.
+ * 多线程时所有线程竞争同一把锁,与单线程的结果对比可以看出锁竞争的开销.
+ *
+ * @author wuda
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class KeyGeneratorBenchmark {
+
+    private KeyGeneratorSnowflake generator;
+
+    @Setup
+    public void setup() {
+        generator = new KeyGeneratorSnowflake(1);
+    }
+
+    @Benchmark
+    public long next() throws KeyGenExceedMaxValueException, KenGenTimeBackwardsException {
+        return generator.next();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public long nextContended() throws KeyGenExceedMaxValueException, KenGenTimeBackwardsException {
+        return generator.next();
+    }
+}
@@ -0,0 +1,49 @@
+package com.wuda.benchmarks;
+
+import com.wuda.tree.FullDoubleArrayTrie;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link FullDoubleArrayTrie#buildParallel(java.util.Collection, ForkJoinPool)}在不同线程数下的耗时,
+ * 与{@link TrieBuildBenchmark#fullDoubleArrayTrieAdd()}(单线程逐个添加)对比.
+ * 线程数超过机器的核数之后不会再有提升,可以用<code>-p threads=1,2,4,8,16,32</code>覆盖.
+ *
+ * @author wuda
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParallelBuildBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int dictionarySize;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private List<String> termList;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setup() {
+        termList = SyntheticData.asList(SyntheticData.dictionary(42, dictionarySize));
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public FullDoubleArrayTrie buildParallel() {
+        return FullDoubleArrayTrie.buildParallel(termList, pool);
+    }
+}
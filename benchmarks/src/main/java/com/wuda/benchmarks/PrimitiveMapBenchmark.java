@@ -0,0 +1,163 @@
+package com.wuda.benchmarks;
+
+import com.wuda.lang.IntHashSet;
+import com.wuda.lang.IntIntMap;
+import com.wuda.lang.LongObjectMap;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 开放寻址的{@link IntIntMap},{@link LongObjectMap},{@link IntHashSet}与装箱的{@link HashMap},{@link HashSet}对比.
+ * 查找的key一半存在一半不存在,按照随机的顺序轮流使用;计数的benchmark每次从空的map开始,
+ * 加上<code>-prof gc</code>可以看到HashMap每个entry分配的对象.
+ *
+ * @author wuda
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PrimitiveMapBenchmark {
+
+    @Param({"1000", "1000000"})
+    public int size;
+
+    private int[] keys;
+    private long[] longKeys;
+    private int[] probes;
+    private long[] longProbes;
+
+    private IntIntMap intIntMap;
+    private Map<Integer, Integer> boxedIntMap;
+    private LongObjectMap<String> longObjectMap;
+    private Map<Long, String> boxedLongMap;
+    private IntHashSet intHashSet;
+    private Set<Integer> boxedIntSet;
+
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        keys = new int[size];
+        longKeys = new long[size];
+        probes = new int[size];
+        longProbes = new long[size];
+        intIntMap = new IntIntMap();
+        boxedIntMap = new HashMap<>();
+        longObjectMap = new LongObjectMap<>();
+        boxedLongMap = new HashMap<>();
+        intHashSet = new IntHashSet();
+        boxedIntSet = new HashSet<>();
+        for (int index = 0; index < size; index++) {
+            keys[index] = random.nextInt();
+            longKeys[index] = random.nextLong();
+            intIntMap.put(keys[index], index);
+            boxedIntMap.put(keys[index], index);
+            longObjectMap.put(longKeys[index], "v");
+            boxedLongMap.put(longKeys[index], "v");
+            intHashSet.add(keys[index]);
+            boxedIntSet.add(keys[index]);
+        }
+        for (int index = 0; index < size; index++) {
+            boolean hit = random.nextBoolean();
+            probes[index] = hit ? keys[random.nextInt(size)] : random.nextInt();
+            longProbes[index] = hit ? longKeys[random.nextInt(size)] : random.nextLong();
+        }
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = index + 1 == size ? 0 : index + 1;
+        return index;
+    }
+
+    @Benchmark
+    public int intIntMapGet() {
+        return intIntMap.get(probes[nextIndex()], -1);
+    }
+
+    @Benchmark
+    public Integer hashMapIntGet() {
+        return boxedIntMap.get(probes[nextIndex()]);
+    }
+
+    @Benchmark
+    public String longObjectMapGet() {
+        return longObjectMap.get(longProbes[nextIndex()]);
+    }
+
+    @Benchmark
+    public String hashMapLongGet() {
+        return boxedLongMap.get(longProbes[nextIndex()]);
+    }
+
+    @Benchmark
+    public boolean intHashSetContains() {
+        return intHashSet.contains(probes[nextIndex()]);
+    }
+
+    @Benchmark
+    public boolean hashSetContains() {
+        return boxedIntSet.contains(probes[nextIndex()]);
+    }
+
+    /**
+     * 对1000个key(只有256个不同的值)计数,相当于词频统计.
+     *
+     * @return 最后一个key的计数
+     */
+    @Benchmark
+    @OperationsPerInvocation(1000)
+    public int intIntMapCount() {
+        IntIntMap counts = new IntIntMap();
+        int count = 0;
+        for (int index = 0; index < 1000; index++) {
+            count = counts.addTo(keys[index % size] & 255, 1);
+        }
+        return count;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1000)
+    public int hashMapCount() {
+        Map<Integer, Integer> counts = new HashMap<>();
+        int count = 0;
+        for (int index = 0; index < 1000; index++) {
+            count = counts.merge(keys[index % size] & 255, 1, Integer::sum);
+        }
+        return count;
+    }
+
+    /**
+     * 遍历所有entry,{@link IntIntMap.Cursor}不分配对象.
+     *
+     * @return 所有value的和
+     */
+    @Benchmark
+    public long intIntMapIterate() {
+        long sum = 0;
+        IntIntMap.Cursor cursor = intIntMap.cursor();
+        while (cursor.advance()) {
+            sum += cursor.value();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long hashMapIntIterate() {
+        long sum = 0;
+        for (Map.Entry<Integer, Integer> entry : boxedIntMap.entrySet()) {
+            sum += entry.getValue();
+        }
+        return sum;
+    }
+}
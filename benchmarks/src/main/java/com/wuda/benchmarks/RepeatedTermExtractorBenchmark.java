@@ -0,0 +1,40 @@
+package com.wuda.benchmarks;
+
+import com.wuda.text.RepeatedTermExtractor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link RepeatedTermExtractor#getTerms(String)}的耗时与文本长度的关系.
+ * 文本由词典中的term拼接而成,term被选中的概率是倾斜的,因此有大量重复出现的term.
+ *
+ * @author wuda
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RepeatedTermExtractorBenchmark {
+
+    @Param({"200", "1000", "5000"})
+    public int textLength;
+
+    private final RepeatedTermExtractor extractor = new RepeatedTermExtractor();
+    private String text;
+
+    @Setup
+    public void setup() {
+        String[] dictionary = SyntheticData.dictionary(42, 200);
+        text = SyntheticData.corpus(dictionary, 46, textLength);
+    }
+
+    @Benchmark
+    public Map<String, AtomicInteger> getTerms() {
+        return extractor.getTerms(text);
+    }
+}
@@ -0,0 +1,146 @@
+package com.wuda.benchmarks;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * 生成性能测试使用的词典和文本.所有数据都由固定的seed生成,因此每次运行、每台机器上得到的数据完全一样,
+ * 不同版本之间的测试结果可以直接比较.
+ * <p>
+ * 词典中80%的term由中文字符组成,20%由英文字母组成,长度在2到6之间.中文字符从{@link #CJK_ALPHABET_SIZE}个
+ * 常用字中选取,选取的概率是倾斜的(少数字出现得非常频繁),与真实词典中字符的分布比较接近.
+ * </p>
+ *
+ * @author wuda
+ */
+public final class SyntheticData {
+
+    /**
+     * 中文term使用的字符数量.
+     */
+    public static final int CJK_ALPHABET_SIZE = 3000;
+
+    /**
+     * 词典中不会出现的字符,用于构造一定查找不到的term.
+     */
+    private static final char ABSENT_CHAR = '龠';
+
+    private static final char[] PUNCTUATIONS = {'，', '。', '、', ' ', ',', '.'};
+
+    private SyntheticData() {
+    }
+
+    /**
+     * 生成不重复的term.
+     *
+     * @param seed
+     *         随机数种子
+     * @param size
+     *         term的数量
+     * @return terms
+     */
+    public static String[] dictionary(long seed, int size) {
+        Random random = new Random(seed);
+        Set<String> terms = new LinkedHashSet<>(size * 2);
+        while (terms.size() < size) {
+            terms.add(term(random));
+        }
+        return terms.toArray(new String[0]);
+    }
+
+    /**
+     * 生成一定不在词典中的term,前缀与词典中的term相同,最后一个字符是词典中不会出现的字符,
+     * 因此查找时要走到最后一个字符才会失败.
+     *
+     * @param dictionary
+     *         词典
+     * @param seed
+     *         随机数种子
+     * @param size
+     *         term的数量
+     * @return terms
+     */
+    public static String[] misses(String[] dictionary, long seed, int size) {
+        Random random = new Random(seed);
+        String[] misses = new String[size];
+        for (int index = 0; index < size; index++) {
+            misses[index] = dictionary[random.nextInt(dictionary.length)] + ABSENT_CHAR;
+        }
+        return misses;
+    }
+
+    /**
+     * 用词典中的term拼接成一段文本,其中夹杂着随机字符和标点符号,
+     * term被选中的概率是倾斜的,所以有些term会反复出现.
+     *
+     * @param dictionary
+     *         词典
+     * @param seed
+     *         随机数种子
+     * @param length
+     *         文本的长度
+     * @return 文本
+     */
+    public static String corpus(String[] dictionary, long seed, int length) {
+        Random random = new Random(seed);
+        StringBuilder builder = new StringBuilder(length + 8);
+        while (builder.length() < length) {
+            int dice = random.nextInt(10);
+            if (dice < 6) {
+                builder.append(dictionary[skewed(random, dictionary.length)]);
+            } else if (dice < 9) {
+                builder.append(cjkChar(random));
+            } else {
+                builder.append(PUNCTUATIONS[random.nextInt(PUNCTUATIONS.length)]);
+            }
+        }
+        builder.setLength(length);
+        return builder.toString();
+    }
+
+    /**
+     * 把terms复制到列表中.
+     *
+     * @param terms
+     *         terms
+     * @return 列表
+     */
+    public static List<String> asList(String[] terms) {
+        List<String> list = new ArrayList<>(terms.length);
+        for (String term : terms) {
+            list.add(term);
+        }
+        return list;
+    }
+
+    private static String term(Random random) {
+        int length = 2 + random.nextInt(5);
+        StringBuilder builder = new StringBuilder(length);
+        boolean cjk = random.nextInt(10) < 8;
+        for (int index = 0; index < length; index++) {
+            builder.append(cjk ? cjkChar(random) : (char) ('a' + random.nextInt(26)));
+        }
+        return builder.toString();
+    }
+
+    private static char cjkChar(Random random) {
+        return (char) ('一' + skewed(random, CJK_ALPHABET_SIZE));
+    }
+
+    /**
+     * 返回[0,bound)之间的随机数,越小的数被选中的概率越大.
+     *
+     * @param random
+     *         random
+     * @param bound
+     *         上限(不包含)
+     * @return 随机数
+     */
+    private static int skewed(Random random, int bound) {
+        double r = random.nextDouble();
+        return (int) (r * r * bound);
+    }
+}
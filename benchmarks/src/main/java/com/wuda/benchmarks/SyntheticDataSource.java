@@ -0,0 +1,152 @@
+package com.wuda.benchmarks;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.logging.Logger;
+
+/**
+ * 在内存中生成数据的{@link DataSource},每次查询都返回<i>rows</i>条记录,第i条记录的第1列是i,第2列是"row-i".
+ * 没有网络和数据库的开销,因此测试结果只反映调用方(比如{@link com.wuda.jdbc.Jdbcs})自身的开销.
+ * <p>
+ * {@link Connection},{@link Statement}和{@link ResultSet}都是动态代理,只实现了查询需要的方法,
+ * 调用其他方法会抛出{@link UnsupportedOperationException}.
+ * </p>
+ *
+ * @author wuda
+ */
+public class SyntheticDataSource implements DataSource {
+
+    private final int rows;
+
+    /**
+     * 构造数据源.
+     *
+     * @param rows
+     *         每次查询返回的记录数
+     */
+    public SyntheticDataSource(int rows) {
+        this.rows = rows;
+    }
+
+    @Override
+    public Connection getConnection() {
+        return proxy(Connection.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "createStatement":
+                    return statement();
+                case "setReadOnly":
+                case "close":
+                    return null;
+                default:
+                    return unsupported(proxy, method.getName(), args);
+            }
+        });
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) {
+        return getConnection();
+    }
+
+    private Statement statement() {
+        return proxy(Statement.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "executeQuery":
+                    return resultSet();
+                case "setFetchSize":
+                case "close":
+                    return null;
+                default:
+                    return unsupported(proxy, method.getName(), args);
+            }
+        });
+    }
+
+    private ResultSet resultSet() {
+        int[] row = {0};
+        return proxy(ResultSet.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "next":
+                    return ++row[0] <= rows;
+                case "getLong":
+                    return (long) row[0];
+                case "getInt":
+                    return row[0];
+                case "getString":
+                    return "row-" + row[0];
+                case "close":
+                    return null;
+                default:
+                    return unsupported(proxy, method.getName(), args);
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(SyntheticDataSource.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    /**
+     * 处理{@link Object}中的方法,其他方法都不支持.
+     *
+     * @param proxy
+     *         代理对象
+     * @param name
+     *         方法名称
+     * @param args
+     *         参数
+     * @return Object中方法的返回值
+     */
+    private static Object unsupported(Object proxy, String name, Object[] args) {
+        switch (name) {
+            case "toString":
+                return proxy.getClass().getInterfaces()[0].getSimpleName() + "@" + System.identityHashCode(proxy);
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            default:
+                throw new UnsupportedOperationException(name);
+        }
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) {
+        throw new UnsupportedOperationException("unwrap");
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return false;
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return 0;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+}
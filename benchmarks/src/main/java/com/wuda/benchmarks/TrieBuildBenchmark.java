@@ -0,0 +1,73 @@
+package com.wuda.benchmarks;
+
+import com.wuda.tree.AhoCorasickDoubleArrayTrie;
+import com.wuda.tree.DoubleArrayTrie;
+import com.wuda.tree.FullDoubleArrayTrie;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 构造trie的耗时.每次调用都从空的trie开始,加上<code>-prof gc</code>可以看到构造过程中分配的内存.
+ *
+ * @author wuda
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TrieBuildBenchmark {
+
+    @Param({"10000", "100000"})
+    public int dictionarySize;
+
+    private String[] terms;
+    private List<String> termList;
+
+    @Setup
+    public void setup() {
+        terms = SyntheticData.dictionary(42, dictionarySize);
+        termList = SyntheticData.asList(terms);
+    }
+
+    /**
+     * 一次性构造,term先排序,然后按照广度优先的顺序放置.
+     *
+     * @return trie
+     */
+    @Benchmark
+    public DoubleArrayTrie doubleArrayTrieBuild() {
+        return DoubleArrayTrie.build(termList);
+    }
+
+    /**
+     * 逐个添加term,按照生成的顺序(无序)添加.
+     *
+     * @return trie
+     */
+    @Benchmark
+    public DoubleArrayTrie doubleArrayTrieAdd() {
+        DoubleArrayTrie trie = new DoubleArrayTrie();
+        for (String term : terms) {
+            trie.add(term);
+        }
+        return trie;
+    }
+
+    @Benchmark
+    public FullDoubleArrayTrie fullDoubleArrayTrieAdd() {
+        FullDoubleArrayTrie trie = new FullDoubleArrayTrie();
+        for (String term : terms) {
+            trie.add(term);
+        }
+        return trie;
+    }
+
+    @Benchmark
+    public AhoCorasickDoubleArrayTrie ahoCorasickBuild() {
+        return AhoCorasickDoubleArrayTrie.build(termList);
+    }
+}
@@ -0,0 +1,109 @@
+package com.wuda.benchmarks;
+
+import com.wuda.tree.CopyOnWriteDoubleArrayTrie;
+import com.wuda.tree.DoubleArrayTrie;
+import com.wuda.tree.FullDoubleArrayTrie;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多个线程同时查找同一个trie的吞吐量.查找不修改trie的任何状态,理想情况下吞吐量随线程数线性增长,
+ * 与{@link TrieLookupBenchmark}的单线程结果对比可以看出是否存在伪共享或者其他竞争.
+ * <p>
+ * readWrite组中3个线程查找{@link CopyOnWriteDoubleArrayTrie},同时1个线程不断地添加term并立即发布,
+ * 用于观察发布快照对查找的影响,写线程的吞吐量就是每秒发布快照的次数.
+ * </p>
+ *
+ * @author wuda
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TrieContentionBenchmark {
+
+    @Param({"100000"})
+    public int dictionarySize;
+
+    private String[] hits;
+    private String[] extra;
+    private DoubleArrayTrie doubleArrayTrie;
+    private FullDoubleArrayTrie fullDoubleArrayTrie;
+    private CopyOnWriteDoubleArrayTrie copyOnWriteTrie;
+
+    @Setup
+    public void setup() {
+        hits = SyntheticData.dictionary(42, dictionarySize);
+        extra = SyntheticData.dictionary(45, 1000);
+        doubleArrayTrie = DoubleArrayTrie.build(SyntheticData.asList(hits));
+        fullDoubleArrayTrie = new FullDoubleArrayTrie();
+        for (String term : hits) {
+            fullDoubleArrayTrie.add(term);
+        }
+        copyOnWriteTrie = new CopyOnWriteDoubleArrayTrie(DoubleArrayTrie.build(SyntheticData.asList(hits)),
+                100, TimeUnit.MILLISECONDS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        copyOnWriteTrie.close();
+    }
+
+    /**
+     * 每个线程有自己的位置,避免多个线程竞争同一个计数器.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int next;
+
+        int next(int bound) {
+            int index = next;
+            next = index + 1 == bound ? 0 : index + 1;
+            return index;
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean doubleArrayTrie(Cursor cursor) {
+        return doubleArrayTrie.contains(hits[cursor.next(hits.length)]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean fullDoubleArrayTrie(Cursor cursor) {
+        return fullDoubleArrayTrie.contains(hits[cursor.next(hits.length)]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean copyOnWriteTrie(Cursor cursor) {
+        return copyOnWriteTrie.contains(hits[cursor.next(hits.length)]);
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(3)
+    public boolean readWhileWriting(Cursor cursor) {
+        return copyOnWriteTrie.contains(hits[cursor.next(hits.length)]);
+    }
+
+    /**
+     * 添加的term只有1000个,反复添加已经存在的term,因此trie不会无限增长.每次添加之后立即发布,
+     * 否则写线程添加的速度远远快于后台发布的速度,队列会无限增长.
+     *
+     * @param cursor
+     *         cursor
+     */
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public void writeWhileReading(Cursor cursor) {
+        copyOnWriteTrie.add(extra[cursor.next(extra.length)]);
+        copyOnWriteTrie.flush();
+    }
+}
@@ -0,0 +1,190 @@
+package com.wuda.benchmarks;
+
+import com.wuda.lang.DirectIntArray;
+import com.wuda.tree.AhoCorasickDoubleArrayTrie;
+import com.wuda.tree.DoubleArrayDawg;
+import com.wuda.tree.DoubleArrayTrie;
+import com.wuda.tree.FullDoubleArrayTrie;
+import com.wuda.tree.MappedDoubleArrayTrie;
+import com.wuda.tree.PackedDoubleArrayTrie;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单线程查找的吞吐量.查找的term按照固定的顺序轮流使用,一半的benchmark查找存在的term,
+ * 另一半查找前缀存在、但是最后一个字符不存在的term.
+ *
+ * @author wuda
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TrieLookupBenchmark {
+
+    @Param({"10000", "100000"})
+    public int dictionarySize;
+
+    private String[] hits;
+    private char[][] hitChars;
+    private String[] misses;
+    private String corpus;
+
+    private DoubleArrayTrie doubleArrayTrie;
+    private FullDoubleArrayTrie fullDoubleArrayTrie;
+    private MappedDoubleArrayTrie mappedDoubleArrayTrie;
+    private PackedDoubleArrayTrie packedDoubleArrayTrie;
+    private AhoCorasickDoubleArrayTrie ahoCorasick;
+    private DoubleArrayDawg dawg;
+    private Path file;
+
+    private int next;
+    private final int[] lengths = new int[16];
+
+    @Setup
+    public void setup() throws IOException {
+        hits = SyntheticData.dictionary(42, dictionarySize);
+        misses = SyntheticData.misses(hits, 43, hits.length);
+        hitChars = new char[hits.length][];
+        for (int index = 0; index < hits.length; index++) {
+            hitChars[index] = hits[index].toCharArray();
+        }
+        corpus = SyntheticData.corpus(hits, 44, 10000);
+        doubleArrayTrie = DoubleArrayTrie.build(SyntheticData.asList(hits));
+        fullDoubleArrayTrie = new FullDoubleArrayTrie();
+        for (String term : hits) {
+            fullDoubleArrayTrie.add(term);
+        }
+        ahoCorasick = AhoCorasickDoubleArrayTrie.build(SyntheticData.asList(hits));
+        dawg = DoubleArrayDawg.build(SyntheticData.asList(hits));
+        file = Files.createTempFile("benchmark", ".dat");
+        doubleArrayTrie.save(file);
+        mappedDoubleArrayTrie = MappedDoubleArrayTrie.load(file);
+        packedDoubleArrayTrie = doubleArrayTrie.freeze();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = index + 1 == hits.length ? 0 : index + 1;
+        return index;
+    }
+
+    @Benchmark
+    public boolean doubleArrayTrieHit() {
+        return doubleArrayTrie.contains(hits[nextIndex()]);
+    }
+
+    @Benchmark
+    public boolean doubleArrayTrieMiss() {
+        return doubleArrayTrie.contains(misses[nextIndex()]);
+    }
+
+    /**
+     * 数组保存在堆外的double-array trie,单独作为一个state,只有用到它的benchmark才会构造,
+     * 不影响其他benchmark中{@link com.wuda.lang.IntArray}调用点的类型profile.
+     */
+    @State(Scope.Benchmark)
+    public static class OffHeap {
+
+        private DoubleArrayTrie doubleArrayTrie;
+
+        @Setup
+        public void setup(TrieLookupBenchmark benchmark) {
+            doubleArrayTrie = DoubleArrayTrie.build(SyntheticData.asList(benchmark.hits), DirectIntArray::new);
+        }
+    }
+
+    @Benchmark
+    public boolean doubleArrayTrieOffHeapHit(OffHeap offHeap) {
+        return offHeap.doubleArrayTrie.contains(hits[nextIndex()]);
+    }
+
+    /**
+     * 分词时常用的形式,直接在字符数组上查找,加上<code>-prof gc</code>应该看到0 B/op.
+     *
+     * @return 是否包含
+     */
+    @Benchmark
+    public boolean doubleArrayTrieCharsHit() {
+        char[] chars = hitChars[nextIndex()];
+        return doubleArrayTrie.contains(chars, 0, chars.length);
+    }
+
+    @Benchmark
+    public boolean fullDoubleArrayTrieHit() {
+        return fullDoubleArrayTrie.contains(hits[nextIndex()]);
+    }
+
+    @Benchmark
+    public boolean fullDoubleArrayTrieMiss() {
+        return fullDoubleArrayTrie.contains(misses[nextIndex()]);
+    }
+
+    @Benchmark
+    public boolean dawgHit() {
+        return dawg.contains(hits[nextIndex()]);
+    }
+
+    @Benchmark
+    public boolean dawgMiss() {
+        return dawg.contains(misses[nextIndex()]);
+    }
+
+    @Benchmark
+    public boolean mappedDoubleArrayTrieHit() {
+        return mappedDoubleArrayTrie.contains(hits[nextIndex()]);
+    }
+
+    /**
+     * 与{@link #doubleArrayTrieHit()}对比,BASE和CHECK被压缩之后查找的开销.
+     *
+     * @return 是否包含
+     */
+    @Benchmark
+    public boolean packedDoubleArrayTrieHit() {
+        return packedDoubleArrayTrie.contains(hits[nextIndex()]);
+    }
+
+    @Benchmark
+    public boolean packedDoubleArrayTrieMiss() {
+        return packedDoubleArrayTrie.contains(misses[nextIndex()]);
+    }
+
+    /**
+     * 在10000个字符的文本中,从每个位置开始做一次common prefix search,相当于词典分词的一次全切分.
+     *
+     * @param blackhole
+     *         blackhole
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void doubleArrayTrieCommonPrefixSearch(Blackhole blackhole) {
+        for (int offset = 0; offset < corpus.length(); offset++) {
+            blackhole.consume(doubleArrayTrie.commonPrefixSearch(corpus, offset, lengths));
+        }
+    }
+
+    /**
+     * 与{@link #doubleArrayTrieCommonPrefixSearch(Blackhole)}找出相同的结果,但是只扫描一遍文本.
+     *
+     * @param blackhole
+     *         blackhole
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void ahoCorasickScan(Blackhole blackhole) {
+        ahoCorasick.scan(corpus, (begin, end, index) -> blackhole.consume(end));
+    }
+}
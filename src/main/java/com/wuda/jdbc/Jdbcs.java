@@ -212,7 +212,7 @@ public class Jdbcs {
                     return null;
                 }
             }
-            return Spliterators.spliterator(array, count);
+            return Spliterators.spliterator(array, 0, count, 0);
         }
 
         @Override
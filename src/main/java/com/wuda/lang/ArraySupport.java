@@ -0,0 +1,117 @@
+package com.wuda.lang;
+
+/**
+ * 本包中数组类的公共方法,比如扩容策略.{@link IntArray},{@link DirectIntArray}以及各个原始类型的list
+ * 都按照同样的策略扩容,即原来的1.5倍,但是至少是需要的容量.
+ *
+ * @author wuda
+ */
+final class ArraySupport {
+
+    /**
+     * The maximum size of array to allocate.
+     * Some VMs reserve some header words in an array.
+     * Attempts to allocate larger arrays may result in
+     * OutOfMemoryError: Requested array size exceeds VM limit
+     */
+    static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    private ArraySupport() {
+    }
+
+    /**
+     * 计算扩容后的容量,最大是{@link #MAX_ARRAY_SIZE}.
+     *
+     * @param oldCapacity
+     *         当前的容量
+     * @param minCapacity
+     *         the desired minimum capacity
+     * @return 新的容量
+     * @see #newCapacity(int, int, int)
+     */
+    static int newCapacity(int oldCapacity, int minCapacity) {
+        return newCapacity(oldCapacity, minCapacity, MAX_ARRAY_SIZE);
+    }
+
+    /**
+     * 计算扩容后的容量,即原来的1.5倍,但是至少是<i>minCapacity</i>.
+     *
+     * @param oldCapacity
+     *         当前的容量
+     * @param minCapacity
+     *         the desired minimum capacity
+     * @param maxCapacity
+     *         允许的最大容量
+     * @return 新的容量
+     * @see java.util.ArrayList#grow(int)
+     */
+    static int newCapacity(int oldCapacity, int minCapacity, int maxCapacity) {
+        // overflow-conscious code
+        int newCapacity = oldCapacity + (oldCapacity >> 1);
+        if (newCapacity - minCapacity < 0)
+            newCapacity = minCapacity;
+        if (newCapacity - maxCapacity > 0)
+            newCapacity = hugeCapacity(minCapacity, maxCapacity);
+        return newCapacity;
+    }
+
+    private static int hugeCapacity(int minCapacity, int maxCapacity) {
+        if (minCapacity < 0) // overflow
+            throw new OutOfMemoryError();
+        return (minCapacity > maxCapacity) ?
+                minCapacity :
+                maxCapacity;
+    }
+
+    /**
+     * 检查list的下标,0 &lt;= index &lt; size.
+     *
+     * @param index
+     *         下标
+     * @param size
+     *         list的大小
+     * @throws IndexOutOfBoundsException
+     *         如果下标越界
+     */
+    static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index, size));
+    }
+
+    /**
+     * 检查插入的位置,0 &lt;= index &lt;= size.
+     *
+     * @param index
+     *         下标
+     * @param size
+     *         list的大小
+     * @throws IndexOutOfBoundsException
+     *         如果下标越界
+     */
+    static void checkPositionIndex(int index, int size) {
+        if (index < 0 || index > size)
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index, size));
+    }
+
+    /**
+     * 检查[offset, offset + length)是否在长度为<i>capacity</i>的数组的范围内.
+     *
+     * @param offset
+     *         开始位置
+     * @param length
+     *         长度
+     * @param capacity
+     *         数组的长度
+     * @throws IndexOutOfBoundsException
+     *         如果越界
+     */
+    static void checkRange(int offset, int length, int capacity) {
+        if (offset < 0 || length < 0 || offset > capacity - length)
+            throw new IndexOutOfBoundsException("offset: " + offset + ", length: " + length
+                    + ", capacity: " + capacity);
+    }
+
+    private static String outOfBoundsMsg(int index, int size) {
+        return "Index: " + index + ", Size: " + size;
+    }
+}
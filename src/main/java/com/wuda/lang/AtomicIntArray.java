@@ -0,0 +1,174 @@
+package com.wuda.lang;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * 可以被多个线程同时更新的int数组,每个元素的读写都是原子的,不需要额外的锁.
+ * 比如多个线程同时统计字符出现的次数(下标是code point).
+ * <p>
+ * 与{@link IntArray}不同,长度在构造时确定,不能扩容,因为扩容时复制数组与并发的更新无法同时保证原子性.
+ * 很多线程同时更新少数几个热点元素(比如常用字)时,所有线程竞争同一条cache line,
+ * 这种只需要累加的场景使用{@link StripedIntArray}.Java 8没有VarHandle,这里使用{@link AtomicIntegerArray}.
+ * </p>
+ *
+ * @author wuda
+ * @see StripedIntArray
+ */
+public class AtomicIntArray {
+
+    private final AtomicIntegerArray array;
+
+    /**
+     * 构造一个指定长度的array,初始值都是0.
+     *
+     * @param length
+     *         数组长度
+     */
+    public AtomicIntArray(int length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Illegal Capacity: " +
+                    length);
+        }
+        this.array = new AtomicIntegerArray(length);
+    }
+
+    /**
+     * 构造一个array,初始值从<i>values</i>中复制.
+     *
+     * @param values
+     *         初始值
+     */
+    public AtomicIntArray(int[] values) {
+        this.array = new AtomicIntegerArray(values);
+    }
+
+    /**
+     * 数组的长度.
+     *
+     * @return 长度
+     */
+    public int length() {
+        return array.length();
+    }
+
+    /**
+     * 获取指定下标处的值.
+     *
+     * @param index
+     *         数组下标
+     * @return 此下标处的值
+     * @throws IndexOutOfBoundsException
+     *         如果下标越界
+     */
+    public int get(int index) {
+        return array.get(index);
+    }
+
+    /**
+     * 设置指定下标处的值.
+     *
+     * @param index
+     *         数组下标
+     * @param value
+     *         新的值
+     * @throws IndexOutOfBoundsException
+     *         如果下标越界
+     */
+    public void set(int index, int value) {
+        array.set(index, value);
+    }
+
+    /**
+     * 原子地设置指定下标处的值,并且返回原来的值.
+     *
+     * @param index
+     *         数组下标
+     * @param value
+     *         新的值
+     * @return 原来的值
+     */
+    public int getAndSet(int index, int value) {
+        return array.getAndSet(index, value);
+    }
+
+    /**
+     * 如果指定下标处的值等于<i>expect</i>,则原子地设置为<i>update</i>.
+     *
+     * @param index
+     *         数组下标
+     * @param expect
+     *         期望的值
+     * @param update
+     *         新的值
+     * @return true-如果设置成功, false-当前值不等于期望的值
+     */
+    public boolean compareAndSet(int index, int expect, int update) {
+        return array.compareAndSet(index, expect, update);
+    }
+
+    /**
+     * 原子地加1.
+     *
+     * @param index
+     *         数组下标
+     * @return 加1之后的值
+     */
+    public int incrementAndGet(int index) {
+        return array.incrementAndGet(index);
+    }
+
+    /**
+     * 原子地减1.
+     *
+     * @param index
+     *         数组下标
+     * @return 减1之后的值
+     */
+    public int decrementAndGet(int index) {
+        return array.decrementAndGet(index);
+    }
+
+    /**
+     * 原子地加上<i>delta</i>.
+     *
+     * @param index
+     *         数组下标
+     * @param delta
+     *         增加的值
+     * @return 增加之后的值
+     */
+    public int addAndGet(int index, int delta) {
+        return array.addAndGet(index, delta);
+    }
+
+    /**
+     * 原子地加上<i>delta</i>,并且返回原来的值.
+     *
+     * @param index
+     *         数组下标
+     * @param delta
+     *         增加的值
+     * @return 原来的值
+     */
+    public int getAndAdd(int index, int delta) {
+        return array.getAndAdd(index, delta);
+    }
+
+    /**
+     * 复制所有的值.每个元素是原子地读取的,但是整个数组不是同一时刻的快照.
+     *
+     * @return 数组
+     */
+    public int[] toIntArray() {
+        int[] values = new int[array.length()];
+        for (int index = 0; index < values.length; index++) {
+            values[index] = array.get(index);
+        }
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        return array.toString();
+    }
+}
@@ -0,0 +1,238 @@
+package com.wuda.lang;
+
+import java.util.Arrays;
+
+/**
+ * 分页保存的{@link IntArray},数据保存在多个固定大小({@link #PAGE_SIZE})的int数组中,下标可以是long.
+ * <p>
+ * {@link IntArray#grow(int)}需要分配新的数组并复制全部数据,对于几百MB的BASE,CHECK数组,
+ * 复制会造成明显的停顿,并且复制期间新旧两个数组同时存在,内存峰值是数据的2.5倍.
+ * 这里扩容只是在末尾追加新的页,已有的页不会被复制,所以也没有这个峰值.
+ * 容量也不受{@link ArraySupport#MAX_ARRAY_SIZE}的限制,超过int范围的部分通过{@link #get(long)},
+ * {@link #set(long, int)},{@link #grow(long)}访问.随机访问只需要一次移位和一次掩码.
+ * </p>
+ * <p>
+ * 为了与{@link IntArray}的行为一致,{@link #grow(int)}同样扩容到原来的1.5倍(只是追加页),
+ * 超过容量的下标同样抛出{@link IndexOutOfBoundsException},即使它在最后一页的范围内.
+ * 除了{@link #getArray()}不支持之外,可以作为trie的arrayFactory使用,比如<code>BigIntArray::new</code>.
+ * trie中每个节点占用一项的数组(BASE,CHECK,子节点链表以及x_check使用的空闲节点链表)都由arrayFactory创建,
+ * 所以double array扩容时没有数组会被整体复制.{@link com.wuda.tree.DoubleArrayTrie}的TAIL数组依然是char[],扩容时会被复制.
+ * </p>
+ *
+ * @author wuda
+ */
+public class BigIntArray extends IntArray {
+
+    /**
+     * 每页的int数量是2的PAGE_SHIFT次方.
+     */
+    public static final int PAGE_SHIFT = 14;
+
+    /**
+     * 每页的int数量,即64KB.
+     */
+    public static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    /**
+     * 最大容量.
+     */
+    public static final long MAX_CAPACITY = (long) ArraySupport.MAX_ARRAY_SIZE << PAGE_SHIFT;
+
+    private int[][] pages;
+
+    private long capacity;
+
+    /**
+     * 构造一个默认容量的array.
+     */
+    public BigIntArray() {
+        this(8);
+    }
+
+    /**
+     * 构造一个指定容量的array.
+     *
+     * @param initialCapacity
+     *         数组容量
+     */
+    public BigIntArray(long initialCapacity) {
+        super(0);
+        if (initialCapacity < 0 || initialCapacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Illegal Capacity: " +
+                    initialCapacity);
+        }
+        this.pages = new int[0][];
+        resize(initialCapacity);
+    }
+
+    /**
+     * 追加页,使容量变成<i>newCapacity</i>.
+     *
+     * @param newCapacity
+     *         新的容量
+     */
+    private void resize(long newCapacity) {
+        int pageCount = (int) ((newCapacity + PAGE_MASK) >>> PAGE_SHIFT);
+        if (pageCount > pages.length) {
+            int oldCount = pages.length;
+            pages = Arrays.copyOf(pages, pageCount);
+            for (int page = oldCount; page < pageCount; page++) {
+                pages[page] = new int[PAGE_SIZE];
+            }
+        }
+        capacity = newCapacity;
+    }
+
+    /**
+     * 获取指定下标处的值.
+     *
+     * @param index
+     *         数组下标
+     * @return 此下标处的值
+     * @throws IndexOutOfBoundsException
+     *         如果下标越界
+     */
+    public int get(long index) throws IndexOutOfBoundsException {
+        rangeCheck(index);
+        return pages[(int) (index >>> PAGE_SHIFT)][(int) index & PAGE_MASK];
+    }
+
+    /**
+     * 设置指定下标处的值.
+     *
+     * @param index
+     *         数组下标
+     * @param value
+     *         值
+     * @throws IndexOutOfBoundsException
+     *         如果下标越界
+     */
+    public void set(long index, int value) throws IndexOutOfBoundsException {
+        rangeCheck(index);
+        pages[(int) (index >>> PAGE_SHIFT)][(int) index & PAGE_MASK] = value;
+    }
+
+    @Override
+    public int get(int index) throws IndexOutOfBoundsException {
+        return get((long) index);
+    }
+
+    @Override
+    public void set(int index, int value) throws IndexOutOfBoundsException {
+        set((long) index, value);
+    }
+
+    /**
+     * 数组的长度,不能超过int的范围,否则使用{@link #longLength()}.
+     *
+     * @return 长度
+     * @throws ArithmeticException
+     *         如果长度超过int的范围
+     */
+    @Override
+    public int length() {
+        return Math.toIntExact(capacity);
+    }
+
+    /**
+     * 数组的长度.
+     *
+     * @return 长度
+     */
+    public long longLength() {
+        return capacity;
+    }
+
+    /**
+     * 不支持,数据保存在多个页中.
+     *
+     * @throws UnsupportedOperationException
+     *         总是抛出
+     */
+    @Override
+    public int[] getArray() {
+        throw new UnsupportedOperationException("数据分页保存,没有完整的int数组!");
+    }
+
+    @Override
+    public void get(int index, int[] dest, int destOffset, int length) throws IndexOutOfBoundsException {
+        rangeCheck(index, length);
+        long position = index;
+        while (length > 0) {
+            int offset = (int) position & PAGE_MASK;
+            int count = Math.min(length, PAGE_SIZE - offset);
+            System.arraycopy(pages[(int) (position >>> PAGE_SHIFT)], offset, dest, destOffset, count);
+            position += count;
+            destOffset += count;
+            length -= count;
+        }
+    }
+
+    @Override
+    public void set(int index, int[] src, int srcOffset, int length) throws IndexOutOfBoundsException {
+        rangeCheck(index, length);
+        long position = index;
+        while (length > 0) {
+            int offset = (int) position & PAGE_MASK;
+            int count = Math.min(length, PAGE_SIZE - offset);
+            System.arraycopy(src, srcOffset, pages[(int) (position >>> PAGE_SHIFT)], offset, count);
+            position += count;
+            srcOffset += count;
+            length -= count;
+        }
+    }
+
+    @Override
+    public BigIntArray copy() {
+        BigIntArray copy = new BigIntArray(0);
+        copy.pages = new int[pages.length][];
+        for (int page = 0; page < pages.length; page++) {
+            copy.pages[page] = pages[page].clone();
+        }
+        copy.capacity = capacity;
+        return copy;
+    }
+
+    @Override
+    public int grow(int minCapacity) {
+        int newCapacity = ArraySupport.newCapacity(length(), minCapacity);
+        resize(newCapacity);
+        return newCapacity;
+    }
+
+    /**
+     * 扩容到原来的1.5倍,但是至少是<i>minCapacity</i>,容量可以超过int的范围.只追加页,不复制已有的数据.
+     *
+     * @param minCapacity
+     *         the desired minimum capacity
+     * @return 新的容量
+     */
+    public long grow(long minCapacity) {
+        if (minCapacity < 0 || minCapacity > MAX_CAPACITY) {
+            throw new OutOfMemoryError("Required capacity " + minCapacity + " exceeds " + MAX_CAPACITY);
+        }
+        long newCapacity = Math.min(Math.max(capacity + (capacity >> 1), minCapacity), MAX_CAPACITY);
+        resize(newCapacity);
+        return newCapacity;
+    }
+
+    /**
+     * Checks if the given index is in range.
+     */
+    private void rangeCheck(long index) {
+        if (index < 0 || index >= capacity)
+            throw new IndexOutOfBoundsException("Index: " + index + ", array length: " + capacity);
+    }
+
+    /**
+     * 检查[index, index + length)是否在范围内,否则抛出与数组越界相同的异常.
+     */
+    private void rangeCheck(long index, int length) {
+        if (index < 0 || length < 0 || index > capacity - length) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", length: " + length
+                    + ", array length: " + capacity);
+        }
+    }
+}
@@ -0,0 +1,532 @@
+package com.wuda.lang;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * 压缩的严格递增的int序列,比如倒排列表(term出现的文档id),顶点的id列表.构造之后不能修改,可以被多个线程同时读取.
+ * <p>
+ * 每{@link #BLOCK_SIZE}个值是一个块,块的第一个值原样保存在一个int数组中,同时作为跳表使用;
+ * 块中其余的值保存与前一个值的差减1(因为严格递增,差至少是1),所有差按照块中最大的差需要的位数
+ * (frame of reference)首尾相连地保存在long数组中.连续的id只需要0位,平均间隔是16的id加上元数据大约需要6位,
+ * 而{@link IntArrayList}固定是32位.
+ * </p>
+ * <p>
+ * 读取使用{@link Cursor}:{@link Cursor#advance()}按顺序逐个读取,每次解压一整个块;
+ * {@link Cursor#advance(int)}跳到第一个大于等于目标的值,先通过块的第一个值跳过整个块,不需要解压被跳过的块.
+ * {@link #intersection(CompressedIntSequence, CompressedIntSequence)}交替地在两个序列上跳跃,再在解压的块中合并,
+ * 长短相差很大时,只需要解压长序列中很少的块.
+ * </p>
+ *
+ * @author wuda
+ */
+public final class CompressedIntSequence {
+
+    /**
+     * 每个块中值的数量是2的BLOCK_SHIFT次方.
+     */
+    private static final int BLOCK_SHIFT = 7;
+
+    /**
+     * 每个块中值的数量.
+     */
+    public static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+    private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+    /**
+     * 求交集时,长序列的长度至少是短序列的多少倍才逐个扫描,否则没有分支地合并.
+     */
+    private static final int SKEWED_RATIO = 4;
+
+    private final int size;
+    /**
+     * 每个块的第一个值.
+     */
+    private final int[] firstValues;
+    /**
+     * 每个块的差在{@link #data}中开始的位置(以long为单位).
+     */
+    private final int[] blockStarts;
+    /**
+     * 每个块中每个差占用的位数,0到32.
+     */
+    private final byte[] blockBits;
+    /**
+     * 末尾多分配了一个long,读取时不需要判断是否跨越两个long.
+     */
+    private final long[] data;
+
+    private CompressedIntSequence(int size, int[] firstValues, int[] blockStarts, byte[] blockBits, long[] data) {
+        this.size = size;
+        this.firstValues = firstValues;
+        this.blockStarts = blockStarts;
+        this.blockBits = blockBits;
+        this.data = data;
+    }
+
+    /**
+     * 压缩严格递增的值.
+     *
+     * @param values
+     *         严格递增的值
+     * @return 压缩的序列
+     * @throws IllegalArgumentException
+     *         如果不是严格递增的
+     */
+    public static CompressedIntSequence of(int[] values) {
+        return of(values, 0, values.length);
+    }
+
+    /**
+     * 压缩list中的值.
+     *
+     * @param values
+     *         严格递增的值
+     * @return 压缩的序列
+     * @throws IllegalArgumentException
+     *         如果不是严格递增的
+     */
+    public static CompressedIntSequence of(IntArrayList values) {
+        return of(values.toIntArray());
+    }
+
+    /**
+     * 压缩数组中从<i>offset</i>开始的<i>length</i>个值.
+     *
+     * @param values
+     *         数组
+     * @param offset
+     *         开始位置(包含)
+     * @param length
+     *         数量
+     * @return 压缩的序列
+     * @throws IllegalArgumentException
+     *         如果不是严格递增的
+     */
+    public static CompressedIntSequence of(int[] values, int offset, int length) {
+        ArraySupport.checkRange(offset, length, values.length);
+        int blockCount = (length + BLOCK_MASK) >>> BLOCK_SHIFT;
+        int[] firstValues = new int[blockCount];
+        int[] blockStarts = new int[blockCount];
+        byte[] blockBits = new byte[blockCount];
+        long words = 0;
+        for (int block = 0; block < blockCount; block++) {
+            int from = offset + (block << BLOCK_SHIFT);
+            int to = Math.min(from + BLOCK_SIZE, offset + length);
+            long maxGap = 0;
+            for (int index = from + 1; index < to; index++) {
+                long gap = (long) values[index] - values[index - 1] - 1;
+                if (gap < 0) {
+                    throw new IllegalArgumentException("必须严格递增! index: " + (index - offset)
+                            + ", " + values[index - 1] + " >= " + values[index]);
+                }
+                maxGap |= gap;
+            }
+            int bits = Long.SIZE - Long.numberOfLeadingZeros(maxGap);
+            firstValues[block] = values[from];
+            blockStarts[block] = (int) words;
+            blockBits[block] = (byte) bits;
+            words += ((long) (to - from - 1) * bits + Long.SIZE - 1) >>> 6;
+        }
+        long[] data = new long[(int) words + 1];
+        for (int block = 0; block < blockCount; block++) {
+            int from = offset + (block << BLOCK_SHIFT);
+            int to = Math.min(from + BLOCK_SIZE, offset + length);
+            int bits = blockBits[block];
+            long bitIndex = (long) blockStarts[block] << 6;
+            for (int index = from + 1; index < to && bits > 0; index++, bitIndex += bits) {
+                long gap = (long) values[index] - values[index - 1] - 1;
+                int word = (int) (bitIndex >>> 6);
+                int shift = (int) bitIndex & 63;
+                data[word] |= gap << shift;
+                if (shift + bits > Long.SIZE) {
+                    data[word + 1] |= gap >>> (Long.SIZE - shift);
+                }
+            }
+        }
+        return new CompressedIntSequence(length, firstValues, blockStarts, blockBits, data);
+    }
+
+    /**
+     * 解压一个块.
+     *
+     * @param block
+     *         块的序号
+     * @param buffer
+     *         长度至少是{@link #BLOCK_SIZE}
+     * @return 块中值的数量
+     */
+    private int decode(int block, int[] buffer) {
+        int length = Math.min(BLOCK_SIZE, size - (block << BLOCK_SHIFT));
+        int bits = blockBits[block];
+        int value = firstValues[block];
+        buffer[0] = value;
+        if (bits == 0) {
+            for (int index = 1; index < length; index++) {
+                buffer[index] = ++value;
+            }
+            return length;
+        }
+        long[] data = this.data;
+        long mask = (1L << bits) - 1;
+        int word = blockStarts[block];
+        // current中还没有读取的位数
+        long current = data[word];
+        int available = Long.SIZE;
+        for (int index = 1; index < length; index++) {
+            long gap;
+            if (available >= bits) {
+                gap = current & mask;
+                current >>>= bits;
+                available -= bits;
+            } else {
+                long next = data[++word];
+                gap = (current | next << available) & mask;
+                current = next >>> (bits - available);
+                available += Long.SIZE - bits;
+            }
+            // 差最多32位,int溢出之后的结果依然正确
+            value += (int) gap + 1;
+            buffer[index] = value;
+        }
+        return length;
+    }
+
+    /**
+     * 最后一个第一个值小于等于<i>target</i>的块,从<i>from</i>开始先倍增再二分查找.
+     *
+     * @param target
+     *         目标值
+     * @param from
+     *         从这个块开始查找,它的第一个值必须小于等于target
+     * @return 块的序号
+     */
+    private int lastBlockNotAfter(int target, int from) {
+        int low = from;
+        int step = 1;
+        int high = from + step;
+        while (high < firstValues.length && firstValues[high] <= target) {
+            low = high;
+            step <<= 1;
+            high = from + step;
+        }
+        high = Math.min(high, firstValues.length);
+        // firstValues[low] <= target, firstValues[high] > target或者high越界
+        while (high - low > 1) {
+            int middle = (low + high) >>> 1;
+            if (firstValues[middle] <= target) {
+                low = middle;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 值的数量.
+     *
+     * @return 值的数量
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 是否为空.
+     *
+     * @return true-如果没有任何值
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 获取指定位置的值,需要解压整个块,顺序读取时使用{@link #cursor()}.
+     *
+     * @param index
+     *         位置
+     * @return 值
+     * @throws IndexOutOfBoundsException
+     *         如果下标越界
+     */
+    public int get(int index) {
+        ArraySupport.checkIndex(index, size);
+        int[] buffer = new int[BLOCK_SIZE];
+        decode(index >>> BLOCK_SHIFT, buffer);
+        return buffer[index & BLOCK_MASK];
+    }
+
+    /**
+     * 是否包含给定的值.
+     *
+     * @param value
+     *         值
+     * @return true-如果包含
+     */
+    public boolean contains(int value) {
+        Cursor cursor = cursor();
+        return cursor.advance(value) && cursor.value() == value;
+    }
+
+    /**
+     * 解压所有的值.
+     *
+     * @return 数组
+     */
+    public int[] toIntArray() {
+        int[] values = new int[size];
+        int[] buffer = new int[BLOCK_SIZE];
+        for (int block = 0; block < firstValues.length; block++) {
+            int length = decode(block, buffer);
+            System.arraycopy(buffer, 0, values, block << BLOCK_SHIFT, length);
+        }
+        return values;
+    }
+
+    /**
+     * 创建一个从头开始读取的游标.
+     *
+     * @return cursor
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * 两个序列的交集.先用{@link Cursor#advance(int)}交替地跳过不可能相交的块(不需要解压),
+     * 两个游标都停在已经解压的块中之后,直接在两个块中合并.
+     *
+     * @param one
+     *         序列
+     * @param another
+     *         另一个序列
+     * @return 交集, 严格递增
+     */
+    public static int[] intersection(CompressedIntSequence one, CompressedIntSequence another) {
+        if (one.size > another.size) {
+            CompressedIntSequence swap = one;
+            one = another;
+            another = swap;
+        }
+        // 长度相差很大时,长序列中大部分的值都小于短序列的下一个值,顺序扫描的分支很容易预测
+        boolean skewed = another.size / SKEWED_RATIO >= one.size;
+        Cursor small = one.cursor();
+        Cursor large = another.cursor();
+        int[] result = new int[Math.min(Math.min(one.size, another.size), BLOCK_SIZE)];
+        int count = 0;
+        if (!small.advance()) {
+            return result;
+        }
+        while (large.advance(small.value()) && small.advance(large.value())) {
+            int[] a = small.buffer;
+            int[] b = large.buffer;
+            int startA = small.decodedBlock << BLOCK_SHIFT;
+            int startB = large.decodedBlock << BLOCK_SHIFT;
+            int i = small.index - startA;
+            int j = large.index - startB;
+            int endA = small.blockEnd() - startA;
+            int endB = large.blockEnd() - startB;
+            int maxCount = count + Math.min(endA - i, endB - j);
+            if (maxCount > result.length) {
+                result = Arrays.copyOf(result, ArraySupport.newCapacity(result.length, maxCount));
+            }
+            if (skewed) {
+                while (i < endA) {
+                    int x = a[i];
+                    while (j < endB && b[j] < x) {
+                        j++;
+                    }
+                    if (j == endB) {
+                        break;
+                    }
+                    if (b[j] == x) {
+                        result[count++] = x;
+                        j++;
+                    }
+                    i++;
+                }
+            } else {
+                // 没有分支的合并,两个块中的值的大小关系是随机的,分支预测几乎总是失败
+                while (i < endA && j < endB) {
+                    int x = a[i];
+                    int y = b[j];
+                    result[count] = x;
+                    count += x == y ? 1 : 0;
+                    i += x <= y ? 1 : 0;
+                    j += x >= y ? 1 : 0;
+                }
+            }
+            // 合并完的块停在最后一个值,再跳到另一个块的当前值,中间的块不需要解压
+            if (i == endA && j == endB) {
+                small.index = startA + endA - 1;
+                large.index = startB + endB - 1;
+                if (!small.advance()) {
+                    break;
+                }
+            } else if (i == endA) {
+                small.index = startA + endA - 1;
+                large.index = startB + j;
+                if (!small.advance(b[j])) {
+                    break;
+                }
+            } else {
+                small.index = startA + i;
+                large.index = startB + endB - 1;
+                if (!large.advance(a[i])) {
+                    break;
+                }
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * 平均每个值占用的位数,包括块的第一个值和位置等元数据.
+     *
+     * @return 位数
+     */
+    public double bitsPerValue() {
+        return size == 0 ? 0 : ramUsedB() * 8.0 / size;
+    }
+
+    /**
+     * 返回大致的内存使用量,以b为单位.
+     *
+     * @return 大致的内存使用量
+     */
+    public long ramUsedB() {
+        return data.length * 8L + firstValues.length * 4L + blockStarts.length * 4L + blockBits.length;
+    }
+
+    @Override
+    public String toString() {
+        return "size:" + size
+                + ",blocks:" + firstValues.length
+                + ",ramUsedB:" + ramUsedB()
+                + ",bitsPerValue:" + bitsPerValue();
+    }
+
+    /**
+     * 读取序列的游标,一次解压一个块.用法:
+     * <pre>
+     *     CompressedIntSequence.Cursor cursor = sequence.cursor();
+     *     while (cursor.advance()) {
+     *         use(cursor.value());
+     *     }
+     * </pre>
+     * 游标不是线程安全的,每个线程使用自己的游标.
+     */
+    public final class Cursor {
+
+        private final int[] buffer = new int[BLOCK_SIZE];
+        private int decodedBlock = -1;
+        /**
+         * 当前值在序列中的位置,-1表示还没有开始,{@link #size}表示已经结束.
+         */
+        private int index = -1;
+
+        private Cursor() {
+        }
+
+        /**
+         * 移动到下一个值.
+         *
+         * @return true-如果有下一个值, false-已经结束
+         */
+        public boolean advance() {
+            if (index + 1 >= size) {
+                index = size;
+                return false;
+            }
+            index++;
+            int block = index >>> BLOCK_SHIFT;
+            if (block != decodedBlock) {
+                decode(block, buffer);
+                decodedBlock = block;
+            }
+            return true;
+        }
+
+        /**
+         * 移动到第一个大于等于<i>target</i>的值,如果当前值已经大于等于target,则不移动.
+         * 只会向前移动,第一个值大于target的块之后的块不会被解压.
+         *
+         * @param target
+         *         目标值
+         * @return true-如果找到了这样的值, false-已经结束
+         */
+        public boolean advance(int target) {
+            if (index >= size || size == 0) {
+                index = size;
+                return false;
+            }
+            if (index >= 0 && buffer[index & BLOCK_MASK] >= target) {
+                return true;
+            }
+            int block = index < 0 ? 0 : index >>> BLOCK_SHIFT;
+            if (block + 1 < firstValues.length && firstValues[block + 1] <= target) {
+                block = lastBlockNotAfter(target, block + 1);
+            }
+            if (block != decodedBlock) {
+                decode(block, buffer);
+                decodedBlock = block;
+                index = block << BLOCK_SHIFT;
+            } else if (index < 0) {
+                index = 0;
+            }
+            int end = Math.min(size, (block + 1) << BLOCK_SHIFT);
+            while (index < end && buffer[index & BLOCK_MASK] < target) {
+                index++;
+            }
+            if (index < end) {
+                return true;
+            }
+            // 当前块中所有的值都小于target,而下一个块的第一个值一定大于target
+            if (index >= size) {
+                return false;
+            }
+            decode(block + 1, buffer);
+            decodedBlock = block + 1;
+            return true;
+        }
+
+        /**
+         * 当前值.
+         *
+         * @return 值
+         * @throws NoSuchElementException
+         *         还没有调用advance,或者已经结束
+         */
+        public int value() {
+            if (index < 0 || index >= size) {
+                throw new NoSuchElementException();
+            }
+            return buffer[index & BLOCK_MASK];
+        }
+
+        /**
+         * 当前块之后的第一个位置.
+         */
+        private int blockEnd() {
+            return Math.min(size, (decodedBlock + 1) << BLOCK_SHIFT);
+        }
+
+        /**
+         * 回到第一个值之前,重新读取.
+         */
+        public void reset() {
+            index = -1;
+        }
+
+        /**
+         * 当前值在序列中的位置.
+         *
+         * @return 位置, -1表示还没有开始, {@link #size()}表示已经结束
+         */
+        public int index() {
+            return index;
+        }
+    }
+}
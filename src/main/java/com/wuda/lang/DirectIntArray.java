@@ -0,0 +1,150 @@
+package com.wuda.lang;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * 数据保存在堆外(direct {@link ByteBuffer})的{@link IntArray}.GC不会扫描堆外的内容,
+ * 因此很大的数组(比如几个G的词典)不会撑大old gen,也不会拉长full GC的时间.
+ * 堆外内存在对象被回收时才释放,所以更适合生命周期长的大数组,而不是频繁创建的小数组.
+ * <p>
+ * 除了{@link #getArray()}不支持之外,行为与{@link IntArray}一致,扩容也是原来的1.5倍.
+ * 一个direct buffer最多{@link Integer#MAX_VALUE}字节,所以最大容量是{@link #MAX_CAPACITY}.
+ *
+ * @author wuda
+ */
+public class DirectIntArray extends IntArray {
+
+    /**
+     * 最大容量.
+     */
+    public static final int MAX_CAPACITY = Integer.MAX_VALUE / Integer.BYTES;
+
+    /**
+     * 按照本机字节序读写的int视图.
+     */
+    private IntBuffer buffer;
+
+    /**
+     * 构造一个默认容量的array.
+     */
+    public DirectIntArray() {
+        this(8);
+    }
+
+    /**
+     * 构造一个指定容量的array.
+     *
+     * @param initialCapacity
+     *         数组容量
+     */
+    public DirectIntArray(int initialCapacity) {
+        super(0);
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Illegal Capacity: " +
+                    initialCapacity);
+        }
+        this.buffer = allocate(initialCapacity);
+    }
+
+    /**
+     * 分配堆外内存,初始值都是0.
+     *
+     * @param capacity
+     *         容量
+     * @return int视图
+     */
+    private static IntBuffer allocate(int capacity) {
+        if (capacity > MAX_CAPACITY) {
+            throw new OutOfMemoryError("Required capacity " + capacity + " exceeds " + MAX_CAPACITY);
+        }
+        return ByteBuffer.allocateDirect(capacity * Integer.BYTES)
+                .order(ByteOrder.nativeOrder())
+                .asIntBuffer();
+    }
+
+    @Override
+    public int get(int index) throws IndexOutOfBoundsException {
+        return buffer.get(index);
+    }
+
+    @Override
+    public void set(int index, int value) throws IndexOutOfBoundsException {
+        buffer.put(index, value);
+    }
+
+    @Override
+    public int length() {
+        return buffer.capacity();
+    }
+
+    /**
+     * 不支持,数据不在堆上.
+     *
+     * @throws UnsupportedOperationException
+     *         总是抛出
+     */
+    @Override
+    public int[] getArray() {
+        throw new UnsupportedOperationException("数据保存在堆外,没有int数组!");
+    }
+
+    @Override
+    public void get(int index, int[] dest, int destOffset, int length) throws IndexOutOfBoundsException {
+        rangeCheck(index, length);
+        IntBuffer duplicate = buffer.duplicate();
+        duplicate.position(index);
+        duplicate.get(dest, destOffset, length);
+    }
+
+    @Override
+    public void set(int index, int[] src, int srcOffset, int length) throws IndexOutOfBoundsException {
+        rangeCheck(index, length);
+        IntBuffer duplicate = buffer.duplicate();
+        duplicate.position(index);
+        duplicate.put(src, srcOffset, length);
+    }
+
+    /**
+     * 检查[index, index + length)是否在范围内,否则抛出与数组越界相同的异常.
+     */
+    private void rangeCheck(int index, int length) {
+        if (index < 0 || length < 0 || index > buffer.capacity() - length) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", length: " + length
+                    + ", array length: " + buffer.capacity());
+        }
+    }
+
+    @Override
+    public DirectIntArray copy() {
+        DirectIntArray copy = new DirectIntArray(0);
+        copy.buffer = copyOf(buffer, buffer.capacity());
+        return copy;
+    }
+
+    @Override
+    public int grow(int minCapacity) {
+        int newCapacity = ArraySupport.newCapacity(buffer.capacity(), minCapacity, MAX_CAPACITY);
+        buffer = copyOf(buffer, newCapacity);
+        return newCapacity;
+    }
+
+    /**
+     * 分配新的堆外内存,并且复制原来的内容.
+     *
+     * @param source
+     *         原来的内容
+     * @param newCapacity
+     *         新的容量,不小于原来的容量
+     * @return 新的int视图
+     */
+    private static IntBuffer copyOf(IntBuffer source, int newCapacity) {
+        IntBuffer target = allocate(newCapacity);
+        IntBuffer duplicate = source.duplicate();
+        duplicate.clear();
+        target.put(duplicate);
+        target.clear();
+        return target;
+    }
+}
@@ -0,0 +1,430 @@
+package com.wuda.lang;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.RandomAccess;
+import java.util.stream.DoubleStream;
+
+/**
+ * 原始类型的double list,使用数组方式实现.
+ * 所有操作都有不装箱的版本,比如{@link #addDouble(double)},{@link #getDouble(int)},{@link #doubleIterator()},
+ * {@link #doubleStream()},处理大量数字时应该使用它们.同时也实现了{@link List}接口,
+ * 可以传给只接受<code>List&lt;Double&gt;</code>的代码,这些方法会装箱.
+ * <p>
+ * 扩容策略与{@link IntArray#grow(int)}相同.与{@link java.util.ArrayList}一样不是线程安全的,
+ * 迭代期间修改list会抛出{@link ConcurrentModificationException}.
+ * </p>
+ * <p>
+ * 与{@link Double#equals(Object)}一样,查找和比较时NaN等于NaN,0.0不等于-0.0;
+ * 排序与{@link Arrays#sort(double[])}一样,-0.0排在0.0之前,NaN排在最后.
+ * </p>
+ *
+ * @author wuda
+ */
+public class DoubleArrayList extends AbstractList<Double> implements RandomAccess {
+
+    private double[] elements;
+
+    private int size;
+
+    /**
+     * 构造一个指定容量的list.
+     *
+     * @param initialCapacity
+     *         数组容量
+     */
+    public DoubleArrayList(int initialCapacity) {
+        if (initialCapacity >= 0) {
+            elements = new double[initialCapacity];
+        } else {
+            throw new IllegalArgumentException("Illegal Capacity: " +
+                    initialCapacity);
+        }
+    }
+
+    /**
+     * 构造一个默认容量的array.
+     */
+    public DoubleArrayList() {
+        this(16);
+    }
+
+    /**
+     * 构造一个包含给定值的list,数组会被复制.
+     *
+     * @param values
+     *         values
+     */
+    public DoubleArrayList(double[] values) {
+        elements = values.clone();
+        size = values.length;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void clear() {
+        modCount++;
+        size = 0;
+    }
+
+    /**
+     * 确保容量至少是<i>minCapacity</i>,已知要添加多少元素时可以避免多次扩容.
+     *
+     * @param minCapacity
+     *         the desired minimum capacity
+     */
+    public void ensureCapacity(int minCapacity) {
+        if (minCapacity > elements.length) {
+            elements = Arrays.copyOf(elements, ArraySupport.newCapacity(elements.length, minCapacity));
+        }
+    }
+
+    /**
+     * 把容量缩小到与size相同,释放多余的空间.
+     */
+    public void trimToSize() {
+        if (size < elements.length) {
+            elements = Arrays.copyOf(elements, size);
+        }
+    }
+
+    /**
+     * 获取指定下标处的值.
+     *
+     * @param index
+     *         数组下标
+     * @return 此下标处的值
+     * @throws IndexOutOfBoundsException
+     *         如果下标越界
+     */
+    public double getDouble(int index) {
+        ArraySupport.checkIndex(index, size);
+        return elements[index];
+    }
+
+    /**
+     * 替换指定下标处的值.
+     *
+     * @param index
+     *         数组下标
+     * @param value
+     *         新的值
+     * @return 原来的值
+     * @throws IndexOutOfBoundsException
+     *         如果下标越界
+     */
+    public double setDouble(int index, double value) {
+        ArraySupport.checkIndex(index, size);
+        double old = elements[index];
+        elements[index] = value;
+        return old;
+    }
+
+    /**
+     * 在list末尾添加value.
+     *
+     * @param value
+     *         value
+     */
+    public void addDouble(double value) {
+        modCount++;
+        if (size == elements.length) {
+            ensureCapacity(size + 1);
+        }
+        elements[size++] = value;
+    }
+
+    /**
+     * 在指定位置插入value,原来在这个位置以及之后的值都向后移动一位.
+     *
+     * @param index
+     *         插入的位置
+     * @param value
+     *         value
+     * @throws IndexOutOfBoundsException
+     *         如果下标越界
+     */
+    public void insertDouble(int index, double value) {
+        ArraySupport.checkPositionIndex(index, size);
+        modCount++;
+        ensureCapacity(size + 1);
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = value;
+        size++;
+    }
+
+    /**
+     * 在list末尾添加数组中的所有值.
+     *
+     * @param values
+     *         values
+     */
+    public void addAll(double[] values) {
+        addAll(values, 0, values.length);
+    }
+
+    /**
+     * 在list末尾添加数组中从<i>offset</i>开始的<i>length</i>个值.
+     *
+     * @param values
+     *         values
+     * @param offset
+     *         开始位置(包含)
+     * @param length
+     *         数量
+     * @throws IndexOutOfBoundsException
+     *         如果越界
+     */
+    public void addAll(double[] values, int offset, int length) {
+        ArraySupport.checkRange(offset, length, values.length);
+        modCount++;
+        ensureCapacity(size + length);
+        System.arraycopy(values, offset, elements, size, length);
+        size += length;
+    }
+
+    /**
+     * 删除指定下标处的值,之后的值都向前移动一位.
+     *
+     * @param index
+     *         数组下标
+     * @return 被删除的值
+     * @throws IndexOutOfBoundsException
+     *         如果下标越界
+     */
+    public double removeDouble(int index) {
+        ArraySupport.checkIndex(index, size);
+        modCount++;
+        double old = elements[index];
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        size--;
+        return old;
+    }
+
+    /**
+     * 值第一次出现的位置.
+     *
+     * @param value
+     *         value
+     * @return 下标, -1表示不存在
+     */
+    public int indexOfDouble(double value) {
+        for (int index = 0; index < size; index++) {
+            if (Double.doubleToLongBits(elements[index]) == Double.doubleToLongBits(value)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 值最后一次出现的位置.
+     *
+     * @param value
+     *         value
+     * @return 下标, -1表示不存在
+     */
+    public int lastIndexOfDouble(double value) {
+        for (int index = size - 1; index >= 0; index--) {
+            if (Double.doubleToLongBits(elements[index]) == Double.doubleToLongBits(value)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 是否包含给定的值.
+     *
+     * @param value
+     *         value
+     * @return true-如果包含
+     */
+    public boolean containsDouble(double value) {
+        return indexOfDouble(value) >= 0;
+    }
+
+    /**
+     * 按照从小到大的顺序排序.
+     */
+    public void sort() {
+        modCount++;
+        Arrays.sort(elements, 0, size);
+    }
+
+    /**
+     * 二分查找,list必须已经从小到大排好序.
+     *
+     * @param value
+     *         要查找的值
+     * @return 与{@link Arrays#binarySearch(double[], double)}相同, 找到时是下标, 否则是(-(插入点) - 1)
+     */
+    public int binarySearch(double value) {
+        return Arrays.binarySearch(elements, 0, size, value);
+    }
+
+    /**
+     * 返回double array.
+     *
+     * @return array
+     */
+    public double[] toDoubleArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+    /**
+     * 不装箱的迭代器.
+     *
+     * @return iterator
+     */
+    public PrimitiveIterator.OfDouble doubleIterator() {
+        return new Itr();
+    }
+
+    /**
+     * list中所有值组成的流,不复制数组,也不装箱.流在终端操作之前不能修改list.
+     *
+     * @return stream
+     */
+    public DoubleStream doubleStream() {
+        return Arrays.stream(elements, 0, size);
+    }
+
+    @Override
+    public PrimitiveIterator.OfDouble iterator() {
+        return doubleIterator();
+    }
+
+    @Override
+    public Double get(int index) {
+        return getDouble(index);
+    }
+
+    @Override
+    public Double set(int index, Double element) {
+        return setDouble(index, element);
+    }
+
+    @Override
+    public boolean add(Double element) {
+        addDouble(element);
+        return true;
+    }
+
+    @Override
+    public void add(int index, Double element) {
+        insertDouble(index, element);
+    }
+
+    @Override
+    public Double remove(int index) {
+        return removeDouble(index);
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        return o instanceof Double ? indexOfDouble((Double) o) : -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return o instanceof Double ? lastIndexOfDouble((Double) o) : -1;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        modCount++;
+        System.arraycopy(elements, toIndex, elements, fromIndex, size - toIndex);
+        size -= toIndex - fromIndex;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (o instanceof DoubleArrayList) {
+            DoubleArrayList other = (DoubleArrayList) o;
+            if (size != other.size) {
+                return false;
+            }
+            for (int index = 0; index < size; index++) {
+                if (Double.doubleToLongBits(elements[index]) != Double.doubleToLongBits(other.elements[index])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        int hashCode = 1;
+        for (int index = 0; index < size; index++) {
+            hashCode = 31 * hashCode + Double.hashCode(elements[index]);
+        }
+        return hashCode;
+    }
+
+    /**
+     * 不装箱的迭代器,支持{@link #remove()}.
+     */
+    private class Itr implements PrimitiveIterator.OfDouble {
+
+        private int cursor;
+        private int lastReturned = -1;
+        private int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            return cursor < size;
+        }
+
+        @Override
+        public double nextDouble() {
+            checkForComodification();
+            if (cursor >= size) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = cursor;
+            return elements[cursor++];
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned < 0) {
+                throw new IllegalStateException();
+            }
+            checkForComodification();
+            removeDouble(lastReturned);
+            cursor = lastReturned;
+            lastReturned = -1;
+            expectedModCount = modCount;
+        }
+
+        private void checkForComodification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.wuda.lang;
+
+/**
+ * 本包中开放寻址(线性探测)的hash表的公共方法.
+ * 表的长度总是2的幂,槽位是<code>mix(key) &amp; (length - 1)</code>.
+ *
+ * @author wuda
+ */
+final class HashSupport {
+
+    /**
+     * 默认的负载因子.线性探测在负载因子超过0.8之后,探测的长度会迅速变长.
+     */
+    static final float DEFAULT_LOAD_FACTOR = 0.75f;
+
+    /**
+     * 表的最大长度.
+     */
+    static final int MAX_CAPACITY = 1 << 30;
+
+    private static final int INT_PHI = 0x9E3779B9;
+    private static final long LONG_PHI = 0x9E3779B97F4A7C15L;
+
+    private HashSupport() {
+    }
+
+    /**
+     * 打散int key,连续的id(最常见的情况)也会被均匀地分布到整个表中.
+     *
+     * @param key
+     *         key
+     * @return hash
+     */
+    static int mix(int key) {
+        int h = key * INT_PHI;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * 打散long key.
+     *
+     * @param key
+     *         key
+     * @return hash
+     */
+    static int mix(long key) {
+        long h = key * LONG_PHI;
+        h ^= h >>> 32;
+        return (int) (h ^ (h >>> 16));
+    }
+
+    /**
+     * 检查负载因子.
+     *
+     * @param loadFactor
+     *         负载因子
+     * @throws IllegalArgumentException
+     *         不在(0, 1)之间
+     */
+    static void checkLoadFactor(float loadFactor) {
+        if (!(loadFactor > 0 && loadFactor < 1)) {
+            throw new IllegalArgumentException("Illegal load factor: " + loadFactor);
+        }
+    }
+
+    /**
+     * 容纳<i>expectedSize</i>个key而不需要扩容的表的长度.
+     *
+     * @param expectedSize
+     *         预计的key的数量
+     * @param loadFactor
+     *         负载因子
+     * @return 表的长度, 2的幂
+     */
+    static int tableSize(int expectedSize, float loadFactor) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Illegal expected size: " + expectedSize);
+        }
+        long required = Math.max(2, (long) Math.ceil(expectedSize / (double) loadFactor));
+        if (required > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Expected size too large: " + expectedSize);
+        }
+        return Integer.highestOneBit((int) required - 1) << 1;
+    }
+
+    /**
+     * 表中key的数量超过这个值时扩容,至少留下一个空的槽位,保证查找总是能够结束.
+     *
+     * @param capacity
+     *         表的长度
+     * @param loadFactor
+     *         负载因子
+     * @return 扩容的阈值
+     */
+    static int threshold(int capacity, float loadFactor) {
+        return Math.min(capacity - 1, (int) Math.ceil(capacity * (double) loadFactor));
+    }
+
+    /**
+     * 扩容后的长度.
+     *
+     * @param capacity
+     *         当前的长度
+     * @return 新的长度
+     */
+    static int grow(int capacity) {
+        if (capacity >= MAX_CAPACITY) {
+            throw new IllegalStateException("Hash table is full, capacity: " + capacity);
+        }
+        return capacity << 1;
+    }
+
+    /**
+     * 删除槽位<i>last</i>之后(线性探测的backward shift),槽位<i>slot</i>中的key是否需要移动到<i>last</i>.
+     * 如果key的理想槽位在(last, slot]之间(考虑回绕),它不需要经过last就能被找到,不能移动.
+     *
+     * @param last
+     *         被清空的槽位
+     * @param slot
+     *         当前检查的槽位
+     * @param ideal
+     *         当前key的理想槽位
+     * @return true-需要移动
+     */
+    static boolean shouldShift(int last, int slot, int ideal) {
+        return last <= slot ? ideal <= last || ideal > slot : ideal <= last && ideal > slot;
+    }
+}
@@ -3,7 +3,8 @@ package com.wuda.lang;
 import java.util.Arrays;
 
 /**
- * 包裹int数组,提供相应的方法.
+ * 包裹int数组,提供相应的方法.子类可以把数据保存在别处(比如{@link DirectIntArray}保存在堆外),
+ * 但是{@link #get(int)},{@link #set(int, int)},{@link #grow(int)}的行为必须一致.
  *
  * @author wuda
  */
@@ -77,11 +78,60 @@ public class IntArray {
      * 获取实际被包裹的array.
      *
      * @return array
+     * @throws UnsupportedOperationException
+     *         如果数据不是保存在堆上的int数组中
      */
     public int[] getArray() {
         return array;
     }
 
+    /**
+     * 从<i>index</i>开始,读取<i>length</i>个值到<i>dest</i>中,相当于{@link System#arraycopy}.
+     *
+     * @param index
+     *         开始的下标
+     * @param dest
+     *         目标数组
+     * @param destOffset
+     *         目标数组的开始下标
+     * @param length
+     *         读取的数量
+     * @throws IndexOutOfBoundsException
+     *         如果下标越界
+     */
+    public void get(int index, int[] dest, int destOffset, int length) throws IndexOutOfBoundsException {
+        System.arraycopy(array, index, dest, destOffset, length);
+    }
+
+    /**
+     * 把<i>src</i>中的<i>length</i>个值写入到从<i>index</i>开始的位置,相当于{@link System#arraycopy}.
+     *
+     * @param index
+     *         开始的下标
+     * @param src
+     *         源数组
+     * @param srcOffset
+     *         源数组的开始下标
+     * @param length
+     *         写入的数量
+     * @throws IndexOutOfBoundsException
+     *         如果下标越界
+     */
+    public void set(int index, int[] src, int srcOffset, int length) throws IndexOutOfBoundsException {
+        System.arraycopy(src, srcOffset, array, index, length);
+    }
+
+    /**
+     * 复制一份,数据保存的位置与当前对象相同(比如堆外的复制后依然在堆外).
+     *
+     * @return 新的对象, 与当前对象不共享数据
+     */
+    public IntArray copy() {
+        IntArray copy = new IntArray(0);
+        copy.array = array.clone();
+        return copy;
+    }
+
     /**
      * Checks if the given index is in range.  If not, throws an appropriate
      * runtime exception.  This method does *not* check if the index is
@@ -107,14 +157,6 @@ public class IntArray {
     }
 
 
-    /**
-     * The maximum size of array to allocate.
-     * Some VMs reserve some header words in an array.
-     * Attempts to allocate larger arrays may result in
-     * OutOfMemoryError: Requested array size exceeds VM limit
-     */
-    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
-
     /**
      * Increases the capacity to ensure that it can hold at least the
      * number of elements specified by the minimum capacity argument.
@@ -125,23 +167,9 @@ public class IntArray {
      * @see java.util.ArrayList#grow(int)
      */
     public int grow(int minCapacity) {
-        // overflow-conscious code
-        int oldCapacity = array.length;
-        int newCapacity = oldCapacity + (oldCapacity >> 1);
-        if (newCapacity - minCapacity < 0)
-            newCapacity = minCapacity;
-        if (newCapacity - MAX_ARRAY_SIZE > 0)
-            newCapacity = hugeCapacity(minCapacity);
+        int newCapacity = ArraySupport.newCapacity(array.length, minCapacity);
         // minCapacity is usually close to size, so this is a win:
         array = Arrays.copyOf(array, newCapacity);
         return newCapacity;
     }
-
-    private static int hugeCapacity(int minCapacity) {
-        if (minCapacity < 0) // overflow
-            throw new OutOfMemoryError();
-        return (minCapacity > MAX_ARRAY_SIZE) ?
-                Integer.MAX_VALUE :
-                MAX_ARRAY_SIZE;
-    }
 }
@@ -1,21 +1,30 @@
 package com.wuda.lang;
 
-import java.util.*;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.RandomAccess;
+import java.util.stream.IntStream;
 
 /**
  * 原始类型的int list,使用数组方式实现.
- * 此实现中{@link List}接口的大部分方法都不支持,已经实现的方法也使用了其他名称,
- * 比如:{@link List#add(Object)},对应的实现是{@link #addInt(int)}.
+ * 所有操作都有不装箱的版本,比如{@link #addInt(int)},{@link #getInt(int)},{@link #intIterator()},
+ * {@link #intStream()},处理大量数字时应该使用它们.同时也实现了{@link List}接口,
+ * 可以传给只接受<code>List&lt;Integer&gt;</code>的代码,这些方法会装箱.
+ * <p>
+ * 扩容策略与{@link IntArray#grow(int)}相同.与{@link java.util.ArrayList}一样不是线程安全的,
+ * 迭代期间修改list会抛出{@link ConcurrentModificationException}.
+ * </p>
  *
  * @author wuda
  * @since 1.0.2
  */
-public class IntArrayList implements List {
+public class IntArrayList extends AbstractList<Integer> implements RandomAccess {
 
-    /**
-     * 不使用int[]的原因是: 避免重复的数组检查,扩容等操作.
-     */
-    private IntArray intArray;
+    private int[] elements;
 
     private int size;
 
@@ -27,7 +36,7 @@ public class IntArrayList implements List {
      */
     public IntArrayList(int initialCapacity) {
         if (initialCapacity >= 0) {
-            intArray = new IntArray(initialCapacity);
+            elements = new int[initialCapacity];
         } else {
             throw new IllegalArgumentException("Illegal Capacity: " +
                     initialCapacity);
@@ -41,6 +50,17 @@ public class IntArrayList implements List {
         this(16);
     }
 
+    /**
+     * 构造一个包含给定值的list,数组会被复制.
+     *
+     * @param values
+     *         values
+     */
+    public IntArrayList(int[] values) {
+        elements = values.clone();
+        size = values.length;
+    }
+
     @Override
     public int size() {
         return size;
@@ -48,14 +68,36 @@ public class IntArrayList implements List {
 
     @Override
     public boolean isEmpty() {
-        return size > 0;
+        return size == 0;
     }
 
     @Override
     public void clear() {
+        modCount++;
         size = 0;
     }
 
+    /**
+     * 确保容量至少是<i>minCapacity</i>,已知要添加多少元素时可以避免多次扩容.
+     *
+     * @param minCapacity
+     *         the desired minimum capacity
+     */
+    public void ensureCapacity(int minCapacity) {
+        if (minCapacity > elements.length) {
+            elements = Arrays.copyOf(elements, ArraySupport.newCapacity(elements.length, minCapacity));
+        }
+    }
+
+    /**
+     * 把容量缩小到与size相同,释放多余的空间.
+     */
+    public void trimToSize() {
+        if (size < elements.length) {
+            elements = Arrays.copyOf(elements, size);
+        }
+    }
+
     /**
      * 获取指定下标处的值.
      *
@@ -66,150 +108,320 @@ public class IntArrayList implements List {
      *         如果下标越界
      */
     public int getInt(int index) {
-        return intArray.get(index);
+        ArraySupport.checkIndex(index, size);
+        return elements[index];
     }
 
     /**
-     * 在list末尾添加value.
+     * 替换指定下标处的值.
      *
+     * @param index
+     *         数组下标
      * @param value
-     *         value
+     *         新的值
+     * @return 原来的值
      * @throws IndexOutOfBoundsException
      *         如果下标越界
      */
+    public int setInt(int index, int value) {
+        ArraySupport.checkIndex(index, size);
+        int old = elements[index];
+        elements[index] = value;
+        return old;
+    }
+
+    /**
+     * 在list末尾添加value.
+     *
+     * @param value
+     *         value
+     */
     public void addInt(int value) {
-        if (size() + 1 > intArray.length()) {
-            intArray.grow(size());
+        modCount++;
+        if (size == elements.length) {
+            ensureCapacity(size + 1);
         }
-        intArray.set(size++, value);
+        elements[size++] = value;
     }
 
     /**
-     * 返回int array.
+     * 在指定位置插入value,原来在这个位置以及之后的值都向后移动一位.
      *
-     * @return array
+     * @param index
+     *         插入的位置
+     * @param value
+     *         value
+     * @throws IndexOutOfBoundsException
+     *         如果下标越界
      */
-    public int[] toIntArray() {
-        if (isEmpty()) {
-            return new int[0];
-        }
-        return Arrays.copyOfRange(intArray.getArray(), 0, size);
+    public void insertInt(int index, int value) {
+        ArraySupport.checkPositionIndex(index, size);
+        modCount++;
+        ensureCapacity(size + 1);
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = value;
+        size++;
     }
 
-    @Override
-    public Iterator iterator() {
-        return new Iterator() {
+    /**
+     * 在list末尾添加数组中的所有值.
+     *
+     * @param values
+     *         values
+     */
+    public void addAll(int[] values) {
+        addAll(values, 0, values.length);
+    }
+
+    /**
+     * 在list末尾添加数组中从<i>offset</i>开始的<i>length</i>个值.
+     *
+     * @param values
+     *         values
+     * @param offset
+     *         开始位置(包含)
+     * @param length
+     *         数量
+     * @throws IndexOutOfBoundsException
+     *         如果越界
+     */
+    public void addAll(int[] values, int offset, int length) {
+        ArraySupport.checkRange(offset, length, values.length);
+        modCount++;
+        ensureCapacity(size + length);
+        System.arraycopy(values, offset, elements, size, length);
+        size += length;
+    }
 
-            private int index;
+    /**
+     * 删除指定下标处的值,之后的值都向前移动一位.
+     *
+     * @param index
+     *         数组下标
+     * @return 被删除的值
+     * @throws IndexOutOfBoundsException
+     *         如果下标越界
+     */
+    public int removeInt(int index) {
+        ArraySupport.checkIndex(index, size);
+        modCount++;
+        int old = elements[index];
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        size--;
+        return old;
+    }
 
-            @Override
-            public boolean hasNext() {
-                return index < size;
+    /**
+     * 值第一次出现的位置.
+     *
+     * @param value
+     *         value
+     * @return 下标, -1表示不存在
+     */
+    public int indexOfInt(int value) {
+        for (int index = 0; index < size; index++) {
+            if (elements[index] == value) {
+                return index;
             }
+        }
+        return -1;
+    }
 
-            @Override
-            public Object next() {
-                if (index >= size()) {
-                    throw new NoSuchElementException();
-                }
-                return intArray.get(index++);
+    /**
+     * 值最后一次出现的位置.
+     *
+     * @param value
+     *         value
+     * @return 下标, -1表示不存在
+     */
+    public int lastIndexOfInt(int value) {
+        for (int index = size - 1; index >= 0; index--) {
+            if (elements[index] == value) {
+                return index;
             }
-        };
+        }
+        return -1;
     }
 
+    /**
+     * 是否包含给定的值.
+     *
+     * @param value
+     *         value
+     * @return true-如果包含
+     */
+    public boolean containsInt(int value) {
+        return indexOfInt(value) >= 0;
+    }
 
-    @Override
-    public Object get(int index) {
-        throw new UnsupportedOperationException();
+    /**
+     * 按照从小到大的顺序排序.
+     */
+    public void sort() {
+        modCount++;
+        Arrays.sort(elements, 0, size);
     }
 
-    @Override
-    public Object[] toArray() {
-        throw new UnsupportedOperationException();
+    /**
+     * 二分查找,list必须已经从小到大排好序.
+     *
+     * @param value
+     *         要查找的值
+     * @return 与{@link Arrays#binarySearch(int[], int)}相同, 找到时是下标, 否则是(-(插入点) - 1)
+     */
+    public int binarySearch(int value) {
+        return Arrays.binarySearch(elements, 0, size, value);
     }
 
-    @Override
-    public boolean add(Object o) {
-        throw new UnsupportedOperationException();
+    /**
+     * 返回int array.
+     *
+     * @return array
+     */
+    public int[] toIntArray() {
+        return Arrays.copyOf(elements, size);
     }
 
-    @Override
-    public boolean contains(Object o) {
-        throw new UnsupportedOperationException();
+    /**
+     * 不装箱的迭代器.
+     *
+     * @return iterator
+     */
+    public PrimitiveIterator.OfInt intIterator() {
+        return new Itr();
+    }
+
+    /**
+     * list中所有值组成的流,不复制数组,也不装箱.流在终端操作之前不能修改list.
+     *
+     * @return stream
+     */
+    public IntStream intStream() {
+        return Arrays.stream(elements, 0, size);
     }
 
     @Override
-    public boolean remove(Object o) {
-        throw new UnsupportedOperationException();
+    public PrimitiveIterator.OfInt iterator() {
+        return intIterator();
     }
 
     @Override
-    public boolean addAll(Collection c) {
-        throw new UnsupportedOperationException();
+    public Integer get(int index) {
+        return getInt(index);
     }
 
     @Override
-    public boolean addAll(int index, Collection c) {
-        throw new UnsupportedOperationException();
+    public Integer set(int index, Integer element) {
+        return setInt(index, element);
     }
 
     @Override
-    public Object set(int index, Object element) {
-        throw new UnsupportedOperationException();
+    public boolean add(Integer element) {
+        addInt(element);
+        return true;
     }
 
     @Override
-    public void add(int index, Object element) {
-        throw new UnsupportedOperationException();
+    public void add(int index, Integer element) {
+        insertInt(index, element);
     }
 
     @Override
-    public Object remove(int index) {
-        throw new UnsupportedOperationException();
+    public Integer remove(int index) {
+        return removeInt(index);
     }
 
     @Override
     public int indexOf(Object o) {
-        throw new UnsupportedOperationException();
+        return o instanceof Integer ? indexOfInt((Integer) o) : -1;
     }
 
     @Override
     public int lastIndexOf(Object o) {
-        throw new UnsupportedOperationException();
+        return o instanceof Integer ? lastIndexOfInt((Integer) o) : -1;
     }
 
     @Override
-    public ListIterator listIterator() {
-        throw new UnsupportedOperationException();
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
     }
 
     @Override
-    public ListIterator listIterator(int index) {
-        throw new UnsupportedOperationException();
+    protected void removeRange(int fromIndex, int toIndex) {
+        modCount++;
+        System.arraycopy(elements, toIndex, elements, fromIndex, size - toIndex);
+        size -= toIndex - fromIndex;
     }
 
     @Override
-    public List subList(int fromIndex, int toIndex) {
-        throw new UnsupportedOperationException();
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (o instanceof IntArrayList) {
+            IntArrayList other = (IntArrayList) o;
+            if (size != other.size) {
+                return false;
+            }
+            for (int index = 0; index < size; index++) {
+                if (elements[index] != other.elements[index]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return super.equals(o);
     }
 
     @Override
-    public boolean retainAll(Collection c) {
-        throw new UnsupportedOperationException();
+    public int hashCode() {
+        int hashCode = 1;
+        for (int index = 0; index < size; index++) {
+            hashCode = 31 * hashCode + Integer.hashCode(elements[index]);
+        }
+        return hashCode;
     }
 
-    @Override
-    public boolean removeAll(Collection c) {
-        throw new UnsupportedOperationException();
-    }
+    /**
+     * 不装箱的迭代器,支持{@link #remove()}.
+     */
+    private class Itr implements PrimitiveIterator.OfInt {
 
-    @Override
-    public boolean containsAll(Collection c) {
-        throw new UnsupportedOperationException();
-    }
+        private int cursor;
+        private int lastReturned = -1;
+        private int expectedModCount = modCount;
 
-    @Override
-    public Object[] toArray(Object[] a) {
-        throw new UnsupportedOperationException();
+        @Override
+        public boolean hasNext() {
+            return cursor < size;
+        }
+
+        @Override
+        public int nextInt() {
+            checkForComodification();
+            if (cursor >= size) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = cursor;
+            return elements[cursor++];
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned < 0) {
+                throw new IllegalStateException();
+            }
+            checkForComodification();
+            removeInt(lastReturned);
+            cursor = lastReturned;
+            lastReturned = -1;
+            expectedModCount = modCount;
+        }
+
+        private void checkForComodification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
     }
 }
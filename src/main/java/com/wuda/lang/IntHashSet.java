@@ -0,0 +1,317 @@
+package com.wuda.lang;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * int的hash set,使用开放寻址(线性探测)实现,不装箱.与{@link IntIntMap}的实现相同,只是没有value.
+ * <p>
+ * 0用来表示空的槽位,所以它单独保存.遍历使用可以重复使用的{@link Cursor},不分配任何对象.
+ * 不是线程安全的.
+ * </p>
+ *
+ * @author wuda
+ */
+public class IntHashSet {
+
+    private int[] keys;
+    private final float loadFactor;
+    private int threshold;
+    private int mask;
+
+    /**
+     * 不包括0在内的元素的数量.
+     */
+    private int assigned;
+
+    private boolean hasZero;
+
+    /**
+     * 构造一个默认容量的set.
+     */
+    public IntHashSet() {
+        this(16);
+    }
+
+    /**
+     * 构造一个set,添加<i>expectedSize</i>个元素之前不需要扩容.
+     *
+     * @param expectedSize
+     *         预计的元素的数量
+     */
+    public IntHashSet(int expectedSize) {
+        this(expectedSize, HashSupport.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * 构造一个set.
+     *
+     * @param expectedSize
+     *         预计的元素的数量
+     * @param loadFactor
+     *         负载因子,必须在(0, 1)之间.越小查找越快,但是占用的内存越多
+     */
+    public IntHashSet(int expectedSize, float loadFactor) {
+        HashSupport.checkLoadFactor(loadFactor);
+        this.loadFactor = loadFactor;
+        allocate(HashSupport.tableSize(expectedSize, loadFactor));
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        mask = capacity - 1;
+        threshold = HashSupport.threshold(capacity, loadFactor);
+    }
+
+    /**
+     * 元素所在的槽位,或者应该插入的空槽位.
+     *
+     * @param value
+     *         元素,不能是0
+     * @return 槽位
+     */
+    private int slot(int value) {
+        int slot = HashSupport.mix(value) & mask;
+        int existing;
+        while ((existing = keys[slot]) != 0 && existing != value) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * 添加元素.
+     *
+     * @param value
+     *         元素
+     * @return true-如果是新的元素
+     */
+    public boolean add(int value) {
+        if (value == 0) {
+            boolean added = !hasZero;
+            hasZero = true;
+            return added;
+        }
+        int slot = slot(value);
+        if (keys[slot] != 0) {
+            return false;
+        }
+        keys[slot] = value;
+        if (++assigned > threshold) {
+            rehash(HashSupport.grow(keys.length));
+        }
+        return true;
+    }
+
+    /**
+     * 添加数组中的所有元素.
+     *
+     * @param values
+     *         元素
+     * @return 新添加的元素的数量
+     */
+    public int addAll(int... values) {
+        int count = 0;
+        for (int value : values) {
+            if (add(value)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 是否包含元素.
+     *
+     * @param value
+     *         元素
+     * @return true-如果包含
+     */
+    public boolean contains(int value) {
+        if (value == 0) {
+            return hasZero;
+        }
+        return keys[slot(value)] != 0;
+    }
+
+    /**
+     * 删除元素.
+     *
+     * @param value
+     *         元素
+     * @return true-如果元素存在并且已经删除
+     */
+    public boolean remove(int value) {
+        if (value == 0) {
+            boolean removed = hasZero;
+            hasZero = false;
+            return removed;
+        }
+        int slot = slot(value);
+        if (keys[slot] == 0) {
+            return false;
+        }
+        shiftKeys(slot);
+        assigned--;
+        return true;
+    }
+
+    /**
+     * 清空槽位<i>slot</i>,并且把之后同一个探测序列中的元素向前移动,填补空出来的槽位.
+     *
+     * @param slot
+     *         被删除的元素所在的槽位
+     */
+    private void shiftKeys(int slot) {
+        int last = slot;
+        while (true) {
+            slot = (slot + 1) & mask;
+            int key = keys[slot];
+            if (key == 0) {
+                break;
+            }
+            if (HashSupport.shouldShift(last, slot, HashSupport.mix(key) & mask)) {
+                keys[last] = key;
+                last = slot;
+            }
+        }
+        keys[last] = 0;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        allocate(capacity);
+        for (int key : oldKeys) {
+            if (key != 0) {
+                keys[slot(key)] = key;
+            }
+        }
+    }
+
+    /**
+     * 元素的数量.
+     *
+     * @return 元素的数量
+     */
+    public int size() {
+        return assigned + (hasZero ? 1 : 0);
+    }
+
+    /**
+     * 是否为空.
+     *
+     * @return true-如果没有任何元素
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * 删除所有的元素,表的长度不变.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        assigned = 0;
+        hasZero = false;
+    }
+
+    /**
+     * 所有的元素,没有顺序.
+     *
+     * @return 元素的数组
+     */
+    public int[] toArray() {
+        int[] result = new int[size()];
+        int count = 0;
+        for (int key : keys) {
+            if (key != 0) {
+                result[count++] = key;
+            }
+        }
+        if (hasZero) {
+            result[count] = 0;
+        }
+        return result;
+    }
+
+    /**
+     * 创建一个遍历所有元素的游标.游标可以通过{@link Cursor#reset()}重复使用.
+     *
+     * @return cursor
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * 返回大致的内存使用量,以b为单位.
+     *
+     * @return 大致的内存使用量
+     */
+    public long ramUsedB() {
+        return keys.length * 4L;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+
+    /**
+     * 遍历set的游标,用法:
+     * <pre>
+     *     IntHashSet.Cursor cursor = set.cursor();
+     *     while (cursor.advance()) {
+     *         use(cursor.value());
+     *     }
+     * </pre>
+     * 遍历期间不能修改set,否则结果是不确定的.
+     */
+    public final class Cursor {
+
+        /**
+         * 当前的槽位,等于表的长度时表示0.
+         */
+        private int slot = -1;
+
+        private Cursor() {
+        }
+
+        /**
+         * 移动到下一个元素.
+         *
+         * @return true-如果有下一个元素, false-遍历已经结束
+         */
+        public boolean advance() {
+            while (++slot < keys.length) {
+                if (keys[slot] != 0) {
+                    return true;
+                }
+            }
+            if (slot == keys.length && hasZero) {
+                return true;
+            }
+            slot = keys.length + 1;
+            return false;
+        }
+
+        /**
+         * 当前元素.
+         *
+         * @return 元素
+         */
+        public int value() {
+            if (slot < 0 || slot > keys.length) {
+                throw new NoSuchElementException();
+            }
+            return slot == keys.length ? 0 : keys[slot];
+        }
+
+        /**
+         * 回到第一个元素之前,重新遍历.
+         */
+        public void reset() {
+            slot = -1;
+        }
+    }
+}
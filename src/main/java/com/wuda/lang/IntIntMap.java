@@ -0,0 +1,399 @@
+package com.wuda.lang;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * key和value都是int的hash map,使用开放寻址(线性探测)实现,不装箱,也没有{@link java.util.HashMap}中
+ * 每个entry一个对象的开销.key和value分别保存在两个数组中,查找时只访问连续的key.
+ * 删除时把后面的key向前移动(backward shift),而不是留下删除标记,因此频繁删除不会让查找变慢.
+ * <p>
+ * key 0用来表示空的槽位,所以它单独保存.遍历使用可以重复使用的{@link Cursor},不分配任何对象.
+ * 不是线程安全的.
+ * </p>
+ *
+ * @author wuda
+ */
+public class IntIntMap {
+
+    private int[] keys;
+    private int[] values;
+    private final float loadFactor;
+    private int threshold;
+    private int mask;
+
+    /**
+     * 不包括key 0在内的key的数量.
+     */
+    private int assigned;
+
+    private boolean hasZeroKey;
+    private int zeroValue;
+
+    /**
+     * 构造一个默认容量的map.
+     */
+    public IntIntMap() {
+        this(16);
+    }
+
+    /**
+     * 构造一个map,添加<i>expectedSize</i>个key之前不需要扩容.
+     *
+     * @param expectedSize
+     *         预计的key的数量
+     */
+    public IntIntMap(int expectedSize) {
+        this(expectedSize, HashSupport.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * 构造一个map.
+     *
+     * @param expectedSize
+     *         预计的key的数量
+     * @param loadFactor
+     *         负载因子,必须在(0, 1)之间.越小查找越快,但是占用的内存越多
+     */
+    public IntIntMap(int expectedSize, float loadFactor) {
+        HashSupport.checkLoadFactor(loadFactor);
+        this.loadFactor = loadFactor;
+        allocate(HashSupport.tableSize(expectedSize, loadFactor));
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        threshold = HashSupport.threshold(capacity, loadFactor);
+    }
+
+    /**
+     * key所在的槽位,或者应该插入的空槽位.
+     *
+     * @param key
+     *         key,不能是0
+     * @return 槽位
+     */
+    private int slot(int key) {
+        int slot = HashSupport.mix(key) & mask;
+        int existing;
+        while ((existing = keys[slot]) != 0 && existing != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * 获取key对应的value.
+     *
+     * @param key
+     *         key
+     * @param defaultValue
+     *         map中没有此key时返回的值
+     * @return value
+     */
+    public int get(int key, int defaultValue) {
+        if (key == 0) {
+            return hasZeroKey ? zeroValue : defaultValue;
+        }
+        int slot = slot(key);
+        return keys[slot] == 0 ? defaultValue : values[slot];
+    }
+
+    /**
+     * 是否包含key.
+     *
+     * @param key
+     *         key
+     * @return true-如果包含
+     */
+    public boolean containsKey(int key) {
+        if (key == 0) {
+            return hasZeroKey;
+        }
+        return keys[slot(key)] != 0;
+    }
+
+    /**
+     * 设置key对应的value,如果key已经存在,则覆盖原来的value.
+     *
+     * @param key
+     *         key
+     * @param value
+     *         value
+     * @return true-如果是新的key, false-覆盖了原来的value
+     */
+    public boolean put(int key, int value) {
+        if (key == 0) {
+            boolean added = !hasZeroKey;
+            hasZeroKey = true;
+            zeroValue = value;
+            return added;
+        }
+        int slot = slot(key);
+        values[slot] = value;
+        if (keys[slot] != 0) {
+            return false;
+        }
+        keys[slot] = key;
+        if (++assigned > threshold) {
+            rehash(HashSupport.grow(keys.length));
+        }
+        return true;
+    }
+
+    /**
+     * 把key对应的value加上<i>increment</i>,key不存在时当作0,适合计数.
+     *
+     * @param key
+     *         key
+     * @param increment
+     *         增加的值
+     * @return 增加之后的value
+     */
+    public int addTo(int key, int increment) {
+        if (key == 0) {
+            zeroValue = hasZeroKey ? zeroValue + increment : increment;
+            hasZeroKey = true;
+            return zeroValue;
+        }
+        int slot = slot(key);
+        if (keys[slot] != 0) {
+            return values[slot] += increment;
+        }
+        keys[slot] = key;
+        values[slot] = increment;
+        if (++assigned > threshold) {
+            rehash(HashSupport.grow(keys.length));
+        }
+        return increment;
+    }
+
+    /**
+     * 删除key.
+     *
+     * @param key
+     *         key
+     * @return true-如果key存在并且已经删除
+     */
+    public boolean remove(int key) {
+        if (key == 0) {
+            boolean removed = hasZeroKey;
+            hasZeroKey = false;
+            zeroValue = 0;
+            return removed;
+        }
+        int slot = slot(key);
+        if (keys[slot] == 0) {
+            return false;
+        }
+        shiftKeys(slot);
+        assigned--;
+        return true;
+    }
+
+    /**
+     * 清空槽位<i>slot</i>,并且把之后同一个探测序列中的key向前移动,填补空出来的槽位.
+     *
+     * @param slot
+     *         被删除的key所在的槽位
+     */
+    private void shiftKeys(int slot) {
+        int last = slot;
+        while (true) {
+            slot = (slot + 1) & mask;
+            int key = keys[slot];
+            if (key == 0) {
+                break;
+            }
+            if (HashSupport.shouldShift(last, slot, HashSupport.mix(key) & mask)) {
+                keys[last] = key;
+                values[last] = values[slot];
+                last = slot;
+            }
+        }
+        keys[last] = 0;
+        values[last] = 0;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int index = 0; index < oldKeys.length; index++) {
+            int key = oldKeys[index];
+            if (key != 0) {
+                int slot = slot(key);
+                keys[slot] = key;
+                values[slot] = oldValues[index];
+            }
+        }
+    }
+
+    /**
+     * key的数量.
+     *
+     * @return key的数量
+     */
+    public int size() {
+        return assigned + (hasZeroKey ? 1 : 0);
+    }
+
+    /**
+     * 是否为空.
+     *
+     * @return true-如果没有任何key
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * 删除所有的key,表的长度不变.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(values, 0);
+        assigned = 0;
+        hasZeroKey = false;
+        zeroValue = 0;
+    }
+
+    /**
+     * 所有的key,没有顺序.
+     *
+     * @return key的数组
+     */
+    public int[] keys() {
+        int[] result = new int[size()];
+        int count = 0;
+        for (int key : keys) {
+            if (key != 0) {
+                result[count++] = key;
+            }
+        }
+        if (hasZeroKey) {
+            result[count] = 0;
+        }
+        return result;
+    }
+
+    /**
+     * 创建一个遍历所有entry的游标.游标可以通过{@link Cursor#reset()}重复使用.
+     *
+     * @return cursor
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * 返回大致的内存使用量,以b为单位.
+     *
+     * @return 大致的内存使用量
+     */
+    public long ramUsedB() {
+        return (keys.length + values.length) * 4L;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("{");
+        Cursor cursor = cursor();
+        while (cursor.advance()) {
+            if (builder.length() > 1) {
+                builder.append(", ");
+            }
+            builder.append(cursor.key()).append('=').append(cursor.value());
+        }
+        return builder.append('}').toString();
+    }
+
+    /**
+     * 遍历map的游标,用法:
+     * <pre>
+     *     IntIntMap.Cursor cursor = map.cursor();
+     *     while (cursor.advance()) {
+     *         use(cursor.key(), cursor.value());
+     *     }
+     * </pre>
+     * 遍历期间不能修改map(除了{@link #setValue(int)}),否则结果是不确定的.
+     */
+    public final class Cursor {
+
+        /**
+         * 当前的槽位,等于表的长度时表示key 0.
+         */
+        private int slot = -1;
+
+        private Cursor() {
+        }
+
+        /**
+         * 移动到下一个entry.
+         *
+         * @return true-如果有下一个entry, false-遍历已经结束
+         */
+        public boolean advance() {
+            while (++slot < keys.length) {
+                if (keys[slot] != 0) {
+                    return true;
+                }
+            }
+            if (slot == keys.length && hasZeroKey) {
+                return true;
+            }
+            slot = keys.length + 1;
+            return false;
+        }
+
+        /**
+         * 当前entry的key.
+         *
+         * @return key
+         */
+        public int key() {
+            checkPosition();
+            return slot == keys.length ? 0 : keys[slot];
+        }
+
+        /**
+         * 当前entry的value.
+         *
+         * @return value
+         */
+        public int value() {
+            checkPosition();
+            return slot == keys.length ? zeroValue : values[slot];
+        }
+
+        /**
+         * 修改当前entry的value.
+         *
+         * @param value
+         *         新的value
+         */
+        public void setValue(int value) {
+            checkPosition();
+            if (slot == keys.length) {
+                zeroValue = value;
+            } else {
+                values[slot] = value;
+            }
+        }
+
+        /**
+         * 回到第一个entry之前,重新遍历.
+         */
+        public void reset() {
+            slot = -1;
+        }
+
+        private void checkPosition() {
+            if (slot < 0 || slot > keys.length) {
+                throw new NoSuchElementException();
+            }
+        }
+    }
+}
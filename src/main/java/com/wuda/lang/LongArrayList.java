@@ -0,0 +1,426 @@
+package com.wuda.lang;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.RandomAccess;
+import java.util.stream.LongStream;
+
+/**
+ * 原始类型的long list,使用数组方式实现.
+ * 所有操作都有不装箱的版本,比如{@link #addLong(long)},{@link #getLong(int)},{@link #longIterator()},
+ * {@link #longStream()},处理大量数字时应该使用它们.同时也实现了{@link List}接口,
+ * 可以传给只接受<code>List&lt;Long&gt;</code>的代码,这些方法会装箱.
+ * <p>
+ * 扩容策略与{@link IntArray#grow(int)}相同.与{@link java.util.ArrayList}一样不是线程安全的,
+ * 迭代期间修改list会抛出{@link ConcurrentModificationException}.
+ * </p>
+ *
+ * @author wuda
+ */
+public class LongArrayList extends AbstractList<Long> implements RandomAccess {
+
+    private long[] elements;
+
+    private int size;
+
+    /**
+     * 构造一个指定容量的list.
+     *
+     * @param initialCapacity
+     *         数组容量
+     */
+    public LongArrayList(int initialCapacity) {
+        if (initialCapacity >= 0) {
+            elements = new long[initialCapacity];
+        } else {
+            throw new IllegalArgumentException("Illegal Capacity: " +
+                    initialCapacity);
+        }
+    }
+
+    /**
+     * 构造一个默认容量的array.
+     */
+    public LongArrayList() {
+        this(16);
+    }
+
+    /**
+     * 构造一个包含给定值的list,数组会被复制.
+     *
+     * @param values
+     *         values
+     */
+    public LongArrayList(long[] values) {
+        elements = values.clone();
+        size = values.length;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void clear() {
+        modCount++;
+        size = 0;
+    }
+
+    /**
+     * 确保容量至少是<i>minCapacity</i>,已知要添加多少元素时可以避免多次扩容.
+     *
+     * @param minCapacity
+     *         the desired minimum capacity
+     */
+    public void ensureCapacity(int minCapacity) {
+        if (minCapacity > elements.length) {
+            elements = Arrays.copyOf(elements, ArraySupport.newCapacity(elements.length, minCapacity));
+        }
+    }
+
+    /**
+     * 把容量缩小到与size相同,释放多余的空间.
+     */
+    public void trimToSize() {
+        if (size < elements.length) {
+            elements = Arrays.copyOf(elements, size);
+        }
+    }
+
+    /**
+     * 获取指定下标处的值.
+     *
+     * @param index
+     *         数组下标
+     * @return 此下标处的值
+     * @throws IndexOutOfBoundsException
+     *         如果下标越界
+     */
+    public long getLong(int index) {
+        ArraySupport.checkIndex(index, size);
+        return elements[index];
+    }
+
+    /**
+     * 替换指定下标处的值.
+     *
+     * @param index
+     *         数组下标
+     * @param value
+     *         新的值
+     * @return 原来的值
+     * @throws IndexOutOfBoundsException
+     *         如果下标越界
+     */
+    public long setLong(int index, long value) {
+        ArraySupport.checkIndex(index, size);
+        long old = elements[index];
+        elements[index] = value;
+        return old;
+    }
+
+    /**
+     * 在list末尾添加value.
+     *
+     * @param value
+     *         value
+     */
+    public void addLong(long value) {
+        modCount++;
+        if (size == elements.length) {
+            ensureCapacity(size + 1);
+        }
+        elements[size++] = value;
+    }
+
+    /**
+     * 在指定位置插入value,原来在这个位置以及之后的值都向后移动一位.
+     *
+     * @param index
+     *         插入的位置
+     * @param value
+     *         value
+     * @throws IndexOutOfBoundsException
+     *         如果下标越界
+     */
+    public void insertLong(int index, long value) {
+        ArraySupport.checkPositionIndex(index, size);
+        modCount++;
+        ensureCapacity(size + 1);
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = value;
+        size++;
+    }
+
+    /**
+     * 在list末尾添加数组中的所有值.
+     *
+     * @param values
+     *         values
+     */
+    public void addAll(long[] values) {
+        addAll(values, 0, values.length);
+    }
+
+    /**
+     * 在list末尾添加数组中从<i>offset</i>开始的<i>length</i>个值.
+     *
+     * @param values
+     *         values
+     * @param offset
+     *         开始位置(包含)
+     * @param length
+     *         数量
+     * @throws IndexOutOfBoundsException
+     *         如果越界
+     */
+    public void addAll(long[] values, int offset, int length) {
+        ArraySupport.checkRange(offset, length, values.length);
+        modCount++;
+        ensureCapacity(size + length);
+        System.arraycopy(values, offset, elements, size, length);
+        size += length;
+    }
+
+    /**
+     * 删除指定下标处的值,之后的值都向前移动一位.
+     *
+     * @param index
+     *         数组下标
+     * @return 被删除的值
+     * @throws IndexOutOfBoundsException
+     *         如果下标越界
+     */
+    public long removeLong(int index) {
+        ArraySupport.checkIndex(index, size);
+        modCount++;
+        long old = elements[index];
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        size--;
+        return old;
+    }
+
+    /**
+     * 值第一次出现的位置.
+     *
+     * @param value
+     *         value
+     * @return 下标, -1表示不存在
+     */
+    public int indexOfLong(long value) {
+        for (int index = 0; index < size; index++) {
+            if (elements[index] == value) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 值最后一次出现的位置.
+     *
+     * @param value
+     *         value
+     * @return 下标, -1表示不存在
+     */
+    public int lastIndexOfLong(long value) {
+        for (int index = size - 1; index >= 0; index--) {
+            if (elements[index] == value) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 是否包含给定的值.
+     *
+     * @param value
+     *         value
+     * @return true-如果包含
+     */
+    public boolean containsLong(long value) {
+        return indexOfLong(value) >= 0;
+    }
+
+    /**
+     * 按照从小到大的顺序排序.
+     */
+    public void sort() {
+        modCount++;
+        Arrays.sort(elements, 0, size);
+    }
+
+    /**
+     * 二分查找,list必须已经从小到大排好序.
+     *
+     * @param value
+     *         要查找的值
+     * @return 与{@link Arrays#binarySearch(long[], long)}相同, 找到时是下标, 否则是(-(插入点) - 1)
+     */
+    public int binarySearch(long value) {
+        return Arrays.binarySearch(elements, 0, size, value);
+    }
+
+    /**
+     * 返回long array.
+     *
+     * @return array
+     */
+    public long[] toLongArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+    /**
+     * 不装箱的迭代器.
+     *
+     * @return iterator
+     */
+    public PrimitiveIterator.OfLong longIterator() {
+        return new Itr();
+    }
+
+    /**
+     * list中所有值组成的流,不复制数组,也不装箱.流在终端操作之前不能修改list.
+     *
+     * @return stream
+     */
+    public LongStream longStream() {
+        return Arrays.stream(elements, 0, size);
+    }
+
+    @Override
+    public PrimitiveIterator.OfLong iterator() {
+        return longIterator();
+    }
+
+    @Override
+    public Long get(int index) {
+        return getLong(index);
+    }
+
+    @Override
+    public Long set(int index, Long element) {
+        return setLong(index, element);
+    }
+
+    @Override
+    public boolean add(Long element) {
+        addLong(element);
+        return true;
+    }
+
+    @Override
+    public void add(int index, Long element) {
+        insertLong(index, element);
+    }
+
+    @Override
+    public Long remove(int index) {
+        return removeLong(index);
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        return o instanceof Long ? indexOfLong((Long) o) : -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return o instanceof Long ? lastIndexOfLong((Long) o) : -1;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        modCount++;
+        System.arraycopy(elements, toIndex, elements, fromIndex, size - toIndex);
+        size -= toIndex - fromIndex;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (o instanceof LongArrayList) {
+            LongArrayList other = (LongArrayList) o;
+            if (size != other.size) {
+                return false;
+            }
+            for (int index = 0; index < size; index++) {
+                if (elements[index] != other.elements[index]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        int hashCode = 1;
+        for (int index = 0; index < size; index++) {
+            hashCode = 31 * hashCode + Long.hashCode(elements[index]);
+        }
+        return hashCode;
+    }
+
+    /**
+     * 不装箱的迭代器,支持{@link #remove()}.
+     */
+    private class Itr implements PrimitiveIterator.OfLong {
+
+        private int cursor;
+        private int lastReturned = -1;
+        private int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            return cursor < size;
+        }
+
+        @Override
+        public long nextLong() {
+            checkForComodification();
+            if (cursor >= size) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = cursor;
+            return elements[cursor++];
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned < 0) {
+                throw new IllegalStateException();
+            }
+            checkForComodification();
+            removeLong(lastReturned);
+            cursor = lastReturned;
+            lastReturned = -1;
+            expectedModCount = modCount;
+        }
+
+        private void checkForComodification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package com.wuda.lang;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.LongFunction;
+
+/**
+ * key是long的hash map,使用开放寻址(线性探测)实现,key不装箱,也没有{@link java.util.HashMap}中
+ * 每个entry一个对象的开销.适合以id(比如数据库主键,{@link com.wuda.keygen.KeyGeneratorSnowflake}生成的key)为key的缓存和索引.
+ * <p>
+ * value不能是null,空的槽位用null表示,因此任何long值(包括0)都可以作为key.
+ * 删除时把后面的key向前移动(backward shift),而不是留下删除标记.
+ * 遍历使用可以重复使用的{@link Cursor},不分配任何对象.不是线程安全的.
+ * </p>
+ *
+ * @param <V>
+ *         value的类型
+ * @author wuda
+ */
+public class LongObjectMap<V> {
+
+    private long[] keys;
+    private Object[] values;
+    private final float loadFactor;
+    private int threshold;
+    private int mask;
+    private int size;
+
+    /**
+     * 构造一个默认容量的map.
+     */
+    public LongObjectMap() {
+        this(16);
+    }
+
+    /**
+     * 构造一个map,添加<i>expectedSize</i>个key之前不需要扩容.
+     *
+     * @param expectedSize
+     *         预计的key的数量
+     */
+    public LongObjectMap(int expectedSize) {
+        this(expectedSize, HashSupport.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * 构造一个map.
+     *
+     * @param expectedSize
+     *         预计的key的数量
+     * @param loadFactor
+     *         负载因子,必须在(0, 1)之间.越小查找越快,但是占用的内存越多
+     */
+    public LongObjectMap(int expectedSize, float loadFactor) {
+        HashSupport.checkLoadFactor(loadFactor);
+        this.loadFactor = loadFactor;
+        allocate(HashSupport.tableSize(expectedSize, loadFactor));
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        threshold = HashSupport.threshold(capacity, loadFactor);
+    }
+
+    /**
+     * key所在的槽位,或者应该插入的空槽位.
+     *
+     * @param key
+     *         key
+     * @return 槽位
+     */
+    private int slot(long key) {
+        int slot = HashSupport.mix(key) & mask;
+        while (values[slot] != null && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * 获取key对应的value.
+     *
+     * @param key
+     *         key
+     * @return value, null表示map中没有此key
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        return (V) values[slot(key)];
+    }
+
+    /**
+     * 是否包含key.
+     *
+     * @param key
+     *         key
+     * @return true-如果包含
+     */
+    public boolean containsKey(long key) {
+        return values[slot(key)] != null;
+    }
+
+    /**
+     * 设置key对应的value.
+     *
+     * @param key
+     *         key
+     * @param value
+     *         value,不能是null
+     * @return 原来的value, null表示key之前不存在
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        Objects.requireNonNull(value, "value不能为空!");
+        int slot = slot(key);
+        Object old = values[slot];
+        values[slot] = value;
+        if (old == null) {
+            keys[slot] = key;
+            if (++size > threshold) {
+                rehash(HashSupport.grow(keys.length));
+            }
+        }
+        return (V) old;
+    }
+
+    /**
+     * 获取key对应的value,如果key不存在,则用<i>mappingFunction</i>创建value并且放入map.
+     *
+     * @param key
+     *         key
+     * @param mappingFunction
+     *         创建value,不能返回null
+     * @return key对应的value
+     */
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent(long key, LongFunction<? extends V> mappingFunction) {
+        int slot = slot(key);
+        Object value = values[slot];
+        if (value == null) {
+            value = Objects.requireNonNull(mappingFunction.apply(key), "value不能为空!");
+            // mappingFunction可能修改了map,所以重新查找
+            put(key, (V) value);
+        }
+        return (V) value;
+    }
+
+    /**
+     * 删除key.
+     *
+     * @param key
+     *         key
+     * @return 被删除的value, null表示key不存在
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int slot = slot(key);
+        Object old = values[slot];
+        if (old == null) {
+            return null;
+        }
+        shiftKeys(slot);
+        size--;
+        return (V) old;
+    }
+
+    /**
+     * 清空槽位<i>slot</i>,并且把之后同一个探测序列中的key向前移动,填补空出来的槽位.
+     *
+     * @param slot
+     *         被删除的key所在的槽位
+     */
+    private void shiftKeys(int slot) {
+        int last = slot;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (values[slot] == null) {
+                break;
+            }
+            long key = keys[slot];
+            if (HashSupport.shouldShift(last, slot, HashSupport.mix(key) & mask)) {
+                keys[last] = key;
+                values[last] = values[slot];
+                last = slot;
+            }
+        }
+        keys[last] = 0;
+        values[last] = null;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int index = 0; index < oldKeys.length; index++) {
+            if (oldValues[index] != null) {
+                int slot = slot(oldKeys[index]);
+                keys[slot] = oldKeys[index];
+                values[slot] = oldValues[index];
+            }
+        }
+    }
+
+    /**
+     * key的数量.
+     *
+     * @return key的数量
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 是否为空.
+     *
+     * @return true-如果没有任何key
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 删除所有的key,表的长度不变.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * 所有的key,没有顺序.
+     *
+     * @return key的数组
+     */
+    public long[] keys() {
+        long[] result = new long[size];
+        int count = 0;
+        for (int index = 0; index < keys.length; index++) {
+            if (values[index] != null) {
+                result[count++] = keys[index];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 创建一个遍历所有entry的游标.游标可以通过{@link Cursor#reset()}重复使用.
+     *
+     * @return cursor
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * 返回大致的内存使用量,以b为单位,不包括value对象本身.
+     *
+     * @return 大致的内存使用量
+     */
+    public long ramUsedB() {
+        return keys.length * 8L + values.length * 4L;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("{");
+        Cursor cursor = cursor();
+        while (cursor.advance()) {
+            if (builder.length() > 1) {
+                builder.append(", ");
+            }
+            builder.append(cursor.key()).append('=').append(cursor.value());
+        }
+        return builder.append('}').toString();
+    }
+
+    /**
+     * 遍历map的游标,用法:
+     * <pre>
+     *     LongObjectMap&lt;V&gt;.Cursor cursor = map.cursor();
+     *     while (cursor.advance()) {
+     *         use(cursor.key(), cursor.value());
+     *     }
+     * </pre>
+     * 遍历期间不能修改map(除了{@link #setValue(Object)}),否则结果是不确定的.
+     */
+    public final class Cursor {
+
+        private int slot = -1;
+
+        private Cursor() {
+        }
+
+        /**
+         * 移动到下一个entry.
+         *
+         * @return true-如果有下一个entry, false-遍历已经结束
+         */
+        public boolean advance() {
+            while (++slot < values.length) {
+                if (values[slot] != null) {
+                    return true;
+                }
+            }
+            slot = values.length;
+            return false;
+        }
+
+        /**
+         * 当前entry的key.
+         *
+         * @return key
+         */
+        public long key() {
+            checkPosition();
+            return keys[slot];
+        }
+
+        /**
+         * 当前entry的value.
+         *
+         * @return value
+         */
+        @SuppressWarnings("unchecked")
+        public V value() {
+            checkPosition();
+            return (V) values[slot];
+        }
+
+        /**
+         * 修改当前entry的value.
+         *
+         * @param value
+         *         新的value,不能是null
+         */
+        public void setValue(V value) {
+            checkPosition();
+            values[slot] = Objects.requireNonNull(value, "value不能为空!");
+        }
+
+        /**
+         * 回到第一个entry之前,重新遍历.
+         */
+        public void reset() {
+            slot = -1;
+        }
+
+        private void checkPosition() {
+            if (slot < 0 || slot >= values.length) {
+                throw new NoSuchElementException();
+            }
+        }
+    }
+}
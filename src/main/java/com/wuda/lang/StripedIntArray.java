@@ -0,0 +1,192 @@
+package com.wuda.lang;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * 适合多个线程同时累加的int数组,比如并行统计字符的频率.思路与{@link java.util.concurrent.atomic.LongAdder}相同:
+ * 数组被复制成多个stripe,每个线程根据自己的id只更新其中一个stripe,读取时把所有stripe中对应的元素加起来.
+ * 不同的线程更新同一个热点下标时访问的是不同的cache line,不会互相竞争,吞吐量可以随着核数增长.
+ * <p>
+ * stripe之间以及数组的开头都填充了一个cache line,避免相邻的stripe出现伪共享.
+ * 内存使用量是{@link AtomicIntArray}的stripe数倍,因此适合长度不大(比如几万个code point)的计数表.
+ * 读取不是原子的快照:累加的同时读取,结果是读取期间某个中间状态的和.需要compareAndSet等精确的操作时使用
+ * {@link AtomicIntArray}.
+ * </p>
+ *
+ * @author wuda
+ * @see AtomicIntArray
+ */
+public class StripedIntArray {
+
+    /**
+     * 一个cache line(64字节)可以放下的int数量.
+     */
+    private static final int PADDING = 16;
+
+    private final AtomicIntegerArray cells;
+    private final int length;
+    /**
+     * 每个stripe占用的长度,包括末尾的填充.
+     */
+    private final int stride;
+    private final int stripeMask;
+
+    /**
+     * 构造一个指定长度的array,stripe的数量是大于等于CPU核数的最小的2的幂.
+     *
+     * @param length
+     *         数组长度
+     */
+    public StripedIntArray(int length) {
+        this(length, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * 构造一个指定长度的array.
+     *
+     * @param length
+     *         数组长度
+     * @param stripes
+     *         stripe的数量,会被调整为大于等于它的最小的2的幂,通常是同时更新的线程数
+     */
+    public StripedIntArray(int length, int stripes) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Illegal Capacity: " +
+                    length);
+        }
+        if (stripes <= 0 || stripes > 1 << 16) {
+            throw new IllegalArgumentException("Illegal stripes: " + stripes);
+        }
+        int stripeCount = stripes == 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.length = length;
+        this.stride = (length + PADDING - 1) / PADDING * PADDING + PADDING;
+        long total = PADDING + (long) stride * stripeCount;
+        if (total > ArraySupport.MAX_ARRAY_SIZE) {
+            throw new IllegalArgumentException("length * stripes too large: " + length + " * " + stripeCount);
+        }
+        this.cells = new AtomicIntegerArray((int) total);
+        this.stripeMask = stripeCount - 1;
+    }
+
+    /**
+     * 当前线程更新的stripe中,下标对应的位置.线程池中的线程id通常是连续的,所以直接取低位.
+     *
+     * @param index
+     *         数组下标
+     * @return cells中的位置
+     */
+    private int cell(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", array length: " + length);
+        }
+        int stripe = (int) Thread.currentThread().getId() & stripeMask;
+        return PADDING + stripe * stride + index;
+    }
+
+    /**
+     * 数组的长度.
+     *
+     * @return 长度
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * stripe的数量.
+     *
+     * @return stripe的数量
+     */
+    public int stripes() {
+        return stripeMask + 1;
+    }
+
+    /**
+     * 加1.
+     *
+     * @param index
+     *         数组下标
+     * @throws IndexOutOfBoundsException
+     *         如果下标越界
+     */
+    public void increment(int index) {
+        cells.getAndIncrement(cell(index));
+    }
+
+    /**
+     * 加上<i>delta</i>.
+     *
+     * @param index
+     *         数组下标
+     * @param delta
+     *         增加的值
+     * @throws IndexOutOfBoundsException
+     *         如果下标越界
+     */
+    public void add(int index, int delta) {
+        cells.getAndAdd(cell(index), delta);
+    }
+
+    /**
+     * 所有stripe中此下标的值的和.
+     *
+     * @param index
+     *         数组下标
+     * @return 和
+     * @throws IndexOutOfBoundsException
+     *         如果下标越界
+     */
+    public int get(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", array length: " + length);
+        }
+        int sum = 0;
+        for (int position = PADDING + index; position < cells.length(); position += stride) {
+            sum += cells.get(position);
+        }
+        return sum;
+    }
+
+    /**
+     * 所有元素的和.
+     *
+     * @return 和
+     */
+    public long sum() {
+        long sum = 0;
+        for (int value : toIntArray()) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    /**
+     * 把所有stripe加起来,得到与{@link IntArray}相同形式的结果.
+     *
+     * @return 数组
+     */
+    public int[] toIntArray() {
+        int[] values = new int[length];
+        for (int offset = PADDING; offset < cells.length(); offset += stride) {
+            for (int index = 0; index < length; index++) {
+                values[index] += cells.get(offset + index);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * 把所有元素清零.与累加同时进行时,清零期间的累加可能部分丢失.
+     */
+    public void reset() {
+        for (int position = 0; position < cells.length(); position++) {
+            cells.set(position, 0);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toIntArray());
+    }
+}
@@ -0,0 +1,360 @@
+package com.wuda.tree;
+
+import java.util.*;
+
+/**
+ * 基于double-array的Aho-Corasick自动机,用于在文本中一次性找出所有出现的term(多模式匹配).
+ * 与{@link FullDoubleArrayTrie}一样,所有的字符都由double-array管理,即BASE[n] + a = m 并且 CHECK[m] = n
+ * 表示节点n经过字符a到达节点m.除此之外,每个节点还有:
+ * <ul>
+ * <li>fail: 失败指针,指向以当前节点对应的字符串的最长后缀为路径的节点</li>
+ * <li>output: 以当前节点结束的term的下标,-1表示没有</li>
+ * <li>outputLink: 沿着fail指针能找到的下一个有output的节点,0表示没有</li>
+ * </ul>
+ * 因此扫描文本时每个字符只需要常数次(均摊)的数组访问,时间复杂度与文本长度和匹配次数成正比,
+ * 而与term的数量无关.
+ * <p>
+ * 实例只能通过{@link #build(Collection)}构造,构造完成后是不可变的,可以被多个线程同时使用.
+ * </p>
+ *
+ * @author wuda
+ */
+public class AhoCorasickDoubleArrayTrie {
+
+    /**
+     * 匹配到term时的回调.
+     */
+    public interface Hit {
+
+        /**
+         * 在文本中匹配到了一个term.
+         *
+         * @param begin
+         *         term在文本中的开始位置(包含)
+         * @param end
+         *         term在文本中的结束位置(不包含)
+         * @param index
+         *         term的下标,通过{@link #getTerm(int)}获取term
+         */
+        void hit(int begin, int end, int index);
+    }
+
+    /**
+     * root node position.
+     */
+    private static final int ROOT = 1;
+
+    private int[] base;
+    private int[] check;
+    private int[] fail;
+    private int[] output;
+    private int[] outputLink;
+
+    /**
+     * 所有的term,已经去重并且排好序,下标就是{@link Hit#hit(int, int, int)}中的index.
+     */
+    private String[] terms;
+
+    /**
+     * 构造时,寻找base值从这个位置开始,它之前的位置几乎都已经被使用了.
+     */
+    private int nextCheckPos;
+
+    private AhoCorasickDoubleArrayTrie() {
+    }
+
+    /**
+     * 根据给定的所有term构造自动机.term会被trim,并且不区分大小写.
+     *
+     * @param terms
+     *         所有的term,可以是无序的,也可以包含重复的term
+     * @return 自动机
+     */
+    public static AhoCorasickDoubleArrayTrie build(Collection<String> terms) {
+        TreeSet<String> keys = new TreeSet<>();
+        for (String term : terms) {
+            if (term == null) {
+                continue;
+            }
+            String key = normalize(term.trim());
+            if (!key.isEmpty()) {
+                keys.add(key);
+            }
+        }
+        AhoCorasickDoubleArrayTrie automaton = new AhoCorasickDoubleArrayTrie();
+        automaton.terms = keys.toArray(new String[0]);
+        automaton.build();
+        return automaton;
+    }
+
+    /**
+     * 转换成小写,与{@link FullDoubleArrayTrie}一样逐个字符转换.
+     *
+     * @param term
+     *         term
+     * @return 小写的term
+     */
+    private static String normalize(String term) {
+        char[] chars = term.toCharArray();
+        for (int index = 0; index < chars.length; index++) {
+            chars[index] = Character.toLowerCase(chars[index]);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * 按照广度优先的顺序放置所有节点,同时计算fail和outputLink.
+     * 广度优先保证了计算某个节点的fail时,所有深度更小的节点都已经放置好了.
+     */
+    private void build() {
+        int capacity = Math.max(terms.length * 2, 8);
+        base = new int[capacity];
+        check = new int[capacity];
+        fail = new int[capacity];
+        output = new int[capacity];
+        outputLink = new int[capacity];
+        Arrays.fill(output, -1);
+        fail[ROOT] = ROOT;
+        // {node, from, to, depth},terms[from,to)拥有长度为depth的公共前缀,即从root到node的路径
+        ArrayDeque<int[]> queue = new ArrayDeque<>();
+        queue.add(new int[]{ROOT, 0, terms.length, 0});
+        char[] children = new char[16];
+        while (!queue.isEmpty()) {
+            int[] item = queue.poll();
+            int n = item[0];
+            int from = item[1];
+            int to = item[2];
+            int depth = item[3];
+            if (output[n] >= 0) {
+                from++; // 以节点n结束的term,创建节点n时已经处理
+            }
+            if (from == to) {
+                continue;
+            }
+            int childCount = 0;
+            for (int index = from; index < to; index++) {
+                char c = terms[index].charAt(depth);
+                if (childCount == 0 || children[childCount - 1] != c) {
+                    if (childCount == children.length) {
+                        children = Arrays.copyOf(children, childCount << 1);
+                    }
+                    children[childCount++] = c;
+                }
+            }
+            int q = findBase(children, childCount);
+            base[n] = q;
+            for (int index = 0; index < childCount; index++) {
+                check[q + children[index]] = n;
+            }
+            int groupFrom = from;
+            for (int index = 0; index < childCount; index++) {
+                char c = children[index];
+                int groupTo = groupFrom + 1;
+                while (groupTo < to && terms[groupTo].charAt(depth) == c) {
+                    groupTo++;
+                }
+                int m = q + c;
+                if (terms[groupFrom].length() == depth + 1) {
+                    // 排好序之后,等于公共前缀的term一定是第一个.必须在创建节点时就设置output,
+                    // 因为同一层中后放置的节点计算outputLink时可能会用到它
+                    output[m] = groupFrom;
+                }
+                fail[m] = failOf(n, c);
+                outputLink[m] = output[fail[m]] >= 0 ? fail[m] : outputLink[fail[m]];
+                queue.add(new int[]{m, groupFrom, groupTo, depth + 1});
+                groupFrom = groupTo;
+            }
+        }
+    }
+
+    /**
+     * 计算节点n经过字符c到达的子节点的fail.
+     *
+     * @param n
+     *         父节点
+     * @param c
+     *         字符
+     * @return fail
+     */
+    private int failOf(int n, char c) {
+        if (n == ROOT) {
+            return ROOT;
+        }
+        int state = fail[n];
+        while (true) {
+            int m = transfer(state, c);
+            if (m > 0) {
+                return m;
+            }
+            if (state == ROOT) {
+                return ROOT;
+            }
+            state = fail[state];
+        }
+    }
+
+    /**
+     * 参考Darts,寻找满足CHECK [ q+c ] =0 的q,从{@link #nextCheckPos}开始寻找,
+     * 当某一段区域几乎被占满以后,下一次就直接跳过这段区域.
+     *
+     * @param children
+     *         排好序的字符
+     * @param childCount
+     *         字符的数量
+     * @return q
+     */
+    private int findBase(char[] children, int childCount) {
+        int first = children[0];
+        int position = Math.max(first + 1, nextCheckPos) - 1;
+        int start = -1;
+        int nonzero = 0;
+        outer:
+        while (true) {
+            position++;
+            ensureCapacity(position + 1);
+            if (check[position] != 0 || position == ROOT) {
+                nonzero++;
+                continue;
+            }
+            if (start < 0) {
+                start = position;
+                nextCheckPos = position;
+            }
+            int q = position - first;
+            if (q < 1) {
+                continue;
+            }
+            ensureCapacity(q + children[childCount - 1] + 1);
+            for (int index = 1; index < childCount; index++) {
+                int m = q + children[index];
+                if (check[m] != 0 || m == ROOT) {
+                    continue outer;
+                }
+            }
+            if ((double) nonzero / (position - start + 1) >= 0.95) {
+                nextCheckPos = position;
+            }
+            return q;
+        }
+    }
+
+    /**
+     * 确保所有数组的容量够用.
+     *
+     * @param minCapacity
+     *         the desired minimum capacity
+     */
+    private void ensureCapacity(int minCapacity) {
+        int oldCapacity = base.length;
+        if (minCapacity <= oldCapacity) {
+            return;
+        }
+        int newCapacity = Math.max(oldCapacity + (oldCapacity >> 1), minCapacity);
+        base = Arrays.copyOf(base, newCapacity);
+        check = Arrays.copyOf(check, newCapacity);
+        fail = Arrays.copyOf(fail, newCapacity);
+        outputLink = Arrays.copyOf(outputLink, newCapacity);
+        output = Arrays.copyOf(output, newCapacity);
+        Arrays.fill(output, oldCapacity, newCapacity, -1);
+    }
+
+    /**
+     * 从节点n经过字符c到达的节点,即g(n,c).
+     *
+     * @param n
+     *         from node
+     * @param c
+     *         字符
+     * @return to node, -1表示没有这样的arc
+     */
+    private int transfer(int n, char c) {
+        int m = base[n] + c;
+        if (m < check.length && check[m] == n) {
+            return m;
+        }
+        return -1;
+    }
+
+    /**
+     * 扫描文本,找出所有出现的term(包括相互重叠的),每找到一个就调用一次<i>hit</i>.
+     * 对于每个结束位置,较长的term先回调.整个过程不分配任何对象.
+     *
+     * @param text
+     *         文本
+     * @param hit
+     *         匹配到term时的回调
+     */
+    public void scan(CharSequence text, Hit hit) {
+        int state = ROOT;
+        int length = text.length();
+        for (int index = 0; index < length; index++) {
+            char c = Character.toLowerCase(text.charAt(index));
+            int m = transfer(state, c);
+            while (m < 0 && state != ROOT) {
+                state = fail[state];
+                m = transfer(state, c);
+            }
+            state = m < 0 ? ROOT : m;
+            int s = output[state] >= 0 ? state : outputLink[state];
+            while (s != 0) {
+                int termIndex = output[s];
+                hit.hit(index + 1 - terms[termIndex].length(), index + 1, termIndex);
+                s = outputLink[s];
+            }
+        }
+    }
+
+    /**
+     * 文本中是否出现了任意一个term.
+     *
+     * @param text
+     *         文本
+     * @return true-如果出现了
+     */
+    public boolean matches(CharSequence text) {
+        int state = ROOT;
+        int length = text.length();
+        for (int index = 0; index < length; index++) {
+            char c = Character.toLowerCase(text.charAt(index));
+            int m = transfer(state, c);
+            while (m < 0 && state != ROOT) {
+                state = fail[state];
+                m = transfer(state, c);
+            }
+            state = m < 0 ? ROOT : m;
+            if (output[state] >= 0 || outputLink[state] != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 根据下标获取term.
+     *
+     * @param index
+     *         {@link Hit#hit(int, int, int)}中的index
+     * @return term,小写形式
+     */
+    public String getTerm(int index) {
+        return terms[index];
+    }
+
+    /**
+     * term的数量.
+     *
+     * @return term的数量
+     */
+    public int size() {
+        return terms.length;
+    }
+
+    /**
+     * 返回大致的内存使用量,以b为单位.
+     *
+     * @return 大致的内存使用量
+     */
+    public long ramUsedB() {
+        return base.length * 4L * 5;
+    }
+}
@@ -0,0 +1,456 @@
+package com.wuda.tree;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * character与code point之间的映射表.double-array中g(n,a)=m定义为BASE[n] + a = m,
+ * 如果直接使用UTF-16的值作为a,那么中文字符会使a达到40000左右,同一个节点的子节点在数组中分布得非常分散,
+ * 数组中会有大量空闲的节点.把实际出现的character重新编号为1,2,3...之后,a的范围就只有字母表那么大,
+ * 数组可以排列得更紧凑,x_check也更容易找到合适的q值.
+ * <p>
+ * 查找表分成256页,每页256个character,只有出现过的character所在的页才会被分配,
+ * 因此即使字母表中有上万个中文字符,查找表也只有几十KB,并且查找只需要两次数组访问,不需要装箱.
+ * </p>
+ * <p>
+ * 按照Unicode code point逐个处理文本时,emoji,CJK扩展B区等补充平面(supplementary)的字符也有自己的编号,
+ * 而不是拆成两个surrogate分别编号.这些字符很少,用一个开放寻址的小哈希表保存,不占用分页的查找表.
+ * 以int为参数的方法接受任意的Unicode code point,以char为参数的方法只处理UTF-16的char.
+ * </p>
+ *
+ * @author wuda
+ */
+final class Alphabet {
+
+    private static final int PAGE_BITS = 8;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    /**
+     * pages[c >>> 8][c & 0xFF]就是character c的code point,0表示没有定义.
+     */
+    private char[][] pages = new char[PAGE_SIZE][];
+
+    /**
+     * 反向查找表,下标是code point,值是character(Unicode code point).
+     */
+    private int[] characters = new int[16];
+
+    /**
+     * 补充平面字符的编号,开放寻址的哈希表,0表示空位,长度总是2的幂.
+     */
+    private int[] supplementaryKeys = new int[0];
+    private int[] supplementaryCodes = new int[0];
+    private int supplementarySize;
+
+    /**
+     * 已经定义的character的数量.
+     */
+    private int size;
+
+    /**
+     * 最大的code point.
+     */
+    private int maxCode;
+
+    /**
+     * 是否通过{@link #define(char, int)}自定义过code point,自定义过的映射表在重新构造trie时不会被重新编号.
+     */
+    private boolean custom;
+
+    /**
+     * 根据所有key中character出现的次数编号,出现次数越多,code point越小.
+     *
+     * @param keys
+     *         keys
+     * @return 映射表
+     */
+    static Alphabet rank(Collection<String> keys) {
+        return rank(keys, false);
+    }
+
+    /**
+     * 根据所有key中character出现的次数编号,出现次数越多,code point越小.
+     *
+     * @param keys
+     *         keys
+     * @param codePoints
+     *         true-按照Unicode code point统计,surrogate pair作为一个character;false-按照UTF-16的char统计
+     * @return 映射表
+     */
+    static Alphabet rank(Collection<String> keys, boolean codePoints) {
+        int[] frequencies = new int[Character.MAX_VALUE + 1];
+        int[] supplementary = new int[0];
+        int supplementaryCount = 0;
+        for (String key : keys) {
+            for (int index = 0; index < key.length(); index++) {
+                char c = key.charAt(index);
+                if (codePoints && Character.isHighSurrogate(c) && index + 1 < key.length()
+                        && Character.isLowSurrogate(key.charAt(index + 1))) {
+                    if (supplementaryCount == supplementary.length) {
+                        supplementary = Arrays.copyOf(supplementary, Math.max(16, supplementaryCount << 1));
+                    }
+                    supplementary[supplementaryCount++] = Character.toCodePoint(c, key.charAt(++index));
+                } else {
+                    frequencies[c]++;
+                }
+            }
+        }
+        // 补充平面的字符很少,排序之后统计
+        Arrays.sort(supplementary, 0, supplementaryCount);
+        int distinct = 0;
+        for (int frequency : frequencies) {
+            if (frequency > 0) {
+                distinct++;
+            }
+        }
+        for (int index = 0; index < supplementaryCount; index++) {
+            if (index == 0 || supplementary[index] != supplementary[index - 1]) {
+                distinct++;
+            }
+        }
+        // 高32位是出现次数,低32位是character,排序后出现次数相同的按照character排列
+        long[] ranked = new long[distinct];
+        int count = 0;
+        for (int c = 0; c < frequencies.length; c++) {
+            if (frequencies[c] > 0) {
+                ranked[count++] = ((long) -frequencies[c] << 32) | c;
+            }
+        }
+        for (int from = 0; from < supplementaryCount; ) {
+            int to = from + 1;
+            while (to < supplementaryCount && supplementary[to] == supplementary[from]) {
+                to++;
+            }
+            ranked[count++] = ((long) -(to - from) << 32) | supplementary[from];
+            from = to;
+        }
+        Arrays.sort(ranked);
+        Alphabet alphabet = new Alphabet();
+        for (long item : ranked) {
+            alphabet.put((int) item, alphabet.size + 1);
+        }
+        return alphabet;
+    }
+
+    /**
+     * 根据保存的映射关系构造,character可以是补充平面的字符.
+     *
+     * @param characters
+     *         Unicode code points
+     * @param codes
+     *         与characters一一对应的code point
+     * @return 映射表
+     */
+    static Alphabet of(int[] characters, int[] codes) {
+        Alphabet alphabet = new Alphabet();
+        for (int index = 0; index < characters.length; index++) {
+            alphabet.put(characters[index], codes[index]);
+        }
+        return alphabet;
+    }
+
+    /**
+     * 直接使用UTF-16的值作为code point,即character c的code point就是c.
+     *
+     * @param maxCode
+     *         最大的code point
+     * @return 映射表
+     */
+    static Alphabet identity(int maxCode) {
+        Alphabet alphabet = new Alphabet();
+        for (int c = 1; c <= maxCode && c <= Character.MAX_VALUE; c++) {
+            alphabet.put((char) c, c);
+        }
+        return alphabet;
+    }
+
+    /**
+     * 查找character的code point,不会修改映射表.
+     *
+     * @param c
+     *         character
+     * @return code point, -1表示没有定义
+     */
+    int lookup(char c) {
+        char[] page = pages[c >>> PAGE_BITS];
+        if (page == null) {
+            return -1;
+        }
+        int code = page[c & PAGE_MASK];
+        return code == 0 ? -1 : code;
+    }
+
+    /**
+     * 查找character的code point,不会修改映射表.
+     *
+     * @param character
+     *         Unicode code point,也可以是单独的surrogate
+     * @return code point, -1表示没有定义
+     */
+    int lookup(int character) {
+        if (character <= Character.MAX_VALUE) {
+            return lookup((char) character);
+        }
+        int[] keys = supplementaryKeys;
+        if (keys.length == 0) {
+            return -1;
+        }
+        int mask = keys.length - 1;
+        for (int slot = slot(character, mask); keys[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[slot] == character) {
+                return supplementaryCodes[slot];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 把character映射成与UTF-16的char顺序一致的整数,即{@link String#compareTo(String)}的顺序:
+     * 补充平面的字符以0xD800到0xDBFF开头,所以排在0xD800之前的字符之后,0xE000之后的字符之前.
+     * 单独的surrogate排在所有补充平面的字符之后,它们之间依然按照char的顺序排列.
+     *
+     * @param c
+     *         character
+     * @return 排序用的值
+     */
+    static int utf16Order(int c) {
+        if (c < Character.MIN_SURROGATE) {
+            return c;
+        }
+        if (c >= Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+            return c - Character.MIN_SUPPLEMENTARY_CODE_POINT + Character.MIN_SURROGATE;
+        }
+        return c + Character.MIN_SUPPLEMENTARY_CODE_POINT * 16;
+    }
+
+    /**
+     * 补充平面字符在哈希表中的初始位置.
+     *
+     * @param character
+     *         Unicode code point
+     * @param mask
+     *         哈希表的长度减1
+     * @return slot
+     */
+    private static int slot(int character, int mask) {
+        int hash = character * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    /**
+     * 获取character的code point,如果没有定义,则分配下一个code point.
+     *
+     * @param character
+     *         Unicode code point,也可以是单独的surrogate
+     * @return code point
+     */
+    int codeOf(int character) {
+        int code = lookup(character);
+        if (code < 0) {
+            code = maxCode + 1;
+            put(character, code);
+        }
+        return code;
+    }
+
+    /**
+     * 根据code point返回对应的character.
+     *
+     * @param code
+     *         code point
+     * @return Unicode code point
+     */
+    int characterAt(int code) {
+        if (!isUsed(code)) {
+            throw new RuntimeException("code point : " + code + " 没有对应的 character !");
+        }
+        return characters[code];
+    }
+
+    /**
+     * 自定义character的code point.
+     *
+     * @param c
+     *         character
+     * @param code
+     *         code point,必须大于0
+     */
+    void define(char c, int code) {
+        if (code <= 0 || code > Character.MAX_VALUE) {
+            throw new IllegalArgumentException("code point必须在1到" + (int) Character.MAX_VALUE + "之间,当前:" + code);
+        }
+        int existing = lookup(c);
+        if (existing == code) {
+            return;
+        }
+        if (existing > 0) {
+            throw new RuntimeException("character=" + c + ",已经存在,并且两次的code point值不一致!");
+        }
+        if (isUsed(code)) {
+            throw new RuntimeException("code point=" + code + ",已经被character " + (char) characters[code] + " 使用!");
+        }
+        put(c, code);
+        custom = true;
+    }
+
+    /**
+     * code point是否已经分配给了某个character.
+     *
+     * @param code
+     *         code point
+     * @return true-如果已经分配
+     */
+    private boolean isUsed(int code) {
+        return code > 0 && code <= maxCode && lookup(characters[code]) == code;
+    }
+
+    private void put(int character, int code) {
+        if (character <= Character.MAX_VALUE) {
+            if (code > Character.MAX_VALUE) {
+                throw new RuntimeException("character的数量太多,code point不能超过" + (int) Character.MAX_VALUE);
+            }
+            int pageIndex = character >>> PAGE_BITS;
+            if (pages[pageIndex] == null) {
+                pages[pageIndex] = new char[PAGE_SIZE];
+            }
+            pages[pageIndex][character & PAGE_MASK] = (char) code;
+        } else {
+            putSupplementary(character, code);
+        }
+        if (code >= characters.length) {
+            characters = Arrays.copyOf(characters, Math.max(characters.length << 1, code + 1));
+        }
+        characters[code] = character;
+        maxCode = Math.max(maxCode, code);
+        size++;
+    }
+
+    /**
+     * 把补充平面的字符放入哈希表,超过一半被占用时扩容.
+     *
+     * @param character
+     *         Unicode code point
+     * @param code
+     *         code point
+     */
+    private void putSupplementary(int character, int code) {
+        if ((supplementarySize + 1) * 2 > supplementaryKeys.length) {
+            int[] oldKeys = supplementaryKeys;
+            int[] oldCodes = supplementaryCodes;
+            supplementaryKeys = new int[Math.max(16, oldKeys.length << 1)];
+            supplementaryCodes = new int[supplementaryKeys.length];
+            for (int index = 0; index < oldKeys.length; index++) {
+                if (oldKeys[index] != 0) {
+                    insertSupplementary(oldKeys[index], oldCodes[index]);
+                }
+            }
+        }
+        insertSupplementary(character, code);
+        supplementarySize++;
+    }
+
+    private void insertSupplementary(int character, int code) {
+        int mask = supplementaryKeys.length - 1;
+        int slot = slot(character, mask);
+        while (supplementaryKeys[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        supplementaryKeys[slot] = character;
+        supplementaryCodes[slot] = code;
+    }
+
+    /**
+     * 复制一个独立的映射表.
+     *
+     * @return 副本
+     */
+    Alphabet copy() {
+        Alphabet copy = new Alphabet();
+        for (int index = 0; index < pages.length; index++) {
+            copy.pages[index] = pages[index] == null ? null : pages[index].clone();
+        }
+        copy.characters = characters.clone();
+        copy.supplementaryKeys = supplementaryKeys.clone();
+        copy.supplementaryCodes = supplementaryCodes.clone();
+        copy.supplementarySize = supplementarySize;
+        copy.size = size;
+        copy.maxCode = maxCode;
+        copy.custom = custom;
+        return copy;
+    }
+
+    /**
+     * 所有已经定义的character(Unicode code point),按照code point排列,与{@link #codes()}一一对应.
+     *
+     * @return characters
+     */
+    int[] characters() {
+        int[] result = new int[size];
+        int count = 0;
+        for (int code = 1; code <= maxCode; code++) {
+            if (isUsed(code)) {
+                result[count++] = characters[code];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 所有已经定义的code point,从小到大排列,与{@link #characters()}一一对应.
+     *
+     * @return code points
+     */
+    int[] codes() {
+        int[] result = new int[size];
+        int count = 0;
+        for (int code = 1; code <= maxCode; code++) {
+            if (isUsed(code)) {
+                result[count++] = code;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 已经定义的character的数量.
+     *
+     * @return size
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * 最大的code point.
+     *
+     * @return max code point
+     */
+    int maxCode() {
+        return maxCode;
+    }
+
+    /**
+     * 是否自定义过code point.
+     *
+     * @return true-如果自定义过
+     */
+    boolean isCustom() {
+        return custom;
+    }
+
+    /**
+     * 返回大致的内存使用量,以b为单位.
+     *
+     * @return 大致的内存使用量
+     */
+    long ramUsedB() {
+        long bytesCount = pages.length * 4L + characters.length * 4L + supplementaryKeys.length * 8L;
+        for (char[] page : pages) {
+            if (page != null) {
+                bytesCount += page.length * 2L;
+            }
+        }
+        return bytesCount;
+    }
+}
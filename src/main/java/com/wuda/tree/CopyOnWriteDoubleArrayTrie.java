@@ -0,0 +1,252 @@
+package com.wuda.tree;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 支持多个线程同时查找,同时又可以不断添加term的{@link DoubleArrayTrie}.
+ * <p>
+ * 查找总是在当前发布的快照上进行,快照一旦发布就不会再被修改,因此查找不需要任何锁,也不会被写入阻塞.
+ * 添加的term先放入队列,后台线程每隔一段时间把队列中所有的term添加到当前快照的副本中,
+ * 然后通过volatile写原子地替换快照.因此新添加的term最多延迟一个发布周期(加上一次添加的耗时)之后对查找可见,
+ * 调用{@link #flush()}可以立即发布.
+ * </p>
+ * <p>
+ * 每次发布都要复制整个trie,所以适合读多写少、写入可以批量进行的场景,比如词典的增量更新.
+ * 添加失败的term会被跳过并记录日志,不影响同一批中的其他term,也不会让后台线程停止发布.
+ * </p>
+ *
+ * @author wuda
+ */
+public class CopyOnWriteDoubleArrayTrie implements Closeable {
+
+    private static Logger logger = LoggerFactory.getLogger(CopyOnWriteDoubleArrayTrie.class);
+
+    /**
+     * 当前发布的快照,发布之后不会再被修改.
+     */
+    private volatile DoubleArrayTrie snapshot;
+
+    /**
+     * 等待被添加的term.
+     */
+    private final ConcurrentLinkedQueue<String> pending = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 保证同一时间只有一个线程在生成新的快照.
+     */
+    private final Object publishLock = new Object();
+
+    /**
+     * 定期发布的后台线程.
+     */
+    private final ScheduledExecutorService publisher;
+
+    private volatile boolean closed;
+
+    /**
+     * 使用空的trie构造,每隔100毫秒发布一次.
+     */
+    public CopyOnWriteDoubleArrayTrie() {
+        this(new DoubleArrayTrie(), 100, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 使用给定的trie作为初始快照.
+     *
+     * @param initial
+     *         初始快照,构造之后调用方不能再修改它
+     * @param publishInterval
+     *         后台线程发布新快照的间隔
+     * @param unit
+     *         间隔的单位
+     */
+    public CopyOnWriteDoubleArrayTrie(DoubleArrayTrie initial, long publishInterval, TimeUnit unit) {
+        Objects.requireNonNull(initial, "initial trie不能为空!");
+        if (publishInterval <= 0) {
+            throw new IllegalArgumentException("Illegal publishInterval: " + publishInterval);
+        }
+        this.snapshot = initial;
+        this.publisher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "double-array-trie-publisher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.publisher.scheduleWithFixedDelay(this::scheduledFlush, publishInterval, publishInterval, unit);
+    }
+
+    /**
+     * 添加term,在下一次发布之后对查找可见.
+     *
+     * @param term
+     *         term
+     * @throws IllegalStateException
+     *         如果已经关闭
+     */
+    public void add(String term) {
+        if (closed) {
+            throw new IllegalStateException("已经关闭,不能再添加term!");
+        }
+        if (term != null) {
+            pending.add(term);
+        }
+    }
+
+    /**
+     * 批量添加term,在下一次发布之后对查找可见.
+     *
+     * @param terms
+     *         terms
+     * @throws IllegalStateException
+     *         如果已经关闭
+     */
+    public void addAll(Collection<String> terms) {
+        for (String term : terms) {
+            add(term);
+        }
+    }
+
+    /**
+     * 立即把等待中的所有term添加到当前快照的副本中,然后发布这个副本.此方法返回之后,
+     * 在调用之前添加的所有term对查找都是可见的.添加失败的term被跳过,其他term照常发布.
+     */
+    public void flush() {
+        synchronized (publishLock) {
+            List<String> batch = new ArrayList<>();
+            String term;
+            while ((term = pending.poll()) != null) {
+                batch.add(term);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            DoubleArrayTrie next = snapshot.copy();
+            List<String> added = new ArrayList<>(batch.size());
+            for (String item : batch) {
+                try {
+                    next.add(item);
+                    added.add(item);
+                } catch (RuntimeException e) {
+                    logger.warn("添加term失败,已跳过: " + item, e);
+                    // 失败的添加可能已经修改了副本中的一部分数组,从快照重新复制
+                    next = snapshot.copy();
+                    for (String ok : added) {
+                        next.add(ok);
+                    }
+                }
+            }
+            snapshot = next;
+        }
+    }
+
+    /**
+     * 后台线程定期执行的发布.任务抛出异常会让{@link ScheduledExecutorService}取消之后所有的执行,
+     * 所以这里捕获所有异常,只记录日志.
+     */
+    private void scheduledFlush() {
+        try {
+            flush();
+        } catch (Throwable e) {
+            logger.error("发布新的快照失败!", e);
+        }
+    }
+
+    /**
+     * 此trie中是否包含给定的<i>term</i>,不需要任何锁.
+     *
+     * @param term
+     *         term
+     * @return true-如果包含,false-不包含
+     * @see DoubleArrayTrie#contains(String)
+     */
+    public boolean contains(String term) {
+        return snapshot.contains(term);
+    }
+
+    /**
+     * 在当前快照上执行{@link DoubleArrayTrie#contains(CharSequence, int, int)},不需要任何锁.
+     *
+     * @param text
+     *         文本
+     * @param offset
+     *         term在text中的开始位置(包含)
+     * @param length
+     *         term的长度
+     * @return true-如果包含,false-不包含
+     */
+    public boolean contains(CharSequence text, int offset, int length) {
+        return snapshot.contains(text, offset, length);
+    }
+
+    /**
+     * 在当前快照上执行{@link DoubleArrayTrie#contains(char[], int, int)},不需要任何锁.
+     *
+     * @param chars
+     *         字符数组
+     * @param offset
+     *         term在chars中的开始位置(包含)
+     * @param length
+     *         term的长度
+     * @return true-如果包含,false-不包含
+     */
+    public boolean contains(char[] chars, int offset, int length) {
+        return snapshot.contains(chars, offset, length);
+    }
+
+    /**
+     * 在当前快照上执行{@link DoubleArrayTrie#commonPrefixSearch(CharSequence, int, int[])},不需要任何锁.
+     *
+     * @param text
+     *         文本
+     * @param offset
+     *         从text的这个位置(包含)开始匹配
+     * @param lengths
+     *         用于存放匹配到的term的长度
+     * @return 匹配到的term的数量
+     */
+    public int commonPrefixSearch(CharSequence text, int offset, int[] lengths) {
+        return snapshot.commonPrefixSearch(text, offset, lengths);
+    }
+
+    /**
+     * 在当前快照上执行{@link DoubleArrayTrie#longestMatch(CharSequence, int)},不需要任何锁.
+     *
+     * @param text
+     *         文本
+     * @param offset
+     *         从text的这个位置(包含)开始匹配
+     * @return 最长的term的长度, 0-表示没有任何term匹配
+     */
+    public int longestMatch(CharSequence text, int offset) {
+        return snapshot.longestMatch(text, offset);
+    }
+
+    /**
+     * 返回当前发布的快照.同一个快照上的多次查找结果是一致的,调用方只能查找,不能修改它.
+     *
+     * @return 当前快照
+     */
+    public DoubleArrayTrie snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * 发布等待中的所有term,然后停止后台线程.关闭之后不能再添加term.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        publisher.shutdown();
+        flush();
+    }
+}
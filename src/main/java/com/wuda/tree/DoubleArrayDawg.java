@@ -0,0 +1,848 @@
+package com.wuda.tree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * 最小化的有向无环词图(directed acyclic word graph),使用double-array表示.
+ * <p>
+ * trie只能共享前缀,而地名、公司名这样的词典往往还有大量相同的后缀,比如"股份有限公司","有限公司",
+ * {@link DoubleArrayTrie}在TAIL数组中为每个term都保存一份.DAWG把所有的后缀也合并起来:
+ * 按照字典顺序逐个添加term,每添加一个term,就把上一个term中不再变化的那部分节点与已经存在的等价节点合并
+ * (Daciuk的算法,两个节点等价是指它们是否是term的结尾相同,并且经过相同的arc到达相同的节点),
+ * 最后得到的就是状态数最少的自动机.
+ * </p>
+ * <p>
+ * 一个状态可以有多个父状态,所以不能像trie那样在CHECK中保存父节点.这里每个状态占用一个唯一的offset,
+ * 状态经过arc a到达的单元是offset + a,CHECK中保存的是arc本身,offset唯一保证了单元属于哪个状态.
+ * 单元中保存的是目标状态的offset,以及目标状态是否是term的结尾.
+ * </p>
+ * <p>
+ * 构造之后不能再修改,因此可以被多个线程同时查找.与{@link DoubleArrayTrie}一样,term会被trim并且不区分大小写.
+ * DAWG中无法为每个term保存单独的值,需要值时使用{@link DoubleArrayTrie}.
+ * </p>
+ *
+ * @author wuda
+ */
+public final class DoubleArrayDawg {
+
+    /**
+     * units[m]的最低位表示到达的状态是否是term的结尾,其余的位是到达的状态的offset,0表示没有后续的arc.
+     */
+    private final int[] units;
+    /**
+     * check[m]是到达单元m的arc,0表示单元没有被使用.
+     */
+    private final char[] check;
+    /**
+     * firstChild[offset]是状态的第一个arc,sibling[m]是同一个状态的下一个arc,0表示没有.
+     * 按照character的顺序排列,用于{@link #prefixIterator(String, int)}.
+     */
+    private final char[] firstChild;
+    private final char[] sibling;
+
+    /**
+     * character与arc之间的映射,按照出现的次数编号.
+     */
+    private final Alphabet alphabet;
+
+    private final int rootOffset;
+    private final int termCount;
+    private final int stateCount;
+    private final int trieNodeCount;
+
+    private DoubleArrayDawg(Encoder encoder, Alphabet alphabet, int rootOffset, Minimizer minimizer) {
+        int length = encoder.maxIndex + 1;
+        this.units = Arrays.copyOf(encoder.units, length);
+        this.check = Arrays.copyOf(encoder.check, length);
+        this.firstChild = Arrays.copyOf(encoder.firstChild, length);
+        this.sibling = Arrays.copyOf(encoder.sibling, length);
+        this.alphabet = alphabet;
+        this.rootOffset = rootOffset;
+        this.termCount = minimizer.termCount;
+        this.stateCount = minimizer.register.size() + 1;
+        this.trieNodeCount = minimizer.trieNodeCount;
+    }
+
+    /**
+     * 根据给定的所有term构造DAWG.
+     *
+     * @param terms
+     *         所有的term,可以是无序的,也可以包含重复的term
+     * @return DAWG
+     */
+    public static DoubleArrayDawg build(Collection<String> terms) {
+        return build(terms.iterator());
+    }
+
+    /**
+     * 根据给定的所有term构造DAWG.如果term已经排好序,则省去了排序的时间.
+     *
+     * @param terms
+     *         所有的term,可以是无序的,也可以包含重复的term
+     * @return DAWG
+     * @see #build(Collection)
+     */
+    public static DoubleArrayDawg build(Iterator<String> terms) {
+        List<String> keys = new ArrayList<>();
+        boolean sorted = true;
+        String previous = null;
+        while (terms.hasNext()) {
+            String term = terms.next();
+            if (term == null || term.trim().isEmpty()) {
+                continue;
+            }
+            String key = toKey(term);
+            if (previous != null && previous.compareTo(key) > 0) {
+                sorted = false;
+            }
+            keys.add(key);
+            previous = key;
+        }
+        if (!sorted) {
+            Collections.sort(keys);
+        }
+        Minimizer minimizer = new Minimizer();
+        for (String key : keys) {
+            minimizer.add(key);
+        }
+        State root = minimizer.finish();
+        Alphabet alphabet = Alphabet.rank(keys);
+        Encoder encoder = new Encoder(alphabet, Math.max(minimizer.register.size() * 2, 16));
+        int rootOffset = encoder.encode(root);
+        return new DoubleArrayDawg(encoder, alphabet, rootOffset, minimizer);
+    }
+
+    /**
+     * 此DAWG中是否包含给定的<i>term</i>.term会被trim,并且不区分大小写,整个过程不分配任何对象.
+     *
+     * @param term
+     *         term
+     * @return true-如果包含,false-不包含
+     */
+    public boolean contains(String term) {
+        if (term == null) {
+            return false;
+        }
+        int start = 0;
+        int end = term.length();
+        while (start < end && term.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && term.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return start < end && isFinal(walk(term, start, end - start));
+    }
+
+    /**
+     * <i>text</i>中从<i>offset</i>开始的<i>length</i>个字符组成的term是否在此DAWG中,不会trim.
+     *
+     * @param text
+     *         文本
+     * @param offset
+     *         term在text中的开始位置(包含)
+     * @param length
+     *         term的长度
+     * @return true-如果包含,false-不包含
+     * @see DoubleArrayTrie#contains(CharSequence, int, int)
+     */
+    public boolean contains(CharSequence text, int offset, int length) {
+        checkRange(offset, length, text.length());
+        return length > 0 && isFinal(walk(text, offset, length));
+    }
+
+    /**
+     * <i>chars</i>中从<i>offset</i>开始的<i>length</i>个字符组成的term是否在此DAWG中,不会trim.
+     *
+     * @param chars
+     *         字符数组
+     * @param offset
+     *         term在chars中的开始位置(包含)
+     * @param length
+     *         term的长度
+     * @return true-如果包含,false-不包含
+     * @see DoubleArrayTrie#contains(char[], int, int)
+     */
+    public boolean contains(char[] chars, int offset, int length) {
+        checkRange(offset, length, chars.length);
+        if (length == 0) {
+            return false;
+        }
+        int unit = 0;
+        for (int index = offset; index < offset + length; index++) {
+            unit = transfer(index == offset ? rootOffset : unit >>> 1, Character.toLowerCase(chars[index]));
+            if (unit < 0) {
+                return false;
+            }
+        }
+        return isFinal(unit);
+    }
+
+    /**
+     * 找出DAWG中所有是<i>text</i>从<i>offset</i>开始的前缀的term,匹配到的term的长度从短到长依次写入<i>lengths</i>,
+     * 整个过程不分配任何对象.不区分大小写,但是不会trim.
+     *
+     * @param text
+     *         文本
+     * @param offset
+     *         从text的这个位置(包含)开始匹配
+     * @param lengths
+     *         用于存放匹配到的term的长度
+     * @return 匹配到的term的数量, 如果大于<i>lengths</i>的长度, 则只有前<i>lengths.length</i>个被写入
+     * @see DoubleArrayTrie#commonPrefixSearch(CharSequence, int, int[])
+     */
+    public int commonPrefixSearch(CharSequence text, int offset, int[] lengths) {
+        int count = 0;
+        int state = rootOffset;
+        for (int index = offset; index < text.length() && state != 0; index++) {
+            int unit = transfer(state, Character.toLowerCase(text.charAt(index)));
+            if (unit < 0) {
+                break;
+            }
+            if (isFinal(unit)) {
+                if (count < lengths.length) {
+                    lengths[count] = index + 1 - offset;
+                }
+                count++;
+            }
+            state = unit >>> 1;
+        }
+        return count;
+    }
+
+    /**
+     * 找出DAWG中所有是<i>text</i>从<i>offset</i>开始的前缀的term.
+     *
+     * @param text
+     *         文本
+     * @param offset
+     *         从text的这个位置(包含)开始匹配
+     * @return 匹配到的term, 从短到长排列, 这里返回的是它们在text中的原始形式
+     * @see #commonPrefixSearch(CharSequence, int, int[])
+     */
+    public List<String> commonPrefixSearch(CharSequence text, int offset) {
+        int[] lengths = new int[16];
+        int count = commonPrefixSearch(text, offset, lengths);
+        if (count > lengths.length) {
+            lengths = new int[count];
+            commonPrefixSearch(text, offset, lengths);
+        }
+        List<String> terms = new ArrayList<>(count);
+        for (int index = 0; index < count; index++) {
+            terms.add(text.subSequence(offset, offset + lengths[index]).toString());
+        }
+        return terms;
+    }
+
+    /**
+     * 最长匹配,即DAWG中是<i>text</i>从<i>offset</i>开始的前缀的term中,最长的那个term的长度.
+     *
+     * @param text
+     *         文本
+     * @param offset
+     *         从text的这个位置(包含)开始匹配
+     * @return 最长的term的长度, 0-表示没有任何term匹配
+     * @see DoubleArrayTrie#longestMatch(CharSequence, int)
+     */
+    public int longestMatch(CharSequence text, int offset) {
+        int longest = 0;
+        int state = rootOffset;
+        for (int index = offset; index < text.length() && state != 0; index++) {
+            int unit = transfer(state, Character.toLowerCase(text.charAt(index)));
+            if (unit < 0) {
+                break;
+            }
+            if (isFinal(unit)) {
+                longest = index + 1 - offset;
+            }
+            state = unit >>> 1;
+        }
+        return longest;
+    }
+
+    /**
+     * 以<i>prefix</i>开头的所有term,按照字典顺序惰性地遍历,并且term总是排在以它为前缀的更长的term之前.
+     * 不区分大小写,但是不会trim,返回的term是小写形式.
+     *
+     * @param prefix
+     *         前缀,空字符串表示所有的term
+     * @param limit
+     *         最多返回的term数量
+     * @return 以prefix开头的term
+     * @see DoubleArrayTrie#prefixIterator(String, int)
+     */
+    public Iterator<String> prefixIterator(String prefix, int limit) {
+        Objects.requireNonNull(prefix, "prefix不能为空!");
+        if (limit < 0) {
+            throw new IllegalArgumentException("Illegal limit: " + limit);
+        }
+        return new PrefixIterator(prefix, limit);
+    }
+
+    /**
+     * 从offset为<i>state</i>的状态经过character c.
+     *
+     * @param state
+     *         状态的offset
+     * @param c
+     *         character
+     * @return 到达的单元的值, -1表示没有这样的arc
+     */
+    private int transfer(int state, char c) {
+        int code = alphabet.lookup(c);
+        if (code < 0 || state == 0) {
+            return -1;
+        }
+        int m = state + code;
+        if (m >= check.length || check[m] != code) {
+            return -1;
+        }
+        return units[m];
+    }
+
+    /**
+     * 从root开始,依次经过<i>text</i>从<i>offset</i>开始的<i>length</i>个字符.
+     *
+     * @param text
+     *         文本
+     * @param offset
+     *         开始位置(包含)
+     * @param length
+     *         长度,必须大于0
+     * @return 最后到达的单元的值, -1表示中途没有对应的arc
+     */
+    private int walk(CharSequence text, int offset, int length) {
+        int state = rootOffset;
+        int unit = -1;
+        for (int index = offset; index < offset + length; index++) {
+            unit = transfer(state, Character.toLowerCase(text.charAt(index)));
+            if (unit < 0) {
+                return -1;
+            }
+            state = unit >>> 1;
+        }
+        return unit;
+    }
+
+    private static boolean isFinal(int unit) {
+        return unit > 0 && (unit & 1) != 0;
+    }
+
+    private static void checkRange(int offset, int length, int capacity) {
+        if (offset < 0 || length < 0 || offset > capacity - length) {
+            throw new IndexOutOfBoundsException("offset=" + offset + ",length=" + length + ",capacity=" + capacity);
+        }
+    }
+
+    /**
+     * trim之后逐个字符转换成小写.
+     *
+     * @param term
+     *         term,trim之后不能为空
+     * @return key
+     */
+    private static String toKey(String term) {
+        String trimmed = term.trim();
+        char[] chars = new char[trimmed.length()];
+        for (int index = 0; index < chars.length; index++) {
+            chars[index] = Character.toLowerCase(trimmed.charAt(index));
+        }
+        return new String(chars);
+    }
+
+    /**
+     * DAWG中term的数量.
+     *
+     * @return term的数量
+     */
+    public int getTermCount() {
+        return termCount;
+    }
+
+    /**
+     * 最小化之后的状态数量,包括root.
+     *
+     * @return 状态数量
+     */
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    /**
+     * 同样的term组成的trie(每个节点一个字符,不使用TAIL数组)的节点数量,包括root.
+     *
+     * @return trie的节点数量
+     */
+    public int getTrieNodeCount() {
+        return trieNodeCount;
+    }
+
+    /**
+     * 最小化之后的状态数量与trie的节点数量的比值,越小说明共享的后缀越多.
+     *
+     * @return 0到1之间的比值
+     */
+    public double sizeRatio() {
+        return (double) stateCount / trieNodeCount;
+    }
+
+    /**
+     * double-array占用的内存,可以与{@link DoubleArrayTrie#ramUsedB()}比较.
+     *
+     * @return number of bytes
+     */
+    public long ramUsedB() {
+        return units.length * 4L + (check.length + firstChild.length + sibling.length) * 2L;
+    }
+
+    @Override
+    public String toString() {
+        return "termCount:" + termCount + ",stateCount:" + stateCount + ",trieNodeCount:" + trieNodeCount
+                + ",units.length:" + units.length + ",ramUsedB:" + ramUsedB();
+    }
+
+    /**
+     * {@link #prefixIterator(String, int)}的实现.栈中的每一项是一个还没有访问的单元,以及到达它之前的路径长度.
+     */
+    private final class PrefixIterator implements Iterator<String> {
+
+        private int[] cells = new int[16];
+        private int[] depths = new int[16];
+        private int size;
+
+        private final StringBuilder path;
+
+        /**
+         * 倒序压栈时使用.
+         */
+        private int[] children = new int[16];
+
+        private int remaining;
+        private String next;
+
+        private PrefixIterator(String prefix, int limit) {
+            this.path = new StringBuilder(prefix.length() + 16);
+            this.remaining = limit;
+            int state = rootOffset;
+            int unit = 0;
+            for (int index = 0; index < prefix.length(); index++) {
+                char c = Character.toLowerCase(prefix.charAt(index));
+                unit = transfer(state, c);
+                if (unit < 0) {
+                    return;
+                }
+                path.append(c);
+                state = unit >>> 1;
+            }
+            if (isFinal(unit) && remaining > 0) {
+                next = path.toString();
+                remaining--;
+            }
+            pushChildren(state);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && remaining > 0 && advance()) {
+                next = path.toString();
+                remaining--;
+            }
+            return next != null;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String term = next;
+            next = null;
+            return term;
+        }
+
+        /**
+         * 走到下一个是term结尾的单元,此时{@link #path}就是term.
+         *
+         * @return false-如果已经没有了
+         */
+        private boolean advance() {
+            while (size > 0) {
+                size--;
+                int m = cells[size];
+                path.setLength(depths[size]);
+                path.appendCodePoint(alphabet.characterAt(check[m]));
+                int unit = units[m];
+                pushChildren(unit >>> 1);
+                if (isFinal(unit)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * 把状态的所有arc到达的单元倒序压入栈中,这样出栈的顺序就是character的顺序.
+         *
+         * @param state
+         *         状态的offset
+         */
+        private void pushChildren(int state) {
+            if (state == 0) {
+                return;
+            }
+            int count = 0;
+            for (int a = firstChild[state]; a != 0; a = sibling[state + a]) {
+                if (count == children.length) {
+                    children = Arrays.copyOf(children, count << 1);
+                }
+                children[count++] = state + a;
+            }
+            int depth = path.length();
+            for (int index = count - 1; index >= 0; index--) {
+                if (size == cells.length) {
+                    cells = Arrays.copyOf(cells, size << 1);
+                    depths = Arrays.copyOf(depths, size << 1);
+                }
+                cells[size] = children[index];
+                depths[size] = depth;
+                size++;
+            }
+        }
+    }
+
+    /**
+     * 构造过程中的状态,arc按照character的顺序排列.
+     */
+    private static final class State {
+
+        private static final char[] NO_LABELS = new char[0];
+        private static final State[] NO_TARGETS = new State[0];
+
+        private char[] labels = NO_LABELS;
+        private State[] targets = NO_TARGETS;
+        private int size;
+        private boolean terminal;
+
+        /**
+         * 在double-array中的offset,-1表示还没有放入.
+         */
+        private int offset = -1;
+
+        private void addChild(char label, State target) {
+            if (size == labels.length) {
+                int capacity = Math.max(size << 1, 2);
+                labels = Arrays.copyOf(labels, capacity);
+                targets = Arrays.copyOf(targets, capacity);
+            }
+            labels[size] = label;
+            targets[size] = target;
+            size++;
+        }
+
+        /**
+         * 两个状态等价:是否是term的结尾相同,并且经过相同的arc到达同一个(已经最小化的)状态.
+         */
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof State)) {
+                return false;
+            }
+            State that = (State) o;
+            if (terminal != that.terminal || size != that.size) {
+                return false;
+            }
+            for (int index = 0; index < size; index++) {
+                if (labels[index] != that.labels[index] || targets[index] != that.targets[index]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = terminal ? 1 : 0;
+            for (int index = 0; index < size; index++) {
+                hash = hash * 31 + labels[index];
+                hash = hash * 31 + System.identityHashCode(targets[index]);
+            }
+            return hash;
+        }
+    }
+
+    /**
+     * 按照字典顺序添加term,同时合并等价的状态(Daciuk et al., Incremental Construction of Minimal Acyclic Finite-State Automata).
+     * 新的term与上一个term的公共前缀之后的那些状态不会再有新的arc,可以立即与已经最小化的状态合并.
+     */
+    private static final class Minimizer {
+
+        /**
+         * 已经最小化的状态,key和value是同一个对象.
+         */
+        private final Map<State, State> register = new HashMap<>();
+
+        /**
+         * path[i]是上一个term的前i个字符到达的状态,path[0]是root.
+         */
+        private State[] path = new State[16];
+        private String previous = "";
+
+        private int termCount;
+        private int trieNodeCount = 1;
+
+        private Minimizer() {
+            path[0] = new State();
+        }
+
+        private void add(String key) {
+            if (key.equals(previous)) {
+                return;
+            }
+            int common = 0;
+            int max = Math.min(key.length(), previous.length());
+            while (common < max && key.charAt(common) == previous.charAt(common)) {
+                common++;
+            }
+            minimize(common);
+            if (key.length() >= path.length) {
+                path = Arrays.copyOf(path, Math.max(path.length << 1, key.length() + 1));
+            }
+            for (int index = common; index < key.length(); index++) {
+                State child = new State();
+                path[index].addChild(key.charAt(index), child);
+                path[index + 1] = child;
+                trieNodeCount++;
+            }
+            path[key.length()].terminal = true;
+            termCount++;
+            previous = key;
+        }
+
+        /**
+         * 从上一个term的最后一个状态开始,直到深度为<i>depth</i>的状态(不包含)为止,
+         * 如果已经存在等价的状态,则用它替换,否则登记为最小化的状态.
+         *
+         * @param depth
+         *         深度
+         */
+        private void minimize(int depth) {
+            for (int index = previous.length(); index > depth; index--) {
+                State child = path[index];
+                State existing = register.putIfAbsent(child, child);
+                if (existing != null) {
+                    State parent = path[index - 1];
+                    parent.targets[parent.size - 1] = existing;
+                }
+            }
+        }
+
+        private State finish() {
+            minimize(0);
+            return path[0];
+        }
+    }
+
+    /**
+     * 把最小化之后的状态放入double-array.与{@link DoubleArrayTrie}的x_check一样,沿着空闲单元链表寻找offset,
+     * 作为起点失败太多次的单元不再尝试.除此之外,每个offset只能被一个状态使用.
+     */
+    private static final class Encoder {
+
+        private static final int MAX_FREE_TRIALS = 8;
+
+        private final Alphabet alphabet;
+
+        private int[] units;
+        private char[] check;
+        private char[] firstChild;
+        private char[] sibling;
+
+        /**
+         * 所有空闲单元组成的双向循环链表,下标0作为链表头,-1表示不在链表中.
+         */
+        private int[] nextFree;
+        private int[] previousFree;
+        private byte[] freeTrials;
+
+        /**
+         * 已经被状态使用的offset.
+         */
+        private final BitSet offsets = new BitSet();
+        private int maxIndex;
+
+        private int[] codes = new int[16];
+
+        private Encoder(Alphabet alphabet, int capacity) {
+            this.alphabet = alphabet;
+            units = new int[capacity];
+            check = new char[capacity];
+            firstChild = new char[capacity];
+            sibling = new char[capacity];
+            nextFree = new int[capacity];
+            previousFree = new int[capacity];
+            freeTrials = new byte[capacity];
+            linkFreeCells(1, capacity);
+        }
+
+        /**
+         * 按照广度优先的顺序放入所有的状态,再填写每个单元到达的状态.
+         *
+         * @param root
+         *         root
+         * @return root的offset
+         */
+        private int encode(State root) {
+            List<State> states = new ArrayList<>();
+            states.add(root);
+            root.offset = place(root);
+            for (int index = 0; index < states.size(); index++) {
+                State state = states.get(index);
+                for (int child = 0; child < state.size; child++) {
+                    State target = state.targets[child];
+                    if (target.offset < 0) {
+                        target.offset = place(target);
+                        states.add(target);
+                    }
+                }
+            }
+            for (State state : states) {
+                int previousM = 0;
+                for (int child = 0; child < state.size; child++) {
+                    State target = state.targets[child];
+                    int code = alphabet.lookup(state.labels[child]);
+                    int m = state.offset + code;
+                    units[m] = (target.offset << 1) | (target.terminal ? 1 : 0);
+                    if (previousM == 0) {
+                        firstChild[state.offset] = (char) code;
+                    } else {
+                        sibling[previousM] = (char) code;
+                    }
+                    previousM = m;
+                }
+            }
+            return root.offset;
+        }
+
+        /**
+         * 为状态找到一个offset,并且占用它的所有arc到达的单元.
+         *
+         * @param state
+         *         状态
+         * @return offset, 0表示状态没有arc
+         */
+        private int place(State state) {
+            if (state.size == 0) {
+                return 0;
+            }
+            if (state.size > codes.length) {
+                codes = new int[Math.max(codes.length << 1, state.size)];
+            }
+            int min = Integer.MAX_VALUE;
+            for (int index = 0; index < state.size; index++) {
+                codes[index] = alphabet.lookup(state.labels[index]);
+                min = Math.min(min, codes[index]);
+            }
+            int q = 0;
+            int free = nextFree[0];
+            while (free != 0) {
+                int next = nextFree[free];
+                q = free - min;
+                if (q > 0) {
+                    if (isPlaceable(q, state.size)) {
+                        break;
+                    }
+                    if (++freeTrials[free] >= MAX_FREE_TRIALS) {
+                        unlinkFreeCell(free);
+                    }
+                }
+                free = next;
+            }
+            if (free == 0) {
+                q = Math.max(maxIndex + 1 - min, 1);
+                while (!isPlaceable(q, state.size)) {
+                    q++;
+                }
+            }
+            offsets.set(q);
+            for (int index = 0; index < state.size; index++) {
+                int m = q + codes[index];
+                ensureCapacity(m + 1);
+                check[m] = (char) codes[index];
+                if (nextFree[m] >= 0) {
+                    unlinkFreeCell(m);
+                }
+                maxIndex = Math.max(maxIndex, m);
+            }
+            return q;
+        }
+
+        private boolean isPlaceable(int q, int count) {
+            if (offsets.get(q)) {
+                return false;
+            }
+            for (int index = 0; index < count; index++) {
+                int m = q + codes[index];
+                if (m < check.length && check[m] != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void ensureCapacity(int minCapacity) {
+            int oldCapacity = check.length;
+            if (minCapacity <= oldCapacity) {
+                return;
+            }
+            int newCapacity = Math.max(oldCapacity + (oldCapacity >> 1), minCapacity);
+            units = Arrays.copyOf(units, newCapacity);
+            check = Arrays.copyOf(check, newCapacity);
+            firstChild = Arrays.copyOf(firstChild, newCapacity);
+            sibling = Arrays.copyOf(sibling, newCapacity);
+            nextFree = Arrays.copyOf(nextFree, newCapacity);
+            previousFree = Arrays.copyOf(previousFree, newCapacity);
+            freeTrials = Arrays.copyOf(freeTrials, newCapacity);
+            linkFreeCells(oldCapacity, newCapacity);
+        }
+
+        /**
+         * 把[from,to)之间的单元按顺序追加到空闲单元链表的末尾.
+         *
+         * @param from
+         *         开始位置(包含)
+         * @param to
+         *         结束位置(不包含)
+         */
+        private void linkFreeCells(int from, int to) {
+            int last = previousFree[0];
+            for (int index = from; index < to; index++) {
+                nextFree[last] = index;
+                previousFree[index] = last;
+                last = index;
+            }
+            nextFree[last] = 0;
+            previousFree[0] = last;
+        }
+
+        private void unlinkFreeCell(int index) {
+            int previous = previousFree[index];
+            int next = nextFree[index];
+            nextFree[previous] = next;
+            previousFree[next] = previous;
+            nextFree[index] = -1;
+        }
+    }
+}
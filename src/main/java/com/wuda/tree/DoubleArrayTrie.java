@@ -1,6 +1,14 @@
 package com.wuda.tree;
 
+import com.wuda.lang.IntArray;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.function.IntFunction;
 
 /**
  * double-array trie,根据论文
@@ -8,6 +16,12 @@ import java.util.*;
  * An Efficient Implementation of Trie Structures
  * </a>
  * 实现.
+ * <p>
+ * 内存:每个节点占用16字节,BASE和CHECK各4字节,子节点链表(firstChild和sibling)各4字节,
+ * 是论文中只有BASE和CHECK时的两倍.子节点链表使前缀遍历,模糊查找,删除和{@link #compact()}只需要访问真正的子节点,
+ * 所以构造完成后也不会释放.插入期间还有每个节点9字节的空闲节点链表,构造完成后释放,下一次插入时重新建立.
+ * 构造完成后只用于查找的词典,可以用{@link #freeze()}得到没有子节点链表,并且BASE和CHECK被压缩过的{@link PackedDoubleArrayTrie}.
+ * </p>
  *
  * @author wuda
  * @version 1.0
@@ -17,13 +31,26 @@ public class DoubleArrayTrie {
     /**
      * 实现该算法最核心的元素.
      */
-    private int[] base; // represent the BASE array.
-    private int[] check; // represent the CHECK array
+    private IntArray base; // represent the BASE array.
+    private IntArray check; // represent the CHECK array
     private char[] tail; // represent the TAIL array
+    /**
+     * 每个term的int值,下标是term的叶子节点在TAIL数组中的位置(即-BASE[leaf]).
+     * 每个叶子节点在TAIL数组中的位置都是独占的,并且在插入时调整节点也不会改变,所以可以作为下标.
+     * 只有通过{@link #add(String, int)}添加过值时才分配.
+     */
+    private int[] values;
     private int pos = 1; // the pointer to TAIL array
     private char separator = '#';
     private char garbage = '?';
 
+    /**
+     * 是否按照Unicode code point处理term,此时surrogate pair(比如emoji,CJK扩展B区的汉字)只占用一个arc,
+     * 而不是两个surrogate各占用一个arc.新建的trie总是true,从版本1和版本2的文件加载的trie是false,
+     * 因为这些文件中的surrogate pair是两个arc,只能继续按照UTF-16的char处理.
+     */
+    private boolean codePointMode = true;
+
     /**
      * root node position.
      */
@@ -46,10 +73,42 @@ public class DoubleArrayTrie {
      */
     private int default_capacity = 8;
 
+    /**
+     * 所有空闲节点组成的链表,x_check寻找q值时只需要在空闲节点之间跳跃,而不是从1开始逐个尝试.
+     * 只有插入时才需要,所以在第一次x_check时才根据CHECK数组建立,{@link #build(Collection)},{@link #compact()}
+     * 以及{@link #load(Path)}之后是null,只用于查找的词典不需要为它付出每个节点9字节.
+     */
+    private FreeCellList freeCells;
+
+    /**
+     * 子节点链表(参考cedar),代替遍历CHECK数组寻找子节点.firstChild[n]是节点n的第一个子节点的arc(即code point),
+     * sibling[m]是与节点m拥有同一个父节点的下一个子节点的arc,0表示没有.保存的是arc而不是子节点的下标,
+     * 因为调整节点(case 4)时节点的位置会改变,而arc不会,所以只需要把被移动的节点自己的两个值复制到新的位置.
+     */
+    private IntArray firstChild;
+    private IntArray sibling;
+
+    /**
+     * 创建BASE,CHECK,子节点链表以及空闲节点链表所使用的{@link IntArray},参数是容量.
+     */
+    private final IntFunction<IntArray> arrayFactory;
+
+    /**
+     * x_check被调用的次数,以及总共尝试过的q值的数量.
+     */
+    private long xCheckCount;
+    private long xCheckProbeCount;
+
+    /**
+     * 插入时,因为冲突而调整节点(即论文中的case 4)的次数.
+     */
+    private long relocationCount;
+
     /**
      * 构造一个double-array trie,使用默认的容量.
      */
     public DoubleArrayTrie() {
+        this.arrayFactory = IntArray::new;
         init(default_capacity);
     }
 
@@ -60,10 +119,26 @@ public class DoubleArrayTrie {
      *         容量
      */
     public DoubleArrayTrie(int capacity) {
+        this(capacity, IntArray::new);
+    }
+
+    /**
+     * 构造一个double-array trie,BASE,CHECK,子节点链表以及空闲节点链表都由<i>arrayFactory</i>创建.
+     * 比如传入<code>DirectIntArray::new</code>,这几个数组就会保存在堆外,很大的词典不会撑大old gen.
+     * TAIL数组以及term的值依然在堆上.
+     *
+     * @param capacity
+     *         容量
+     * @param arrayFactory
+     *         根据容量创建{@link IntArray}
+     * @see com.wuda.lang.DirectIntArray
+     */
+    public DoubleArrayTrie(int capacity, IntFunction<IntArray> arrayFactory) {
         if (capacity <= 0) {
             throw new IllegalArgumentException("Illegal Capacity: " +
                     capacity);
         }
+        this.arrayFactory = Objects.requireNonNull(arrayFactory, "arrayFactory不能为空!");
         init(capacity);
     }
 
@@ -74,17 +149,238 @@ public class DoubleArrayTrie {
      *         容量
      */
     private void init(int capacity) {
-        base = new int[capacity];
-        check = new int[capacity];
+        base = arrayFactory.apply(capacity);
+        check = arrayFactory.apply(capacity);
         tail = new char[capacity];
+        firstChild = arrayFactory.apply(capacity);
+        sibling = arrayFactory.apply(capacity);
         ensureExplicitDoubleArrayCapacity(rootPosition + 1);
         setBase(rootPosition, 1);
     }
 
     /**
-     * 字符对应的code point,主要是为了测试用.
+     * 根据给定的所有term一次性构造double-array trie,参考Darts的构造方式.先对term排序,然后从root开始,
+     * 每次把同一个节点的所有子节点一起放入double-array中(通过空闲节点链表寻找位置),只有一个term的分支直接放入TAIL数组,
+     * 因此不会像{@link #add(String)}那样反复地调整节点,构造速度接近线性,并且double-array也更紧凑.
+     * 构造完成后,依然可以使用{@link #add(String)}继续添加term.
+     *
+     * @param terms
+     *         所有的term,可以是无序的,也可以包含重复的term
+     * @return double-array trie
+     */
+    public static DoubleArrayTrie build(Collection<String> terms) {
+        return build(terms.iterator());
+    }
+
+    /**
+     * 根据给定的所有term一次性构造double-array trie.如果term已经排好序,则省去了排序的时间.
+     *
+     * @param terms
+     *         所有的term,可以是无序的,也可以包含重复的term
+     * @return double-array trie
+     * @see #build(Collection)
+     */
+    public static DoubleArrayTrie build(Iterator<String> terms) {
+        DoubleArrayTrie trie = new DoubleArrayTrie();
+        trie.buildKeys(terms);
+        return trie;
+    }
+
+    /**
+     * 与{@link #build(Collection)}相同,但是BASE,CHECK,子节点链表以及空闲节点链表由<i>arrayFactory</i>创建.
+     *
+     * @param terms
+     *         所有的term,可以是无序的,也可以包含重复的term
+     * @param arrayFactory
+     *         根据容量创建{@link IntArray}
+     * @return double-array trie
+     * @see #DoubleArrayTrie(int, IntFunction)
+     */
+    public static DoubleArrayTrie build(Collection<String> terms, IntFunction<IntArray> arrayFactory) {
+        DoubleArrayTrie trie = new DoubleArrayTrie(8, arrayFactory);
+        trie.buildKeys(terms.iterator());
+        return trie;
+    }
+
+    /**
+     * 把所有的term放入当前这个空的trie中.
+     *
+     * @param terms
+     *         所有的term,可以是无序的,也可以包含重复的term
+     * @see #build(Iterator)
+     */
+    private void buildKeys(Iterator<String> terms) {
+        List<String> keys = new ArrayList<>();
+        boolean sorted = true;
+        String previous = null;
+        while (terms.hasNext()) {
+            String term = terms.next();
+            if (term == null || term.trim().isEmpty()) {
+                continue;
+            }
+            String key = toKey(term);
+            if (previous != null && previous.compareTo(key) > 0) {
+                sorted = false;
+            }
+            keys.add(key);
+            previous = key;
+        }
+        if (keys.isEmpty()) {
+            return;
+        }
+        if (!sorted) {
+            Collections.sort(keys);
+        }
+        keys = distinct(keys);
+        if (!alphabet.isCustom()) {
+            // 出现次数多的character编号小,同一个节点的子节点在数组中更集中
+            alphabet = Alphabet.rank(keys, codePointMode);
+            maxCodePoint = alphabet.maxCode();
+        }
+        ensureExplicitDoubleArrayCapacity(keys.size() * 2);
+        buildNodes(keys);
+        freeCells = null; // 构造完成后释放,继续插入时再重新建立
+    }
+
+    /**
+     * 去掉排好序的list中重复的元素.
+     *
+     * @param sortedKeys
+     *         排好序的list
+     * @return 没有重复元素的list
      */
-    private Map<Character, Integer> codePointMap;
+    private static List<String> distinct(List<String> sortedKeys) {
+        List<String> keys = new ArrayList<>(sortedKeys.size());
+        String previous = null;
+        for (String key : sortedKeys) {
+            if (!key.equals(previous)) {
+                keys.add(key);
+            }
+            previous = key;
+        }
+        return keys;
+    }
+
+    /**
+     * 构造过程中使用的状态.
+     */
+    private static class Builder {
+        /**
+         * 复用的子节点character数组,避免每个节点都分配.
+         */
+        private int[] children = new int[16];
+        /**
+         * 每个子节点的key范围的结束位置(不包含).
+         */
+        private int[] groupEnds = new int[16];
+        /**
+         * 等待处理的key范围,按照与递归相同的深度优先顺序出栈.
+         */
+        private int[] froms = new int[16];
+        private int[] tos = new int[16];
+        private int[] depths = new int[16];
+        private int[] nodes = new int[16];
+        private int size;
+
+        private void push(int from, int to, int depth, int node) {
+            if (size == froms.length) {
+                froms = Arrays.copyOf(froms, size << 1);
+                tos = Arrays.copyOf(tos, size << 1);
+                depths = Arrays.copyOf(depths, size << 1);
+                nodes = Arrays.copyOf(nodes, size << 1);
+            }
+            froms[size] = from;
+            tos[size] = to;
+            depths[size] = depth;
+            nodes[size] = node;
+            size++;
+        }
+    }
+
+    /**
+     * 把排好序的keys放入root之下.使用显式的栈而不是递归,公共前缀很长时也不会栈溢出.
+     *
+     * @param keys
+     *         排好序并且去重的key,每个key都以{@link #separator}结尾
+     */
+    private void buildNodes(List<String> keys) {
+        Builder builder = new Builder();
+        buildNode(keys, 0, keys.size(), 0, rootPosition, builder);
+        while (builder.size > 0) {
+            int top = --builder.size;
+            int from = builder.froms[top];
+            int to = builder.tos[top];
+            int depth = builder.depths[top];
+            int m = builder.nodes[top];
+            if (to - from == 1) {
+                // 只有一个term经过这个arc,剩余的字符直接放入TAIL数组
+                int count = insertRemainingIntoTailArray(keys.get(from), depth, this.pos);
+                setBase(m, -pos);
+                ensureExplicitPos(count);
+            } else {
+                buildNode(keys, from, to, depth, m, builder);
+            }
+        }
+    }
+
+    /**
+     * 把排好序的keys中[from,to)这些key的下一个character作为节点n的子节点放入double-array中,
+     * 它们拥有长度为depth的公共前缀.每个子节点的key范围被压入栈中,由{@link #buildNodes(List)}继续处理.
+     *
+     * @param keys
+     *         排好序并且去重的key,每个key都以{@link #separator}结尾
+     * @param from
+     *         开始位置(包含)
+     * @param to
+     *         结束位置(不包含)
+     * @param depth
+     *         公共前缀的长度
+     * @param n
+     *         公共前缀所在的节点
+     * @param builder
+     *         构造过程中的状态
+     */
+    private void buildNode(List<String> keys, int from, int to, int depth, int n, Builder builder) {
+        // 收集所有离开节点n的arc,同一个character的key是连续的
+        int childCount = 0;
+        int previous = 0;
+        for (int index = from; index < to; index++) {
+            String key = keys.get(index);
+            int c = characterAt(key, depth, key.length());
+            if (index == from || c != previous) {
+                if (childCount == builder.children.length) {
+                    builder.children = Arrays.copyOf(builder.children, childCount << 1);
+                    builder.groupEnds = Arrays.copyOf(builder.groupEnds, childCount << 1);
+                }
+                if (childCount > 0) {
+                    builder.groupEnds[childCount - 1] = index;
+                }
+                builder.children[childCount++] = c;
+                previous = c;
+            }
+        }
+        builder.groupEnds[childCount - 1] = to;
+        int[] children = Arrays.copyOf(builder.children, childCount);
+        int q = x_check(children);
+        setBase(n, q);
+        // 先占用所有子节点的位置,再处理子节点,否则这些位置可能被子节点的子节点占用
+        for (int c : children) {
+            setCheck(q + getCodePoint(c), n);
+            linkChild(n, getCodePoint(c));
+        }
+        // 从后往前压栈,出栈的顺序就是character的顺序
+        for (int index = childCount - 1; index >= 0; index--) {
+            int c = children[index];
+            int groupFrom = index == 0 ? from : builder.groupEnds[index - 1];
+            builder.push(groupFrom, builder.groupEnds[index], depth + Character.charCount(c), q + getCodePoint(c));
+        }
+    }
+
+    /**
+     * 字符对应的code point.{@link #build(Collection)}根据character出现的次数重新编号,
+     * {@link #add(String)}遇到没有编号的character时分配下一个编号,也可以通过{@link #defineCodePoint(Character, Integer)}自定义.
+     */
+    private Alphabet alphabet = new Alphabet();
 
     /**
      * 添加指定的term到trie中.
@@ -93,10 +389,38 @@ public class DoubleArrayTrie {
      *         term to be appended to this trie
      */
     public void add(String term) {
+        insert(term);
+    }
+
+    /**
+     * 添加指定的term到trie中,并且设置它的int值,比如term id,词频等.如果term已经存在,则更新它的值.
+     * 值直接保存在以叶子节点的TAIL位置为下标的数组中,不需要额外的map,也不需要装箱.
+     *
+     * @param term
+     *         term to be appended to this trie
+     * @param value
+     *         term的值
+     * @see #getInt(String, int)
+     */
+    public void add(String term, int value) {
+        int tailPos = insert(term);
+        if (tailPos > 0) {
+            setValue(tailPos, value);
+        }
+    }
+
+    /**
+     * 添加指定的term到trie中.
+     *
+     * @param term
+     *         term to be appended to this trie
+     * @return term的叶子节点在TAIL数组中的位置, -1表示term为空, 没有添加
+     */
+    private int insert(String term) {
         if (term == null || term.trim().isEmpty()) {
-            return;
+            return -1;
         }
-        term = term.trim().toLowerCase() + separator;
+        term = toKey(term);
         int length = term.length();
         /*
          *if there is an arc g(n,a) =m on the reduced trie, then BASE [ n ] +a=m and CHECK [ m ]= n.
@@ -106,10 +430,12 @@ public class DoubleArrayTrie {
         int a, m;
         int check_m; // 在m处,CHECK数组的值
         int base_n; // 在n处,BASE数组的值
-        for (int index = 0; index < length; index++) {
-            a = getCodePoint(term, index);
+        int character; // 当前的character,按照code point处理时可能是两个char
+        for (int index = 0; index < length; index += Character.charCount(character)) {
+            character = characterAt(term, index, length);
+            a = getCodePoint(character);
             ensureExplicitDoubleArrayCapacity(n + 1);
-            base_n = base[n];
+            base_n = base.get(n);
             // Case 3 occurs.
             if (base_n < 0) { // 此时,base_n的值指向TAIL数组
                 // case 3 step 3
@@ -117,15 +443,22 @@ public class DoubleArrayTrie {
                 String remainingOfCurrent = term.substring(index);
                 if (remainingInTail.equals(remainingOfCurrent)) {
                     // 对比成功,说明当前正在插入的字符串之前已经成功插入到了trie中
-                    break;
+                    return -base_n;
                 } else {
                     String commonPrefix = getCommonPrefix(remainingInTail, remainingOfCurrent);
                     int temp = -base_n; // case 3 step 4
                     int commonPrefixLength = 0;
                     if (commonPrefix != null) { // 处理公共前缀
                         commonPrefixLength = commonPrefix.length();
-                        for (int i = 0; i < commonPrefixLength; i++) {
-                            char c = commonPrefix.charAt(i);
+                        if (codePointMode && Character.isHighSurrogate(commonPrefix.charAt(commonPrefixLength - 1))
+                                && (Character.isLowSurrogate(remainingInTail.charAt(commonPrefixLength))
+                                || Character.isLowSurrogate(remainingOfCurrent.charAt(commonPrefixLength)))) {
+                            // 公共前缀不能在surrogate pair的中间结束,这个pair属于separate node
+                            commonPrefixLength--;
+                        }
+                        for (int i = 0; i < commonPrefixLength; ) {
+                            int c = characterAt(commonPrefix, i, commonPrefixLength);
+                            i += Character.charCount(c);
                             a = getCodePoint(c);
                             int q = x_check(c); // case 3 step 5
                             ensureExplicitDoubleArrayCapacity(n + 1);
@@ -133,14 +466,15 @@ public class DoubleArrayTrie {
                             m = q + a;
                             ensureExplicitDoubleArrayCapacity(m + 1);
                             setCheck(m, n);
-                            assert base[check[m]] >= 0 : "tail pointer node不能作为其他节点的父节点!";
+                            linkChild(n, a);
+                            assert base.get(check.get(m)) >= 0 : "tail pointer node不能作为其他节点的父节点!";
                             n = m;
                         }
                     }
                     int separate_node_index = commonPrefixLength; // the separate node index
                     // case 3 step 7
-                    char separate_node_1 = remainingInTail.charAt(separate_node_index);
-                    char separate_node_2 = remainingOfCurrent.charAt(separate_node_index);
+                    int separate_node_1 = characterAt(remainingInTail, separate_node_index, remainingInTail.length());
+                    int separate_node_2 = characterAt(remainingOfCurrent, separate_node_index, remainingOfCurrent.length());
                     int q = x_check(separate_node_1, separate_node_2);
                     ensureExplicitDoubleArrayCapacity(n + 1);
                     setBase(n, q);
@@ -148,40 +482,44 @@ public class DoubleArrayTrie {
                     int m_1 = q + getCodePoint(separate_node_1);
                     setBase(m_1, -temp);
                     setCheck(m_1, n);
-                    assert base[check[m_1]] >= 0 : "tail pointer node不能作为其他节点的父节点!";
+                    linkChild(n, m_1 - q);
+                    assert base.get(check.get(m_1)) >= 0 : "tail pointer node不能作为其他节点的父节点!";
                     // case 3 step 9
-                    int insertion_count_1 = remainingInTail.length() - (commonPrefixLength + 1/*separate node*/);
-                    int separatorPos = insertIntoTailArray(remainingInTail, separate_node_index + 1, insertion_count_1, temp);
+                    int insertion_count_1 = insertRemainingIntoTailArray(remainingInTail,
+                            separate_node_index + Character.charCount(separate_node_1), temp);
                     // 这里其实不做也可以,只是为了满足论文中的定义,也为了更好的可视化,便于调试
-                    clearTailArray(separatorPos + 1, commonPrefixLength + 1/*和之前相比,就是公共前缀和separate node从TAIL数组中移除了*/);
+                    clearTailArray(temp + insertion_count_1, remainingInTail.length() - insertion_count_1/*和之前相比,就是公共前缀和separate node从TAIL数组中移除了*/);
                     // case 3 step 10
                     int m_2 = q + getCodePoint(separate_node_2);
-                    setBase(m_2, -pos);
+                    int tailPos = pos;
+                    setBase(m_2, -tailPos);
                     setCheck(m_2, n);
-                    assert base[check[m_2]] >= 0 : "tail pointer node不能作为其他节点的父节点!";
-                    int insertion_count_2 = remainingOfCurrent.length() - (commonPrefixLength + 1/*separate node*/);
-                    insertIntoTailArray(remainingOfCurrent, separate_node_index + 1, insertion_count_2, this.pos);
+                    linkChild(n, m_2 - q);
+                    assert base.get(check.get(m_2)) >= 0 : "tail pointer node不能作为其他节点的父节点!";
+                    int insertion_count_2 = insertRemainingIntoTailArray(remainingOfCurrent,
+                            separate_node_index + Character.charCount(separate_node_2), tailPos);
                     // case 3 step 11
                     ensureExplicitPos(insertion_count_2);
-                    break;
+                    return tailPos;
                 }
             }
             m = base_n + a; // g(n,a) = m
             ensureExplicitDoubleArrayCapacity(m + 1);
-            check_m = check[m];
+            check_m = check.get(m);
             // The value 0 in CHECK [m] indicates insertion of the rest of the word,That is store into TAIL the remaining string
             // node m called separate node.
             if (check_m == 0) {
-                int offset = index + 1;
-                int count = length - offset;
-                insertIntoTailArray(term, offset, count, this.pos);
-                setBase(m, -pos);
+                int tailPos = pos;
+                int count = insertRemainingIntoTailArray(term, index + Character.charCount(character), tailPos);
+                setBase(m, -tailPos);
                 setCheck(m, n);
-                assert base[check[m]] >= 0 : "tail pointer node不能作为其他节点的父节点!";
+                linkChild(n, a);
+                assert base.get(check.get(m)) >= 0 : "tail pointer node不能作为其他节点的父节点!";
                 ensureExplicitPos(count);
-                break;
+                return tailPos;
             } else if (check_m != n) {
                 // Case 4 occurs
+                relocationCount++;
 
                 // Case 4 step 11　中,【the original BASE node number, i.e. 3, where the inconsistency
                 //　was generated (see step 3) as pivot】,通常情况下就是节点n,但是有一种情况下,就不是n了,即：冲突节点的子节点【包含节点n】
@@ -191,33 +529,33 @@ public class DoubleArrayTrie {
                 // case 4 step 2
                 int temp_node_1 = m;
                 // case 4 step 3
-                List<Character> arcsLeavingCurrentNode = arcsLeaving(n);
-                List<Character> arcsLeavingCollisionNode = arcsLeaving(collisionNode);
+                List<Integer> arcsLeavingCurrentNode = arcsLeaving(n);
+                List<Integer> arcsLeavingCollisionNode = arcsLeaving(collisionNode);
                 // case 4 step 4
                 int modifyNode; // 两个节点冲突,最终决定要调整的节点
-                List<Character> arcsLeavingModifyNode;
-                List<Character> arcsLeavingModifyNodeForXCheck;
+                List<Integer> arcsLeavingModifyNode;
+                List<Integer> arcsLeavingModifyNodeForXCheck;
                 if (m == n/*node经过一个arc后指向自己*/ || arcsLeavingCurrentNode.size() + 1 < arcsLeavingCollisionNode.size()) {
                     modifyNode = n;
                     arcsLeavingModifyNode = arcsLeavingCurrentNode;
                     arcsLeavingModifyNodeForXCheck = new ArrayList<>(arcsLeavingCurrentNode.size() + 1);
                     arcsLeavingModifyNodeForXCheck.addAll(arcsLeavingCurrentNode);
-                    arcsLeavingModifyNodeForXCheck.add(term.charAt(index));//在使用x_check计算q值时,当前冲突的character也需要参与
+                    arcsLeavingModifyNodeForXCheck.add(character);//在使用x_check计算q值时,当前冲突的character也需要参与
                 } else {
                     modifyNode = collisionNode;
                     arcsLeavingModifyNode = arcsLeavingCollisionNode;
                     arcsLeavingModifyNodeForXCheck = arcsLeavingCollisionNode;
                 }
                 // case 4 step 5
-                int temp_base = base[modifyNode];
+                int temp_base = base.get(modifyNode);
                 int q = x_check(arcsLeavingModifyNodeForXCheck);
                 setBase(modifyNode, q);
                 int temp_node_2;
-                for (char c : arcsLeavingModifyNode) {
+                for (int c : arcsLeavingModifyNode) {
                     // case 4 step 6
                     int codePoint = getCodePoint(c);
                     temp_node_1 = temp_base + codePoint;
-                    temp_node_2 = base[modifyNode] + codePoint;
+                    temp_node_2 = base.get(modifyNode) + codePoint;
                     if (temp_node_1 == n) {
                         // 如果对应到论文【Figure 7】中，冲突的node 1 和 node 3,本来node 1 的子节点是node 4,
                         // 但是如果我们假设node 1 的子节点不是node 4,而是node 3 的话，就会发生这里的情况,此时node 3也要被新节点替换了.
@@ -225,142 +563,1159 @@ public class DoubleArrayTrie {
                     }
                     int max = Math.max(temp_node_1, temp_node_2);
                     ensureExplicitDoubleArrayCapacity(max + 1);
-                    setBase(temp_node_2, base[temp_node_1]);
-                    setCheck(temp_node_2, check[temp_node_1]);
-                    assert base[check[temp_node_2]] >= 0 : "tail pointer node不能作为其他节点的父节点!";
+                    setBase(temp_node_2, base.get(temp_node_1));
+                    setCheck(temp_node_2, check.get(temp_node_1));
+                    // 子节点链表中保存的是arc,移动之后依然有效,只需要复制被移动的节点自己的两个值
+                    firstChild.set(temp_node_2, firstChild.get(temp_node_1));
+                    sibling.set(temp_node_2, sibling.get(temp_node_1));
+                    assert base.get(check.get(temp_node_2)) >= 0 : "tail pointer node不能作为其他节点的父节点!";
                     // case 4 step 7
-                    if (base[temp_node_1] > 0) {
-                        List<Integer> children = nodesLeaving(temp_node_1);
-                        for (int child : children) {
+                    if (base.get(temp_node_1) > 0) {
+                        for (int child : nodesLeaving(temp_node_1)) {
                             setCheck(child, temp_node_2);
-                            assert base[check[child]] >= 0 : "tail pointer node不能作为其他节点的父节点!";
+                            assert base.get(check.get(child)) >= 0 : "tail pointer node不能作为其他节点的父节点!";
                         }
                     }
                     // case 4 step 8
                     setBase(temp_node_1, 0);
                     setCheck(temp_node_1, 0);
+                    firstChild.set(temp_node_1, 0);
+                    sibling.set(temp_node_1, 0);
                 }
                 /*
                  * 以下其实都可以抽取公共,但是为了满足论文中的定义,方便理解，所以就这样处理.对于数据结构的实现,
                  * 理由理解是很重要的.
                  */
                 // case 4 step 11
-                int temp_node = base[inconsistencyPivotNode] + a;
+                int temp_node = base.get(inconsistencyPivotNode) + a;
                 // case 4 step 12
-                setBase(temp_node, -pos);
+                int tailPos = pos;
+                setBase(temp_node, -tailPos);
                 setCheck(temp_node, inconsistencyPivotNode);
-                assert base[check[temp_node]] >= 0 : "tail pointer node不能作为其他节点的父节点!";
+                linkChild(inconsistencyPivotNode, a);
+                assert base.get(check.get(temp_node)) >= 0 : "tail pointer node不能作为其他节点的父节点!";
                 // case 4 step 13
-                int offset = index + 1;
-                int count = length - offset;
-                insertIntoTailArray(term, offset, count, this.pos);
+                int count = insertRemainingIntoTailArray(term, index + Character.charCount(character), tailPos);
                 // case 4 step 14
                 ensureExplicitPos(count);
-                break;
+                return tailPos;
             }
             n = m;
         }
+        // 经过的最后一个arc是separator,说明term之前已经插入过了
+        return -base.get(n);
+    }
+
+    /**
+     * 此trie中是否包含给定的<i>term</i>.term会被trim,并且不区分大小写,整个过程不分配任何对象.
+     *
+     * @param term
+     *         term
+     * @return true-如果包含,false-不包含
+     */
+    public boolean contains(String term) {
+        if (term == null) {
+            return false;
+        }
+        int start = trimStart(term);
+        int end = trimEnd(term, start);
+        return start < end && findLeaf(term, start, end - start) > 0;
+    }
+
+    /**
+     * <i>text</i>中从<i>offset</i>开始的<i>length</i>个字符组成的term是否在此trie中.
+     * 逐个字符转换成小写之后直接与double-array和TAIL数组对比,不会创建子串,也不分配任何对象,
+     * 适合分词等需要频繁调用的场景.与{@link #commonPrefixSearch(CharSequence, int, int[])}一样不会trim.
+     *
+     * @param text
+     *         文本
+     * @param offset
+     *         term在text中的开始位置(包含)
+     * @param length
+     *         term的长度
+     * @return true-如果包含,false-不包含
+     */
+    public boolean contains(CharSequence text, int offset, int length) {
+        checkRange(offset, length, text.length());
+        return length > 0 && findLeaf(text, offset, length) > 0;
+    }
+
+    /**
+     * <i>chars</i>中从<i>offset</i>开始的<i>length</i>个字符组成的term是否在此trie中.
+     *
+     * @param chars
+     *         字符数组
+     * @param offset
+     *         term在chars中的开始位置(包含)
+     * @param length
+     *         term的长度
+     * @return true-如果包含,false-不包含
+     * @see #contains(CharSequence, int, int)
+     */
+    public boolean contains(char[] chars, int offset, int length) {
+        checkRange(offset, length, chars.length);
+        return length > 0 && findLeaf(chars, offset, length) > 0;
+    }
+
+    /**
+     * 获取term的int值,只需要从root开始走一次.
+     *
+     * @param term
+     *         term
+     * @param defaultValue
+     *         trie中不包含此term时返回的值
+     * @return term的值, 如果term是通过{@link #add(String)}添加的, 则值是0
+     * @see #add(String, int)
+     */
+    public int getInt(String term, int defaultValue) {
+        if (term == null) {
+            return defaultValue;
+        }
+        int start = trimStart(term);
+        int end = trimEnd(term, start);
+        int leaf = start < end ? findLeaf(term, start, end - start) : -1;
+        if (leaf < 0) {
+            return defaultValue;
+        }
+        return getValue(-base.get(leaf));
+    }
+
+    /**
+     * 找到term的叶子节点.term结束之后,用{@link #separator}作为最后一个arc.
+     *
+     * @param text
+     *         文本
+     * @param offset
+     *         term在text中的开始位置(包含)
+     * @param length
+     *         term的长度,必须大于0
+     * @return 叶子节点, -1表示trie中不包含此term
+     */
+    private int findLeaf(CharSequence text, int offset, int length) {
+        int end = offset + length;
+        int n = rootPosition;
+        int index = offset;
+        while (base.get(n) > 0) {
+            int c = index < end ? Character.toLowerCase(characterAt(text, index, end)) : separator;
+            if (c == separator && index < end) {
+                return -1; // term中不可能包含separator
+            }
+            // 查找不能修改trie的任何状态,否则就不能被多个线程同时查找
+            n = transfer(n, base.get(n), c);
+            if (n < 0) {
+                return -1;
+            }
+            index += Character.charCount(c);
+        }
+        int tailPos = -base.get(n);
+        if (tailPos <= 0) {
+            return -1;
+        }
+        // index > end说明经过的最后一个arc就是separator,TAIL中只有一个separator
+        while (index < end) {
+            int c = tailCharacterAt(tailPos);
+            if (c == separator || c != Character.toLowerCase(characterAt(text, index, end))) {
+                return -1;
+            }
+            index += Character.charCount(c);
+            tailPos += Character.charCount(c);
+        }
+        return index > end || tail[tailPos] == separator ? n : -1;
+    }
+
+    /**
+     * 与{@link #findLeaf(CharSequence, int, int)}相同,只是term来自字符数组.
+     *
+     * @param chars
+     *         字符数组
+     * @param offset
+     *         term在chars中的开始位置(包含)
+     * @param length
+     *         term的长度,必须大于0
+     * @return 叶子节点, -1表示trie中不包含此term
+     */
+    private int findLeaf(char[] chars, int offset, int length) {
+        int end = offset + length;
+        int n = rootPosition;
+        int index = offset;
+        while (base.get(n) > 0) {
+            int c = index < end ? Character.toLowerCase(characterAt(chars, index, end)) : separator;
+            if (c == separator && index < end) {
+                return -1;
+            }
+            n = transfer(n, base.get(n), c);
+            if (n < 0) {
+                return -1;
+            }
+            index += Character.charCount(c);
+        }
+        int tailPos = -base.get(n);
+        if (tailPos <= 0) {
+            return -1;
+        }
+        while (index < end) {
+            int c = tailCharacterAt(tailPos);
+            if (c == separator || c != Character.toLowerCase(characterAt(chars, index, end))) {
+                return -1;
+            }
+            index += Character.charCount(c);
+            tailPos += Character.charCount(c);
+        }
+        return index > end || tail[tailPos] == separator ? n : -1;
+    }
+
+    /**
+     * 检查offset和length是否越界.
+     *
+     * @param offset
+     *         开始位置
+     * @param length
+     *         长度
+     * @param capacity
+     *         文本的总长度
+     */
+    static void checkRange(int offset, int length, int capacity) {
+        if (offset < 0 || length < 0 || offset > capacity - length) {
+            throw new IndexOutOfBoundsException("offset=" + offset + ",length=" + length + ",capacity=" + capacity);
+        }
+    }
+
+    /**
+     * 与{@link String#trim()}一样,跳过开头所有小于等于空格的字符.
+     *
+     * @param term
+     *         term
+     * @return 第一个不被trim的字符的位置
+     */
+    static int trimStart(String term) {
+        int start = 0;
+        while (start < term.length() && term.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    /**
+     * 与{@link String#trim()}一样,跳过结尾所有小于等于空格的字符.
+     *
+     * @param term
+     *         term
+     * @param start
+     *         {@link #trimStart(String)}的结果
+     * @return 最后一个不被trim的字符的下一个位置
+     */
+    static int trimEnd(String term, int start) {
+        int end = term.length();
+        while (end > start && term.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * 把term转换成保存在trie中的形式,即trim之后逐个字符转换成小写,再加上{@link #separator}.
+     * 逐个字符转换保证了key与term的长度相同,因此查找时可以逐个字符对比,而不需要先创建key.
+     * 按照code point处理时,surrogate pair作为一个character转换,转换前后的char数量也相同.
+     *
+     * @param term
+     *         term,trim之后不能为空
+     * @return key
+     */
+    private String toKey(String term) {
+        int start = trimStart(term);
+        int end = trimEnd(term, start);
+        char[] chars = new char[end - start + 1];
+        for (int index = start; index < end; ) {
+            index += Character.toChars(Character.toLowerCase(characterAt(term, index, end)), chars, index - start);
+        }
+        chars[chars.length - 1] = separator;
+        return new String(chars);
+    }
+
+    /**
+     * 从trie中删除给定的<i>term</i>.叶子节点被清空,它在TAIL数组中的字符被设置成<i>garbage</i>,
+     * 然后沿着父节点向上:没有子节点的节点被清空;只剩下一个子节点,并且这个子节点是叶子节点的节点,
+     * 把子节点的arc和TAIL中的字符合并回TAIL数组,自己成为叶子节点(root除外).
+     * 被清空的节点回到空闲节点链表,以后添加term时会被优先使用.
+     * 被删除的term占用的TAIL空间不会立即回收,需要时使用{@link #compact()}.
+     *
+     * @param term
+     *         term
+     * @return true-如果trie中包含此term并且已经删除,false-不包含
+     */
+    public boolean remove(String term) {
+        if (term == null) {
+            return false;
+        }
+        int start = trimStart(term);
+        int end = trimEnd(term, start);
+        int leaf = start < end ? findLeaf(term, start, end - start) : -1;
+        if (leaf < 0) {
+            return false;
+        }
+        removeLeaf(leaf);
+        return true;
+    }
+
+    /**
+     * 删除叶子节点,然后向上清理不再需要的节点.
+     *
+     * @param leaf
+     *         叶子节点
+     * @see #remove(String)
+     */
+    private void removeLeaf(int leaf) {
+        int tailPos = -base.get(leaf);
+        clearTailArray(tailPos, retrievalRemainingFromTail(tailPos, true).length());
+        setValue(tailPos, 0);
+        int n = check.get(leaf);
+        freeNode(leaf, n);
+        while (n != rootPosition) {
+            int base_n = base.get(n);
+            int first = firstChild.get(n);
+            if (first == 0) {
+                int parent = check.get(n);
+                freeNode(n, parent);
+                n = parent;
+            } else if (sibling.get(base_n + first) == 0 && base.get(base_n + first) < 0) {
+                // 只剩下一个子节点,并且是叶子节点
+                int child = base_n + first;
+                int c = getCharacterByCodePoint(first);
+                int childTailPos = -base.get(child);
+                int mergedPos = mergeIntoTail(c, childTailPos);
+                if (mergedPos != childTailPos) {
+                    setValue(mergedPos, getValue(childTailPos));
+                    setValue(childTailPos, 0);
+                }
+                freeNode(child, n);
+                setBase(n, -mergedPos);
+                n = check.get(n);
+            } else {
+                break;
+            }
+        }
+    }
+
+    /**
+     * 清空节点,并且从父节点的子节点链表中删除它.
+     *
+     * @param node
+     *         被清空的节点,必须已经没有子节点
+     * @param parent
+     *         父节点
+     */
+    private void freeNode(int node, int parent) {
+        unlinkChild(parent, node - base.get(parent));
+        setBase(node, 0);
+        setCheck(node, 0);
+        firstChild.set(node, 0);
+    }
+
+    /**
+     * 把arc <i>a</i>加入节点n的子节点链表的头部,节点n的BASE值必须已经确定.
+     *
+     * @param n
+     *         父节点
+     * @param a
+     *         arc
+     */
+    private void linkChild(int n, int a) {
+        sibling.set(base.get(n) + a, firstChild.get(n));
+        firstChild.set(n, a);
+    }
+
+    /**
+     * 从节点n的子节点链表中删除arc <i>a</i>.
+     *
+     * @param n
+     *         父节点
+     * @param a
+     *         arc
+     */
+    private void unlinkChild(int n, int a) {
+        int base_n = base.get(n);
+        int m = base_n + a;
+        if (firstChild.get(n) == a) {
+            firstChild.set(n, sibling.get(m));
+        } else {
+            int previous = firstChild.get(n);
+            while (sibling.get(base_n + previous) != a) {
+                previous = sibling.get(base_n + previous);
+            }
+            sibling.set(base_n + previous, sibling.get(m));
+        }
+        sibling.set(m, 0);
+    }
+
+    /**
+     * 根据BASE和CHECK数组重新建立所有节点的子节点链表,用于从文件加载之后.
+     */
+    private void linkAllChildren() {
+        int last = Math.min(checkLastPosition, check.length() - 1);
+        for (int m = last; m > 0; m--) {
+            int n = check.get(m);
+            if (n > 0) {
+                linkChild(n, m - base.get(n));
+            }
+        }
+    }
+
+    /**
+     * 把叶子节点的arc <i>c</i> 和它在TAIL数组中的字符合并,作为父节点在TAIL数组中的字符.
+     *
+     * @param c
+     *         到达叶子节点的arc
+     * @param tailPos
+     *         叶子节点在TAIL数组中的位置
+     * @return 合并后在TAIL数组中的位置
+     */
+    private int mergeIntoTail(int c, int tailPos) {
+        if (c == separator) {
+            // 叶子节点在TAIL中只有一个separator,父节点直接使用即可
+            return tailPos;
+        }
+        int count = Character.charCount(c);
+        if (tailPos > count && tail[tailPos - 1] == garbage && tail[tailPos - count] == garbage) {
+            // 前面的位置不属于任何叶子节点,直接把arc写在那里
+            Character.toChars(c, tail, tailPos - count);
+            return tailPos - count;
+        }
+        String remaining = new StringBuilder().appendCodePoint(c).append(retrievalRemainingFromTail(tailPos, true)).toString();
+        clearTailArray(tailPos, remaining.length() - count);
+        int mergedPos = this.pos;
+        insertIntoTailArray(remaining, 0, remaining.length(), mergedPos);
+        ensureExplicitPos(remaining.length());
+        return mergedPos;
+    }
+
+    /**
+     * 重新构造BASE,CHECK和TAIL数组,回收被删除的term以及插入时调整节点留下的空间,构造方式与{@link #build(Collection)}相同.
+     */
+    public void compact() {
+        List<String> terms = new ArrayList<>();
+        collectTerms(terms);
+        DoubleArrayTrie rebuilt = new DoubleArrayTrie(default_capacity, arrayFactory);
+        rebuilt.separator = separator;
+        rebuilt.garbage = garbage;
+        rebuilt.codePointMode = codePointMode;
+        rebuilt.alphabet = alphabet;
+        rebuilt.maxCodePoint = alphabet.isCustom() ? maxCodePoint : 0;
+        rebuilt.buildKeys(terms.iterator());
+        if (values != null) {
+            for (String term : terms) {
+                rebuilt.add(term, getInt(term, 0));
+            }
+        }
+        base = rebuilt.base;
+        check = rebuilt.check;
+        tail = rebuilt.tail;
+        values = rebuilt.values;
+        pos = rebuilt.pos;
+        baseLastPosition = rebuilt.baseLastPosition;
+        checkLastPosition = rebuilt.checkLastPosition;
+        maxCodePoint = rebuilt.maxCodePoint;
+        alphabet = rebuilt.alphabet;
+        freeCells = rebuilt.freeCells;
+        firstChild = rebuilt.firstChild;
+        sibling = rebuilt.sibling;
+        xCheckCount += rebuilt.xCheckCount;
+        xCheckProbeCount += rebuilt.xCheckProbeCount;
+    }
+
+    /**
+     * 如果double-array中空闲节点的比例,或者TAIL数组中garbage的比例超过了<i>threshold</i>,则{@link #compact()}.
+     *
+     * @param threshold
+     *         0到1之间,比如0.3表示超过30%的空间被浪费时压缩
+     * @return true-如果压缩了
+     */
+    public boolean compact(double threshold) {
+        int doubleArrayUsed = Math.max(baseLastPosition, checkLastPosition);
+        double doubleArrayWaste = (double) freeCellsInDoubleArray() / doubleArrayUsed;
+        double tailWaste = pos > 1 ? (double) garbageInTailArray() / (pos - 1) : 0;
+        if (doubleArrayWaste > threshold || tailWaste > threshold) {
+            compact();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 收集trie中所有的term,没有顺序.使用显式的栈而不是递归,很长的term也不会栈溢出.
+     *
+     * @param terms
+     *         用于存放收集到的term
+     */
+    private void collectTerms(List<String> terms) {
+        StringBuilder prefix = new StringBuilder();
+        // 等待处理的节点,以及从root到它的路径长度和到达它的character
+        int[] nodes = new int[16];
+        int[] lengths = new int[16];
+        int[] characters = new int[16];
+        int size = 0;
+        nodes[size] = rootPosition;
+        size++;
+        while (size > 0) {
+            size--;
+            int n = nodes[size];
+            if (n != rootPosition) {
+                prefix.setLength(lengths[size]);
+                prefix.appendCodePoint(characters[size]);
+            }
+            int base_n = base.get(n);
+            for (int a = firstChild.get(n); a != 0; a = sibling.get(base_n + a)) {
+                int m = base_n + a;
+                int c = getCharacterByCodePoint(a);
+                if (base.get(m) < 0) {
+                    if (c == separator) {
+                        terms.add(prefix.toString());
+                    } else {
+                        terms.add(prefix.toString() + String.valueOf(Character.toChars(c))
+                                + retrievalRemainingFromTail(-base.get(m), false));
+                    }
+                    continue;
+                }
+                if (size == nodes.length) {
+                    nodes = Arrays.copyOf(nodes, size << 1);
+                    lengths = Arrays.copyOf(lengths, size << 1);
+                    characters = Arrays.copyOf(characters, size << 1);
+                }
+                nodes[size] = m;
+                lengths[size] = prefix.length();
+                characters[size] = c;
+                size++;
+            }
+        }
+    }
+
+    /**
+     * 找出trie中所有是<i>text</i>从<i>offset</i>开始的前缀的term,比如trie中有"中国","中国人","中国人民",
+     * text是"中国人民银行",offset是0,则三个term都匹配.只需要从root开始走一次,包括读取TAIL中的剩余字符,
+     * 匹配到的term的长度从短到长依次写入<i>lengths</i>,整个过程不分配任何对象,适合分词等需要频繁调用的场景.
+     * 与{@link #contains(String)}一样不区分大小写,但是不会trim.
+     *
+     * @param text
+     *         文本
+     * @param offset
+     *         从text的这个位置(包含)开始匹配
+     * @param lengths
+     *         用于存放匹配到的term的长度
+     * @return 匹配到的term的数量, 如果大于<i>lengths</i>的长度, 则只有前<i>lengths.length</i>个被写入
+     */
+    public int commonPrefixSearch(CharSequence text, int offset, int[] lengths) {
+        int count = 0;
+        int length = text.length();
+        int n = rootPosition;
+        for (int index = offset; ; ) {
+            int base_n = base.get(n);
+            if (base_n < 0) {
+                int end = matchTail(-base_n, text, index);
+                if (end >= 0) {
+                    if (count < lengths.length) {
+                        lengths[count] = end - offset;
+                    }
+                    count++;
+                }
+                return count;
+            }
+            if (index > offset && hasSeparatorArc(n, base_n)) {
+                if (count < lengths.length) {
+                    lengths[count] = index - offset;
+                }
+                count++;
+            }
+            if (index >= length) {
+                return count;
+            }
+            int c = Character.toLowerCase(characterAt(text, index, length));
+            if (c == separator) {
+                return count; // term中不可能包含separator
+            }
+            n = transfer(n, base_n, c);
+            if (n < 0) {
+                return count;
+            }
+            index += Character.charCount(c);
+        }
+    }
+
+    /**
+     * 找出trie中所有是<i>text</i>从<i>offset</i>开始的前缀的term.
+     *
+     * @param text
+     *         文本
+     * @param offset
+     *         从text的这个位置(包含)开始匹配
+     * @return 匹配到的term, 从短到长排列, 这里返回的是它们在text中的原始形式
+     * @see #commonPrefixSearch(CharSequence, int, int[])
+     */
+    public List<String> commonPrefixSearch(CharSequence text, int offset) {
+        int[] lengths = new int[16];
+        int count = commonPrefixSearch(text, offset, lengths);
+        if (count > lengths.length) {
+            lengths = new int[count];
+            commonPrefixSearch(text, offset, lengths);
+        }
+        List<String> terms = new ArrayList<>(count);
+        for (int index = 0; index < count; index++) {
+            terms.add(text.subSequence(offset, offset + lengths[index]).toString());
+        }
+        return terms;
+    }
+
+    /**
+     * 最长匹配,即trie中是<i>text</i>从<i>offset</i>开始的前缀的term中,最长的那个term的长度.
+     * 与{@link #commonPrefixSearch(CharSequence, int, int[])}一样只需要从root开始走一次,并且不分配任何对象.
+     *
+     * @param text
+     *         文本
+     * @param offset
+     *         从text的这个位置(包含)开始匹配
+     * @return 最长的term的长度, 0-表示没有任何term匹配
+     */
+    public int longestMatch(CharSequence text, int offset) {
+        int longest = 0;
+        int length = text.length();
+        int n = rootPosition;
+        for (int index = offset; ; ) {
+            int base_n = base.get(n);
+            if (base_n < 0) {
+                int end = matchTail(-base_n, text, index);
+                return end >= 0 ? end - offset : longest;
+            }
+            if (index > offset && hasSeparatorArc(n, base_n)) {
+                longest = index - offset;
+            }
+            if (index >= length) {
+                return longest;
+            }
+            int c = Character.toLowerCase(characterAt(text, index, length));
+            if (c == separator) {
+                return longest; // term中不可能包含separator
+            }
+            n = transfer(n, base_n, c);
+            if (n < 0) {
+                return longest;
+            }
+            index += Character.charCount(c);
+        }
+    }
+
+    /**
+     * 以<i>prefix</i>开头的所有term,用于自动补全.按照深度优先的顺序惰性地遍历,每次{@link Iterator#next()}
+     * 只走到下一个term为止,不会先把整棵子树的term收集起来,因此只需要前几个结果时,耗时与子树的大小无关.
+     * 同一个节点的子节点按照character排列,并且term总是排在以它为前缀的更长的term之前,
+     * 即"the"在"then"之前.与{@link #contains(CharSequence, int, int)}一样不区分大小写,但是不会trim,
+     * 返回的term是小写形式.迭代期间不能修改trie.
+     *
+     * @param prefix
+     *         前缀,空字符串表示所有的term
+     * @param limit
+     *         最多返回的term数量
+     * @return 以prefix开头的term
+     */
+    public Iterator<String> prefixIterator(String prefix, int limit) {
+        Objects.requireNonNull(prefix, "prefix不能为空!");
+        if (limit < 0) {
+            throw new IllegalArgumentException("Illegal limit: " + limit);
+        }
+        return new PrefixIterator(prefix, limit);
+    }
+
+    /**
+     * 以<i>prefix</i>开头的term中,值最大的<i>k</i>个,值通过{@link #add(String, int)}设置,比如词频.
+     * 需要遍历以prefix结束的节点之下的整棵子树,但是只有能够入选的term才会创建字符串.
+     *
+     * @param prefix
+     *         前缀,空字符串表示所有的term
+     * @param k
+     *         最多返回的term数量
+     * @return term, 按照值从大到小排列, 值相同的按照字典顺序排列
+     * @see #prefixIterator(String, int)
+     */
+    public List<String> topK(String prefix, int k) {
+        Objects.requireNonNull(prefix, "prefix不能为空!");
+        TopTerms top = new TopTerms(k);
+        PrefixIterator iterator = new PrefixIterator(prefix, Integer.MAX_VALUE);
+        int tailPos;
+        while ((tailPos = iterator.advance()) > 0) {
+            int value = getValue(tailPos);
+            if (top.accepts(value)) {
+                top.add(iterator.termAt(tailPos), value);
+            }
+        }
+        return top.toList();
+    }
+
+    /**
+     * {@link #prefixIterator(String, int)}的实现.使用显式的栈代替递归,栈中的每一项是一个还没有访问的节点,
+     * 以及到达它的arc和它的父节点的路径长度.
+     */
+    private final class PrefixIterator implements Iterator<String> {
+
+        private int[] nodes = new int[16];
+        private int[] depths = new int[16];
+        private int[] labels = new int[16];
+        private int size;
+
+        /**
+         * 从root到当前节点的路径.
+         */
+        private final StringBuilder path;
+
+        /**
+         * 排序子节点时使用,高32位是排序用的character(见{@link Alphabet#utf16Order(int)}),低32位是节点.
+         */
+        private long[] children = new long[16];
+
+        private int remaining;
+        private String next;
+
+        private PrefixIterator(String prefix, int limit) {
+            this.path = new StringBuilder(prefix.length() + 16);
+            this.remaining = limit;
+            int n = rootPosition;
+            int length = prefix.length();
+            for (int index = 0; index < length; ) {
+                int c = Character.toLowerCase(characterAt(prefix, index, length));
+                int base_n = base.get(n);
+                if (c == separator || base_n <= 0) {
+                    return;
+                }
+                n = transfer(n, base_n, c);
+                if (n < 0) {
+                    return;
+                }
+                index += Character.charCount(c);
+                if (base.get(n) < 0) {
+                    // 前缀剩余的部分必须是TAIL中剩余字符的前缀
+                    int tailPos = -base.get(n);
+                    for (int rest = index; rest < length; ) {
+                        int t = tailCharacterAt(tailPos);
+                        if (t == separator || t != Character.toLowerCase(characterAt(prefix, rest, length))) {
+                            return;
+                        }
+                        rest += Character.charCount(t);
+                        tailPos += Character.charCount(t);
+                    }
+                    push(n, path.length(), c);
+                    return;
+                }
+                path.appendCodePoint(c);
+            }
+            if (base.get(n) > 0) {
+                pushChildren(n, base.get(n));
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && remaining > 0) {
+                int tailPos = advance();
+                if (tailPos > 0) {
+                    next = termAt(tailPos);
+                    remaining--;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String term = next;
+            next = null;
+            return term;
+        }
+
+        /**
+         * 走到下一个叶子节点,此时{@link #path}是从root到叶子节点的路径.
+         *
+         * @return 叶子节点在TAIL数组中的位置, -1表示已经没有了
+         */
+        private int advance() {
+            while (size > 0) {
+                size--;
+                int m = nodes[size];
+                int c = labels[size];
+                path.setLength(depths[size]);
+                if (c != separator) {
+                    path.appendCodePoint(c);
+                }
+                int base_m = base.get(m);
+                if (base_m < 0) {
+                    return -base_m;
+                }
+                pushChildren(m, base_m);
+            }
+            return -1;
+        }
+
+        /**
+         * 当前路径加上TAIL中剩余的字符就是term.
+         *
+         * @param tailPos
+         *         {@link #advance()}返回的位置
+         * @return term
+         */
+        private String termAt(int tailPos) {
+            int length = path.length();
+            for (char c = tail[tailPos]; c != separator; c = tail[++tailPos]) {
+                path.append(c);
+            }
+            String term = path.toString();
+            path.setLength(length);
+            return term;
+        }
+
+        /**
+         * 找出节点n的所有子节点,按照character从大到小压入栈中,这样出栈的顺序就是从小到大,
+         * separator总是第一个出栈.
+         *
+         * @param n
+         *         node
+         * @param base_n
+         *         BASE[n]的值,必须大于0
+         */
+        private void pushChildren(int n, int base_n) {
+            int count = 0;
+            for (int a = firstChild.get(n); a != 0; a = sibling.get(base_n + a)) {
+                int c = getCharacterByCodePoint(a);
+                if (count == children.length) {
+                    children = Arrays.copyOf(children, count << 1);
+                }
+                children[count++] = ((long) (c == separator ? 0 : Alphabet.utf16Order(c) + 1) << 32) | (base_n + a);
+            }
+            Arrays.sort(children, 0, count);
+            int depth = path.length();
+            for (int index = count - 1; index >= 0; index--) {
+                int m = (int) children[index];
+                push(m, depth, getCharacterByCodePoint(m - base_n));
+            }
+        }
+
+        private void push(int node, int depth, int label) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size << 1);
+                depths = Arrays.copyOf(depths, size << 1);
+                labels = Arrays.copyOf(labels, size << 1);
+            }
+            nodes[size] = node;
+            depths[size] = depth;
+            labels[size] = label;
+            size++;
+        }
+    }
+
+    /**
+     * 模糊查找,找出trie中与<i>term</i>的编辑距离(Levenshtein distance)不超过<i>maxEdits</i>的所有term.
+     * 深度优先遍历double array,每经过一个arc,用动态规划从上一层的一行计算出这一层的一行,
+     * 当这一行中的最小值已经超过maxEdits时,这个节点之下不可能再有满足条件的term,整棵子树被跳过.
+     * 因此只有与term足够相似的前缀才会被访问,比逐个计算词典中每个term的编辑距离快得多.
+     * term会被trim,并且不区分大小写.
+     *
+     * @param term
+     *         查询
+     * @param maxEdits
+     *         最大的编辑距离,通常是1或者2
+     * @return 匹配到的term, 按照编辑距离从小到大排列, 距离相同的按照字典顺序排列
+     */
+    public List<FuzzyMatch> fuzzySearch(String term, int maxEdits) {
+        Objects.requireNonNull(term, "term不能为空!");
+        if (maxEdits < 0) {
+            throw new IllegalArgumentException("Illegal maxEdits: " + maxEdits);
+        }
+        String key = toKey(term);
+        FuzzySearcher searcher = new FuzzySearcher(characters(key, key.length() - 1), maxEdits);
+        searcher.search();
+        List<FuzzyMatch> matches = searcher.matches;
+        matches.sort((one, another) -> {
+            if (one.getDistance() != another.getDistance()) {
+                return Integer.compare(one.getDistance(), another.getDistance());
+            }
+            return one.getTerm().compareTo(another.getTerm());
+        });
+        return matches;
     }
 
     /**
-     * 此trie中是否包含给定的<i>term</i>.
-     *
-     * @param term
-     *         term
-     * @return true-如果包含,false-不包含
+     * {@link #fuzzySearch(String, int)}的实现.rows[depth]是从root到当前节点的路径(有depth个character)与查询的
+     * 每个前缀的编辑距离,即动态规划表中的一行.按照code point处理时,surrogate pair是一个character,
+     * 因此把一个emoji替换成另一个emoji的编辑距离是1.
      */
-    public boolean contains(String term) {
-        if (term == null || term.isEmpty()) {
-            return false;
+    private final class FuzzySearcher {
+
+        private final int[] query;
+        /**
+         * 查询中出现的所有字符,不重复,不包含separator.
+         */
+        private final int[] queryChars;
+        private final int maxEdits;
+        private int[][] rows;
+        private final StringBuilder path = new StringBuilder();
+        private final List<FuzzyMatch> matches = new ArrayList<>();
+        private int[] nodes = new int[16];
+        private int[] arcs = new int[16];
+        private int[] depths = new int[16];
+        private int[] lengths = new int[16];
+        private int size;
+
+        private FuzzySearcher(int[] query, int maxEdits) {
+            this.query = query;
+            this.maxEdits = maxEdits;
+            this.rows = new int[16][];
+            int[] first = new int[query.length + 1];
+            for (int index = 0; index < first.length; index++) {
+                first[index] = index;
+            }
+            rows[0] = first;
+            int[] distinct = new int[query.length];
+            int count = 0;
+            for (int c : query) {
+                if (c != separator && indexOf(distinct, count, c) < 0) {
+                    distinct[count++] = c;
+                }
+            }
+            this.queryChars = Arrays.copyOf(distinct, count);
         }
-        int n = rootPosition;
-        int m = 0;
-        int a;
-        int base_n; //在base数组下标n处的值
-        int check_m; //在check数组下标m出的值
-        int doubleArrayLength = base.length;
-        term = term.trim().toLowerCase() + separator;
-        for (int index = 0; index < term.length(); index++) {
-            if (n > doubleArrayLength || m > doubleArrayLength) {
-                return false;
+
+        private int indexOf(int[] array, int length, int value) {
+            for (int index = 0; index < length; index++) {
+                if (array[index] == value) {
+                    return index;
+                }
             }
-            base_n = base[n];
-            if (base_n < 0) {
-                String remaining = retrievalRemainingFromTail(-base_n, true);
-                if (compare(term, index, remaining)) {
-                    return true;
+            return -1;
+        }
+
+        /**
+         * 深度优先遍历,使用显式的栈而不是递归,因此很长的term也不会栈溢出.栈中的每一项是一个还没有访问的子节点,
+         * 以及它的父节点的depth和当时{@link #path}的长度.后进先出保证了rows[depth]在它的所有子节点出栈之前不会被覆盖.
+         */
+        private void search() {
+            expand(rootPosition, 0);
+            while (size > 0) {
+                size--;
+                int m = nodes[size];
+                int c = arcs[size];
+                int depth = depths[size];
+                path.setLength(lengths[size]);
+                if (c == separator) {
+                    collect(depth);
+                } else if (nextRow(depth, c)) {
+                    path.appendCodePoint(c);
+                    if (base.get(m) < 0) {
+                        searchTail(-base.get(m), depth + 1);
+                    } else {
+                        expand(m, depth + 1);
+                    }
                 }
             }
-            a = getCodePoint(term, index);
-            m = base_n + a;
-            check_m = check[m];
-            if (check_m != n) {
-                return false;
+        }
+
+        /**
+         * 把节点n的子节点入栈.如果rows[depth]中的最小值已经等于maxEdits,那么经过任何arc之后编辑距离都会增加,
+         * 除非这个arc与查询中的某个字符相同(替换的代价为0),因此只需要尝试查询中出现的字符,
+         * 而不需要访问所有的子节点.
+         *
+         * @param n
+         *         node, 必须不是叶子节点
+         * @param depth
+         *         从root到节点n的路径中character的数量
+         */
+        private void expand(int n, int depth) {
+            int base_n = base.get(n);
+            if (min(rows[depth]) < maxEdits) {
+                for (int a = firstChild.get(n); a != 0; a = sibling.get(base_n + a)) {
+                    push(base_n + a, getCharacterByCodePoint(a), depth);
+                }
+            } else {
+                if (transfer(n, base_n, separator) > 0) {
+                    collect(depth);
+                }
+                for (int c : queryChars) {
+                    int m = transfer(n, base_n, c);
+                    if (m > 0) {
+                        push(m, c, depth);
+                    }
+                }
             }
-            n = m;// forward
         }
-        /*
-         *考虑一种包含情形,比如then和the,并且在查找时,是在term最后加了separator以后去查找的.
+
+        /**
+         * 把经过arc <i>c</i>到达的子节点m入栈.
+         *
+         * @param m
+         *         子节点
+         * @param c
+         *         arc
+         * @param depth
+         *         从root到父节点的路径中character的数量
          */
-        return true;
+        private void push(int m, int c, int depth) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size << 1);
+                arcs = Arrays.copyOf(arcs, size << 1);
+                depths = Arrays.copyOf(depths, size << 1);
+                lengths = Arrays.copyOf(lengths, size << 1);
+            }
+            nodes[size] = m;
+            arcs[size] = c;
+            depths[size] = depth;
+            lengths[size] = path.length();
+            size++;
+        }
+
+        private int min(int[] row) {
+            int min = row[0];
+            for (int value : row) {
+                min = Math.min(min, value);
+            }
+            return min;
+        }
+
+        /**
+         * 继续计算TAIL数组中剩余的字符.
+         *
+         * @param tailPos
+         *         叶子节点在TAIL数组中的位置
+         * @param depth
+         *         从root到叶子节点的路径中character的数量
+         */
+        private void searchTail(int tailPos, int depth) {
+            for (int c = tailCharacterAt(tailPos); c != separator; c = tailCharacterAt(tailPos)) {
+                if (!nextRow(depth, c)) {
+                    return;
+                }
+                path.appendCodePoint(c);
+                depth++;
+                tailPos += Character.charCount(c);
+            }
+            collect(depth);
+        }
+
+        /**
+         * 当前路径是一个term,如果它与查询的编辑距离不超过maxEdits,则收集它.
+         *
+         * @param depth
+         *         当前路径中character的数量
+         */
+        private void collect(int depth) {
+            int distance = rows[depth][query.length];
+            if (distance <= maxEdits) {
+                matches.add(new FuzzyMatch(path.toString(), distance));
+            }
+        }
+
+        /**
+         * 根据rows[depth]和下一个字符计算rows[depth + 1].
+         *
+         * @param depth
+         *         当前路径中character的数量
+         * @param c
+         *         下一个字符
+         * @return true-如果新的一行中还有不超过maxEdits的值,false-这个方向不可能再有满足条件的term
+         */
+        private boolean nextRow(int depth, int c) {
+            if (depth + 1 == rows.length) {
+                rows = Arrays.copyOf(rows, rows.length << 1);
+            }
+            int[] previous = rows[depth];
+            int[] row = rows[depth + 1];
+            if (row == null) {
+                row = new int[previous.length];
+                rows[depth + 1] = row;
+            }
+            row[0] = previous[0] + 1;
+            int min = row[0];
+            for (int index = 1; index < row.length; index++) {
+                int replace = previous[index - 1] + (query[index - 1] == c ? 0 : 1);
+                row[index] = Math.min(Math.min(previous[index], row[index - 1]) + 1, replace);
+                min = Math.min(min, row[index]);
+            }
+            return min <= maxEdits;
+        }
     }
 
     /**
-     * <i>src</i>指定位置(包含)以后的所有字符组成的字符串与<i>target</i>对比.
+     * 从节点n经过character c到达的节点,即g(n,c).
      *
-     * @param src
-     *         原字符串
-     * @param start
-     *         指定位置(包含)
-     * @param target
-     *         　对比的字符串
-     * @return true-如果相等
+     * @param n
+     *         from node
+     * @param base_n
+     *         BASE[n]的值,必须大于0
+     * @param c
+     *         character
+     * @return to node, -1表示没有这样的arc
      */
-    private boolean compare(String src, int start, String target) {
-        if (src == null || target == null) {
-            return false;
+    private int transfer(int n, int base_n, int c) {
+        int a = lookupCodePoint(c);
+        if (a < 0) {
+            return -1;
         }
-        if (src.length() - start != target.length()) {
-            return false;
+        int m = base_n + a;
+        if (m >= check.length() || check.get(m) != n) {
+            return -1;
         }
-        int index_1 = start;
-        int index_2 = 0;
-        for (; index_2 < target.length(); index_1++, index_2++) {
-            if (src.charAt(index_1) != target.charAt(index_2)) {
-                return false;
+        return m;
+    }
+
+    /**
+     * 节点n是否有{@link #separator}这个arc,如果有,说明从root到节点n的路径就是一个term.
+     *
+     * @param n
+     *         node
+     * @param base_n
+     *         BASE[n]的值,必须大于0
+     * @return true-如果有
+     */
+    private boolean hasSeparatorArc(int n, int base_n) {
+        return transfer(n, base_n, separator) >= 0;
+    }
+
+    /**
+     * TAIL数组从<i>tailPos</i>开始直到{@link #separator}的字符,是否依次与<i>text</i>从<i>start</i>开始的字符相等.
+     *
+     * @param tailPos
+     *         TAIL数组中开始对比的位置
+     * @param text
+     *         文本
+     * @param start
+     *         text中开始对比的位置
+     * @return 匹配结束时在text中的位置(不包含), -1表示不匹配
+     */
+    private int matchTail(int tailPos, CharSequence text, int start) {
+        int length = text.length();
+        int index = start;
+        int c = tailCharacterAt(tailPos);
+        while (c != separator) {
+            if (index >= length || c != Character.toLowerCase(characterAt(text, index, length))) {
+                return -1;
             }
+            index += Character.charCount(c);
+            tailPos += Character.charCount(c);
+            c = tailCharacterAt(tailPos);
         }
-        return true;
+        return index;
     }
 
     /**
      * found the characters that correspond to the arcs leaving that node.
-     * 找出所有离开<i>node</i>的arcs(即character).
+     * 找出所有离开<i>node</i>的arcs(即character).通过子节点链表,只需要访问每个子节点一次.
      *
      * @param n
      *         node index number,即在double-array中的下标
      * @return 所有离开这个节点的character
      */
-    private List<Character> arcsLeaving(int n) {
-        // TODO
-        // 这里会很慢,因为要遍历部分check数组
-        int base_n = base[n];
-        if (base_n <= 0) {
+    private List<Integer> arcsLeaving(int n) {
+        if (base.get(n) <= 0) {
             return null;
         }
-        List<Character> characters = new ArrayList<>();
-        /*
-        根据g(n,a)=m定义,m >= base_n 并且m <= base_n+a
-         */
-        int max = base_n + maxCodePoint;
-        max = Math.min(max, checkLastPosition);
-        for (int m = base_n; m <= max; m++) {
-            int check_m = check[m];
-            if (check_m == n) {
-                int a = m - base_n; // g(n,a)=m　的逆推
-                char ch = getCharacterByCodePoint(a);
-                characters.add(ch);
-            }
+        List<Integer> characters = new ArrayList<>();
+        for (int a = firstChild.get(n); a != 0; a = sibling.get(base.get(n) + a)) {
+            characters.add(getCharacterByCodePoint(a));
         }
         return characters;
     }
@@ -374,23 +1729,13 @@ public class DoubleArrayTrie {
      * @see #arcsLeaving(int)
      */
     private List<Integer> nodesLeaving(int node) {
-        // TODO
-        // 这里会很慢,因为要遍历部分check数组
-        int base_n = base[node];
+        int base_n = base.get(node);
         if (base_n <= 0) {
             return null;
         }
         List<Integer> children = new ArrayList<>();
-        /*
-        根据g(n,a)=m定义,m >= base_n 并且m <= base_n+a
-         */
-        int max = base_n + maxCodePoint;
-        max = Math.min(max, checkLastPosition);
-        for (int m = base_n; m <= max; m++) {
-            int check_m = check[m];
-            if (check_m == node) {
-                children.add(m);
-            }
+        for (int a = firstChild.get(node); a != 0; a = sibling.get(base_n + a)) {
+            children.add(base_n + a);
         }
         return children;
     }
@@ -400,20 +1745,11 @@ public class DoubleArrayTrie {
      *
      * @param codePoint
      *         code point
-     * @return character
-     * @see #getCodePoint(char)
-     */
-    private char getCharacterByCodePoint(int codePoint) {
-        if (codePointMap != null) {
-            Set<Map.Entry<Character, Integer>> entrySet = codePointMap.entrySet();
-            for (Map.Entry<Character, Integer> entry : entrySet) {
-                if (entry.getValue() == codePoint) {
-                    return entry.getKey();
-                }
-            }
-            throw new RuntimeException("code point : " + codePoint + " 没有对应的 character !");
-        }
-        return (char) codePoint;
+     * @return character,按照code point处理时可能是补充平面的字符
+     * @see #getCodePoint(int)
+     */
+    private int getCharacterByCodePoint(int codePoint) {
+        return alphabet.characterAt(codePoint);
     }
 
     /**
@@ -442,50 +1778,92 @@ public class DoubleArrayTrie {
 
     /**
      * returns the minimum integer q such that q> 0 and CHECK [ q+c ] =0 for all c in LIST.
-     * q always starts with the value 1 and has unitary increments at analysis time.
+     * <p>
+     * 论文中q从1开始,每次加1,数组越满就越慢.这里改为沿着空闲节点链表寻找:对于链表中的每个空闲节点f,
+     * 令q = f - min(c),这样至少最小的那个character一定能放下,只需要检查其他的character.
+     * 如果链表中所有的空闲节点都不满足,则使用数组尾部之后的位置.因此找到的q不一定是最小的,但一定满足条件.
+     * </p>
      * <p>
      * 有没有发现,这里要找的q,其实就是 g(n,a)=m 定义中,BASE[n]的值.
      * </p>
      *
      * @param array
      *         character array
-     * @return minimum q
-     */
-    private int x_check(char... array) {
-        int q = 1;
-        boolean find = false;
-        int index = 0;
-        while (!find) {
-            for (; index < array.length; index++) {
-                char c = array[index];
-                int a = getCodePoint(c);
-                int m = q + a; // 有没有发现和g(n,a)=m的关系?
-                ensureExplicitDoubleArrayCapacity(m + 1);
-                if (check[m] != 0) {
-                    index = 0;
-                    q++; // 当前q不适合,重新寻找
-                    break;
+     * @return q
+     */
+    private int x_check(int... array) {
+        xCheckCount++;
+        int first = Integer.MAX_VALUE;
+        for (int c : array) {
+            first = Math.min(first, getCodePoint(c));
+        }
+        if (freeCells == null) {
+            initFreeList();
+        }
+        int free = freeCells.first();
+        while (free != 0) {
+            int next = freeCells.next(free);
+            int q = free - first;
+            if (q > 0) {
+                xCheckProbeCount++;
+                if (isAllFree(q, array)) {
+                    return q;
                 }
+                freeCells.fail(free);
             }
-            find = index == array.length; // 如果最后一个字符也成功处理,则表明已经找到满足条件的q
+            free = next;
+        }
+        // 最后一个被使用的节点之后的位置都是空闲的,从这里开始而不是从数组容量之后开始,否则每次都会跳过扩容留下的空间
+        int q = Math.max(checkLastPosition + 1 - first, 1);
+        xCheckProbeCount++;
+        while (!isAllFree(q, array)) {
+            q++;
+            xCheckProbeCount++;
         }
         return q;
     }
 
     /**
-     * 和{@link #x_check(char...)}定义一致.
+     * 对于所有的character c,CHECK [ q+c ]是否都是0.
+     *
+     * @param q
+     *         q
+     * @param array
+     *         character array
+     * @return true-如果都是0
+     */
+    private boolean isAllFree(int q, int[] array) {
+        for (int c : array) {
+            int m = q + getCodePoint(c); // 有没有发现和g(n,a)=m的关系?
+            if (m == rootPosition || (m < check.length() && check.get(m) != 0)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 根据CHECK数组建立空闲节点链表,把当前所有空闲的节点加入链表.耗时与double array的长度成正比.
+     */
+    private void initFreeList() {
+        freeCells = new FreeCellList(check.length(), arrayFactory);
+        freeCells.linkAll(check, rootPosition, 1, check.length());
+    }
+
+    /**
+     * 和{@link #x_check(int...)}定义一致.
      *
      * @param list
      *         character list
      * @return the q
-     * @see #x_check(char...)
+     * @see #x_check(int...)
      */
-    private int x_check(List<Character> list) {
-        char[] chars = new char[list.size()];
+    private int x_check(List<Integer> list) {
+        int[] characters = new int[list.size()];
         for (int index = 0; index < list.size(); index++) {
-            chars[index] = list.get(index);
+            characters[index] = list.get(index);
         }
-        return x_check(chars);
+        return x_check(characters);
     }
 
     /**
@@ -563,44 +1941,166 @@ public class DoubleArrayTrie {
     }
 
     /**
-     * 获取character对应的code point.
+     * 将term从offset(包含)开始的剩余字符插入TAIL数组中.如果剩余字符为空,说明到达叶子节点的arc就是{@link #separator},
+     * 此时依然在TAIL数组中写入一个{@link #separator},保证每个叶子节点在TAIL数组中都有属于自己的位置.
+     *
+     * @param term
+     *         以{@link #separator}结尾的term
+     * @param offset
+     *         The initial offset
+     * @param tailPos
+     *         从TAIL数组的此下标开始
+     * @return 插入TAIL数组的字符数,至少是1
+     */
+    private int insertRemainingIntoTailArray(String term, int offset, int tailPos) {
+        int count = term.length() - offset;
+        if (count <= 0) {
+            ensureExplicitTailArrayCapacity(tailPos + 1);
+            tail[tailPos] = separator;
+            return 1;
+        }
+        insertIntoTailArray(term, offset, count, tailPos);
+        return count;
+    }
+
+    /**
+     * 获取TAIL数组中<i>tailPos</i>处的叶子节点的值.
+     *
+     * @param tailPos
+     *         叶子节点在TAIL数组中的位置
+     * @return 值, 没有设置过时是0
+     */
+    private int getValue(int tailPos) {
+        return values == null || tailPos >= values.length ? 0 : values[tailPos];
+    }
+
+    /**
+     * 设置TAIL数组中<i>tailPos</i>处的叶子节点的值,第一次设置时才分配数组.
      *
-     * @param item
-     *         string
-     * @return Returns the code point value at the
-     * specified index
+     * @param tailPos
+     *         叶子节点在TAIL数组中的位置
+     * @param value
+     *         值
      */
-    private int getCodePoint(String item, int index) {
-        char c = item.charAt(index);
-        return getCodePoint(c);
+    private void setValue(int tailPos, int value) {
+        if (values == null) {
+            if (value == 0) {
+                return;
+            }
+            values = new int[tail.length];
+        }
+        if (tailPos >= values.length) {
+            values = Arrays.copyOf(values, Math.max(tail.length, tailPos + 1));
+        }
+        values[tailPos] = value;
     }
 
     /**
-     * 获取character对应的code point,不一定是unicode code point,也可以自己定义一个映射表,比如,有如下的映射表:
+     * 获取character对应的code point,不是unicode code point,而是{@link #alphabet}中的编号,比如,有如下的映射表:
      * <pre>
      *      a : 1
      *      b : 2
      *      c : 3
      *      ......
      * </pre>
-     * 则给定character a 时,返回<i>1</i>.
+     * 则给定character a 时,返回<i>1</i>.如果character还没有编号,则分配下一个编号.
      *
      * @param c
-     *         character
+     *         character,按照code point处理时可能是补充平面的字符
      * @return Returns the code point
      */
-    private int getCodePoint(char c) {
-        if (codePointMap != null) {
-            Integer codePoint = codePointMap.get(c);
-            if (codePoint == null) {
-                throw new RuntimeException("character " + c + " 没有指定code point !");
+    private int getCodePoint(int c) {
+        int codePoint = alphabet.codeOf(c);
+        maxCodePoint = Math.max(maxCodePoint, codePoint);
+        return codePoint;
+    }
+
+    /**
+     * 查找时使用的code point,与{@link #getCodePoint(int)}不同的是,它不会修改trie的任何状态,
+     * 并且character没有定义code point时不抛出异常.
+     *
+     * @param c
+     *         character
+     * @return code point, -1 表示此character没有定义code point,即trie中不可能有包含它的term
+     */
+    private int lookupCodePoint(int c) {
+        return alphabet.lookup(c);
+    }
+
+    /**
+     * text中index处的character.按照code point处理时,如果index处是一个完整的surrogate pair(并且没有超过end),
+     * 则返回它表示的Unicode code point,否则返回index处的char.
+     *
+     * @param text
+     *         文本
+     * @param index
+     *         位置
+     * @param end
+     *         文本的结束位置(不包含)
+     * @return character
+     */
+    private int characterAt(CharSequence text, int index, int end) {
+        char c = text.charAt(index);
+        if (codePointMode && Character.isHighSurrogate(c) && index + 1 < end) {
+            char low = text.charAt(index + 1);
+            if (Character.isLowSurrogate(low)) {
+                return Character.toCodePoint(c, low);
+            }
+        }
+        return c;
+    }
+
+    /**
+     * 与{@link #characterAt(CharSequence, int, int)}相同,只是文本是字符数组.
+     *
+     * @param chars
+     *         字符数组
+     * @param index
+     *         位置
+     * @param end
+     *         结束位置(不包含)
+     * @return character
+     */
+    private int characterAt(char[] chars, int index, int end) {
+        char c = chars[index];
+        if (codePointMode && Character.isHighSurrogate(c) && index + 1 < end) {
+            char low = chars[index + 1];
+            if (Character.isLowSurrogate(low)) {
+                return Character.toCodePoint(c, low);
             }
-            return codePoint;
         }
-        maxCodePoint = Math.max(maxCodePoint, c);
         return c;
     }
 
+    /**
+     * TAIL数组中tailPos处的character.
+     *
+     * @param tailPos
+     *         TAIL数组中的位置
+     * @return character
+     */
+    private int tailCharacterAt(int tailPos) {
+        return characterAt(tail, tailPos, tail.length);
+    }
+
+    /**
+     * 把key的前length个char拆分成character.
+     *
+     * @param key
+     *         key
+     * @param length
+     *         char的数量
+     * @return characters
+     */
+    private int[] characters(String key, int length) {
+        int[] characters = new int[length];
+        int count = 0;
+        for (int index = 0; index < length; index += Character.charCount(characters[count - 1])) {
+            characters[count++] = characterAt(key, index, length);
+        }
+        return Arrays.copyOf(characters, count);
+    }
+
     /**
      * 确保BASE和CHECK数组的容量够用.参考{@link java.util.ArrayList#ensureExplicitCapacity(int)}.
      *
@@ -608,7 +2108,7 @@ public class DoubleArrayTrie {
      *         the desired minimum capacity
      */
     private void ensureExplicitDoubleArrayCapacity(int minCapacity) {
-        if (minCapacity > base.length) {
+        if (minCapacity > base.length()) {
             growDoubleArray(minCapacity);
         }
     }
@@ -633,13 +2133,19 @@ public class DoubleArrayTrie {
      */
     private void growDoubleArray(int minCapacity) {
         // BASE和CHECK数组的长度永远一致,所以取任意一个即可
-        int oldCapacity = base.length;
+        int oldCapacity = base.length();
         int newCapacity = oldCapacity + (oldCapacity >> 1);
         if (newCapacity < minCapacity) {
             newCapacity = minCapacity;
         }
-        base = Arrays.copyOf(base, newCapacity);
-        check = Arrays.copyOf(check, newCapacity);
+        base.grow(newCapacity);
+        check.grow(newCapacity);
+        firstChild.grow(newCapacity);
+        sibling.grow(newCapacity);
+        if (freeCells != null) {
+            freeCells.grow(newCapacity);
+            freeCells.linkAll(check, rootPosition, oldCapacity, newCapacity);
+        }
     }
 
     /**
@@ -658,7 +2164,8 @@ public class DoubleArrayTrie {
     }
 
     /**
-     * 定义character和它对应的code point.此方法主要用于测试时使用.
+     * 定义character和它对应的code point.此方法主要用于测试时使用,必须在添加包含此character的term之前调用.
+     * 自定义过code point的trie,{@link #compact()}时不会重新编号.
      *
      * @param character
      *         character
@@ -666,19 +2173,254 @@ public class DoubleArrayTrie {
      *         code point value
      */
     public void defineCodePoint(Character character, Integer codePoint) {
-        if (codePointMap == null) {
-            codePointMap = new HashMap<>();
+        alphabet.define(character, codePoint);
+        maxCodePoint = Math.max(maxCodePoint, codePoint);
+    }
+
+    /**
+     * 复制一个完全独立的trie,之后对副本的修改不会影响当前trie,反之亦然.
+     *
+     * @return 副本
+     */
+    public DoubleArrayTrie copy() {
+        DoubleArrayTrie copy = new DoubleArrayTrie(1, arrayFactory);
+        copy.base = base.copy();
+        copy.check = check.copy();
+        copy.tail = tail.clone();
+        copy.values = values == null ? null : values.clone();
+        copy.pos = pos;
+        copy.separator = separator;
+        copy.garbage = garbage;
+        copy.codePointMode = codePointMode;
+        copy.rootPosition = rootPosition;
+        copy.baseLastPosition = baseLastPosition;
+        copy.checkLastPosition = checkLastPosition;
+        copy.maxCodePoint = maxCodePoint;
+        copy.freeCells = freeCells == null ? null : freeCells.copy();
+        copy.firstChild = firstChild.copy();
+        copy.sibling = sibling.copy();
+        copy.xCheckCount = xCheckCount;
+        copy.xCheckProbeCount = xCheckProbeCount;
+        copy.relocationCount = relocationCount;
+        copy.alphabet = alphabet.copy();
+        return copy;
+    }
+
+    /**
+     * 生成冻结的只读副本,BASE和CHECK被交错地压缩到每个节点需要的最少位数,见{@link PackedDoubleArrayTrie}.
+     * 适合构建完成之后只用于查找的词典,之后对当前trie的修改不会影响副本.
+     *
+     * @return 只读的trie
+     */
+    public PackedDoubleArrayTrie freeze() {
+        int doubleArrayLength = Math.max(baseLastPosition, checkLastPosition) + 1;
+        int[] baseValues = new int[doubleArrayLength];
+        int[] checkValues = new int[doubleArrayLength];
+        base.get(0, baseValues, 0, doubleArrayLength);
+        check.get(0, checkValues, 0, doubleArrayLength);
+        return new PackedDoubleArrayTrie(baseValues, checkValues, doubleArrayLength, Arrays.copyOf(tail, pos),
+                values == null ? null : Arrays.copyOf(values, pos), alphabet.copy(), separator, rootPosition,
+                codePointMode);
+    }
+
+    /**
+     * 将trie保存到文件中,文件格式见{@link DoubleArrayTrieFormat}.只保存数组中已经使用的部分,
+     * 保存后的文件可以通过{@link #load(Path)}重新加载到堆中继续添加term,
+     * 也可以通过{@link MappedDoubleArrayTrie#load(Path)}以内存映射的方式只读加载,多个进程共享同一份page cache.
+     *
+     * @param path
+     *         文件路径,如果文件已经存在则覆盖
+     * @throws IOException
+     *         写入文件失败
+     */
+    public void save(Path path) throws IOException {
+        DoubleArrayTrieFormat format = new DoubleArrayTrieFormat();
+        format.separator = separator;
+        format.rootPosition = rootPosition;
+        format.doubleArrayLength = Math.max(baseLastPosition, checkLastPosition) + 1;
+        format.tailLength = pos;
+        format.maxCodePoint = maxCodePoint;
+        format.valuesLength = values == null ? 0 : pos;
+        format.flags = codePointMode ? DoubleArrayTrieFormat.FLAG_CODE_POINT : 0;
+        format.mappedChars = alphabet.characters();
+        format.mappedCodePoints = alphabet.codes();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            format.writeHeader(channel);
+            DoubleArrayTrieFormat.writeInts(channel, base, format.doubleArrayLength);
+            DoubleArrayTrieFormat.writeInts(channel, check, format.doubleArrayLength);
+            DoubleArrayTrieFormat.writeChars(channel, tail, format.tailLength);
+            if (format.valuesLength > 0) {
+                DoubleArrayTrieFormat.writePadding(channel, format.tailOffset() + format.tailLength * 2L);
+                DoubleArrayTrieFormat.writeInts(channel, Arrays.copyOf(values, format.valuesLength), format.valuesLength);
+            }
+        }
+    }
+
+    /**
+     * 从{@link #save(Path)}保存的文件中加载trie,所有数组都被复制到堆中,因此加载后可以继续添加term.
+     * 如果只需要查找,使用{@link MappedDoubleArrayTrie#load(Path)}更快,并且不占用堆内存.
+     *
+     * @param path
+     *         文件路径
+     * @return double-array trie
+     * @throws IOException
+     *         读取文件失败,或者不是合法的文件
+     */
+    public static DoubleArrayTrie load(Path path) throws IOException {
+        return load(path, IntArray::new);
+    }
+
+    /**
+     * 与{@link #load(Path)}相同,但是BASE,CHECK,子节点链表以及空闲节点链表由<i>arrayFactory</i>创建,
+     * 比如传入<code>DirectIntArray::new</code>加载到堆外.
+     *
+     * @param path
+     *         文件路径
+     * @param arrayFactory
+     *         根据容量创建{@link IntArray}
+     * @return double-array trie
+     * @throws IOException
+     *         读取文件失败,或者不是合法的文件
+     * @see #DoubleArrayTrie(int, IntFunction)
+     */
+    public static DoubleArrayTrie load(Path path, IntFunction<IntArray> arrayFactory) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = DoubleArrayTrieFormat.map(channel);
+            DoubleArrayTrieFormat format = DoubleArrayTrieFormat.readHeader(buffer);
+            format.checkFileSize(buffer);
+            int doubleArrayLength = format.doubleArrayLength;
+            DoubleArrayTrie trie = new DoubleArrayTrie(Math.max(doubleArrayLength, 8), arrayFactory);
+            trie.tail = new char[Math.max(format.tailLength, trie.default_capacity)];
+            DoubleArrayTrieFormat.readInts(DoubleArrayTrieFormat.intView(buffer, format.baseOffset(), doubleArrayLength),
+                    trie.base, doubleArrayLength);
+            DoubleArrayTrieFormat.readInts(DoubleArrayTrieFormat.intView(buffer, format.checkOffset(), doubleArrayLength),
+                    trie.check, doubleArrayLength);
+            DoubleArrayTrieFormat.charView(buffer, format.tailOffset(), format.tailLength).get(trie.tail, 0, format.tailLength);
+            if (format.valuesLength > 0) {
+                trie.values = new int[trie.tail.length];
+                DoubleArrayTrieFormat.intView(buffer, format.valuesOffset(), format.valuesLength).get(trie.values, 0, format.valuesLength);
+            }
+            trie.separator = format.separator;
+            trie.codePointMode = format.isCodePointMode();
+            trie.rootPosition = format.rootPosition;
+            trie.pos = format.tailLength;
+            trie.baseLastPosition = doubleArrayLength - 1;
+            trie.checkLastPosition = doubleArrayLength - 1;
+            trie.maxCodePoint = format.maxCodePoint;
+            trie.linkAllChildren();
+            if (format.mappedChars.length == 0 && format.maxCodePoint > 0) {
+                // 以前的版本没有编号,直接使用UTF-16的值作为code point
+                trie.alphabet = Alphabet.identity(format.maxCodePoint);
+            } else {
+                trie.alphabet = Alphabet.of(format.mappedChars, format.mappedCodePoints);
+            }
+            return trie;
         }
-        if (codePointMap.containsKey(character) && codePointMap.get(character).intValue() != codePoint.intValue()) {
-            throw new RuntimeException("character=" + character + ",已经存在,并且两次的code point值不一致!");
+    }
+
+    /**
+     * 是否按照Unicode code point处理term.新建的trie总是true,surrogate pair只占用一个arc;
+     * 从版本1或者版本2的文件加载的trie是false,surrogate pair的两个char各占用一个arc.
+     *
+     * @return true-按照code point处理
+     */
+    public boolean isCodePointMode() {
+        return codePointMode;
+    }
+
+    /**
+     * x_check被调用的次数,即为节点寻找base值的次数.
+     *
+     * @return 调用次数
+     */
+    public long getXCheckCount() {
+        return xCheckCount;
+    }
+
+    /**
+     * x_check总共尝试过的q值的数量.与{@link #getXCheckCount()}相除,就是平均每次寻找base值需要尝试的次数.
+     *
+     * @return 尝试次数
+     */
+    public long getXCheckProbeCount() {
+        return xCheckProbeCount;
+    }
+
+    /**
+     * 插入时,因为冲突而调整节点(即论文中的case 4)的次数.
+     *
+     * @return 调整次数
+     */
+    public long getRelocationCount() {
+        return relocationCount;
+    }
+
+    /**
+     * 生成统计信息,用于监控词典的密度和查找深度.需要遍历整个double array,耗时与trie的大小成正比,
+     * 与查找一样不会修改trie的任何状态.
+     *
+     * @return 统计信息
+     * @see TrieMonitor
+     */
+    public TrieStats stats() {
+        TrieStats stats = new TrieStats();
+        int last = Math.max(baseLastPosition, checkLastPosition);
+        stats.doubleArrayLength = last + 1;
+        stats.capacity = base.length();
+        stats.nodeCount = last - freeCellsInDoubleArray();
+        stats.tailLength = pos - 1;
+        stats.tailGarbage = garbageInTailArray();
+        stats.xCheckCount = xCheckCount;
+        stats.xCheckProbeCount = xCheckProbeCount;
+        stats.relocationCount = relocationCount;
+        stats.ramUsedB = ramUsedB();
+        collectStats(stats);
+        stats.trimHistogram();
+        return stats;
+    }
+
+    /**
+     * 统计从root开始的所有叶子节点的深度,以及子节点的数量.使用显式的栈而不是递归,很长的term也不会栈溢出.
+     *
+     * @param stats
+     *         统计信息
+     */
+    private void collectStats(TrieStats stats) {
+        int[] nodes = new int[16];
+        int[] depths = new int[16];
+        int size = 0;
+        nodes[size] = rootPosition;
+        depths[size] = 0;
+        size++;
+        while (size > 0) {
+            size--;
+            int n = nodes[size];
+            int depth = depths[size];
+            int base_n = base.get(n);
+            if (base_n < 0) {
+                stats.addTerm(depth);
+                continue;
+            }
+            int childCount = 0;
+            for (int a = firstChild.get(n); a != 0; a = sibling.get(base_n + a)) {
+                childCount++;
+                if (size == nodes.length) {
+                    nodes = Arrays.copyOf(nodes, size << 1);
+                    depths = Arrays.copyOf(depths, size << 1);
+                }
+                nodes[size] = base_n + a;
+                depths[size] = depth + 1;
+                size++;
+            }
+            stats.maxChildCount = Math.max(stats.maxChildCount, childCount);
         }
-        codePointMap.put(character, codePoint);
     }
 
     @Override
     public String toString() {
         StringBuilder builder = new StringBuilder();
-        long doubleArrayLength = base.length;
+        long doubleArrayLength = base.length();
         long tailLength = tail.length;
         int wastedInDoubleArray = wastedInDoubleArray();
         int wastedInTailArray = wastedInTailArray();
@@ -688,10 +2430,16 @@ public class DoubleArrayTrie {
         builder.append("\ncheckLastPosition:" + checkLastPosition);
         builder.append(",baseLastPosition:" + baseLastPosition);
         builder.append(",maxCodePoint:" + maxCodePoint);
+        builder.append(",alphabet size:" + alphabet.size());
+        builder.append("\nxCheckCount:" + xCheckCount);
+        builder.append(",xCheckProbeCount:" + xCheckProbeCount);
+        builder.append(",relocationCount:" + relocationCount);
         builder.append("\ndouble-array waste start offset(contains):" + wastedInDoubleArray);
-        builder.append(",unused length in base:" + (base.length - wastedInDoubleArray));
-        builder.append(",unused length in check:" + (check.length - wastedInDoubleArray));
+        builder.append(",unused length in base:" + (base.length() - wastedInDoubleArray));
+        builder.append(",unused length in check:" + (check.length() - wastedInDoubleArray));
         builder.append(",unused length in tail:" + (tail.length - wastedInTailArray));
+        builder.append("\nfree cells in double-array:" + freeCellsInDoubleArray());
+        builder.append(",garbage in tail:" + garbageInTailArray());
         builder.append("\nramUsedMB:" + ramUsedMB());
         builder.append(",ramUsedKB:" + ramUsedKB());
         builder.append(",ramUsedB:" + ramUsedB());
@@ -705,16 +2453,16 @@ public class DoubleArrayTrie {
      */
     public String view() {
         StringBuilder baseBuilder = new StringBuilder("[");
-        for (int i : base) {
-            baseBuilder.append(i);
+        for (int index = 0; index < base.length(); index++) {
+            baseBuilder.append(base.get(index));
             baseBuilder.append(",");
         }
         baseBuilder.delete(baseBuilder.length() - 1, baseBuilder.length());
         baseBuilder.append("]");
 
         StringBuilder checkBuilder = new StringBuilder("[");
-        for (int i : check) {
-            checkBuilder.append(i);
+        for (int index = 0; index < check.length(); index++) {
+            checkBuilder.append(check.get(index));
             checkBuilder.append(",");
         }
         checkBuilder.delete(checkBuilder.length() - 1, checkBuilder.length());
@@ -747,9 +2495,17 @@ public class DoubleArrayTrie {
      * @return 大致的内存使用量
      */
     public long ramUsedB() {
-        long bytesCount = base.length * 4;//一个数字4字节
-        bytesCount += check.length * 4;
+        long bytesCount = base.length() * 4;//一个数字4字节
+        bytesCount += check.length() * 4;
+        if (freeCells != null) {
+            bytesCount += freeCells.ramUsedB(); // 空闲节点链表
+        }
+        bytesCount += (firstChild.length() + sibling.length()) * 4L; // 子节点链表
         bytesCount += tail.length * 2; // 一个 char 2字节
+        if (values != null) {
+            bytesCount += values.length * 4L;
+        }
+        bytesCount += alphabet.ramUsedB();
         return bytesCount;
     }
 
@@ -781,6 +2537,38 @@ public class DoubleArrayTrie {
         return bytesCount / unit;
     }
 
+    /**
+     * double-array已经使用的部分中(即最后一个有效元素之前),空闲节点的数量.
+     * 删除term,以及插入时调整节点都会留下空闲节点.
+     *
+     * @return 空闲节点的数量
+     */
+    private int freeCellsInDoubleArray() {
+        int last = Math.max(baseLastPosition, checkLastPosition);
+        int count = 0;
+        for (int index = 1; index <= last; index++) {
+            if (index != rootPosition && check.get(index) == 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * TAIL数组已经使用的部分中,被清理成<i>garbage</i>的字符数.删除term,以及插入时拆分TAIL都会产生garbage.
+     *
+     * @return garbage的数量
+     */
+    private int garbageInTailArray() {
+        int count = 0;
+        for (int index = 1; index < pos; index++) {
+            if (tail[index] == garbage) {
+                count++;
+            }
+        }
+        return count;
+    }
+
     /**
      * 由于数组是动态扩容,因此很有可能扩容后有部分空间是没有被使用的.
      * double-array尾部,连续的0就是未使用的空间.
@@ -789,14 +2577,14 @@ public class DoubleArrayTrie {
      * 如果返回-1,则表示没有任何浪费,所有分配空间都被使用了
      */
     private int wastedInDoubleArray() {
-        int index = base.length - 1;
-        int value = base[index];
+        int index = base.length() - 1;
+        int value = base.get(index);
         while (index > 0 && value == 0) {
             index--;
-            value = base[index];
+            value = base.get(index);
         }
         int offset = index + 1;
-        return offset == base.length ? -1 : offset;
+        return offset == base.length() ? -1 : offset;
     }
 
     /**
@@ -827,7 +2615,7 @@ public class DoubleArrayTrie {
      */
     private void setBase(int index, int value) {
         ensureExplicitDoubleArrayCapacity(index + 1);
-        base[index] = value;
+        base.set(index, value);
         baseLastPosition = Math.max(baseLastPosition, index);
     }
 
@@ -841,7 +2629,16 @@ public class DoubleArrayTrie {
      */
     private void setCheck(int index, int value) {
         ensureExplicitDoubleArrayCapacity(index + 1);
-        check[index] = value;
+        int oldValue = check.get(index);
+        check.set(index, value);
+        // 空闲节点链表还没有建立时不需要维护,建立时会根据CHECK数组加入所有空闲的节点
+        if (freeCells != null) {
+            if (oldValue == 0 && value != 0 && freeCells.contains(index)) {
+                freeCells.unlink(index);
+            } else if (oldValue != 0 && value == 0) {
+                freeCells.link(index);
+            }
+        }
         checkLastPosition = Math.max(checkLastPosition, index);
     }
 
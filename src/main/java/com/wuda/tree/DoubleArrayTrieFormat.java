@@ -0,0 +1,417 @@
+package com.wuda.tree;
+
+import com.wuda.lang.IntArray;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * {@link DoubleArrayTrie}的二进制文件格式.所有数值都以{@link #BYTE_ORDER}写入,文件结构如下:
+ * <pre>
+ *      header       : magic, version, separator, rootPosition, doubleArrayLength, tailLength, mappingSize, maxCodePoint, valuesLength, flags
+ *      code points  : mappingSize 对 (character, code point)
+ *      BASE         : doubleArrayLength 个 int
+ *      CHECK        : doubleArrayLength 个 int
+ *      TAIL         : tailLength 个 char
+ *      padding      : 0或2个字节,使VALUES 4字节对齐
+ *      VALUES       : valuesLength 个 int,下标是叶子节点在TAIL数组中的位置,没有值时长度为0
+ * </pre>
+ * header和code point映射表都是4字节的整数倍,因此BASE和CHECK在文件中总是4字节对齐的,
+ * 内存映射之后可以直接作为{@link java.nio.IntBuffer}使用.
+ * 版本1的文件没有valuesLength和VALUES,依然可以被读取.
+ * 版本3增加了flags,{@link #FLAG_CODE_POINT}表示按照Unicode code point构建,surrogate pair只占用一个arc;
+ * 版本1和版本2的文件没有flags,都是按照UTF-16的char构建的.
+ *
+ * @author wuda
+ * @see DoubleArrayTrie#save(java.nio.file.Path)
+ * @see MappedDoubleArrayTrie
+ */
+final class DoubleArrayTrieFormat {
+
+    /**
+     * 文件头的魔数,即"DATR".
+     */
+    static final int MAGIC = 0x44415452;
+
+    /**
+     * 当前的格式版本.
+     */
+    static final int VERSION = 3;
+
+    /**
+     * 版本1的文件头的字节数,版本1没有valuesLength.
+     */
+    static final int HEADER_BYTES_V1 = 32;
+
+    /**
+     * 版本2的文件头的字节数,版本2没有flags.
+     */
+    static final int HEADER_BYTES_V2 = 36;
+
+    /**
+     * 文件头的字节数.
+     */
+    static final int HEADER_BYTES = 40;
+
+    /**
+     * flags中的位,表示trie按照Unicode code point构建.
+     */
+    static final int FLAG_CODE_POINT = 1;
+
+    /**
+     * 绝大多数机器都是little-endian,映射之后读取时不需要再转换字节序.
+     */
+    static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    /**
+     * 分块写入数组时使用的buffer大小.
+     */
+    private static final int WRITE_BUFFER_BYTES = 64 * 1024;
+
+    int version = VERSION;
+    char separator;
+    int rootPosition;
+    int doubleArrayLength;
+    int tailLength;
+    int maxCodePoint;
+    int valuesLength;
+    int flags;
+    /**
+     * 自定义code point的字符(Unicode code point),与{@link #mappedCodePoints}一一对应,没有自定义时长度为0.
+     */
+    int[] mappedChars = new int[0];
+    int[] mappedCodePoints = new int[0];
+
+    /**
+     * BASE数组在文件中的偏移量.
+     *
+     * @return offset
+     */
+    long baseOffset() {
+        return headerBytes() + mappedChars.length * 8L;
+    }
+
+    private int headerBytes() {
+        switch (version) {
+            case 1:
+                return HEADER_BYTES_V1;
+            case 2:
+                return HEADER_BYTES_V2;
+            default:
+                return HEADER_BYTES;
+        }
+    }
+
+    /**
+     * 是否按照Unicode code point构建.
+     *
+     * @return true-surrogate pair只占用一个arc
+     */
+    boolean isCodePointMode() {
+        return (flags & FLAG_CODE_POINT) != 0;
+    }
+
+    /**
+     * CHECK数组在文件中的偏移量.
+     *
+     * @return offset
+     */
+    long checkOffset() {
+        return baseOffset() + doubleArrayLength * 4L;
+    }
+
+    /**
+     * TAIL数组在文件中的偏移量.
+     *
+     * @return offset
+     */
+    long tailOffset() {
+        return checkOffset() + doubleArrayLength * 4L;
+    }
+
+    /**
+     * VALUES数组在文件中的偏移量,4字节对齐.
+     *
+     * @return offset
+     */
+    long valuesOffset() {
+        return (tailOffset() + tailLength * 2L + 3) & ~3L;
+    }
+
+    /**
+     * 整个文件的字节数.
+     *
+     * @return file size
+     */
+    long fileSize() {
+        if (valuesLength == 0) {
+            return tailOffset() + tailLength * 2L;
+        }
+        return valuesOffset() + valuesLength * 4L;
+    }
+
+    /**
+     * 写入文件头以及code point映射表.
+     *
+     * @param channel
+     *         file channel
+     * @throws IOException
+     *         写入失败
+     */
+    void writeHeader(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) baseOffset()).order(BYTE_ORDER);
+        buffer.putInt(MAGIC);
+        buffer.putInt(version);
+        buffer.putInt(separator);
+        buffer.putInt(rootPosition);
+        buffer.putInt(doubleArrayLength);
+        buffer.putInt(tailLength);
+        buffer.putInt(mappedChars.length);
+        buffer.putInt(maxCodePoint);
+        buffer.putInt(valuesLength);
+        buffer.putInt(flags);
+        for (int index = 0; index < mappedChars.length; index++) {
+            buffer.putInt(mappedChars[index]);
+            buffer.putInt(mappedCodePoints[index]);
+        }
+        buffer.flip();
+        writeFully(channel, buffer);
+    }
+
+    /**
+     * 从buffer的当前位置读取文件头以及code point映射表.
+     *
+     * @param buffer
+     *         buffer,字节序必须是{@link #BYTE_ORDER}
+     * @return header
+     * @throws IOException
+     *         不是合法的文件,或者版本不支持
+     */
+    static DoubleArrayTrieFormat readHeader(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < HEADER_BYTES_V1 || buffer.getInt() != MAGIC) {
+            throw new IOException("不是double-array trie文件!");
+        }
+        DoubleArrayTrieFormat format = new DoubleArrayTrieFormat();
+        format.version = buffer.getInt();
+        if (format.version < 1 || format.version > VERSION) {
+            throw new IOException("不支持的文件版本:" + format.version + ",当前支持的版本:1到" + VERSION);
+        }
+        format.separator = (char) buffer.getInt();
+        format.rootPosition = buffer.getInt();
+        format.doubleArrayLength = buffer.getInt();
+        format.tailLength = buffer.getInt();
+        int mappingSize = buffer.getInt();
+        format.maxCodePoint = buffer.getInt();
+        if (format.version >= 2) {
+            if (buffer.remaining() < 4) {
+                throw new IOException("文件已损坏!");
+            }
+            format.valuesLength = buffer.getInt();
+        }
+        if (format.version >= 3) {
+            if (buffer.remaining() < 4) {
+                throw new IOException("文件已损坏!");
+            }
+            format.flags = buffer.getInt();
+        }
+        if (format.doubleArrayLength < 0 || format.tailLength < 0 || mappingSize < 0 || format.valuesLength < 0
+                || buffer.remaining() < mappingSize * 8L) {
+            throw new IOException("文件已损坏!");
+        }
+        format.mappedChars = new int[mappingSize];
+        format.mappedCodePoints = new int[mappingSize];
+        for (int index = 0; index < mappingSize; index++) {
+            format.mappedChars[index] = buffer.getInt();
+            format.mappedCodePoints[index] = buffer.getInt();
+        }
+        return format;
+    }
+
+    /**
+     * 以只读方式映射整个文件.
+     *
+     * @param channel
+     *         file channel
+     * @return 映射后的buffer,字节序是{@link #BYTE_ORDER}
+     * @throws IOException
+     *         文件太大,或者读取失败
+     */
+    static ByteBuffer map(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("文件太大,不能超过" + Integer.MAX_VALUE + "字节,当前:" + size);
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, 0, size).order(BYTE_ORDER);
+    }
+
+    /**
+     * 检查映射的文件长度是否与文件头中记录的一致.
+     *
+     * @param buffer
+     *         映射整个文件的buffer
+     * @throws IOException
+     *         文件被截断
+     */
+    void checkFileSize(ByteBuffer buffer) throws IOException {
+        if (fileSize() > buffer.capacity()) {
+            throw new IOException("文件已损坏!期望的长度:" + fileSize() + ",实际长度:" + buffer.capacity());
+        }
+    }
+
+    /**
+     * 返回buffer中从offset开始的int视图,不复制数据.
+     *
+     * @param buffer
+     *         映射整个文件的buffer
+     * @param offset
+     *         字节偏移量
+     * @param length
+     *         int的个数
+     * @return int buffer
+     */
+    static IntBuffer intView(ByteBuffer buffer, long offset, int length) {
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position((int) offset);
+        duplicate.limit((int) (offset + length * 4L));
+        return duplicate.slice().order(BYTE_ORDER).asIntBuffer();
+    }
+
+    /**
+     * 返回buffer中从offset开始的char视图,不复制数据.
+     *
+     * @param buffer
+     *         映射整个文件的buffer
+     * @param offset
+     *         字节偏移量
+     * @param length
+     *         char的个数
+     * @return char buffer
+     */
+    static CharBuffer charView(ByteBuffer buffer, long offset, int length) {
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position((int) offset);
+        duplicate.limit((int) (offset + length * 2L));
+        return duplicate.slice().order(BYTE_ORDER).asCharBuffer();
+    }
+
+    /**
+     * 写入int数组的前length个元素.
+     *
+     * @param channel
+     *         file channel
+     * @param array
+     *         数组
+     * @param length
+     *         写入的元素个数
+     * @throws IOException
+     *         写入失败
+     */
+    static void writeInts(FileChannel channel, int[] array, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES).order(BYTE_ORDER);
+        int chunk = WRITE_BUFFER_BYTES / 4;
+        for (int offset = 0; offset < length; offset += chunk) {
+            int count = Math.min(chunk, length - offset);
+            buffer.clear();
+            buffer.asIntBuffer().put(array, offset, count);
+            buffer.limit(count * 4);
+            writeFully(channel, buffer);
+        }
+    }
+
+    /**
+     * 写入{@link IntArray}的前length个元素,每次复制一段到堆上的临时数组中再写入.
+     *
+     * @param channel
+     *         file channel
+     * @param array
+     *         数组
+     * @param length
+     *         写入的元素个数
+     * @throws IOException
+     *         写入失败
+     */
+    static void writeInts(FileChannel channel, IntArray array, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES).order(BYTE_ORDER);
+        int chunk = WRITE_BUFFER_BYTES / 4;
+        int[] segment = new int[Math.min(chunk, length)];
+        for (int offset = 0; offset < length; offset += chunk) {
+            int count = Math.min(chunk, length - offset);
+            array.get(offset, segment, 0, count);
+            buffer.clear();
+            buffer.asIntBuffer().put(segment, 0, count);
+            buffer.limit(count * 4);
+            writeFully(channel, buffer);
+        }
+    }
+
+    /**
+     * 把<i>source</i>中的length个元素读取到{@link IntArray}的开头.
+     *
+     * @param source
+     *         通过{@link #intView(ByteBuffer, long, int)}得到的视图
+     * @param array
+     *         数组,长度不小于length
+     * @param length
+     *         读取的元素个数
+     */
+    static void readInts(IntBuffer source, IntArray array, int length) {
+        int chunk = WRITE_BUFFER_BYTES / 4;
+        int[] segment = new int[Math.min(chunk, length)];
+        for (int offset = 0; offset < length; offset += chunk) {
+            int count = Math.min(chunk, length - offset);
+            source.get(segment, 0, count);
+            array.set(offset, segment, 0, count);
+        }
+    }
+
+    /**
+     * 写入char数组的前length个元素.
+     *
+     * @param channel
+     *         file channel
+     * @param array
+     *         数组
+     * @param length
+     *         写入的元素个数
+     * @throws IOException
+     *         写入失败
+     */
+    static void writeChars(FileChannel channel, char[] array, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES).order(BYTE_ORDER);
+        int chunk = WRITE_BUFFER_BYTES / 2;
+        for (int offset = 0; offset < length; offset += chunk) {
+            int count = Math.min(chunk, length - offset);
+            buffer.clear();
+            buffer.asCharBuffer().put(array, offset, count);
+            buffer.limit(count * 2);
+            writeFully(channel, buffer);
+        }
+    }
+
+    /**
+     * 写入padding,使下一个写入的位置是4字节对齐的.
+     *
+     * @param channel
+     *         file channel
+     * @param position
+     *         当前已经写入的字节数
+     * @throws IOException
+     *         写入失败
+     */
+    static void writePadding(FileChannel channel, long position) throws IOException {
+        int padding = (int) ((4 - (position & 3)) & 3);
+        if (padding > 0) {
+            writeFully(channel, ByteBuffer.allocate(padding));
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
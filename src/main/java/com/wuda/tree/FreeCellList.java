@@ -0,0 +1,193 @@
+package com.wuda.tree;
+
+import com.wuda.lang.IntArray;
+
+import java.util.function.IntFunction;
+
+/**
+ * double-array中所有空闲节点(即CHECK值为0的节点,root除外)组成的双向循环链表,下标0作为链表头,-1表示不在链表中.
+ * {@link DoubleArrayTrie}和{@link FullDoubleArrayTrie}的x_check寻找q值时,只需要在空闲节点之间跳跃,
+ * 而不是从1开始逐个尝试.
+ * <p>
+ * 所有的数组都由trie的arrayFactory创建,所以与BASE,CHECK保存在同一个地方,比如<code>DirectIntArray::new</code>时在堆外,
+ * <code>BigIntArray::new</code>时扩容只追加页.每个节点占用9字节:前后两个指针各4字节,失败次数1字节(每个int保存4个节点的次数).
+ * </p>
+ *
+ * @author wuda
+ */
+final class FreeCellList {
+
+    /**
+     * 空闲节点作为x_check的起点失败达到这个次数后从链表中移除,以后不再作为起点尝试,
+     * 但它依然是空闲的,仍然可以被其他character使用(参考cedar).
+     * 否则几乎被占满的区域中零星的空闲节点会在每次x_check时被反复尝试.
+     */
+    static final int MAX_TRIALS = 8;
+
+    private final IntArray next;
+    private final IntArray previous;
+    /**
+     * 每个节点作为起点失败的次数,一个int保存4个节点,节点i在第i/4个int的第i%4个字节.
+     */
+    private final IntArray trials;
+
+    /**
+     * 构造一个空的链表.
+     *
+     * @param capacity
+     *         容量,与CHECK数组的长度一致
+     * @param arrayFactory
+     *         根据容量创建{@link IntArray}
+     */
+    FreeCellList(int capacity, IntFunction<IntArray> arrayFactory) {
+        this(arrayFactory.apply(capacity), arrayFactory.apply(capacity), arrayFactory.apply(trialsLength(capacity)));
+    }
+
+    private FreeCellList(IntArray next, IntArray previous, IntArray trials) {
+        this.next = next;
+        this.previous = previous;
+        this.trials = trials;
+    }
+
+    private static int trialsLength(int capacity) {
+        return (capacity + 3) >>> 2;
+    }
+
+    /**
+     * 链表中的第一个节点.
+     *
+     * @return 节点, 0表示链表是空的
+     */
+    int first() {
+        return next.get(0);
+    }
+
+    /**
+     * 链表中<i>cell</i>之后的节点.
+     *
+     * @param cell
+     *         链表中的节点
+     * @return 节点, 0表示<i>cell</i>是最后一个
+     */
+    int next(int cell) {
+        return next.get(cell);
+    }
+
+    /**
+     * 空闲节点是否还在链表中,失败次数太多的节点不在.
+     *
+     * @param cell
+     *         空闲节点
+     * @return true-如果在
+     */
+    boolean contains(int cell) {
+        return next.get(cell) != -1;
+    }
+
+    /**
+     * 节点作为x_check的起点失败了一次,达到{@link #MAX_TRIALS}次时从链表中移除.
+     *
+     * @param cell
+     *         链表中的节点
+     */
+    void fail(int cell) {
+        int index = cell >>> 2;
+        int shift = (cell & 3) << 3;
+        int word = trials.get(index);
+        int count = ((word >>> shift) & 0xFF) + 1;
+        trials.set(index, (word & ~(0xFF << shift)) | (count << shift));
+        if (count >= MAX_TRIALS) {
+            unlink(cell);
+        }
+    }
+
+    /**
+     * 把[from,to)之间所有空闲的节点按顺序追加到链表的末尾.
+     *
+     * @param check
+     *         CHECK数组
+     * @param rootPosition
+     *         root node position,不是空闲节点
+     * @param from
+     *         开始位置(包含)
+     * @param to
+     *         结束位置(不包含)
+     */
+    void linkAll(IntArray check, int rootPosition, int from, int to) {
+        int last = previous.get(0);
+        for (int index = from; index < to; index++) {
+            if (index != rootPosition && check.get(index) == 0) {
+                next.set(last, index);
+                previous.set(index, last);
+                last = index;
+            }
+        }
+        next.set(last, 0);
+        previous.set(0, last);
+    }
+
+    /**
+     * 节点被使用了,或者作为起点失败的次数太多,从链表中移除.
+     *
+     * @param cell
+     *         链表中的节点
+     */
+    void unlink(int cell) {
+        int previousCell = previous.get(cell);
+        int nextCell = next.get(cell);
+        next.set(previousCell, nextCell);
+        previous.set(nextCell, previousCell);
+        next.set(cell, -1); // 表示不在链表中
+    }
+
+    /**
+     * 节点被释放了,放到链表的头部,这样它会被优先使用.
+     *
+     * @param cell
+     *         节点
+     */
+    void link(int cell) {
+        int index = cell >>> 2;
+        int shift = (cell & 3) << 3;
+        trials.set(index, trials.get(index) & ~(0xFF << shift));
+        int first = next.get(0);
+        next.set(cell, first);
+        previous.set(cell, 0);
+        previous.set(first, cell);
+        next.set(0, cell);
+    }
+
+    /**
+     * 扩容,使它至少能容纳<i>capacity</i>个节点.新增的节点不会自动加入链表,见{@link #linkAll(IntArray, int, int, int)}.
+     *
+     * @param capacity
+     *         the desired minimum capacity
+     */
+    void grow(int capacity) {
+        if (capacity > next.length()) {
+            next.grow(capacity);
+            previous.grow(capacity);
+        }
+        if (trialsLength(capacity) > trials.length()) {
+            trials.grow(trialsLength(capacity));
+        }
+    }
+
+    /**
+     * 复制一个完全独立的链表,数据保存的位置与当前链表相同.
+     *
+     * @return 副本
+     */
+    FreeCellList copy() {
+        return new FreeCellList(next.copy(), previous.copy(), trials.copy());
+    }
+
+    /**
+     * 返回大致的内存使用量,以b为单位.
+     *
+     * @return 大致的内存使用量
+     */
+    long ramUsedB() {
+        return (next.length() + previous.length() + trials.length()) * 4L;
+    }
+}
@@ -4,8 +4,16 @@ import com.wuda.lang.IntArray;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.LinkedList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntFunction;
 
 /**
  * double-array trie,基于论文
@@ -13,6 +21,11 @@ import java.util.List;
  * An Efficient Implementation of Trie Structures
  * </a>
  * 实现,但是有一些改动,比如:TAIL数组没有了,所有的字符都由double array管理,因此叫做full trie.
+ * <p>
+ * 内存:每个节点占用16字节,BASE,CHECK以及子节点链表的firstChild和sibling各4字节.子节点链表在删除,
+ * 前缀遍历和{@link #compact()}时都需要,所以一直保留.插入期间的空闲节点链表每个节点还要9字节,
+ * {@link #buildParallel(Collection)}和{@link #compact()}之后释放,下一次插入时重新建立.
+ * </p>
  *
  * @author wuda
  * @version 1.0
@@ -29,17 +42,31 @@ public class FullDoubleArrayTrie {
      */
     private IntArray check;
     /**
-     * leavingArc[n]代表从节点n发出的所有的弧.
+     * 子节点链表(参考cedar),代替为每个节点保存一个arc的List.firstChild.get(n)是节点n的第一个子节点的arc(即code point),
+     * sibling.get(m)是与节点m拥有同一个父节点的下一个子节点的arc,0表示没有.保存的是arc而不是子节点的下标,
+     * 所以调整父节点的BASE值时,只需要把每个子节点自己的这两个值复制到新的位置.
      */
-    private List<Character>[] arcsLeaving;
+    private IntArray firstChild;
+    private IntArray sibling;
     /**
      * 正如论文中说的,为了区分类似the很then这样的单词,在单词后加上区隔符.
      */
     private char separator = '#';
+    /**
+     * 补充平面的字符(比如emoji)的编号.term总是按照Unicode code point处理,BMP中的字符直接以UTF-16的值作为arc,
+     * 补充平面的字符的arc是{@link Character#MAX_VALUE}加上它在这里的编号,因此surrogate pair只占用一个arc,
+     * 并且arc不会因为补充平面的code point很大而把double array撑开.
+     */
+    private Alphabet supplementary = new Alphabet();
     /**
      * 内部指针,在论文中是指向TAIL数组.
      */
     private int pos = 1;
+    /**
+     * 每个term的int值,下标是term的end node的BASE值的相反数,即添加term时的{@link #pos}.
+     * 只有通过{@link #add(String, int)}添加过值时才分配.
+     */
+    private int[] values;
 
     /**
      * root node position.
@@ -50,9 +77,31 @@ public class FullDoubleArrayTrie {
      */
     private int maxIndex;
 
+    /**
+     * 所有空闲节点组成的链表,x_check寻找q值时只需要在空闲节点之间跳跃,而不是从1开始逐个尝试.
+     * 只有插入时才需要,所以在第一次x_check时才根据CHECK数组建立,{@link #buildParallel(Collection)}
+     * 以及{@link #compact()}之后是null,只用于查找的词典不需要为它付出每个节点9字节.
+     */
+    private FreeCellList freeCells;
+
+    /**
+     * {@link #buildParallel(Collection, ForkJoinPool)}中每个分片最少的term数量.
+     */
+    private static final int MIN_SHARD_SIZE = 10000;
+
     private int maxQ;
     private int maxChildCount;
     private int collisionCount;
+    /**
+     * x_check被调用的次数,以及总共尝试过的q值的数量.
+     */
+    private long xCheckCount;
+    private long xCheckProbeCount;
+
+    /**
+     * 创建BASE,CHECK,子节点链表以及空闲节点链表所使用的{@link IntArray},参数是容量.
+     */
+    private final IntFunction<IntArray> arrayFactory;
 
     /**
      * 构造一个double-array trie,使用默认的容量.
@@ -68,13 +117,214 @@ public class FullDoubleArrayTrie {
      *         容量
      */
     public FullDoubleArrayTrie(int capacity) {
+        this(capacity, IntArray::new);
+    }
+
+    /**
+     * 构造一个double-array trie,BASE,CHECK,子节点链表以及空闲节点链表都由<i>arrayFactory</i>创建.
+     * 比如传入<code>DirectIntArray::new</code>,这几个数组就会保存在堆外,很大的词典不会撑大old gen.
+     * 只有term的值以及补充平面字符的编号依然在堆上.
+     *
+     * @param capacity
+     *         容量
+     * @param arrayFactory
+     *         根据容量创建{@link IntArray}
+     * @see com.wuda.lang.DirectIntArray
+     */
+    public FullDoubleArrayTrie(int capacity, IntFunction<IntArray> arrayFactory) {
         if (capacity <= 0) {
             throw new IllegalArgumentException("Illegal Capacity: " +
                     capacity);
         }
+        this.arrayFactory = Objects.requireNonNull(arrayFactory, "arrayFactory不能为空!");
         init(capacity);
     }
 
+    /**
+     * 使用{@link ForkJoinPool#commonPool()}并行构造.
+     *
+     * @param terms
+     *         所有的term
+     * @return double-array trie
+     * @see #buildParallel(Collection, ForkJoinPool)
+     */
+    public static FullDoubleArrayTrie buildParallel(Collection<String> terms) {
+        return buildParallel(terms, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 并行构造double-array trie.按照第一个character把term分组,不同的组之间没有公共的节点,
+     * 再把这些组按照term的数量平均地分配到若干个分片中(分片数量不超过线程池的并行度,并且每个分片至少有
+     * {@link #MIN_SHARD_SIZE}个term,因为每个子trie的数组开头都有一段很少被使用的区域,分片太多反而浪费),
+     * 每个分片在<i>pool</i>中独立地构造一个子trie,最后把所有子trie的数组依次拼接成一个double array.
+     * 如果大部分term都以同一个character开头,这一组只能由一个线程构造,并行的效果就有限.
+     * 构造完成后,依然可以使用{@link #add(String)}继续添加term.
+     *
+     * @param terms
+     *         所有的term,可以是无序的,也可以包含重复的term
+     * @param pool
+     *         用于构造子trie的线程池
+     * @return double-array trie
+     */
+    public static FullDoubleArrayTrie buildParallel(Collection<String> terms, ForkJoinPool pool) {
+        return buildParallel(terms, pool, IntArray::new);
+    }
+
+    /**
+     * 与{@link #buildParallel(Collection, ForkJoinPool)}相同,但是合并后的trie的数组由<i>arrayFactory</i>创建.
+     * 各个子trie只在构造期间存在,依然在堆上.
+     *
+     * @param terms
+     *         所有的term,可以是无序的,也可以包含重复的term
+     * @param pool
+     *         用于构造子trie的线程池
+     * @param arrayFactory
+     *         根据容量创建{@link IntArray}
+     * @return double-array trie
+     * @see #FullDoubleArrayTrie(int, IntFunction)
+     */
+    public static FullDoubleArrayTrie buildParallel(Collection<String> terms, ForkJoinPool pool,
+                                                    IntFunction<IntArray> arrayFactory) {
+        Objects.requireNonNull(arrayFactory, "arrayFactory不能为空!");
+        Map<Integer, List<String>> groups = new HashMap<>();
+        // 所有的分片使用相同的补充平面字符编号,合并时arc才不会冲突
+        Alphabet supplementary = new Alphabet();
+        for (String term : terms) {
+            if (term == null || term.trim().isEmpty()) {
+                continue;
+            }
+            String trimmed = term.trim();
+            for (int index = 0; index < trimmed.length(); ) {
+                int c = Character.toLowerCase(trimmed.codePointAt(index));
+                if (!Character.isBmpCodePoint(c)) {
+                    supplementary.codeOf(c);
+                }
+                index += Character.charCount(c);
+            }
+            groups.computeIfAbsent(Character.toLowerCase(trimmed.codePointAt(0)), c -> new ArrayList<>()).add(trimmed);
+        }
+        List<List<String>> sortedGroups = new ArrayList<>(groups.values());
+        sortedGroups.sort((one, another) -> Integer.compare(another.size(), one.size()));
+        int termCount = 0;
+        for (List<String> group : sortedGroups) {
+            termCount += group.size();
+        }
+        int shardCount = Math.min(pool.getParallelism(), Math.min(sortedGroups.size(), termCount / MIN_SHARD_SIZE));
+        shardCount = Math.max(shardCount, 1);
+        // 每一组分配给当前term最少的分片
+        List<List<List<String>>> shards = new ArrayList<>(shardCount);
+        int[] shardSizes = new int[shardCount];
+        for (int index = 0; index < shardCount; index++) {
+            shards.add(new ArrayList<>());
+        }
+        for (List<String> group : sortedGroups) {
+            int smallest = 0;
+            for (int index = 1; index < shardCount; index++) {
+                if (shardSizes[index] < shardSizes[smallest]) {
+                    smallest = index;
+                }
+            }
+            shards.get(smallest).add(group);
+            shardSizes[smallest] += group.size();
+        }
+        List<ForkJoinTask<FullDoubleArrayTrie>> tasks = new ArrayList<>(shardCount);
+        for (List<List<String>> shard : shards) {
+            tasks.add(pool.submit(() -> {
+                FullDoubleArrayTrie trie = new FullDoubleArrayTrie();
+                trie.supplementary = supplementary.copy();
+                for (List<String> group : shard) {
+                    for (String term : group) {
+                        trie.add(term);
+                    }
+                }
+                return trie;
+            }));
+        }
+        List<FullDoubleArrayTrie> tries = new ArrayList<>(shardCount);
+        for (ForkJoinTask<FullDoubleArrayTrie> task : tasks) {
+            tries.add(task.join());
+        }
+        FullDoubleArrayTrie merged = merge(tries, arrayFactory);
+        merged.supplementary = supplementary;
+        return merged;
+    }
+
+    /**
+     * 合并多个子trie,它们的root的子节点(即term的第一个character)各不相同.新的root的BASE值是1,
+     * 子trie中root的子节点x被放到1 + arc处,其余的节点(不包括root和x)依次拼接在root的所有子节点之后,
+     * 下标、BASE和CHECK都加上拼接的偏移量,end node的编号加上之前所有子trie的term数量.
+     * 只需要复制数组,不需要为任何节点重新寻找BASE值.
+     *
+     * @param shards
+     *         子trie
+     * @param arrayFactory
+     *         创建合并后的trie的数组
+     * @return 合并后的trie
+     */
+    private static FullDoubleArrayTrie merge(List<FullDoubleArrayTrie> shards, IntFunction<IntArray> arrayFactory) {
+        int rootBase = 1;
+        int maxArc = 0;
+        for (FullDoubleArrayTrie shard : shards) {
+            int shardBase = shard.base.get(shard.rootPosition);
+            for (int a = shard.firstChild.get(shard.rootPosition); a != 0; a = shard.sibling.get(shardBase + a)) {
+                maxArc = Math.max(maxArc, a);
+            }
+        }
+        // 子trie中下标为2的节点放到next处
+        int next = rootBase + maxArc + 1;
+        int[] offsets = new int[shards.size()];
+        for (int index = 0; index < shards.size(); index++) {
+            offsets[index] = next - 2;
+            next += Math.max(shards.get(index).maxIndex - 1, 0);
+        }
+        FullDoubleArrayTrie merged = new FullDoubleArrayTrie(Math.max(next, 8), arrayFactory);
+        int root = merged.rootPosition;
+        IntArray base = merged.base;
+        IntArray check = merged.check;
+        int idOffset = 0;
+        for (int index = 0; index < shards.size(); index++) {
+            FullDoubleArrayTrie shard = shards.get(index);
+            int offset = offsets[index];
+            int[] shardBase = shard.base.getArray();
+            int[] shardCheck = shard.check.getArray();
+            int shardRoot = shard.rootPosition;
+            int shardRootBase = shardBase[shardRoot];
+            for (int m = 2; m <= shard.maxIndex; m++) {
+                int parent = shardCheck[m];
+                if (parent == 0 || m == shardRoot) {
+                    continue;
+                }
+                int to = parent == shardRoot ? rootBase + m - shardRootBase : m + offset;
+                int baseM = shardBase[m];
+                base.set(to, baseM > 0 ? baseM + offset : baseM - idOffset);
+                if (parent == shardRoot) {
+                    check.set(to, root);
+                } else if (shardCheck[parent] == shardRoot) {
+                    check.set(to, rootBase + parent - shardRootBase);
+                } else {
+                    check.set(to, parent + offset);
+                }
+                merged.firstChild.set(to, shard.firstChild.get(m));
+                merged.sibling.set(to, shard.sibling.get(m));
+            }
+            for (int a = shard.firstChild.get(shardRoot); a != 0; a = shard.sibling.get(shardRootBase + a)) {
+                merged.linkChild(root, a);
+            }
+            idOffset += shard.pos - 1;
+            merged.maxIndex = Math.max(merged.maxIndex, shard.maxIndex + offset);
+            merged.maxQ = Math.max(merged.maxQ, shard.maxQ + offset);
+            merged.maxChildCount = Math.max(merged.maxChildCount, shard.maxChildCount);
+            merged.collisionCount += shard.collisionCount;
+            merged.xCheckCount += shard.xCheckCount;
+            merged.xCheckProbeCount += shard.xCheckProbeCount;
+            shards.set(index, null);
+        }
+        merged.maxIndex = Math.max(merged.maxIndex, rootBase + maxArc);
+        merged.pos = idOffset + 1;
+        // 数组是直接复制的,没有经过setIntArray,此时还没有空闲节点链表,插入时才根据CHECK建立
+        return merged;
+    }
+
     /**
      * 初始化各个属性.
      *
@@ -82,9 +332,10 @@ public class FullDoubleArrayTrie {
      *         容量
      */
     private void init(int capacity) {
-        base = new IntArray(capacity);
-        check = new IntArray(capacity);
-        arcsLeaving = new LinkedList[capacity];
+        base = arrayFactory.apply(capacity);
+        check = arrayFactory.apply(capacity);
+        firstChild = arrayFactory.apply(capacity);
+        sibling = arrayFactory.apply(capacity);
         ensureExplicitDoubleArrayCapacity(rootPosition + 1);
         setIntArray(base, rootPosition, 1);
     }
@@ -96,20 +347,47 @@ public class FullDoubleArrayTrie {
      *         term to be appended to this trie
      */
     public void add(String term) {
+        insert(term);
+    }
+
+    /**
+     * 添加指定的term到trie中,并且设置它的int值,比如term id,词频等.如果term已经存在,则更新它的值.
+     *
+     * @param term
+     *         term to be appended to this trie
+     * @param value
+     *         term的值
+     * @see #getInt(String, int)
+     */
+    public void add(String term, int value) {
+        int id = insert(term);
+        if (id > 0) {
+            setValue(id, value);
+        }
+    }
+
+    /**
+     * 添加指定的term到trie中.
+     *
+     * @param term
+     *         term to be appended to this trie
+     * @return term的end node的BASE值的相反数, -1表示term为空, 没有添加
+     */
+    private int insert(String term) {
         if (term == null || term.isEmpty()) {
-            return;
+            return -1;
         }
         term = term.trim();
         if (term.isEmpty()) {
-            return;
+            return -1;
         }
         int n = rootPosition;
         int a, m;
         boolean transferCorrect = false;
-        char c;
-        for (int index = 0; index <= term.length(); index++) {
+        int c;
+        for (int index = 0; index <= term.length(); index += Character.charCount(c)) {
             if (index < term.length()) {
-                c = Character.toLowerCase(term.charAt(index));
+                c = Character.toLowerCase(term.codePointAt(index));
             } else {
                 // 避免了term+separator这样的字符串相加操作,这个操作很巧妙,i like it
                 c = separator;
@@ -124,23 +402,20 @@ public class FullDoubleArrayTrie {
             }
             a = getCodePoint(c);
             m = baseN + a;
-            if (m == n) System.out.println("node经过一个arc后指向自己!");
             int checkM = getIntArray(check, m, true);
             if (checkM == 0) {
                 assert m != n : "node经过一个arc后指向自己,并且准备将父节点设置为自己!";
                 setIntArray(check, m, n);
             } else if (checkM != n) { // 论文中的 insertion case 4
-                List<Character> arcsLeavingN = arcsLeaving(n);
-                List<Character> arcsLeavingCheckM = arcsLeaving(checkM);
                 int modifyNode;
-                Character candidateArc = null;
+                Integer candidateArc = null;
                 if (m == n // node经过一个arc后指向自己
                         /*
                          * 如果对应到论文【Figure 7】中，冲突的node 1 和 node 3,本来node 1 的子节点是node 4,
                          * 但是如果我们假设node 1 的子节点不是node 4,而是node 3 的话，就会发生这里的情况,此时node 3也要被新节点替换了.
                          */
                         || getIntArray(check, n, false) == checkM
-                        || (arcsLeavingN.size() + 1 < arcsLeavingCheckM.size())) {
+                        || hasFewerChildren(n, checkM)) {
                     modifyNode = n;
                     candidateArc = c;//在使用x_check计算q值时,当前冲突的character也需要参与
                 } else {
@@ -158,11 +433,12 @@ public class FullDoubleArrayTrie {
                     setIntArray(base, m, -pos);
                     pos++;
                 }
-                addLeavingArc(n, c);
+                linkChild(n, a);
             }
             transferCorrect = false;
             n = m;
         }
+        return -getIntArray(base, n, false);
     }
 
     /**
@@ -173,58 +449,418 @@ public class FullDoubleArrayTrie {
      * @return true-如果包含,false-不包含
      */
     public boolean contains(String term) {
+        return endNode(term) > 0;
+    }
+
+    /**
+     * 获取term的int值,只需要从root开始走一次.
+     *
+     * @param term
+     *         term
+     * @param defaultValue
+     *         trie中不包含此term时返回的值
+     * @return term的值, 如果term是通过{@link #add(String)}添加的, 则值是0
+     * @see #add(String, int)
+     */
+    public int getInt(String term, int defaultValue) {
+        int endNode = endNode(term);
+        if (endNode < 0) {
+            return defaultValue;
+        }
+        return getValue(-getIntArray(base, endNode, false));
+    }
+
+    /**
+     * 找到term的end node,即term经过separator到达的节点.
+     *
+     * @param term
+     *         term
+     * @return end node, -1表示trie中不包含此term
+     */
+    private int endNode(String term) {
         if (term == null || term.isEmpty()) {
-            return false;
+            return -1;
         }
         term = term.trim();
         if (term.isEmpty()) {
-            return false;
+            return -1;
         }
         int n = rootPosition;
-        int a, m;
-        for (int index = 0; index <= term.length(); index++) {
-            char c;
-            if (index < term.length()) {
-                c = Character.toLowerCase(term.charAt(index));
-            } else {
-                c = separator;
+        for (int index = 0; index < term.length(); ) {
+            int c = Character.toLowerCase(term.codePointAt(index));
+            n = transfer(n, c);
+            if (n < 0) {
+                return -1;
             }
-            if (!rangeCheck(n)) return false;
+            index += Character.charCount(c);
+        }
+        int endNode = transfer(n, separator);
+        if (endNode < 0 || getIntArray(base, endNode, false) >= 0) {
+            return -1;
+        }
+        return endNode;
+    }
+
+    /**
+     * 从trie中删除给定的<i>term</i>.先删除separator所在的end node,然后沿着父节点向上,
+     * 删除所有不再有子节点的节点(root除外).被删除的节点回到空闲节点链表,以后添加term时会被优先使用.
+     *
+     * @param term
+     *         term
+     * @return true-如果trie中包含此term并且已经删除,false-不包含
+     */
+    public boolean remove(String term) {
+        int endNode = endNode(term);
+        if (endNode < 0) {
+            return false;
+        }
+        setValue(-getIntArray(base, endNode, false), 0);
+        int n = getIntArray(check, endNode, false);
+        removeNode(endNode, n, separator);
+        while (n != rootPosition && firstChild.get(n) == 0) {
+            int parent = getIntArray(check, n, false);
+            removeNode(n, parent, getCode(n - getIntArray(base, parent, false)));
+            n = parent;
+        }
+        return true;
+    }
+
+    /**
+     * 以<i>prefix</i>开头的所有term,用于自动补全.按照深度优先的顺序惰性地遍历,每次{@link Iterator#next()}
+     * 只走到下一个term为止,不会先把整棵子树的term收集起来.同一个节点的子节点按照character排列,
+     * 并且term总是排在以它为前缀的更长的term之前,即"the"在"then"之前.不区分大小写,但是不会trim,
+     * 返回的term是小写形式.迭代期间不能修改trie.
+     *
+     * @param prefix
+     *         前缀,空字符串表示所有的term
+     * @param limit
+     *         最多返回的term数量
+     * @return 以prefix开头的term
+     */
+    public Iterator<String> prefixIterator(String prefix, int limit) {
+        Objects.requireNonNull(prefix, "prefix不能为空!");
+        if (limit < 0) {
+            throw new IllegalArgumentException("Illegal limit: " + limit);
+        }
+        return new PrefixIterator(prefix, limit);
+    }
+
+    /**
+     * 以<i>prefix</i>开头的term中,值最大的<i>k</i>个,值通过{@link #add(String, int)}设置,比如词频.
+     * 需要遍历以prefix结束的节点之下的整棵子树,但是只有能够入选的term才会创建字符串.
+     *
+     * @param prefix
+     *         前缀,空字符串表示所有的term
+     * @param k
+     *         最多返回的term数量
+     * @return term, 按照值从大到小排列, 值相同的按照字典顺序排列
+     * @see #prefixIterator(String, int)
+     */
+    public List<String> topK(String prefix, int k) {
+        Objects.requireNonNull(prefix, "prefix不能为空!");
+        TopTerms top = new TopTerms(k);
+        PrefixIterator iterator = new PrefixIterator(prefix, Integer.MAX_VALUE);
+        int id;
+        while ((id = iterator.advance()) > 0) {
+            int value = getValue(id);
+            if (top.accepts(value)) {
+                top.add(iterator.path.toString(), value);
+            }
+        }
+        return top.toList();
+    }
+
+    /**
+     * {@link #prefixIterator(String, int)}的实现.使用显式的栈代替递归,栈中的每一项是一个还没有访问的节点,
+     * 以及到达它的arc和它的父节点的路径长度.
+     */
+    private final class PrefixIterator implements Iterator<String> {
+
+        private int[] nodes = new int[16];
+        private int[] depths = new int[16];
+        private int[] labels = new int[16];
+        private int size;
+
+        /**
+         * 从root到当前节点的路径.
+         */
+        private final StringBuilder path;
+
+        /**
+         * 排序子节点的arc时使用,高32位是排序用的character(见{@link Alphabet#utf16Order(int)}),低32位是character.
+         */
+        private long[] arcs = new long[16];
+
+        private int remaining;
+        private String next;
+
+        private PrefixIterator(String prefix, int limit) {
+            this.path = new StringBuilder(prefix.length() + 16);
+            this.remaining = limit;
+            int n = rootPosition;
+            for (int index = 0; index < prefix.length(); ) {
+                int c = Character.toLowerCase(prefix.codePointAt(index));
+                if (c == separator) {
+                    return;
+                }
+                n = transfer(n, c);
+                if (n < 0) {
+                    return;
+                }
+                path.appendCodePoint(c);
+                index += Character.charCount(c);
+            }
+            pushChildren(n);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && remaining > 0 && advance() > 0) {
+                next = path.toString();
+                remaining--;
+            }
+            return next != null;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String term = next;
+            next = null;
+            return term;
+        }
+
+        /**
+         * 走到下一个end node,此时{@link #path}就是term.
+         *
+         * @return end node的BASE值的相反数, -1表示已经没有了
+         */
+        private int advance() {
+            while (size > 0) {
+                size--;
+                int m = nodes[size];
+                int c = labels[size];
+                path.setLength(depths[size]);
+                if (c == separator) {
+                    return -getIntArray(base, m, false);
+                }
+                path.appendCodePoint(c);
+                pushChildren(m);
+            }
+            return -1;
+        }
+
+        /**
+         * 把节点n的所有子节点按照character从大到小压入栈中,这样出栈的顺序就是从小到大,
+         * separator总是第一个出栈.
+         *
+         * @param n
+         *         node
+         */
+        private void pushChildren(int n) {
             int baseN = getIntArray(base, n, false);
-            a = getCodePoint(c);
-            m = baseN + a;
-            if (!rangeCheck(m)) return false;
-            if (getIntArray(check, m, false) != n) {
-                return false;
+            int count = 0;
+            boolean hasSeparator = false;
+            for (int a = firstChild.get(n); a != 0; a = sibling.get(baseN + a)) {
+                int c = getCode(a);
+                if (c == separator) {
+                    hasSeparator = true;
+                } else {
+                    if (count == arcs.length) {
+                        arcs = Arrays.copyOf(arcs, count << 1);
+                    }
+                    arcs[count++] = ((long) Alphabet.utf16Order(c) << 32) | c;
+                }
             }
-            if (c == separator && getIntArray(base, m, false) < 0) {
-                return true;
+            Arrays.sort(arcs, 0, count);
+            int depth = path.length();
+            for (int index = count - 1; index >= 0; index--) {
+                int c = (int) arcs[index];
+                push(baseN + getCodePoint(c), depth, c);
             }
-            n = m;
+            if (hasSeparator) {
+                push(baseN + getCodePoint(separator), depth, separator);
+            }
+        }
+
+        private void push(int node, int depth, int label) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size << 1);
+                depths = Arrays.copyOf(depths, size << 1);
+                labels = Arrays.copyOf(labels, size << 1);
+            }
+            nodes[size] = node;
+            depths[size] = depth;
+            labels[size] = label;
+            size++;
+        }
+    }
+
+    /**
+     * 从节点n经过character c到达的节点,即g(n,c).
+     *
+     * @param n
+     *         from node
+     * @param c
+     *         character
+     * @return to node, -1表示没有这样的arc
+     */
+    private int transfer(int n, int c) {
+        int baseN = getIntArray(base, n, false);
+        int a = lookupCodePoint(c);
+        if (baseN <= 0 || a < 0) {
+            return -1;
+        }
+        int m = baseN + a;
+        if (!rangeCheck(m) || getIntArray(check, m, false) != n) {
+            return -1;
+        }
+        return m;
+    }
+
+    /**
+     * 清空节点,并且从父节点的arcs中删除到达它的arc.
+     *
+     * @param node
+     *         被删除的节点
+     * @param parent
+     *         父节点
+     * @param arc
+     *         从父节点到达此节点的arc
+     */
+    private void removeNode(int node, int parent, int arc) {
+        unlinkChild(parent, getCodePoint(arc));
+        firstChild.set(node, 0);
+        setIntArray(base, node, 0);
+        setIntArray(check, node, 0);
+    }
+
+    /**
+     * 把所有的term重新添加到新的double array中,回收被删除的term以及插入时调整节点留下的空间.
+     */
+    public void compact() {
+        List<String> terms = new ArrayList<>();
+        collectTerms(terms);
+        FullDoubleArrayTrie rebuilt = new FullDoubleArrayTrie(Math.max(maxIndex + 1, 8), arrayFactory);
+        rebuilt.separator = separator;
+        rebuilt.supplementary = supplementary;
+        for (String term : terms) {
+            if (values == null) {
+                rebuilt.add(term);
+            } else {
+                rebuilt.add(term, getInt(term, 0));
+            }
+        }
+        base = rebuilt.base;
+        check = rebuilt.check;
+        firstChild = rebuilt.firstChild;
+        sibling = rebuilt.sibling;
+        values = rebuilt.values;
+        pos = rebuilt.pos;
+        maxIndex = rebuilt.maxIndex;
+        freeCells = null; // 与buildParallel之后一样,继续插入时再重新建立
+        xCheckCount += rebuilt.xCheckCount;
+        xCheckProbeCount += rebuilt.xCheckProbeCount;
+    }
+
+    /**
+     * 如果double array中空闲节点的比例超过了<i>threshold</i>,则{@link #compact()}.
+     *
+     * @param threshold
+     *         0到1之间,比如0.3表示超过30%的节点是空闲的时候压缩
+     * @return true-如果压缩了
+     */
+    public boolean compact(double threshold) {
+        int free = freeCells();
+        if (maxIndex > 0 && (double) free / maxIndex > threshold) {
+            compact();
+            return true;
         }
         return false;
     }
 
+    /**
+     * 收集trie中所有的term,没有顺序.使用显式的栈而不是递归,很长的term也不会栈溢出.
+     *
+     * @param terms
+     *         用于存放收集到的term
+     */
+    private void collectTerms(List<String> terms) {
+        StringBuilder prefix = new StringBuilder();
+        // 等待处理的节点,以及从root到它的路径长度和到达它的character
+        int[] nodes = new int[16];
+        int[] lengths = new int[16];
+        int[] characters = new int[16];
+        int size = 0;
+        nodes[size] = rootPosition;
+        size++;
+        while (size > 0) {
+            size--;
+            int n = nodes[size];
+            if (n != rootPosition) {
+                prefix.setLength(lengths[size]);
+                prefix.appendCodePoint(characters[size]);
+            }
+            int baseN = getIntArray(base, n, false);
+            for (int a = firstChild.get(n); a != 0; a = sibling.get(baseN + a)) {
+                int c = getCode(a);
+                if (c == separator) {
+                    terms.add(prefix.toString());
+                    continue;
+                }
+                if (size == nodes.length) {
+                    nodes = Arrays.copyOf(nodes, size << 1);
+                    lengths = Arrays.copyOf(lengths, size << 1);
+                    characters = Arrays.copyOf(characters, size << 1);
+                }
+                nodes[size] = baseN + a;
+                lengths[size] = prefix.length();
+                characters[size] = c;
+                size++;
+            }
+        }
+    }
+
     private boolean rangeCheck(int index) {
         return base.length() > index;
     }
 
     /**
-     * 将node和它的arc关联起来.
+     * 把arc <i>a</i>加入节点n的子节点链表的头部,此时BASE[n]+a处的节点必须已经属于节点n.
      *
-     * @param node
-     *         node
-     * @param leavingArc
+     * @param n
+     *         父节点
+     * @param a
+     *         arc
+     */
+    private void linkChild(int n, int a) {
+        sibling.set(getIntArray(base, n, false) + a, firstChild.get(n));
+        firstChild.set(n, a);
+    }
+
+    /**
+     * 从节点n的子节点链表中删除arc <i>a</i>.
+     *
+     * @param n
+     *         父节点
+     * @param a
      *         arc
      */
-    private void addLeavingArc(int node, Character leavingArc) {
-        ensureExplicitDoubleArrayCapacity(node + 1);
-        List<Character> leavingArcs = arcsLeaving(node);
-        if (leavingArcs == null) {
-            leavingArcs = new LinkedList<>();
-            this.arcsLeaving[node] = leavingArcs;
+    private void unlinkChild(int n, int a) {
+        int baseN = getIntArray(base, n, false);
+        int m = baseN + a;
+        if (firstChild.get(n) == a) {
+            firstChild.set(n, sibling.get(m));
+        } else {
+            int previous = firstChild.get(n);
+            while (sibling.get(baseN + previous) != a) {
+                previous = sibling.get(baseN + previous);
+            }
+            sibling.set(baseN + previous, sibling.get(m));
         }
-        leavingArcs.add(leavingArc);
+        sibling.set(m, 0);
     }
 
     /**
@@ -241,29 +877,31 @@ public class FullDoubleArrayTrie {
      * @param candidateArc
      *         即将加入node节点的后续arc
      */
-    private void modifyBase(int node, Character candidateArc) {
+    private void modifyBase(int node, Integer candidateArc) {
         collisionCount++;
         int originalBaseN = getIntArray(base, node, false);
-        List<Character> arcsLeavingNode = arcsLeaving(node);
+        int[] arcsLeavingNode = arcsLeaving(node);
         int newBaseN = x_check(arcsLeavingNode, candidateArc);
         assert newBaseN != originalBaseN : "x_check计算出的新值与原值相等!";
         setIntArray(base, node, newBaseN);
-        for (char ch : arcsLeavingNode) {
+        for (int ch : arcsLeavingNode) {
             int a = getCodePoint(ch);
             int originalM = originalBaseN + a;
             int currentM = newBaseN + a;
-            setIntArray(base, currentM, getIntArray(base, originalM, false));
+            int baseM = getIntArray(base, originalM, false);
+            setIntArray(base, currentM, baseM);
             setIntArray(check, currentM, getIntArray(check, originalM, false));
-            arcsLeaving[currentM] = arcsLeaving[originalM];
+            firstChild.set(currentM, firstChild.get(originalM));
+            sibling.set(currentM, sibling.get(originalM));
             if (ch != separator) { //　区隔符所在的arc的[输出节点]没有子节点
-                List<Integer> nodesLeavingOriginalM = nodesLeaving(originalM);
-                for (int nodeLeavingOriginalM : nodesLeavingOriginalM) {
-                    setIntArray(check, nodeLeavingOriginalM, currentM);
+                for (int arc = firstChild.get(originalM); arc != 0; arc = sibling.get(baseM + arc)) {
+                    setIntArray(check, baseM + arc, currentM);
                 }
             }
             setIntArray(base, originalM, 0);
             setIntArray(check, originalM, 0);
-            arcsLeaving[originalM] = null;
+            firstChild.set(originalM, 0);
+            sibling.set(originalM, 0);
         }
     }
 
@@ -274,51 +912,132 @@ public class FullDoubleArrayTrie {
      *         节点
      * @return 此节点的所有离开的arc.
      */
-    private List<Character> arcsLeaving(int node) {
-        return arcsLeaving[node];
+    private int[] arcsLeaving(int node) {
+        int[] arcs = new int[childCount(node)];
+        int baseN = getIntArray(base, node, false);
+        int index = 0;
+        for (int a = firstChild.get(node); a != 0; a = sibling.get(baseN + a)) {
+            arcs[index++] = getCode(a);
+        }
+        return arcs;
     }
 
     /**
-     * node的所有子节点.
+     * node的子节点的数量.
      *
      * @param node
      *         节点
-     * @return 此节点的所有子节点
+     * @return 子节点的数量
      */
-    private List<Integer> nodesLeaving(int node) {
-        List<Character> arcsLeaving = arcsLeaving(node);
-        List<Integer> children = new ArrayList<>(arcsLeaving.size());
+    private int childCount(int node) {
         int baseN = getIntArray(base, node, false);
-        for (char ch : arcsLeaving) {
-            int m = baseN + getCodePoint(ch);
-            children.add(m);
+        int count = 0;
+        for (int a = firstChild.get(node); a != 0; a = sibling.get(baseN + a)) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 节点n的子节点数量加1之后,是否依然比节点m的子节点少.两个链表同时向后走,节点n的链表走完就可以停止,
+     * 因此当节点m是拥有大量子节点的root时,也不需要遍历它所有的子节点.
+     *
+     * @param n
+     *         node
+     * @param m
+     *         node
+     * @return true-如果childCount(n) + 1 < childCount(m)
+     */
+    private boolean hasFewerChildren(int n, int m) {
+        int baseN = getIntArray(base, n, false);
+        int baseM = getIntArray(base, m, false);
+        int b = firstChild.get(m);
+        for (int a = firstChild.get(n); a != 0; a = sibling.get(baseN + a)) {
+            if (b == 0) {
+                return false;
+            }
+            b = sibling.get(baseM + b);
+        }
+        // 节点m还剩下至少两个子节点
+        return b != 0 && sibling.get(baseM + b) != 0;
+    }
+
+    /**
+     * 获取term的值.
+     *
+     * @param id
+     *         term的end node的BASE值的相反数
+     * @return 值, 没有设置过时是0
+     */
+    private int getValue(int id) {
+        return values == null || id >= values.length ? 0 : values[id];
+    }
+
+    /**
+     * 设置term的值,第一次设置时才分配数组.
+     *
+     * @param id
+     *         term的end node的BASE值的相反数
+     * @param value
+     *         值
+     */
+    private void setValue(int id, int value) {
+        if (values == null) {
+            if (value == 0) {
+                return;
+            }
+            values = new int[Math.max(pos, 8)];
         }
-        return children;
+        if (id >= values.length) {
+            values = Arrays.copyOf(values, Math.max(values.length + (values.length >> 1), id + 1));
+        }
+        values[id] = value;
     }
 
     /**
-     * 为给定的char返回唯一的code point.比如unicode字符集中,每个字符对应一个唯一的码点.
+     * 为给定的character返回唯一的code point.BMP中的字符就是它的UTF-16的值,
+     * 补充平面的字符见{@link #supplementary},还没有编号时分配下一个编号.
      *
      * @param ch
-     *         char
+     *         character,Unicode code point
      * @return code point
      */
-    private int getCodePoint(char ch) {
-        int codePoint = (int) ch;
-        assert codePoint != 0 : "code point 等于0";
-        return codePoint;
+    private int getCodePoint(int ch) {
+        if (Character.isBmpCodePoint(ch)) {
+            assert ch != 0 : "code point 等于0";
+            return ch;
+        }
+        return Character.MAX_VALUE + supplementary.codeOf(ch);
+    }
+
+    /**
+     * 查找时使用的code point,与{@link #getCodePoint(int)}不同的是,它不会修改trie的任何状态.
+     *
+     * @param ch
+     *         character,Unicode code point
+     * @return code point, -1 表示trie中不可能有包含此character的term
+     */
+    private int lookupCodePoint(int ch) {
+        if (Character.isBmpCodePoint(ch)) {
+            return ch;
+        }
+        int code = supplementary.lookup(ch);
+        return code < 0 ? -1 : Character.MAX_VALUE + code;
     }
 
     /**
-     * 根据code point找到对应的code.reverse of {@link #getCodePoint(char)}
+     * 根据code point找到对应的code.reverse of {@link #getCodePoint(int)}
      *
      * @param codePoint
      *         code point
-     * @return char
-     * @see #getCodePoint(char)
+     * @return character,Unicode code point
+     * @see #getCodePoint(int)
      */
-    private char getCode(int codePoint) {
-        return (char) codePoint;
+    private int getCode(int codePoint) {
+        if (codePoint <= Character.MAX_VALUE) {
+            return codePoint;
+        }
+        return supplementary.characterAt(codePoint - Character.MAX_VALUE);
     }
 
     /**
@@ -340,61 +1059,103 @@ public class FullDoubleArrayTrie {
      *         the desired minimum capacity
      */
     private void growDoubleArray(int minCapacity) {
+        int oldCapacity = base.length();
         int newCapacity = base.grow(minCapacity);
         check.grow(minCapacity);
-        arcsLeaving = Arrays.copyOf(arcsLeaving, newCapacity);
+        firstChild.grow(minCapacity);
+        sibling.grow(minCapacity);
+        if (freeCells != null) {
+            freeCells.grow(newCapacity);
+            freeCells.linkAll(check, rootPosition, oldCapacity, newCapacity);
+        }
     }
 
     /**
      * returns the minimum integer q such that q> 0 and CHECK [ q+c ] =0 for all c in LIST.
-     * q always starts with the value 1 and has unitary increments at analysis time.
+     * <p>
+     * 论文中q从1开始,每次加1,数组越满就越慢.这里改为沿着空闲节点链表寻找:对于链表中的每个空闲节点f,
+     * 令q = f - min(c),这样至少最小的那个character一定能放下,只需要检查其他的character.
+     * 如果链表中所有的空闲节点都不满足,则使用数组尾部之后的位置.因此找到的q不一定是最小的,但一定满足条件.
+     * </p>
      * <p>
      * 有没有发现,这里要找的q,其实就是 g(n,a)=m 定义中,BASE[n]的值.
      * </p>
      *
      * @param array
      *         character array
-     * @return minimum q
+     * @return q
      */
-    private int x_check(Character... array) {
-        int q = 1;
-        if (maxIndex > 100000) {
-            q = (int) (maxIndex * 0.87);
+    private int x_check(int... array) {
+        xCheckCount++;
+        int first = Integer.MAX_VALUE;
+        for (int c : array) {
+            first = Math.min(first, getCodePoint(c));
         }
-        boolean find = false;
-        int index = 0;
-        while (!find) {
-            for (; index < array.length; index++) {
-                char c = array[index];
-                int a = getCodePoint(c);
-                int m = q + a; // 有没有发现和g(n,a)=m的关系?
-                ensureExplicitDoubleArrayCapacity(m + 1);
-                if (getIntArray(check, m, false) != 0) {
-                    index = 0;
-                    q++; // 当前q不适合,重新寻找
+        int q = 0;
+        if (freeCells == null) {
+            initFreeList();
+        }
+        int free = freeCells.first();
+        while (free != 0) {
+            int next = freeCells.next(free);
+            q = free - first;
+            if (q > 0) {
+                xCheckProbeCount++;
+                if (isAllFree(q, array)) {
                     break;
                 }
+                freeCells.fail(free);
+            }
+            free = next;
+        }
+        if (free == 0) {
+            // 最后一个被使用的节点之后的位置都是空闲的,从这里开始而不是从数组容量之后开始,否则每次都会跳过扩容留下的空间
+            q = Math.max(maxIndex + 1 - first, 1);
+            xCheckProbeCount++;
+            while (!isAllFree(q, array)) {
+                q++;
+                xCheckProbeCount++;
             }
-            find = index == array.length; // 如果最后一个字符也成功处理,则表明已经找到满足条件的q
         }
         maxQ = Math.max(maxQ, q);
         return q;
     }
 
-    private int x_check(List<Character> childrenArc, Character candidateArc) {
-        int size = childrenArc.size();
-        maxChildCount = Math.max(maxChildCount, size);
-        if (candidateArc != null) {
-            size = size + 1;
-        }
-        Character[] chars = new Character[size];
-        for (int index = 0; index < childrenArc.size(); index++) {
-            chars[index] = childrenArc.get(index);
+    /**
+     * 对于所有的character c,CHECK [ q+c ]是否都是0.
+     *
+     * @param q
+     *         q
+     * @param array
+     *         character array
+     * @return true-如果都是0
+     */
+    private boolean isAllFree(int q, int[] array) {
+        for (int c : array) {
+            int m = q + getCodePoint(c); // 有没有发现和g(n,a)=m的关系?
+            if (m == rootPosition || (m < check.length() && check.get(m) != 0)) {
+                return false;
+            }
         }
-        if (candidateArc != null) {
-            chars[childrenArc.size()] = candidateArc;
+        return true;
+    }
+
+    /**
+     * 根据CHECK数组建立空闲节点链表,把当前所有空闲的节点加入链表.耗时与double array的长度成正比.
+     */
+    private void initFreeList() {
+        freeCells = new FreeCellList(check.length(), arrayFactory);
+        freeCells.linkAll(check, rootPosition, 1, check.length());
+    }
+
+    private int x_check(int[] childrenArc, Integer candidateArc) {
+        maxChildCount = Math.max(maxChildCount, childrenArc.length);
+        if (candidateArc == null) {
+            return x_check(childrenArc);
         }
-        return x_check(chars);
+        int[] characters = Arrays.copyOf(childrenArc, childrenArc.length + 1);
+        characters[childrenArc.length] = candidateArc;
+        return x_check(characters);
     }
 
     /**
@@ -409,6 +1170,17 @@ public class FullDoubleArrayTrie {
      */
     private void setIntArray(IntArray intArray, int index, int value) {
         ensureExplicitDoubleArrayCapacity(index + 1);
+        if (intArray == check) {
+            int oldValue = check.get(index);
+            // 空闲节点链表还没有建立时不需要维护,建立时会根据CHECK数组加入所有空闲的节点
+            if (freeCells != null) {
+                if (oldValue == 0 && value != 0 && freeCells.contains(index)) {
+                    freeCells.unlink(index);
+                } else if (oldValue != 0 && value == 0) {
+                    freeCells.link(index);
+                }
+            }
+        }
         intArray.set(index, value);
         maxIndex = Math.max(maxIndex, index);
     }
@@ -431,9 +1203,128 @@ public class FullDoubleArrayTrie {
         return intArray.get(index);
     }
 
+    /**
+     * x_check被调用的次数,即为节点寻找base值的次数.
+     *
+     * @return 调用次数
+     */
+    public long getXCheckCount() {
+        return xCheckCount;
+    }
+
+    /**
+     * x_check总共尝试过的q值的数量.与{@link #getXCheckCount()}相除,就是平均每次寻找base值需要尝试的次数.
+     *
+     * @return 尝试次数
+     */
+    public long getXCheckProbeCount() {
+        return xCheckProbeCount;
+    }
+
+    /**
+     * 插入时,因为冲突而调整节点(即论文中的case 4)的次数.
+     *
+     * @return 调整次数
+     */
+    public long getRelocationCount() {
+        return collisionCount;
+    }
+
+    /**
+     * double array已经使用的部分中(即{@link #maxIndex}之前),空闲节点的数量.
+     *
+     * @return 空闲节点的数量
+     */
+    private int freeCells() {
+        int free = 0;
+        for (int index = 1; index <= maxIndex; index++) {
+            if (index != rootPosition && check.get(index) == 0) {
+                free++;
+            }
+        }
+        return free;
+    }
+
+    /**
+     * 返回大致的内存使用量,以b为单位.
+     *
+     * @return 大致的内存使用量
+     */
+    public long ramUsedB() {
+        long bytesCount = (base.length() + check.length()) * 4L;
+        bytesCount += (firstChild.length() + sibling.length()) * 4L; // 子节点链表
+        if (freeCells != null) {
+            bytesCount += freeCells.ramUsedB(); // 空闲节点链表
+        }
+        if (values != null) {
+            bytesCount += values.length * 4L;
+        }
+        bytesCount += supplementary.ramUsedB();
+        return bytesCount;
+    }
+
+    /**
+     * 生成统计信息,用于监控词典的密度和查找深度.需要遍历整个double array,耗时与trie的大小成正比.
+     * 没有TAIL数组,所以TAIL相关的值都是0.
+     *
+     * @return 统计信息
+     * @see TrieMonitor
+     */
+    public TrieStats stats() {
+        TrieStats stats = new TrieStats();
+        stats.doubleArrayLength = maxIndex + 1;
+        stats.capacity = base.length();
+        stats.nodeCount = maxIndex - freeCells();
+        stats.xCheckCount = xCheckCount;
+        stats.xCheckProbeCount = xCheckProbeCount;
+        stats.relocationCount = collisionCount;
+        stats.ramUsedB = ramUsedB();
+        collectStats(stats);
+        stats.trimHistogram();
+        return stats;
+    }
+
+    /**
+     * 统计从root开始的所有end node的深度,以及子节点的数量.使用显式的栈而不是递归,很长的term也不会栈溢出.
+     *
+     * @param stats
+     *         统计信息
+     */
+    private void collectStats(TrieStats stats) {
+        int[] nodes = new int[16];
+        int[] depths = new int[16];
+        int size = 0;
+        nodes[size] = rootPosition;
+        depths[size] = 0;
+        size++;
+        while (size > 0) {
+            size--;
+            int n = nodes[size];
+            int depth = depths[size];
+            int baseN = getIntArray(base, n, false);
+            if (baseN < 0) {
+                stats.addTerm(depth);
+                continue;
+            }
+            int childCount = 0;
+            for (int a = firstChild.get(n); a != 0; a = sibling.get(baseN + a)) {
+                childCount++;
+                if (size == nodes.length) {
+                    nodes = Arrays.copyOf(nodes, size << 1);
+                    depths = Arrays.copyOf(depths, size << 1);
+                }
+                nodes[size] = baseN + a;
+                depths[size] = depth + 1;
+                size++;
+            }
+            stats.maxChildCount = Math.max(stats.maxChildCount, childCount);
+        }
+    }
+
     @Override
     public String toString() {
         return "maxIndex:" + maxIndex + ",base.length:" + base.length()
-                + ",maxQ:" + maxQ + ",maxChildCount:" + maxChildCount + ",collisionCount:" + collisionCount;
+                + ",maxQ:" + maxQ + ",maxChildCount:" + maxChildCount + ",collisionCount:" + collisionCount
+                + ",xCheckCount:" + xCheckCount + ",xCheckProbeCount:" + xCheckProbeCount;
     }
 }
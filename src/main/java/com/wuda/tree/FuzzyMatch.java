@@ -0,0 +1,68 @@
+package com.wuda.tree;
+
+import java.util.Objects;
+
+/**
+ * 模糊查找的结果,即trie中的term以及它与查询的编辑距离(Levenshtein distance).
+ *
+ * @author wuda
+ * @see DoubleArrayTrie#fuzzySearch(String, int)
+ */
+public final class FuzzyMatch {
+
+    private final String term;
+    private final int distance;
+
+    /**
+     * 构造.
+     *
+     * @param term
+     *         trie中的term
+     * @param distance
+     *         编辑距离
+     */
+    public FuzzyMatch(String term, int distance) {
+        this.term = Objects.requireNonNull(term, "term不能为空!");
+        this.distance = distance;
+    }
+
+    /**
+     * trie中的term,小写形式.
+     *
+     * @return term
+     */
+    public String getTerm() {
+        return term;
+    }
+
+    /**
+     * 查询变成这个term需要的最少的插入、删除和替换次数.
+     *
+     * @return 编辑距离
+     */
+    public int getDistance() {
+        return distance;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FuzzyMatch)) {
+            return false;
+        }
+        FuzzyMatch that = (FuzzyMatch) o;
+        return distance == that.distance && term.equals(that.term);
+    }
+
+    @Override
+    public int hashCode() {
+        return term.hashCode() * 31 + distance;
+    }
+
+    @Override
+    public String toString() {
+        return term + ":" + distance;
+    }
+}
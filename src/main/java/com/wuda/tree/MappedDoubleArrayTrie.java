@@ -0,0 +1,223 @@
+package com.wuda.tree;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 只读的double-array trie,直接在内存映射的文件上查找,BASE,CHECK,TAIL数组不会被复制到堆中.
+ * 因此加载几乎不需要时间,也不会产生垃圾,并且多个进程可以共享操作系统中的同一份page cache.
+ * 文件由{@link DoubleArrayTrie#save(Path)}生成.
+ * <p>
+ * 实例是不可变的,可以被多个线程同时使用.
+ * </p>
+ *
+ * @author wuda
+ * @see DoubleArrayTrie#save(Path)
+ */
+public class MappedDoubleArrayTrie {
+
+    private final IntBuffer base;
+    private final IntBuffer check;
+    private final CharBuffer tail;
+    /**
+     * 每个term的int值,下标是叶子节点在TAIL数组中的位置,保存时没有值则为null.
+     */
+    private final IntBuffer values;
+    private final int doubleArrayLength;
+    private final int tailLength;
+    private final char separator;
+    private final int rootPosition;
+
+    /**
+     * 是否按照Unicode code point构建,见{@link DoubleArrayTrie#isCodePointMode()}.
+     */
+    private final boolean codePointMode;
+
+    /**
+     * character与code point的映射表.以前版本的文件没有映射表,直接使用UTF-16的值,此时为null.
+     */
+    private final Alphabet alphabet;
+
+    /**
+     * 根据文件头构造.
+     *
+     * @param buffer
+     *         映射整个文件的buffer
+     * @param format
+     *         文件头
+     */
+    private MappedDoubleArrayTrie(ByteBuffer buffer, DoubleArrayTrieFormat format) {
+        this.doubleArrayLength = format.doubleArrayLength;
+        this.tailLength = format.tailLength;
+        this.base = DoubleArrayTrieFormat.intView(buffer, format.baseOffset(), doubleArrayLength);
+        this.check = DoubleArrayTrieFormat.intView(buffer, format.checkOffset(), doubleArrayLength);
+        this.tail = DoubleArrayTrieFormat.charView(buffer, format.tailOffset(), tailLength);
+        this.values = format.valuesLength == 0 ? null
+                : DoubleArrayTrieFormat.intView(buffer, format.valuesOffset(), format.valuesLength);
+        this.separator = format.separator;
+        this.rootPosition = format.rootPosition;
+        this.codePointMode = format.isCodePointMode();
+        this.alphabet = format.mappedChars.length == 0 ? null : Alphabet.of(format.mappedChars, format.mappedCodePoints);
+    }
+
+    /**
+     * 以内存映射的方式加载{@link DoubleArrayTrie#save(Path)}保存的文件.文件被映射之后,即使关闭了文件,
+     * 映射依然有效,直到此对象被垃圾回收.
+     *
+     * @param path
+     *         文件路径
+     * @return 只读的trie
+     * @throws IOException
+     *         读取文件失败,或者不是合法的文件
+     */
+    public static MappedDoubleArrayTrie load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = DoubleArrayTrieFormat.map(channel);
+            DoubleArrayTrieFormat format = DoubleArrayTrieFormat.readHeader(buffer);
+            format.checkFileSize(buffer);
+            return new MappedDoubleArrayTrie(buffer, format);
+        }
+    }
+
+    /**
+     * 此trie中是否包含给定的<i>term</i>.
+     *
+     * @param term
+     *         term
+     * @return true-如果包含,false-不包含
+     * @see DoubleArrayTrie#contains(String)
+     */
+    public boolean contains(String term) {
+        return findTail(term) > 0;
+    }
+
+    /**
+     * 获取term的int值.
+     *
+     * @param term
+     *         term
+     * @param defaultValue
+     *         trie中不包含此term时返回的值
+     * @return term的值
+     * @see DoubleArrayTrie#getInt(String, int)
+     */
+    public int getInt(String term, int defaultValue) {
+        int tailPos = findTail(term);
+        if (tailPos < 0) {
+            return defaultValue;
+        }
+        return values == null || tailPos >= values.limit() ? 0 : values.get(tailPos);
+    }
+
+    /**
+     * 找到term的叶子节点在TAIL数组中的位置.
+     *
+     * @param term
+     *         term
+     * @return 叶子节点在TAIL数组中的位置, -1表示trie中不包含此term
+     */
+    private int findTail(String term) {
+        if (term == null) {
+            return -1;
+        }
+        term = term.trim();
+        int length = term.length();
+        if (length == 0) {
+            return -1;
+        }
+        int n = rootPosition;
+        for (int index = 0; index <= length; ) {
+            int base_n = base.get(n);
+            if (base_n < 0) {
+                return compareWithTail(term, index, -base_n) ? -base_n : -1;
+            }
+            int c = index < length ? Character.toLowerCase(characterAt(term, index)) : separator;
+            if (c == separator && index < length) {
+                return -1; // term中不可能包含separator
+            }
+            index += Character.charCount(c);
+            int a = getCodePoint(c);
+            if (a < 0) {
+                return -1;
+            }
+            int m = base_n + a;
+            if (m >= doubleArrayLength || check.get(m) != n) {
+                return -1;
+            }
+            n = m;
+        }
+        // 经过的最后一个arc是separator
+        int base_n = base.get(n);
+        return base_n < 0 ? -base_n : -1;
+    }
+
+    /**
+     * term从<i>start</i>(包含)开始的剩余字符,再加上separator,是否与TAIL数组从<i>tailPos</i>开始的内容相等.
+     *
+     * @param term
+     *         term
+     * @param start
+     *         term中开始对比的位置
+     * @param tailPos
+     *         TAIL数组中开始对比的位置
+     * @return true-如果相等
+     */
+    private boolean compareWithTail(String term, int start, int tailPos) {
+        int length = term.length();
+        for (int index = start; index < length; ) {
+            int c = Character.toLowerCase(characterAt(term, index));
+            if (c == separator) {
+                return false;
+            }
+            if (Character.isBmpCodePoint(c)) {
+                if (tailPos >= tailLength || tail.get(tailPos) != c) {
+                    return false;
+                }
+            } else if (tailPos + 1 >= tailLength || tail.get(tailPos) != Character.highSurrogate(c)
+                    || tail.get(tailPos + 1) != Character.lowSurrogate(c)) {
+                return false;
+            }
+            index += Character.charCount(c);
+            tailPos += Character.charCount(c);
+        }
+        return tailPos < tailLength && tail.get(tailPos) == separator;
+    }
+
+    /**
+     * term中index处的character,按照code point构建时,完整的surrogate pair是一个character.
+     *
+     * @param term
+     *         term
+     * @param index
+     *         位置
+     * @return character
+     */
+    private int characterAt(String term, int index) {
+        return codePointMode ? term.codePointAt(index) : term.charAt(index);
+    }
+
+    /**
+     * 获取character对应的code point.
+     *
+     * @param c
+     *         character
+     * @return code point, -1 表示此character没有定义code point,即trie中不可能有包含它的term
+     */
+    private int getCodePoint(int c) {
+        return alphabet == null ? c : alphabet.lookup(c);
+    }
+
+    /**
+     * 被映射的文件中,BASE,CHECK,TAIL数组占用的字节数.这部分内存由操作系统管理,不在堆中.
+     *
+     * @return 字节数
+     */
+    public long mappedBytes() {
+        return doubleArrayLength * 8L + tailLength * 2L + (values == null ? 0 : values.limit() * 4L);
+    }
+}
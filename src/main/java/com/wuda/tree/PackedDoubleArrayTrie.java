@@ -0,0 +1,489 @@
+package com.wuda.tree;
+
+/**
+ * 冻结的只读double-array trie,由{@link DoubleArrayTrie#freeze()}生成.
+ * <p>
+ * {@link DoubleArrayTrie}中BASE和CHECK各是一个{@link com.wuda.lang.IntArray},每个节点固定占用8个字节,
+ * 而实际的值远远用不了32位:CHECK是父节点的下标,不会超过double array的长度;BASE是子节点的起始位置,
+ * 或者叶子节点在TAIL数组中的位置的相反数.冻结时找出它们的取值范围,BASE减去最小值之后与CHECK拼成一个
+ * 只有需要的位数的单元,所有单元首尾相连地保存在long数组中(一个单元可能跨越两个long).
+ * </p>
+ * <p>
+ * BASE和CHECK交错保存,查找时从父节点到子节点只需要读取子节点所在的单元一次,就同时得到了验证用的CHECK
+ * 和下一步需要的BASE,比两个独立的数组少一次可能的cache miss,抵消了移位和掩码的开销.
+ * 10万个term的词典一个单元通常只有36到40位,BASE和CHECK占用的内存大约是原来的55%到60%.
+ * </p>
+ * <p>
+ * 实例是不可变的,可以被多个线程同时使用.需要继续添加term时使用原来的{@link DoubleArrayTrie}.
+ * </p>
+ *
+ * @author wuda
+ * @see DoubleArrayTrie#freeze()
+ */
+public final class PackedDoubleArrayTrie {
+
+    /**
+     * 所有的单元首尾相连,单元的低{@link #checkBits}位是CHECK,其余的位是BASE减去{@link #baseOffset}.
+     * 末尾多分配了一个long,读取最后一个单元时不需要判断是否跨越两个long.
+     */
+    private final long[] words;
+    private final int cellBits;
+    private final long cellMask;
+    private final int checkBits;
+    private final int checkMask;
+    /**
+     * BASE的最小值,通常是最后一个叶子节点在TAIL数组中的位置的相反数.
+     */
+    private final int baseOffset;
+    private final int doubleArrayLength;
+
+    private final char[] tail;
+    /**
+     * 每个term的int值,下标是叶子节点在TAIL数组中的位置,没有值时是null.
+     */
+    private final int[] values;
+    private final Alphabet alphabet;
+    private final char separator;
+    private final int rootPosition;
+    private final boolean codePointMode;
+
+    /**
+     * 把BASE和CHECK数组压缩成单元.
+     *
+     * @param base
+     *         BASE数组
+     * @param check
+     *         CHECK数组
+     * @param doubleArrayLength
+     *         BASE和CHECK数组被使用的部分的长度
+     * @param tail
+     *         TAIL数组,只包含被使用的部分,不会被复制
+     * @param values
+     *         每个term的值,不会被复制,没有值时是null
+     * @param alphabet
+     *         character与code point的映射表,不会被复制
+     * @param separator
+     *         separator
+     * @param rootPosition
+     *         root的位置
+     * @param codePointMode
+     *         是否按照code point处理term
+     */
+    PackedDoubleArrayTrie(int[] base, int[] check, int doubleArrayLength, char[] tail, int[] values,
+                          Alphabet alphabet, char separator, int rootPosition, boolean codePointMode) {
+        int minBase = 0;
+        int maxBase = 0;
+        int maxCheck = 0;
+        for (int index = 0; index < doubleArrayLength; index++) {
+            minBase = Math.min(minBase, base[index]);
+            maxBase = Math.max(maxBase, base[index]);
+            maxCheck = Math.max(maxCheck, check[index]);
+        }
+        this.baseOffset = minBase;
+        this.checkBits = bitsRequired(maxCheck);
+        this.checkMask = (int) ((1L << checkBits) - 1);
+        this.cellBits = checkBits + bitsRequired((long) maxBase - minBase);
+        this.cellMask = cellBits == Long.SIZE ? -1L : (1L << cellBits) - 1;
+        this.doubleArrayLength = doubleArrayLength;
+        this.words = new long[(int) (((long) doubleArrayLength * cellBits + Long.SIZE - 1) >>> 6) + 1];
+        for (int index = 0; index < doubleArrayLength; index++) {
+            setCell(index, (long) (base[index] - minBase) << checkBits | check[index]);
+        }
+        this.tail = tail;
+        this.values = values;
+        this.alphabet = alphabet;
+        this.separator = separator;
+        this.rootPosition = rootPosition;
+        this.codePointMode = codePointMode;
+    }
+
+    /**
+     * 保存非负数<i>value</i>需要的位数,至少是1.
+     *
+     * @param value
+     *         非负数
+     * @return 位数
+     */
+    private static int bitsRequired(long value) {
+        return Math.max(Long.SIZE - Long.numberOfLeadingZeros(value), 1);
+    }
+
+    /**
+     * 写入节点n的单元,只在构造时使用.
+     *
+     * @param n
+     *         node
+     * @param cell
+     *         单元的值,不超过{@link #cellBits}位
+     */
+    private void setCell(int n, long cell) {
+        long bitIndex = (long) n * cellBits;
+        int word = (int) (bitIndex >>> 6);
+        int shift = (int) bitIndex & 63;
+        words[word] |= cell << shift;
+        if (shift + cellBits > Long.SIZE) {
+            words[word + 1] |= cell >>> (Long.SIZE - shift);
+        }
+    }
+
+    /**
+     * 读取节点n的单元.<code>&lt;&lt; 1 &lt;&lt; (63 - shift)</code>在shift为0时得到0,因此不需要分支.
+     *
+     * @param n
+     *         node,必须小于{@link #doubleArrayLength}
+     * @return 单元的值
+     */
+    private long cell(int n) {
+        long bitIndex = (long) n * cellBits;
+        int word = (int) (bitIndex >>> 6);
+        int shift = (int) bitIndex & 63;
+        return (words[word] >>> shift | words[word + 1] << 1 << (63 - shift)) & cellMask;
+    }
+
+    /**
+     * 单元中的BASE值.
+     *
+     * @param cell
+     *         单元
+     * @return BASE
+     */
+    private int base(long cell) {
+        return (int) (cell >>> checkBits) + baseOffset;
+    }
+
+    /**
+     * 单元中的CHECK值.
+     *
+     * @param cell
+     *         单元
+     * @return CHECK
+     */
+    private int check(long cell) {
+        return (int) cell & checkMask;
+    }
+
+    /**
+     * 此trie中是否包含给定的<i>term</i>.term会被trim,并且不区分大小写.
+     *
+     * @param term
+     *         term
+     * @return true-如果包含,false-不包含
+     * @see DoubleArrayTrie#contains(String)
+     */
+    public boolean contains(String term) {
+        if (term == null) {
+            return false;
+        }
+        int start = DoubleArrayTrie.trimStart(term);
+        int end = DoubleArrayTrie.trimEnd(term, start);
+        return start < end && findTail(term, start, end - start) > 0;
+    }
+
+    /**
+     * <i>text</i>中从<i>offset</i>开始的<i>length</i>个字符组成的term是否在此trie中,不会trim.
+     *
+     * @param text
+     *         文本
+     * @param offset
+     *         term在text中的开始位置(包含)
+     * @param length
+     *         term的长度
+     * @return true-如果包含,false-不包含
+     * @see DoubleArrayTrie#contains(CharSequence, int, int)
+     */
+    public boolean contains(CharSequence text, int offset, int length) {
+        DoubleArrayTrie.checkRange(offset, length, text.length());
+        return length > 0 && findTail(text, offset, length) > 0;
+    }
+
+    /**
+     * 获取term的int值.
+     *
+     * @param term
+     *         term
+     * @param defaultValue
+     *         trie中不包含此term时返回的值
+     * @return term的值
+     * @see DoubleArrayTrie#getInt(String, int)
+     */
+    public int getInt(String term, int defaultValue) {
+        if (term == null) {
+            return defaultValue;
+        }
+        int start = DoubleArrayTrie.trimStart(term);
+        int end = DoubleArrayTrie.trimEnd(term, start);
+        int tailPos = start < end ? findTail(term, start, end - start) : -1;
+        if (tailPos < 0) {
+            return defaultValue;
+        }
+        return values == null || tailPos >= values.length ? 0 : values[tailPos];
+    }
+
+    /**
+     * 找到term的叶子节点在TAIL数组中的位置.
+     *
+     * @param text
+     *         文本
+     * @param offset
+     *         term在text中的开始位置(包含)
+     * @param length
+     *         term的长度,必须大于0
+     * @return 叶子节点在TAIL数组中的位置, -1表示trie中不包含此term
+     */
+    private int findTail(CharSequence text, int offset, int length) {
+        int end = offset + length;
+        int n = rootPosition;
+        int base_n = base(cell(n));
+        int index = offset;
+        while (base_n > 0) {
+            int c = index < end ? Character.toLowerCase(characterAt(text, index, end)) : separator;
+            if (c == separator && index < end) {
+                return -1; // term中不可能包含separator
+            }
+            int a = alphabet.lookup(c);
+            int m = base_n + a;
+            if (a < 0 || m >= doubleArrayLength) {
+                return -1;
+            }
+            long cell = cell(m);
+            if (check(cell) != n) {
+                return -1;
+            }
+            n = m;
+            base_n = base(cell);
+            index += Character.charCount(c);
+        }
+        int tailPos = -base_n;
+        if (tailPos <= 0) {
+            return -1;
+        }
+        // index > end说明经过的最后一个arc就是separator,TAIL中只有一个separator
+        while (index < end) {
+            int c = tailCharacterAt(tailPos);
+            if (c == separator || c != Character.toLowerCase(characterAt(text, index, end))) {
+                return -1;
+            }
+            index += Character.charCount(c);
+            tailPos += Character.charCount(c);
+        }
+        return index > end || tail[tailPos] == separator ? -base_n : -1;
+    }
+
+    /**
+     * 找出trie中所有是<i>text</i>从<i>offset</i>开始的前缀的term,匹配到的term的长度从短到长依次写入<i>lengths</i>.
+     *
+     * @param text
+     *         文本
+     * @param offset
+     *         从text的这个位置(包含)开始匹配
+     * @param lengths
+     *         用于存放匹配到的term的长度
+     * @return 匹配到的term的数量, 如果大于<i>lengths</i>的长度, 则只有前<i>lengths.length</i>个被写入
+     * @see DoubleArrayTrie#commonPrefixSearch(CharSequence, int, int[])
+     */
+    public int commonPrefixSearch(CharSequence text, int offset, int[] lengths) {
+        int count = 0;
+        int length = text.length();
+        int n = rootPosition;
+        for (int index = offset; ; ) {
+            int base_n = base(cell(n));
+            if (base_n < 0) {
+                int end = matchTail(-base_n, text, index);
+                if (end >= 0) {
+                    if (count < lengths.length) {
+                        lengths[count] = end - offset;
+                    }
+                    count++;
+                }
+                return count;
+            }
+            if (index > offset && transfer(n, base_n, separator) >= 0) {
+                if (count < lengths.length) {
+                    lengths[count] = index - offset;
+                }
+                count++;
+            }
+            if (index >= length) {
+                return count;
+            }
+            int c = Character.toLowerCase(characterAt(text, index, length));
+            if (c == separator) {
+                return count; // term中不可能包含separator
+            }
+            n = transfer(n, base_n, c);
+            if (n < 0) {
+                return count;
+            }
+            index += Character.charCount(c);
+        }
+    }
+
+    /**
+     * 最长匹配,即trie中是<i>text</i>从<i>offset</i>开始的前缀的term中,最长的那个term的长度.
+     *
+     * @param text
+     *         文本
+     * @param offset
+     *         从text的这个位置(包含)开始匹配
+     * @return 最长的term的长度, 0-表示没有任何term匹配
+     * @see DoubleArrayTrie#longestMatch(CharSequence, int)
+     */
+    public int longestMatch(CharSequence text, int offset) {
+        int longest = 0;
+        int length = text.length();
+        int n = rootPosition;
+        for (int index = offset; ; ) {
+            int base_n = base(cell(n));
+            if (base_n < 0) {
+                int end = matchTail(-base_n, text, index);
+                return end >= 0 ? end - offset : longest;
+            }
+            if (index > offset && transfer(n, base_n, separator) >= 0) {
+                longest = index - offset;
+            }
+            if (index >= length) {
+                return longest;
+            }
+            int c = Character.toLowerCase(characterAt(text, index, length));
+            if (c == separator) {
+                return longest; // term中不可能包含separator
+            }
+            n = transfer(n, base_n, c);
+            if (n < 0) {
+                return longest;
+            }
+            index += Character.charCount(c);
+        }
+    }
+
+    /**
+     * 从节点n经过character c到达的节点.
+     *
+     * @param n
+     *         from node
+     * @param base_n
+     *         BASE[n]的值,必须大于0
+     * @param c
+     *         character
+     * @return to node, -1表示没有这样的arc
+     */
+    private int transfer(int n, int base_n, int c) {
+        int a = alphabet.lookup(c);
+        if (a < 0) {
+            return -1;
+        }
+        int m = base_n + a;
+        if (m >= doubleArrayLength || check(cell(m)) != n) {
+            return -1;
+        }
+        return m;
+    }
+
+    /**
+     * TAIL数组从<i>tailPos</i>开始直到separator的字符,是否依次与<i>text</i>从<i>start</i>开始的字符相等.
+     *
+     * @param tailPos
+     *         TAIL数组中开始对比的位置
+     * @param text
+     *         文本
+     * @param start
+     *         text中开始对比的位置
+     * @return 匹配结束时在text中的位置(不包含), -1表示不匹配
+     */
+    private int matchTail(int tailPos, CharSequence text, int start) {
+        int length = text.length();
+        int index = start;
+        int c = tailCharacterAt(tailPos);
+        while (c != separator) {
+            if (index >= length || c != Character.toLowerCase(characterAt(text, index, length))) {
+                return -1;
+            }
+            index += Character.charCount(c);
+            tailPos += Character.charCount(c);
+            c = tailCharacterAt(tailPos);
+        }
+        return index;
+    }
+
+    /**
+     * text中index处的character,按照code point处理时,完整的surrogate pair是一个character.
+     *
+     * @param text
+     *         文本
+     * @param index
+     *         位置
+     * @param end
+     *         文本的结束位置(不包含)
+     * @return character
+     */
+    private int characterAt(CharSequence text, int index, int end) {
+        char c = text.charAt(index);
+        if (codePointMode && Character.isHighSurrogate(c) && index + 1 < end) {
+            char low = text.charAt(index + 1);
+            if (Character.isLowSurrogate(low)) {
+                return Character.toCodePoint(c, low);
+            }
+        }
+        return c;
+    }
+
+    /**
+     * TAIL数组中tailPos处的character.
+     *
+     * @param tailPos
+     *         TAIL数组中的位置
+     * @return character
+     */
+    private int tailCharacterAt(int tailPos) {
+        char c = tail[tailPos];
+        if (codePointMode && Character.isHighSurrogate(c) && tailPos + 1 < tail.length
+                && Character.isLowSurrogate(tail[tailPos + 1])) {
+            return Character.toCodePoint(c, tail[tailPos + 1]);
+        }
+        return c;
+    }
+
+    /**
+     * 每个节点的BASE和CHECK一共占用的位数,与{@link DoubleArrayTrie}的64位对比.
+     *
+     * @return 位数
+     */
+    public int bitsPerCell() {
+        return cellBits;
+    }
+
+    /**
+     * 压缩之后的BASE和CHECK占用的字节数.
+     *
+     * @return 字节数
+     */
+    public long packedBytes() {
+        return words.length * 8L;
+    }
+
+    /**
+     * 返回大致的内存使用量,以b为单位.
+     *
+     * @return 大致的内存使用量
+     */
+    public long ramUsedB() {
+        long bytesCount = packedBytes();
+        bytesCount += tail.length * 2L;
+        if (values != null) {
+            bytesCount += values.length * 4L;
+        }
+        bytesCount += alphabet.ramUsedB();
+        return bytesCount;
+    }
+
+    @Override
+    public String toString() {
+        return "doubleArrayLength:" + doubleArrayLength
+                + ",bitsPerCell:" + cellBits
+                + ",checkBits:" + checkBits
+                + ",baseOffset:" + baseOffset
+                + ",tailLength:" + tail.length
+                + "\npackedBytes:" + packedBytes()
+                + ",ramUsedB:" + ramUsedB();
+    }
+}
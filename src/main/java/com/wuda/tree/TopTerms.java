@@ -0,0 +1,95 @@
+package com.wuda.tree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 从大量的term中选出值最大的k个,用于按照词频等权重排序的自动补全.
+ * 内部是一个大小为k的最小堆,堆顶是当前入选的term中值最小的,新的term只有比堆顶大才需要入堆,
+ * 因此调用方可以先用{@link #accepts(int)}判断,只有入选时才创建term字符串.
+ *
+ * @author wuda
+ */
+final class TopTerms {
+
+    private final int k;
+
+    /**
+     * 值相同时,字典顺序大的term先被淘汰.
+     */
+    private final PriorityQueue<Entry> heap;
+
+    /**
+     * 构造.
+     *
+     * @param k
+     *         最多保留的term数量,必须大于等于0
+     */
+    TopTerms(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("Illegal k: " + k);
+        }
+        this.k = k;
+        this.heap = new PriorityQueue<>(Math.max(k, 1), (one, another) -> {
+            if (one.value != another.value) {
+                return Integer.compare(one.value, another.value);
+            }
+            return another.term.compareTo(one.term);
+        });
+    }
+
+    /**
+     * 值为<i>value</i>的term是否能入选.trie按照字典顺序遍历,所以值与堆顶相等的term不会入选,
+     * 这样值相同时保留的是字典顺序靠前的term.
+     *
+     * @param value
+     *         值
+     * @return true-如果能入选
+     */
+    boolean accepts(int value) {
+        return heap.size() < k || (k > 0 && value > heap.peek().value);
+    }
+
+    /**
+     * 添加一个已经通过{@link #accepts(int)}判断的term.
+     *
+     * @param term
+     *         term
+     * @param value
+     *         值
+     */
+    void add(String term, int value) {
+        if (heap.size() == k) {
+            heap.poll();
+        }
+        heap.add(new Entry(term, value));
+    }
+
+    /**
+     * 入选的term,按照值从大到小排列,值相同的按照字典顺序排列.
+     *
+     * @return terms
+     */
+    List<String> toList() {
+        List<Entry> entries = new ArrayList<>(heap);
+        Collections.sort(entries, heap.comparator());
+        List<String> terms = new ArrayList<>(entries.size());
+        for (int index = entries.size() - 1; index >= 0; index--) {
+            terms.add(entries.get(index).term);
+        }
+        return terms;
+    }
+
+    private static final class Entry {
+
+        private final String term;
+        private final int value;
+
+        private Entry(String term, int value) {
+            this.term = term;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.wuda.tree;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * 把trie的{@link TrieStats}注册为JMX MXBean,监控系统可以据此在词典重新加载之后密度或者查找深度变差时报警.
+ * 生成统计信息需要遍历整个trie,因此不会在每次读取属性时都重新生成,而是缓存起来,
+ * 超过<i>maxAgeMillis</i>之后读取属性时才重新生成,也可以调用{@link #refresh()}立即生成.
+ * 例如:
+ * <pre>
+ *     TrieMonitor monitor = new TrieMonitor(() -&gt; cowTrie.snapshot().stats(), 60000);
+ *     monitor.register("dictionary");
+ * </pre>
+ *
+ * @author wuda
+ */
+public class TrieMonitor implements TrieMonitorMXBean {
+
+    /**
+     * 注册到MBeanServer时使用的domain.
+     */
+    public static final String DOMAIN = "com.wuda.tree";
+
+    private final Supplier<TrieStats> source;
+    private final long maxAgeMillis;
+    private volatile TrieStats stats;
+    private volatile long snapshotTime;
+    private ObjectName objectName;
+
+    /**
+     * 构造,并且立即生成一次统计信息.
+     *
+     * @param source
+     *         生成统计信息,比如<code>trie::stats</code>
+     * @param maxAgeMillis
+     *         统计信息缓存的最长时间,单位毫秒,0表示每次读取属性时都重新生成
+     */
+    public TrieMonitor(Supplier<TrieStats> source, long maxAgeMillis) {
+        if (maxAgeMillis < 0) {
+            throw new IllegalArgumentException("Illegal maxAgeMillis: " + maxAgeMillis);
+        }
+        this.source = Objects.requireNonNull(source, "source不能为空!");
+        this.maxAgeMillis = maxAgeMillis;
+        refresh();
+    }
+
+    /**
+     * 以<code>com.wuda.tree:type=Trie,name=</code><i>name</i>注册到platform MBeanServer.
+     *
+     * @param name
+     *         用于区分多个trie的名称
+     * @return 注册使用的ObjectName
+     * @throws JMException
+     *         名称不合法,或者已经被注册
+     */
+    public synchronized ObjectName register(String name) throws JMException {
+        if (objectName != null) {
+            throw new IllegalStateException("已经注册为" + objectName);
+        }
+        ObjectName candidate = new ObjectName(DOMAIN + ":type=Trie,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, candidate);
+        objectName = candidate;
+        return candidate;
+    }
+
+    /**
+     * 从platform MBeanServer中注销,没有注册时什么也不做.
+     *
+     * @throws JMException
+     *         注销失败
+     */
+    public synchronized void unregister() throws JMException {
+        if (objectName != null) {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            objectName = null;
+        }
+    }
+
+    /**
+     * 当前缓存的统计信息,超过<i>maxAgeMillis</i>时重新生成,<i>maxAgeMillis</i>是0时每次都重新生成.
+     *
+     * @return 统计信息
+     */
+    public TrieStats stats() {
+        if (maxAgeMillis == 0 || System.currentTimeMillis() - snapshotTime > maxAgeMillis) {
+            refresh();
+        }
+        return stats;
+    }
+
+    @Override
+    public synchronized void refresh() {
+        stats = Objects.requireNonNull(source.get(), "统计信息不能为空!");
+        snapshotTime = System.currentTimeMillis();
+    }
+
+    @Override
+    public long getSnapshotTime() {
+        return snapshotTime;
+    }
+
+    @Override
+    public int getTermCount() {
+        return stats().getTermCount();
+    }
+
+    @Override
+    public int getNodeCount() {
+        return stats().getNodeCount();
+    }
+
+    @Override
+    public int getDoubleArrayLength() {
+        return stats().getDoubleArrayLength();
+    }
+
+    @Override
+    public int getCapacity() {
+        return stats().getCapacity();
+    }
+
+    @Override
+    public double getFillRatio() {
+        return stats().getFillRatio();
+    }
+
+    @Override
+    public int getMaxChildCount() {
+        return stats().getMaxChildCount();
+    }
+
+    @Override
+    public int getTailLength() {
+        return stats().getTailLength();
+    }
+
+    @Override
+    public int getTailGarbage() {
+        return stats().getTailGarbage();
+    }
+
+    @Override
+    public double getTailUtilization() {
+        return stats().getTailUtilization();
+    }
+
+    @Override
+    public long getXCheckCount() {
+        return stats().getXCheckCount();
+    }
+
+    @Override
+    public long getXCheckProbeCount() {
+        return stats().getXCheckProbeCount();
+    }
+
+    @Override
+    public double getAverageXCheckProbes() {
+        return stats().getAverageXCheckProbes();
+    }
+
+    @Override
+    public long getRelocationCount() {
+        return stats().getRelocationCount();
+    }
+
+    @Override
+    public long getRamUsedB() {
+        return stats().getRamUsedB();
+    }
+
+    @Override
+    public int[] getDepthHistogram() {
+        return stats().getDepthHistogram();
+    }
+
+    @Override
+    public int getMaxDepth() {
+        return stats().getMaxDepth();
+    }
+
+    @Override
+    public double getAverageDepth() {
+        return stats().getAverageDepth();
+    }
+}
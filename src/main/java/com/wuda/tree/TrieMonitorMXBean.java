@@ -0,0 +1,56 @@
+package com.wuda.tree;
+
+/**
+ * 通过JMX暴露的trie统计信息,每个属性与{@link TrieStats}中同名的getter一致.
+ *
+ * @author wuda
+ * @see TrieMonitor
+ */
+public interface TrieMonitorMXBean {
+
+    int getTermCount();
+
+    int getNodeCount();
+
+    int getDoubleArrayLength();
+
+    int getCapacity();
+
+    double getFillRatio();
+
+    int getMaxChildCount();
+
+    int getTailLength();
+
+    int getTailGarbage();
+
+    double getTailUtilization();
+
+    long getXCheckCount();
+
+    long getXCheckProbeCount();
+
+    double getAverageXCheckProbes();
+
+    long getRelocationCount();
+
+    long getRamUsedB();
+
+    int[] getDepthHistogram();
+
+    int getMaxDepth();
+
+    double getAverageDepth();
+
+    /**
+     * 当前的统计信息是什么时候生成的.
+     *
+     * @return 毫秒时间戳
+     */
+    long getSnapshotTime();
+
+    /**
+     * 立即重新生成统计信息,比如重新加载词典之后.
+     */
+    void refresh();
+}
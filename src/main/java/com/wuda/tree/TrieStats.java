@@ -0,0 +1,241 @@
+package com.wuda.tree;
+
+import java.util.Arrays;
+
+/**
+ * trie在某一时刻的统计信息,由{@link DoubleArrayTrie#stats()}和{@link FullDoubleArrayTrie#stats()}生成,
+ * 用于监控词典重新加载之后double array的密度,以及查找需要经过的arc数量是否变差.
+ * 实例是不可变的,生成之后trie的修改不会反映到这里.
+ *
+ * @author wuda
+ * @see TrieMonitor
+ */
+public final class TrieStats {
+
+    int termCount;
+    int nodeCount;
+    int doubleArrayLength;
+    int capacity;
+    int maxChildCount;
+    int tailLength;
+    int tailGarbage;
+    long xCheckCount;
+    long xCheckProbeCount;
+    long relocationCount;
+    long ramUsedB;
+    /**
+     * 下标是从root到达term的叶子节点(或者end node)经过的arc数量,值是term的数量.
+     */
+    int[] depthHistogram = new int[0];
+
+    TrieStats() {
+    }
+
+    /**
+     * 根据深度优先遍历时遇到的每个叶子节点累加.
+     *
+     * @param depth
+     *         从root到叶子节点经过的arc数量
+     */
+    void addTerm(int depth) {
+        if (depth >= depthHistogram.length) {
+            depthHistogram = Arrays.copyOf(depthHistogram, Math.max(depth + 1, depthHistogram.length << 1));
+        }
+        depthHistogram[depth]++;
+        termCount++;
+    }
+
+    /**
+     * 遍历结束后去掉直方图尾部多余的元素.
+     */
+    void trimHistogram() {
+        int length = depthHistogram.length;
+        while (length > 0 && depthHistogram[length - 1] == 0) {
+            length--;
+        }
+        depthHistogram = Arrays.copyOf(depthHistogram, length);
+    }
+
+    /**
+     * term的数量.
+     *
+     * @return term的数量
+     */
+    public int getTermCount() {
+        return termCount;
+    }
+
+    /**
+     * double array中被使用的节点的数量,包括root.
+     *
+     * @return 节点数量
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * double array中被使用的部分的长度,即最后一个被使用的节点的下标加1.
+     *
+     * @return 长度
+     */
+    public int getDoubleArrayLength() {
+        return doubleArrayLength;
+    }
+
+    /**
+     * double array已经分配的长度,包括扩容之后还没有使用的部分.
+     *
+     * @return 容量
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 填充率,即{@link #getNodeCount()}除以{@link #getDoubleArrayLength()}.
+     * 插入时调整节点,以及删除term都会降低填充率,需要时可以compact.
+     *
+     * @return 0到1之间
+     */
+    public double getFillRatio() {
+        return doubleArrayLength == 0 ? 0 : (double) nodeCount / doubleArrayLength;
+    }
+
+    /**
+     * 一个节点最多的子节点数量.
+     *
+     * @return 子节点数量
+     */
+    public int getMaxChildCount() {
+        return maxChildCount;
+    }
+
+    /**
+     * TAIL数组被使用的部分的长度,{@link FullDoubleArrayTrie}没有TAIL数组,总是0.
+     *
+     * @return 长度
+     */
+    public int getTailLength() {
+        return tailLength;
+    }
+
+    /**
+     * TAIL数组中被清理成garbage的字符数,删除term以及插入时拆分TAIL都会产生garbage.
+     *
+     * @return garbage的数量
+     */
+    public int getTailGarbage() {
+        return tailGarbage;
+    }
+
+    /**
+     * TAIL数组被使用的部分中,不是garbage的比例.没有TAIL数组,或者TAIL数组为空时是1.
+     *
+     * @return 0到1之间
+     */
+    public double getTailUtilization() {
+        return tailLength == 0 ? 1 : (double) (tailLength - tailGarbage) / tailLength;
+    }
+
+    /**
+     * x_check被调用的次数,即为节点寻找base值的次数.
+     *
+     * @return 调用次数
+     */
+    public long getXCheckCount() {
+        return xCheckCount;
+    }
+
+    /**
+     * x_check总共尝试过的q值的数量.
+     *
+     * @return 尝试次数
+     */
+    public long getXCheckProbeCount() {
+        return xCheckProbeCount;
+    }
+
+    /**
+     * 平均每次x_check需要尝试的q值的数量,越接近1说明寻找base值越快.
+     *
+     * @return 平均尝试次数
+     */
+    public double getAverageXCheckProbes() {
+        return xCheckCount == 0 ? 0 : (double) xCheckProbeCount / xCheckCount;
+    }
+
+    /**
+     * 插入时,因为冲突而调整节点(即论文中的case 4)的次数.
+     *
+     * @return 调整次数
+     */
+    public long getRelocationCount() {
+        return relocationCount;
+    }
+
+    /**
+     * 大致的内存使用量,以b为单位.
+     *
+     * @return 字节数
+     */
+    public long getRamUsedB() {
+        return ramUsedB;
+    }
+
+    /**
+     * 查找深度的直方图,下标是从root到达term经过的arc数量(包括separator),值是term的数量.
+     * {@link DoubleArrayTrie}中,到达叶子节点之后剩余的字符在TAIL数组中对比,不计入深度.
+     *
+     * @return 直方图的副本
+     */
+    public int[] getDepthHistogram() {
+        return depthHistogram.clone();
+    }
+
+    /**
+     * 最大的查找深度.
+     *
+     * @return 最大深度, 没有term时是0
+     */
+    public int getMaxDepth() {
+        return Math.max(depthHistogram.length - 1, 0);
+    }
+
+    /**
+     * 平均的查找深度.
+     *
+     * @return 平均深度, 没有term时是0
+     */
+    public double getAverageDepth() {
+        if (termCount == 0) {
+            return 0;
+        }
+        long total = 0;
+        for (int depth = 0; depth < depthHistogram.length; depth++) {
+            total += (long) depth * depthHistogram[depth];
+        }
+        return (double) total / termCount;
+    }
+
+    @Override
+    public String toString() {
+        return "termCount:" + termCount
+                + ",nodeCount:" + nodeCount
+                + ",doubleArrayLength:" + doubleArrayLength
+                + ",capacity:" + capacity
+                + ",fillRatio:" + getFillRatio()
+                + ",maxChildCount:" + maxChildCount
+                + "\ntailLength:" + tailLength
+                + ",tailGarbage:" + tailGarbage
+                + ",tailUtilization:" + getTailUtilization()
+                + "\nxCheckCount:" + xCheckCount
+                + ",xCheckProbeCount:" + xCheckProbeCount
+                + ",averageXCheckProbes:" + getAverageXCheckProbes()
+                + ",relocationCount:" + relocationCount
+                + "\nmaxDepth:" + getMaxDepth()
+                + ",averageDepth:" + getAverageDepth()
+                + ",depthHistogram:" + Arrays.toString(depthHistogram)
+                + "\nramUsedB:" + ramUsedB;
+    }
+}
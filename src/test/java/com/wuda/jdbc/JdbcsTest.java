@@ -0,0 +1,93 @@
+package com.wuda.jdbc;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class JdbcsTest {
+
+    @Test
+    public void queryReturnsEveryRow() {
+        // 最后一批不满splitSize(128)时,不能出现null
+        for (int rows : new int[]{0, 1, 127, 128, 129, 1000}) {
+            try (Stream<Long> stream = Jdbcs.query(dataSource(rows), "select id from synthetic", resultSet -> {
+                try {
+                    return resultSet.getLong(1);
+                } catch (SQLException e) {
+                    throw new RuntimeException(e);
+                }
+            })) {
+                List<Long> ids = stream.collect(Collectors.toList());
+                Assert.assertEquals(rows, ids.size());
+                Assert.assertFalse(ids.contains(null));
+                Assert.assertEquals(rows, ids.stream().distinct().count());
+                Assert.assertEquals((long) rows * (rows + 1) / 2, ids.stream().mapToLong(Long::longValue).sum());
+            }
+        }
+    }
+
+    @Test
+    public void isSelectStatement() {
+        Assert.assertTrue(Jdbcs.isSelectStatement(" SELECT id from t"));
+        Assert.assertFalse(Jdbcs.isSelectStatement("select"));
+        Assert.assertFalse(Jdbcs.isSelectStatement("delete from t"));
+    }
+
+    /**
+     * 每次查询都返回<i>rows</i>条记录的数据源,第i条记录的第1列是i.
+     */
+    private static DataSource dataSource(int rows) {
+        return proxy(DataSource.class, (proxy, method, args) -> {
+            if (!method.getName().equals("getConnection")) {
+                throw new UnsupportedOperationException(method.getName());
+            }
+            return proxy(Connection.class, (connection, connectionMethod, connectionArgs) -> {
+                if (connectionMethod.getName().equals("createStatement")) {
+                    return statement(rows);
+                }
+                return null;
+            });
+        });
+    }
+
+    private static Statement statement(int rows) {
+        return proxy(Statement.class, (proxy, method, args) -> {
+            if (method.getName().equals("executeQuery")) {
+                return resultSet(rows);
+            }
+            return null;
+        });
+    }
+
+    private static ResultSet resultSet(int rows) {
+        AtomicInteger row = new AtomicInteger();
+        return proxy(ResultSet.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "next":
+                    return row.incrementAndGet() <= rows;
+                case "getLong":
+                    return (long) row.get();
+                case "close":
+                    return null;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(JdbcsTest.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+}
@@ -0,0 +1,90 @@
+package com.wuda.lang;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class AtomicIntArrayTest {
+
+    @Test
+    public void operations() {
+        AtomicIntArray array = new AtomicIntArray(new int[]{1, 2, 3});
+        Assert.assertEquals(3, array.length());
+        Assert.assertEquals(2, array.incrementAndGet(0));
+        Assert.assertEquals(1, array.decrementAndGet(1));
+        Assert.assertEquals(13, array.addAndGet(2, 10));
+        Assert.assertEquals(13, array.getAndAdd(2, 1));
+        Assert.assertFalse(array.compareAndSet(2, 13, 0));
+        Assert.assertTrue(array.compareAndSet(2, 14, 0));
+        Assert.assertEquals(2, array.getAndSet(0, 5));
+        array.set(1, 7);
+        Assert.assertArrayEquals(new int[]{5, 7, 0}, array.toIntArray());
+        Assert.assertEquals("[5, 7, 0]", array.toString());
+    }
+
+    @Test
+    public void concurrentCounting() throws Exception {
+        AtomicIntArray atomic = new AtomicIntArray(64);
+        StripedIntArray striped = new StripedIntArray(64, 4);
+        int threads = 4;
+        int rounds = 100000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                futures.add(executor.submit(() -> {
+                    for (int round = 0; round < rounds; round++) {
+                        // 大部分更新集中在少数几个热点下标
+                        int index = round % 10 < 8 ? round % 3 : round % 64;
+                        atomic.incrementAndGet(index);
+                        striped.increment(index);
+                        if (round % 100 == 0) {
+                            int value;
+                            do {
+                                value = atomic.get(63);
+                            } while (!atomic.compareAndSet(63, value, value + 2));
+                            striped.add(63, 2);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        int[] expected = atomic.toIntArray();
+        Assert.assertArrayEquals(expected, striped.toIntArray());
+        long total = 0;
+        for (int index = 0; index < expected.length; index++) {
+            Assert.assertEquals(expected[index], striped.get(index));
+            total += expected[index];
+        }
+        Assert.assertEquals((long) threads * rounds + threads * (rounds / 100) * 2, total);
+        Assert.assertEquals(total, striped.sum());
+    }
+
+    @Test
+    public void striped() {
+        Assert.assertEquals(1, new StripedIntArray(10, 1).stripes());
+        Assert.assertEquals(8, new StripedIntArray(10, 5).stripes());
+        StripedIntArray array = new StripedIntArray(3, 2);
+        array.add(2, 5);
+        array.increment(0);
+        Assert.assertEquals("[1, 0, 5]", array.toString());
+        array.reset();
+        Assert.assertEquals(0, array.sum());
+        try {
+            array.increment(3);
+            Assert.fail();
+        } catch (IndexOutOfBoundsException expected) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.wuda.lang;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+public class CharArrayListTest {
+
+    @Test
+    public void operations() {
+        CharArrayList list = new CharArrayList(2);
+        list.addAll("中国人");
+        list.addAll(new char[]{'x', '民', 'y'}, 1, 1);
+        Assert.assertEquals("中国人民", new String(list.toCharArray()));
+        Assert.assertEquals(Arrays.asList('中', '国', '人', '民'), list);
+        list.insertChar(0, 'a');
+        Assert.assertEquals('中', list.removeChar(1));
+        Assert.assertEquals(3, list.indexOfChar('民'));
+        list.sort();
+        Assert.assertEquals(0, list.binarySearch('a'));
+        Assert.assertEquals("a人国民", list.chars().mapToObj(c -> String.valueOf((char) c)).collect(Collectors.joining()));
+        Assert.assertEquals(Character.valueOf('a'), list.iterator().next());
+    }
+}
@@ -0,0 +1,160 @@
+package com.wuda.lang;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeSet;
+
+public class CompressedIntSequenceTest {
+
+    /**
+     * 严格递增的随机值,平均间隔是<i>gap</i>.
+     */
+    private static int[] sorted(Random random, int size, int gap, int start) {
+        int[] values = new int[size];
+        long value = start;
+        for (int index = 0; index < size; index++) {
+            value += 1 + random.nextInt(gap * 2);
+            values[index] = (int) value;
+        }
+        return values;
+    }
+
+    @Test
+    public void decode() {
+        Random random = new Random(5);
+        for (int size : new int[]{0, 1, 2, 127, 128, 129, 1000, 5000}) {
+            for (int gap : new int[]{1, 7, 100, 100000}) {
+                int[] values = sorted(random, size, gap, -size * gap);
+                CompressedIntSequence sequence = CompressedIntSequence.of(values);
+                Assert.assertEquals(size, sequence.size());
+                Assert.assertArrayEquals(values, sequence.toIntArray());
+                CompressedIntSequence.Cursor cursor = sequence.cursor();
+                for (int index = 0; index < size; index++) {
+                    Assert.assertTrue(cursor.advance());
+                    Assert.assertEquals(index, cursor.index());
+                    Assert.assertEquals(values[index], cursor.value());
+                    Assert.assertEquals(values[index], sequence.get(index));
+                }
+                Assert.assertFalse(cursor.advance());
+                Assert.assertFalse(cursor.advance());
+                cursor.reset();
+                Assert.assertEquals(size > 0, cursor.advance());
+            }
+        }
+    }
+
+    @Test
+    public void extremeValues() {
+        int[] values = {Integer.MIN_VALUE, -1, 0, 1, Integer.MAX_VALUE - 1, Integer.MAX_VALUE};
+        CompressedIntSequence sequence = CompressedIntSequence.of(values);
+        Assert.assertArrayEquals(values, sequence.toIntArray());
+        Assert.assertTrue(sequence.contains(Integer.MIN_VALUE));
+        Assert.assertTrue(sequence.contains(Integer.MAX_VALUE));
+        Assert.assertFalse(sequence.contains(2));
+    }
+
+    @Test
+    public void dense() {
+        int[] values = new int[1000];
+        for (int index = 0; index < values.length; index++) {
+            values[index] = index + 10;
+        }
+        CompressedIntSequence sequence = CompressedIntSequence.of(new IntArrayList(values));
+        Assert.assertArrayEquals(values, sequence.toIntArray());
+        // 连续的值不需要保存差,只有每个块的元数据
+        Assert.assertTrue(sequence.ramUsedB() < 100);
+    }
+
+    @Test
+    public void smallerThanIntArray() {
+        int[] values = sorted(new Random(9), 100000, 50, 0);
+        CompressedIntSequence sequence = CompressedIntSequence.of(values);
+        Assert.assertTrue(sequence.toString(), sequence.bitsPerValue() < 32 / 3.0);
+    }
+
+    @Test
+    public void advance() {
+        Random random = new Random(7);
+        int[] values = sorted(random, 3000, 20, -1000);
+        CompressedIntSequence sequence = CompressedIntSequence.of(values);
+        for (int round = 0; round < 200; round++) {
+            CompressedIntSequence.Cursor cursor = sequence.cursor();
+            int target = values[0] - 10;
+            while (true) {
+                target += random.nextInt(round % 2 == 0 ? 50 : 5000);
+                int position = Arrays.binarySearch(values, target);
+                int expected = position >= 0 ? position : -position - 1;
+                expected = Math.max(expected, cursor.index());
+                if (expected >= values.length) {
+                    Assert.assertFalse(cursor.advance(target));
+                    Assert.assertEquals(values.length, cursor.index());
+                    break;
+                }
+                Assert.assertTrue(cursor.advance(target));
+                Assert.assertEquals(expected, cursor.index());
+                Assert.assertEquals(values[expected], cursor.value());
+                if (random.nextBoolean() && cursor.advance()) {
+                    Assert.assertEquals(values[expected + 1], cursor.value());
+                }
+            }
+        }
+        // 当前值已经大于等于target时不移动
+        CompressedIntSequence.Cursor cursor = sequence.cursor();
+        Assert.assertTrue(cursor.advance(values[500]));
+        Assert.assertTrue(cursor.advance(values[10]));
+        Assert.assertEquals(500, cursor.index());
+    }
+
+    @Test
+    public void intersection() {
+        Random random = new Random(11);
+        for (int round = 0; round < 50; round++) {
+            int[] one = sorted(random, random.nextInt(2000), 1 + random.nextInt(10), 0);
+            int[] another = sorted(random, random.nextInt(20000), 1 + random.nextInt(3), 0);
+            TreeSet<Integer> expected = new TreeSet<>();
+            Arrays.stream(one).forEach(expected::add);
+            expected.retainAll(new TreeSet<Integer>() {{
+                Arrays.stream(another).forEach(this::add);
+            }});
+            int[] result = CompressedIntSequence.intersection(CompressedIntSequence.of(one),
+                    CompressedIntSequence.of(another));
+            Assert.assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), result);
+            Assert.assertArrayEquals(result, CompressedIntSequence.intersection(CompressedIntSequence.of(another),
+                    CompressedIntSequence.of(one)));
+        }
+        Assert.assertEquals(0, CompressedIntSequence.intersection(CompressedIntSequence.of(new int[0]),
+                CompressedIntSequence.of(new int[]{1, 2})).length);
+    }
+
+    @Test
+    public void empty() {
+        CompressedIntSequence empty = CompressedIntSequence.of(new int[0]);
+        Assert.assertTrue(empty.isEmpty());
+        Assert.assertFalse(empty.contains(0));
+        Assert.assertEquals(0, empty.toIntArray().length);
+        CompressedIntSequence.Cursor cursor = empty.cursor();
+        Assert.assertFalse(cursor.advance(Integer.MIN_VALUE));
+        Assert.assertEquals(0, cursor.index());
+        Assert.assertFalse(cursor.advance());
+        cursor.reset();
+        Assert.assertFalse(cursor.advance());
+        CompressedIntSequence other = CompressedIntSequence.of(new int[]{1, 2, 3});
+        Assert.assertEquals(0, CompressedIntSequence.intersection(other, empty).length);
+        Assert.assertEquals(0, CompressedIntSequence.intersection(empty, other).length);
+        Assert.assertEquals(0, CompressedIntSequence.intersection(empty, empty).length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void notIncreasing() {
+        CompressedIntSequence.of(new int[]{1, 2, 2});
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void valueBeforeAdvance() {
+        CompressedIntSequence.of(new int[]{1}).cursor().value();
+    }
+}
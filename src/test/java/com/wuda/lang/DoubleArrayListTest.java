@@ -0,0 +1,26 @@
+package com.wuda.lang;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class DoubleArrayListTest {
+
+    @Test
+    public void operations() {
+        DoubleArrayList list = new DoubleArrayList(new double[]{2.5, Double.NaN, 0.0, -0.0});
+        Assert.assertEquals(1, list.indexOfDouble(Double.NaN));
+        Assert.assertEquals(2, list.indexOfDouble(0.0));
+        Assert.assertEquals(3, list.indexOfDouble(-0.0));
+        Assert.assertEquals(Arrays.asList(2.5, Double.NaN, 0.0, -0.0), list);
+        list.sort();
+        Assert.assertEquals(Arrays.asList(-0.0, 0.0, 2.5, Double.NaN), list);
+        Assert.assertEquals(2, list.binarySearch(2.5));
+        list.addDouble(1.5);
+        Assert.assertEquals(4.0, list.doubleStream().filter(value -> !Double.isNaN(value)).sum(), 0);
+        Assert.assertEquals(1.5, list.removeDouble(4), 0);
+        Assert.assertEquals(new DoubleArrayList(list.toDoubleArray()), list);
+        Assert.assertEquals(list.hashCode(), new java.util.ArrayList<>(list).hashCode());
+    }
+}
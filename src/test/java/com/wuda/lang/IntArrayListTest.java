@@ -0,0 +1,120 @@
+package com.wuda.lang;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+
+public class IntArrayListTest {
+
+    @Test
+    public void sameAsArrayList() {
+        IntArrayList list = new IntArrayList(0);
+        List<Integer> expected = new ArrayList<>();
+        Assert.assertTrue(list.isEmpty());
+        Random random = new Random(1);
+        for (int round = 0; round < 20000; round++) {
+            int value = random.nextInt(100);
+            switch (random.nextInt(5)) {
+                case 0:
+                case 1:
+                    list.addInt(value);
+                    expected.add(value);
+                    break;
+                case 2:
+                    int index = random.nextInt(expected.size() + 1);
+                    list.insertInt(index, value);
+                    expected.add(index, value);
+                    break;
+                case 3:
+                    if (!expected.isEmpty()) {
+                        index = random.nextInt(expected.size());
+                        Assert.assertEquals((int) expected.remove(index), list.removeInt(index));
+                    }
+                    break;
+                default:
+                    if (!expected.isEmpty()) {
+                        index = random.nextInt(expected.size());
+                        Assert.assertEquals((int) expected.set(index, value), list.setInt(index, value));
+                    }
+            }
+            Assert.assertEquals(expected.size(), list.size());
+        }
+        Assert.assertFalse(list.isEmpty());
+        Assert.assertEquals(expected, list);
+        Assert.assertEquals(list, expected);
+        Assert.assertEquals(expected.hashCode(), list.hashCode());
+        for (int value = 0; value < 100; value++) {
+            Assert.assertEquals(expected.indexOf(value), list.indexOfInt(value));
+            Assert.assertEquals(expected.lastIndexOf(value), list.lastIndexOfInt(value));
+            Assert.assertEquals(expected.contains(value), list.containsInt(value));
+        }
+        Assert.assertEquals(expected.stream().mapToInt(Integer::intValue).sum(), list.intStream().sum());
+
+        list.sort();
+        Collections.sort(expected);
+        Assert.assertEquals(expected, list);
+        for (int value = -1; value <= 100; value++) {
+            int index = list.binarySearch(value);
+            Assert.assertEquals(expected.contains(value), index >= 0);
+            if (index >= 0) {
+                Assert.assertEquals(value, list.getInt(index));
+            }
+        }
+        Assert.assertEquals(new IntArrayList(list.toIntArray()), list);
+    }
+
+    @Test
+    public void bulkAndIterator() {
+        IntArrayList list = new IntArrayList();
+        list.addAll(new int[]{1, 2, 3, 4, 5});
+        list.addAll(new int[]{9, 6, 7, 9}, 1, 2);
+        Assert.assertArrayEquals(new int[]{1, 2, 3, 4, 5, 6, 7}, list.toIntArray());
+        list.trimToSize();
+        list.add(8);
+        Assert.assertEquals(Integer.valueOf(8), list.get(7));
+
+        PrimitiveIterator.OfInt iterator = list.intIterator();
+        int sum = 0;
+        while (iterator.hasNext()) {
+            int value = iterator.nextInt();
+            sum += value;
+            if (value % 2 == 0) {
+                iterator.remove();
+            }
+        }
+        Assert.assertEquals(36, sum);
+        Assert.assertEquals(Arrays.asList(1, 3, 5, 7), list);
+        list.subList(1, 3).clear();
+        Assert.assertEquals(Arrays.asList(1, 7), list);
+        Assert.assertTrue(list.contains(7));
+        Assert.assertFalse(list.contains(7L));
+
+        Iterator<Integer> failFast = list.iterator();
+        failFast.next();
+        list.addInt(10);
+        try {
+            failFast.next();
+            Assert.fail();
+        } catch (ConcurrentModificationException expected) {
+            // expected
+        }
+        list.clear();
+        Assert.assertTrue(list.isEmpty());
+        Assert.assertEquals(0, list.toIntArray().length);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void indexOutOfBounds() {
+        IntArrayList list = new IntArrayList(8);
+        list.addInt(1);
+        list.getInt(1);
+    }
+}
@@ -0,0 +1,115 @@
+package com.wuda.lang;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class IntArrayTest {
+
+    @Test
+    public void sameAsHeap() {
+        IntArray heap = new IntArray(3);
+        IntArray direct = new DirectIntArray(3);
+        IntArray big = new BigIntArray(3);
+        Random random = new Random(1);
+        for (int round = 0; round < 10000; round++) {
+            int index = random.nextInt(2000);
+            if (index >= heap.length()) {
+                Assert.assertEquals(heap.grow(index + 1), direct.grow(index + 1));
+                Assert.assertEquals(heap.length(), big.grow(index + 1));
+            }
+            int value = random.nextInt();
+            heap.set(index, value);
+            direct.set(index, value);
+            big.set(index, value);
+        }
+        Assert.assertEquals(heap.length(), direct.length());
+        Assert.assertEquals(heap.length(), big.length());
+        for (int index = 0; index < heap.length(); index++) {
+            Assert.assertEquals(heap.get(index), direct.get(index));
+            Assert.assertEquals(heap.get(index), big.get(index));
+        }
+
+        int[] expected = new int[100];
+        int[] actual = new int[100];
+        heap.get(500, expected, 0, 100);
+        direct.get(500, actual, 0, 100);
+        Assert.assertArrayEquals(expected, actual);
+        direct.set(0, expected, 10, 90);
+        Assert.assertEquals(heap.get(510), direct.get(0));
+        Assert.assertEquals(heap.get(599), direct.get(89));
+    }
+
+    @Test
+    public void copy() {
+        for (IntArray array : new IntArray[]{new IntArray(4), new DirectIntArray(4), new BigIntArray(4)}) {
+            array.set(3, 7);
+            IntArray copy = array.copy();
+            Assert.assertSame(array.getClass(), copy.getClass());
+            copy.set(3, 8);
+            Assert.assertEquals(7, array.get(3));
+            Assert.assertEquals(8, copy.get(3));
+        }
+    }
+
+    @Test
+    public void outOfBounds() {
+        for (IntArray array : new IntArray[]{new IntArray(4), new DirectIntArray(4), new BigIntArray(4)}) {
+            try {
+                array.get(4);
+                Assert.fail();
+            } catch (IndexOutOfBoundsException expected) {
+                // expected
+            }
+            try {
+                array.set(2, new int[4], 0, 4);
+                Assert.fail();
+            } catch (IndexOutOfBoundsException expected) {
+                // expected
+            }
+        }
+        try {
+            new DirectIntArray(1).getArray();
+            Assert.fail();
+        } catch (UnsupportedOperationException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void bigArrayPages() {
+        BigIntArray array = new BigIntArray(BigIntArray.PAGE_SIZE - 2);
+        int[] values = new int[10];
+        for (int index = 0; index < values.length; index++) {
+            values[index] = index + 1;
+        }
+        Assert.assertEquals(BigIntArray.PAGE_SIZE * 3L, array.grow(BigIntArray.PAGE_SIZE * 3L));
+        // 跨越两个页
+        array.set(BigIntArray.PAGE_SIZE - 5, values, 0, values.length);
+        Assert.assertEquals(1, array.get(BigIntArray.PAGE_SIZE - 5L));
+        Assert.assertEquals(10, array.get(BigIntArray.PAGE_SIZE + 4));
+        int[] actual = new int[values.length];
+        array.get(BigIntArray.PAGE_SIZE - 5, actual, 0, actual.length);
+        Assert.assertArrayEquals(values, actual);
+
+        long last = array.longLength() - 1;
+        array.set(last, 7);
+        BigIntArray copy = array.copy();
+        copy.set(last, 8);
+        Assert.assertEquals(7, array.get(last));
+        Assert.assertEquals(8, copy.get(last));
+        try {
+            array.get(array.longLength());
+            Assert.fail();
+        } catch (IndexOutOfBoundsException expected) {
+            // expected
+        }
+        try {
+            new BigIntArray(1).getArray();
+            Assert.fail();
+        } catch (UnsupportedOperationException expected) {
+            // expected
+        }
+    }
+}
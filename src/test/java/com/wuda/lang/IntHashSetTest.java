@@ -0,0 +1,52 @@
+package com.wuda.lang;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+public class IntHashSetTest {
+
+    @Test
+    public void sameAsHashSet() {
+        IntHashSet set = new IntHashSet(0, 0.6f);
+        Set<Integer> expected = new HashSet<>();
+        Random random = new Random(3);
+        for (int round = 0; round < 100000; round++) {
+            int value = random.nextInt(3000) - 100;
+            switch (random.nextInt(3)) {
+                case 0:
+                    Assert.assertEquals(expected.add(value), set.add(value));
+                    break;
+                case 1:
+                    Assert.assertEquals(expected.remove(value), set.remove(value));
+                    break;
+                default:
+                    Assert.assertEquals(expected.contains(value), set.contains(value));
+            }
+            Assert.assertEquals(expected.size(), set.size());
+        }
+        Set<Integer> iterated = new HashSet<>();
+        IntHashSet.Cursor cursor = set.cursor();
+        while (cursor.advance()) {
+            Assert.assertTrue(iterated.add(cursor.value()));
+        }
+        Assert.assertEquals(expected, iterated);
+        int[] values = set.toArray();
+        Arrays.sort(values);
+        Assert.assertArrayEquals(expected.stream().mapToInt(Integer::intValue).sorted().toArray(), values);
+    }
+
+    @Test
+    public void addAll() {
+        IntHashSet set = new IntHashSet();
+        Assert.assertEquals(3, set.addAll(0, 1, 1, 2));
+        Assert.assertTrue(set.contains(0));
+        set.clear();
+        Assert.assertTrue(set.isEmpty());
+        Assert.assertFalse(set.contains(0));
+    }
+}
@@ -0,0 +1,95 @@
+package com.wuda.lang;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+public class IntIntMapTest {
+
+    @Test
+    public void sameAsHashMap() {
+        for (float loadFactor : new float[]{0.5f, 0.75f, 0.95f}) {
+            IntIntMap map = new IntIntMap(0, loadFactor);
+            Map<Integer, Integer> expected = new HashMap<>();
+            Random random = new Random(1);
+            for (int round = 0; round < 100000; round++) {
+                // key的范围很小,删除和插入会频繁地发生在同一个探测序列中
+                int key = random.nextInt(2000) - 1000;
+                int value = random.nextInt();
+                switch (random.nextInt(4)) {
+                    case 0:
+                        Assert.assertEquals(!expected.containsKey(key), map.put(key, value));
+                        expected.put(key, value);
+                        break;
+                    case 1:
+                        Assert.assertEquals(expected.remove(key) != null, map.remove(key));
+                        break;
+                    case 2:
+                        Assert.assertEquals(expected.merge(key, value, Integer::sum).intValue(), map.addTo(key, value));
+                        break;
+                    default:
+                        Assert.assertEquals(expected.getOrDefault(key, -7).intValue(), map.get(key, -7));
+                        Assert.assertEquals(expected.containsKey(key), map.containsKey(key));
+                }
+                Assert.assertEquals(expected.size(), map.size());
+            }
+            for (int key = -1000; key < 1000; key++) {
+                Assert.assertEquals(expected.getOrDefault(key, -7).intValue(), map.get(key, -7));
+            }
+            Map<Integer, Integer> iterated = new HashMap<>();
+            IntIntMap.Cursor cursor = map.cursor();
+            for (int pass = 0; pass < 2; pass++) {
+                iterated.clear();
+                while (cursor.advance()) {
+                    Assert.assertNull(iterated.put(cursor.key(), cursor.value()));
+                }
+                Assert.assertFalse(cursor.advance());
+                Assert.assertEquals(expected, iterated);
+                cursor.reset();
+            }
+            int[] keys = map.keys();
+            Arrays.sort(keys);
+            Assert.assertArrayEquals(expected.keySet().stream().mapToInt(Integer::intValue).sorted().toArray(), keys);
+        }
+    }
+
+    @Test
+    public void zeroKeyAndCursor() {
+        IntIntMap map = new IntIntMap();
+        Assert.assertTrue(map.isEmpty());
+        Assert.assertEquals(-1, map.get(0, -1));
+        Assert.assertTrue(map.put(0, 5));
+        Assert.assertFalse(map.put(0, 6));
+        map.put(1, 1);
+        Assert.assertEquals(6, map.get(0, -1));
+        Assert.assertEquals(2, map.size());
+        IntIntMap.Cursor cursor = map.cursor();
+        while (cursor.advance()) {
+            cursor.setValue(cursor.value() * 10);
+        }
+        Assert.assertEquals(60, map.get(0, -1));
+        Assert.assertEquals(10, map.get(1, -1));
+        Assert.assertEquals("{1=10, 0=60}", map.toString());
+        try {
+            cursor.key();
+            Assert.fail();
+        } catch (NoSuchElementException expected) {
+            // expected
+        }
+        Assert.assertTrue(map.remove(0));
+        Assert.assertFalse(map.containsKey(0));
+        map.clear();
+        Assert.assertTrue(map.isEmpty());
+        Assert.assertEquals(3, map.addTo(7, 3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void illegalLoadFactor() {
+        new IntIntMap(16, 1f);
+    }
+}
@@ -0,0 +1,29 @@
+package com.wuda.lang;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+
+public class LongArrayListTest {
+
+    @Test
+    public void operations() {
+        LongArrayList list = new LongArrayList(1);
+        list.addAll(new long[]{5L << 40, 3, 1L << 33});
+        list.insertLong(0, -1);
+        Assert.assertEquals(Arrays.asList(-1L, 5L << 40, 3L, 1L << 33), list);
+        Assert.assertEquals(3, list.setLong(2, 4));
+        Assert.assertEquals(5L << 40, list.removeLong(1));
+        list.sort();
+        Assert.assertArrayEquals(new long[]{-1, 4, 1L << 33}, list.toLongArray());
+        Assert.assertEquals(2, list.binarySearch(1L << 33));
+        Assert.assertTrue(list.binarySearch(5) < 0);
+        Assert.assertEquals((1L << 33) + 3, list.longStream().sum());
+        PrimitiveIterator.OfLong iterator = list.longIterator();
+        Assert.assertEquals(-1, iterator.nextLong());
+        Assert.assertTrue(list.containsLong(4));
+        Assert.assertFalse(list.contains(4));
+    }
+}
@@ -0,0 +1,62 @@
+package com.wuda.lang;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class LongObjectMapTest {
+
+    @Test
+    public void sameAsHashMap() {
+        LongObjectMap<String> map = new LongObjectMap<>(4);
+        Map<Long, String> expected = new HashMap<>();
+        Random random = new Random(2);
+        for (int round = 0; round < 100000; round++) {
+            // 高位不同,低位相同的key
+            long key = (long) random.nextInt(1000) << 40 | random.nextInt(3);
+            String value = Integer.toString(round);
+            switch (random.nextInt(4)) {
+                case 0:
+                    Assert.assertEquals(expected.put(key, value), map.put(key, value));
+                    break;
+                case 1:
+                    Assert.assertEquals(expected.remove(key), map.remove(key));
+                    break;
+                case 2:
+                    Assert.assertEquals(expected.computeIfAbsent(key, k -> value),
+                            map.computeIfAbsent(key, k -> value));
+                    break;
+                default:
+                    Assert.assertEquals(expected.get(key), map.get(key));
+                    Assert.assertEquals(expected.containsKey(key), map.containsKey(key));
+            }
+            Assert.assertEquals(expected.size(), map.size());
+        }
+        Map<Long, String> iterated = new HashMap<>();
+        LongObjectMap<String>.Cursor cursor = map.cursor();
+        while (cursor.advance()) {
+            Assert.assertNull(iterated.put(cursor.key(), cursor.value()));
+        }
+        Assert.assertEquals(expected, iterated);
+        Assert.assertEquals(expected.size(), map.keys().length);
+    }
+
+    @Test
+    public void zeroKey() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+        Assert.assertNull(map.get(0));
+        Assert.assertNull(map.put(0, "zero"));
+        Assert.assertEquals("zero", map.get(0));
+        Assert.assertEquals("{0=zero}", map.toString());
+        Assert.assertEquals("zero", map.remove(0));
+        Assert.assertTrue(map.isEmpty());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void nullValue() {
+        new LongObjectMap<String>().put(1, null);
+    }
+}
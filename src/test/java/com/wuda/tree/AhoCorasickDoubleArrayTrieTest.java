@@ -0,0 +1,44 @@
+package com.wuda.tree;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+public class AhoCorasickDoubleArrayTrieTest {
+
+    @Test
+    public void scan() {
+        List<String> terms = DoubleArrayTrieTest.randomTerms(31, 2000);
+        Set<String> dictionary = new HashSet<>(terms);
+        AhoCorasickDoubleArrayTrie automaton = AhoCorasickDoubleArrayTrie.build(terms);
+        Assert.assertEquals(dictionary.size(), automaton.size());
+        for (String text : DoubleArrayTrieTest.randomTerms(32, 300)) {
+            text = text + text.toUpperCase() + text;
+            Set<String> expected = new TreeSet<>();
+            for (int begin = 0; begin < text.length(); begin++) {
+                for (int end = begin + 1; end <= text.length(); end++) {
+                    String term = text.substring(begin, end).toLowerCase();
+                    if (dictionary.contains(term)) {
+                        expected.add(begin + "-" + end + ":" + term);
+                    }
+                }
+            }
+            Set<String> actual = new TreeSet<>();
+            automaton.scan(text, (begin, end, index) -> actual.add(begin + "-" + end + ":" + automaton.getTerm(index)));
+            Assert.assertEquals(text, expected, actual);
+            Assert.assertEquals(text, !expected.isEmpty(), automaton.matches(text));
+        }
+    }
+
+    @Test
+    public void overlapping() {
+        AhoCorasickDoubleArrayTrie automaton = AhoCorasickDoubleArrayTrie.build(
+                Arrays.asList("he", "she", "his", "hers", "股份有限公司", "有限公司"));
+        List<String> hits = new ArrayList<>();
+        automaton.scan("ushers,某某股份有限公司", (begin, end, index) -> hits.add(automaton.getTerm(index) + "@" + begin));
+        Assert.assertEquals(Arrays.asList("she@1", "he@2", "hers@2", "股份有限公司@9", "有限公司@11"), hits);
+        Assert.assertFalse(automaton.matches("nothing"));
+        Assert.assertFalse(AhoCorasickDoubleArrayTrie.build(Collections.<String>emptyList()).matches("he"));
+    }
+}
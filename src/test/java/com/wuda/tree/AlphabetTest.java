@@ -0,0 +1,74 @@
+package com.wuda.tree;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class AlphabetTest {
+
+    @Test
+    public void rank() {
+        Alphabet alphabet = Alphabet.rank(Arrays.asList("豆豆鞋#", "豆浆机#", "ab#"));
+        Assert.assertEquals(1, alphabet.lookup('#'));
+        Assert.assertEquals(2, alphabet.lookup('豆'));
+        Assert.assertEquals(7, alphabet.size());
+        Assert.assertEquals(7, alphabet.maxCode());
+        Assert.assertEquals(-1, alphabet.lookup('x'));
+        for (int code = 1; code <= alphabet.maxCode(); code++) {
+            Assert.assertEquals(code, alphabet.lookup(alphabet.characterAt(code)));
+        }
+        Assert.assertEquals(8, alphabet.codeOf('x'));
+        Assert.assertEquals(8, alphabet.codeOf('x'));
+
+        Alphabet restored = Alphabet.of(alphabet.characters(), alphabet.codes());
+        Assert.assertEquals(alphabet.size(), restored.size());
+        Assert.assertEquals(alphabet.lookup('鞋'), restored.lookup('鞋'));
+    }
+
+    @Test
+    public void define() {
+        Alphabet alphabet = new Alphabet();
+        alphabet.define('a', 3);
+        alphabet.define('a', 3);
+        Assert.assertTrue(alphabet.isCustom());
+        Assert.assertEquals(4, alphabet.codeOf('b'));
+        try {
+            alphabet.define('c', 3);
+            Assert.fail("code point已经被使用");
+        } catch (RuntimeException expected) {
+            // expected
+        }
+        try {
+            alphabet.define('a', 5);
+            Assert.fail("两次的code point值不一致");
+        } catch (RuntimeException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void supplementary() {
+        String grinning = new String(Character.toChars(0x1F600));
+        String beaming = new String(Character.toChars(0x1F601));
+        Alphabet alphabet = Alphabet.rank(Arrays.asList(grinning + grinning + "a#", beaming + "#"), true);
+        Assert.assertEquals(4, alphabet.size());
+        Assert.assertEquals(1, alphabet.lookup('#'));
+        Assert.assertEquals(2, alphabet.lookup(0x1F600));
+        Assert.assertEquals(4, alphabet.lookup(0x1F601));
+        Assert.assertEquals(-1, alphabet.lookup(grinning.charAt(0)));
+        Assert.assertEquals(0x1F600, alphabet.characterAt(2));
+        // 按照char统计时,surrogate分别编号
+        Assert.assertEquals(5, Alphabet.rank(Arrays.asList(grinning + grinning + "a#", beaming + "#")).size());
+
+        for (int c = 0x20000; c < 0x20100; c++) {
+            Assert.assertEquals(alphabet.size() + 1, alphabet.codeOf(c));
+        }
+        Alphabet restored = Alphabet.of(alphabet.characters(), alphabet.codes());
+        Assert.assertEquals(alphabet.size(), restored.size());
+        for (int code = 1; code <= alphabet.maxCode(); code++) {
+            Assert.assertEquals(code, restored.lookup(alphabet.characterAt(code)));
+        }
+        Assert.assertEquals(-1, restored.lookup(0x20100));
+    }
+}
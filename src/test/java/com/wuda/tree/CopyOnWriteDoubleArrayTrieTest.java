@@ -0,0 +1,95 @@
+package com.wuda.tree;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class CopyOnWriteDoubleArrayTrieTest {
+
+    @Test
+    public void concurrentReadersSeeCompleteSnapshots() throws Exception {
+        List<String> initialTerms = DoubleArrayTrieTest.randomTerms(6, 2000);
+        List<String> addedTerms = DoubleArrayTrieTest.randomTerms(7, 2000);
+        CopyOnWriteDoubleArrayTrie trie = new CopyOnWriteDoubleArrayTrie(
+                DoubleArrayTrie.build(initialTerms), 5, TimeUnit.MILLISECONDS);
+
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+        int readerCount = 4;
+        CountDownLatch finished = new CountDownLatch(readerCount);
+        for (int reader = 0; reader < readerCount; reader++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    while (!stop.get()) {
+                        DoubleArrayTrie snapshot = trie.snapshot();
+                        for (String term : initialTerms) {
+                            if (!snapshot.contains(term)) {
+                                failure.compareAndSet(null, term);
+                            }
+                        }
+                    }
+                } finally {
+                    finished.countDown();
+                }
+            });
+            thread.start();
+        }
+        for (String term : addedTerms) {
+            trie.add(term);
+        }
+        trie.flush();
+        for (String term : addedTerms) {
+            Assert.assertTrue(term, trie.contains(term));
+        }
+        stop.set(true);
+        Assert.assertTrue(finished.await(10, TimeUnit.SECONDS));
+        Assert.assertNull(failure.get());
+        trie.close();
+    }
+
+    @Test
+    public void backgroundPublish() throws Exception {
+        CopyOnWriteDoubleArrayTrie trie = new CopyOnWriteDoubleArrayTrie(new DoubleArrayTrie(), 1, TimeUnit.MILLISECONDS);
+        DoubleArrayTrie before = trie.snapshot();
+        trie.add("豆浆机");
+        Assert.assertFalse(before.contains("豆浆机"));
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!trie.contains("豆浆机") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        Assert.assertTrue(trie.contains("豆浆机"));
+        Assert.assertFalse(before.contains("豆浆机"));
+        trie.close();
+    }
+
+    @Test
+    public void poisonedBatch() throws Exception {
+        CopyOnWriteDoubleArrayTrie trie = new CopyOnWriteDoubleArrayTrie(new DoubleArrayTrie(), 1, TimeUnit.MILLISECONDS);
+        trie.add("ab");
+        trie.add("ab#");
+        trie.add("good");
+        trie.flush();
+        Assert.assertTrue(trie.contains("ab"));
+        Assert.assertTrue(trie.contains("good"));
+        // 后台线程依然在发布
+        trie.add("ab#");
+        trie.add("later");
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!trie.contains("later") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        Assert.assertTrue(trie.contains("later"));
+        trie.close();
+        try {
+            trie.add("closed");
+            Assert.fail();
+        } catch (IllegalStateException expected) {
+            // 关闭之后不能再添加
+        }
+    }
+}
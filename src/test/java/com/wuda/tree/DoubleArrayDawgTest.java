@@ -0,0 +1,93 @@
+package com.wuda.tree;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+public class DoubleArrayDawgTest {
+
+    /**
+     * 类似公司名的词典,大量的term有相同的后缀.
+     */
+    static List<String> companyNames(long seed, int count) {
+        String[] regions = {"北京", "上海", "深圳", "杭州", "武汉", "成都"};
+        String[] suffixes = {"有限公司", "股份有限公司", "科技有限公司", "科技股份有限公司", "集团"};
+        String alphabet = "华中大新海天信达宏盛恒泰安康";
+        Random random = new Random(seed);
+        List<String> names = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            StringBuilder builder = new StringBuilder(regions[random.nextInt(regions.length)]);
+            int length = 2 + random.nextInt(3);
+            for (int j = 0; j < length; j++) {
+                builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            builder.append(suffixes[random.nextInt(suffixes.length)]);
+            names.add(builder.toString());
+        }
+        return names;
+    }
+
+    @Test
+    public void sameAsTrie() {
+        List<String> terms = DoubleArrayTrieTest.randomTerms(31, 3000);
+        DoubleArrayDawg dawg = DoubleArrayDawg.build(terms);
+        DoubleArrayTrie trie = DoubleArrayTrie.build(terms);
+        Assert.assertEquals(new TreeSet<>(terms).size(), dawg.getTermCount());
+        List<String> candidates = new ArrayList<>(terms);
+        candidates.addAll(DoubleArrayTrieTest.randomTerms(32, 3000));
+        int[] expectedLengths = new int[16];
+        int[] lengths = new int[16];
+        for (String candidate : candidates) {
+            Assert.assertEquals(candidate, trie.contains(candidate), dawg.contains(candidate));
+            char[] chars = candidate.toCharArray();
+            Assert.assertEquals(candidate, trie.contains(candidate), dawg.contains(chars, 0, chars.length));
+            int count = trie.commonPrefixSearch(candidate, 0, expectedLengths);
+            Assert.assertEquals(candidate, count, dawg.commonPrefixSearch(candidate, 0, lengths));
+            Assert.assertArrayEquals(candidate, Arrays.copyOf(expectedLengths, count), Arrays.copyOf(lengths, count));
+            Assert.assertEquals(candidate, trie.longestMatch(candidate, 0), dawg.longestMatch(candidate, 0));
+        }
+        for (String prefix : Arrays.asList("", "a", "豆", "ab", "欧莱雅", "不存在")) {
+            Assert.assertEquals(prefix, DoubleArrayTrieTest.toList(trie.prefixIterator(prefix, Integer.MAX_VALUE)),
+                    DoubleArrayTrieTest.toList(dawg.prefixIterator(prefix, Integer.MAX_VALUE)));
+            Assert.assertEquals(prefix, DoubleArrayTrieTest.toList(trie.prefixIterator(prefix, 3)),
+                    DoubleArrayTrieTest.toList(dawg.prefixIterator(prefix, 3)));
+        }
+    }
+
+    @Test
+    public void sharesSuffixes() {
+        List<String> names = companyNames(33, 5000);
+        DoubleArrayDawg dawg = DoubleArrayDawg.build(names);
+        for (String name : names) {
+            Assert.assertTrue(name, dawg.contains(name));
+            Assert.assertFalse(name, dawg.contains(name.substring(0, name.length() - 1)));
+        }
+        Assert.assertTrue(dawg.toString(), dawg.sizeRatio() < 0.5);
+        Assert.assertTrue(dawg.toString(), dawg.ramUsedB() < DoubleArrayTrie.build(names).ramUsedB());
+    }
+
+    @Test
+    public void normalize() {
+        DoubleArrayDawg dawg = DoubleArrayDawg.build(Arrays.asList(" Hello ", "help", "HELP", null, " ", "he"));
+        Assert.assertEquals(3, dawg.getTermCount());
+        Assert.assertTrue(dawg.contains("hello"));
+        Assert.assertTrue(dawg.contains(" HELP"));
+        Assert.assertFalse(dawg.contains("hel"));
+        Assert.assertFalse(dawg.contains(" "));
+        Assert.assertFalse(dawg.contains("he lp", 2, 0));
+        Assert.assertEquals(Arrays.asList("he", "hello", "help"),
+                DoubleArrayTrieTest.toList(dawg.prefixIterator("HE", 10)));
+        Assert.assertEquals(Arrays.asList("He", "Help"), dawg.commonPrefixSearch("Help me", 0));
+
+        DoubleArrayDawg empty = DoubleArrayDawg.build(Collections.<String>emptyList());
+        Assert.assertFalse(empty.contains("a"));
+        Assert.assertEquals(0, empty.longestMatch("abc", 0));
+        Assert.assertFalse(empty.prefixIterator("", 10).hasNext());
+    }
+}
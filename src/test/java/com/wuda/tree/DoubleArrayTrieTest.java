@@ -1,9 +1,16 @@
 package com.wuda.tree;
 
+import com.wuda.lang.BigIntArray;
+import com.wuda.lang.DirectIntArray;
+import org.junit.Assert;
+import org.junit.Test;
+
 import java.io.PrintStream;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * double-array trie test.
@@ -102,6 +109,611 @@ public class DoubleArrayTrieTest {
         return doubleArrayTrie.contains(term);
     }
 
+    /**
+     * 生成随机的term,包含大量互为前缀的term.
+     *
+     * @param seed
+     *         随机数种子
+     * @param count
+     *         term数量
+     * @return terms
+     */
+    static List<String> randomTerms(long seed, int count) {
+        String alphabet = "abcdefgh豆鞋浆机欧莱雅";
+        Random random = new Random(seed);
+        List<String> terms = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int length = 1 + random.nextInt(8);
+            StringBuilder builder = new StringBuilder(length);
+            for (int j = 0; j < length; j++) {
+                builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            terms.add(builder.toString());
+        }
+        return terms;
+    }
+
+    /**
+     * 随机生成包含补充平面字符(emoji,CJK扩展B区的汉字)的term.
+     *
+     * @param seed
+     *         随机数种子
+     * @param count
+     *         term数量
+     * @return terms
+     */
+    static List<String> supplementaryTerms(long seed, int count) {
+        int[] alphabet = "ab豆\uD83D\uDE00\uD83D\uDE01\uD83D\uDE02\uD840\uDC00\uD840\uDC01".codePoints().toArray();
+        Random random = new Random(seed);
+        List<String> terms = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int length = 1 + random.nextInt(6);
+            StringBuilder builder = new StringBuilder(length * 2);
+            for (int j = 0; j < length; j++) {
+                builder.appendCodePoint(alphabet[random.nextInt(alphabet.length)]);
+            }
+            terms.add(builder.toString());
+        }
+        return terms;
+    }
+
+    private static void assertSameTerms(DoubleArrayTrie trie, Set<String> expected, List<String> candidates) {
+        for (String candidate : candidates) {
+            Assert.assertEquals(candidate, expected.contains(candidate), trie.contains(candidate));
+        }
+    }
+
+    @Test
+    public void addAndContains() {
+        List<String> terms = randomTerms(1, 3000);
+        DoubleArrayTrie trie = new DoubleArrayTrie();
+        for (String term : terms) {
+            trie.add(term);
+        }
+        assertSameTerms(trie, new HashSet<>(terms), randomTerms(2, 3000));
+        for (String term : terms) {
+            Assert.assertTrue(term, trie.contains(term));
+        }
+    }
+
+    @Test
+    public void build() {
+        List<String> terms = randomTerms(3, 3000);
+        DoubleArrayTrie built = DoubleArrayTrie.build(terms);
+        Set<String> expected = new HashSet<>(terms);
+        for (String term : terms) {
+            Assert.assertTrue(term, built.contains(term));
+        }
+        assertSameTerms(built, expected, randomTerms(4, 3000));
+
+        // 构造完成后继续添加
+        List<String> more = randomTerms(5, 1000);
+        for (String term : more) {
+            built.add(term);
+        }
+        expected.addAll(more);
+        assertSameTerms(built, expected, terms);
+        assertSameTerms(built, expected, more);
+        assertSameTerms(built, expected, randomTerms(6, 3000));
+    }
+
+    @Test
+    public void buildSorted() {
+        TreeSet<String> terms = new TreeSet<>(Arrays.asList("the", "then", "there", "a", "ab", "abc", "豆豆鞋", "豆浆"));
+        DoubleArrayTrie trie = DoubleArrayTrie.build(terms.iterator());
+        for (String term : terms) {
+            Assert.assertTrue(term, trie.contains(term));
+        }
+        Assert.assertFalse(trie.contains("th"));
+        Assert.assertFalse(trie.contains("豆"));
+        Assert.assertFalse(DoubleArrayTrie.build(Collections.<String>emptyList()).contains("a"));
+    }
+
+    /**
+     * 由a到z循环组成的很长的term,用于检查没有按照trie的深度递归.
+     */
+    static String longTerm(int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int index = 0; index < length; index++) {
+            builder.append((char) ('a' + index % 26));
+        }
+        return builder.toString();
+    }
+
+    @Test
+    public void buildLongSharedPrefix() {
+        String prefix = longTerm(20000);
+        DoubleArrayTrie trie = DoubleArrayTrie.build(Arrays.asList(prefix + "x", prefix + "y", "b"));
+        Assert.assertTrue(trie.contains(prefix + "x"));
+        Assert.assertTrue(trie.contains(prefix + "y"));
+        Assert.assertTrue(trie.contains("b"));
+        Assert.assertFalse(trie.contains(prefix));
+    }
+
+    @Test
+    public void removeAndCompact() {
+        List<String> terms = randomTerms(31, 3000);
+        DoubleArrayTrie added = new DoubleArrayTrie();
+        for (String term : terms) {
+            added.add(term);
+        }
+        for (DoubleArrayTrie trie : new DoubleArrayTrie[]{added, DoubleArrayTrie.build(terms)}) {
+            Set<String> expected = new HashSet<>(terms);
+            Random random = new Random(32);
+            for (String term : terms) {
+                if (random.nextInt(3) > 0) {
+                    Assert.assertEquals(term, expected.remove(term), trie.remove(term));
+                    Assert.assertFalse(term, trie.contains(term));
+                }
+            }
+            Assert.assertFalse(trie.remove("不存在的term"));
+            assertSameTerms(trie, expected, terms);
+
+            // 删除之后继续添加
+            List<String> more = randomTerms(33, 500);
+            for (String term : more) {
+                trie.add(term);
+            }
+            expected.addAll(more);
+            assertSameTerms(trie, expected, terms);
+            assertSameTerms(trie, expected, more);
+            Assert.assertEquals(new ArrayList<>(new TreeSet<>(expected)), toList(trie.prefixIterator("", Integer.MAX_VALUE)));
+
+            Assert.assertTrue(trie.compact(0));
+            assertSameTerms(trie, expected, terms);
+            assertSameTerms(trie, expected, more);
+            Assert.assertFalse(trie.compact(1));
+        }
+    }
+
+    @Test
+    public void compactLongTerm() {
+        String term = longTerm(20000);
+        DoubleArrayTrie trie = new DoubleArrayTrie();
+        trie.add(term);
+        trie.add(term + "x");
+        trie.add("b");
+        trie.remove("b");
+        trie.compact();
+        Assert.assertTrue(trie.contains(term));
+        Assert.assertTrue(trie.contains(term + "x"));
+        Assert.assertFalse(trie.contains("b"));
+    }
+
+    @Test
+    public void directArrays() {
+        List<String> terms = randomTerms(35, 3000);
+        DoubleArrayTrie added = new DoubleArrayTrie(8, DirectIntArray::new);
+        for (String term : terms) {
+            added.add(term);
+        }
+        for (DoubleArrayTrie trie : new DoubleArrayTrie[]{added, DoubleArrayTrie.build(terms, DirectIntArray::new)}) {
+            Set<String> expected = new HashSet<>(terms);
+            assertSameTerms(trie, expected, randomTerms(36, 3000));
+            DoubleArrayTrie copy = trie.copy();
+            for (String term : terms.subList(0, 1000)) {
+                trie.remove(term);
+                expected.remove(term);
+            }
+            trie.compact();
+            assertSameTerms(trie, expected, terms);
+            assertSameTerms(copy, new HashSet<>(terms), terms);
+        }
+    }
+
+    @Test
+    public void freeListReleasedAfterBuild() {
+        List<String> terms = randomTerms(39, 3000);
+        DoubleArrayTrie trie = DoubleArrayTrie.build(terms);
+        long built = trie.ramUsedB();
+        // 第一次插入时才建立空闲节点链表,每个节点9字节
+        trie.add("不存在的词");
+        int length = trie.stats().getDoubleArrayLength();
+        Assert.assertTrue(trie.ramUsedB() - built >= 9L * length);
+        trie.remove(terms.get(0));
+        trie.compact();
+        Assert.assertTrue(trie.ramUsedB() < built + 9L * length);
+        trie.add(terms.get(0));
+        Set<String> expected = new HashSet<>(terms);
+        expected.add("不存在的词");
+        List<String> candidates = new ArrayList<>(expected);
+        candidates.addAll(randomTerms(40, 1000));
+        assertSameTerms(trie, expected, candidates);
+    }
+
+    @Test
+    public void pagedArrays() {
+        // 足够多的term,使double array跨越多个页
+        List<String> terms = randomTerms(37, 20000);
+        AtomicInteger created = new AtomicInteger();
+        DoubleArrayTrie added = new DoubleArrayTrie(8, capacity -> {
+            created.incrementAndGet();
+            return new BigIntArray(capacity);
+        });
+        for (String term : terms) {
+            added.add(term);
+        }
+        // BASE,CHECK,子节点链表和空闲节点链表各自只创建一次,之后扩容都是追加页
+        Assert.assertEquals(7, created.get());
+        Set<String> expected = new HashSet<>(terms);
+        for (DoubleArrayTrie trie : new DoubleArrayTrie[]{added, DoubleArrayTrie.build(terms, BigIntArray::new)}) {
+            Assert.assertTrue(trie.stats().getDoubleArrayLength() > BigIntArray.PAGE_SIZE);
+            assertSameTerms(trie, expected, randomTerms(38, 3000));
+        }
+    }
+
+    @Test
+    public void removePrefix() {
+        DoubleArrayTrie trie = DoubleArrayTrie.build(Arrays.asList("the", "then", "there", "豆豆鞋"));
+        Assert.assertTrue(trie.remove("the"));
+        Assert.assertFalse(trie.contains("the"));
+        Assert.assertTrue(trie.contains("then"));
+        Assert.assertTrue(trie.remove("then"));
+        Assert.assertTrue(trie.contains("there"));
+        Assert.assertTrue(trie.remove("THERE"));
+        Assert.assertFalse(trie.contains("there"));
+        Assert.assertTrue(trie.contains("豆豆鞋"));
+        trie.add("the");
+        Assert.assertTrue(trie.contains("the"));
+        Assert.assertFalse(trie.contains("then"));
+    }
+
+    @Test
+    public void values() {
+        List<String> terms = randomTerms(41, 3000);
+        DoubleArrayTrie trie = DoubleArrayTrie.build(terms.subList(0, 1000));
+        Map<String, Integer> expected = new HashMap<>();
+        for (int index = 0; index < terms.size(); index++) {
+            String term = terms.get(index);
+            trie.add(term, index);
+            expected.put(term, index);
+        }
+        for (String term : terms) {
+            Assert.assertEquals(term, expected.get(term).intValue(), trie.getInt(term, -1));
+        }
+        for (String candidate : randomTerms(42, 3000)) {
+            Assert.assertEquals(candidate, expected.getOrDefault(candidate, -1).intValue(), trie.getInt(candidate, -1));
+        }
+        Random random = new Random(43);
+        for (String term : terms) {
+            if (random.nextBoolean() && expected.remove(term) != null) {
+                Assert.assertTrue(trie.remove(term));
+            }
+        }
+        trie.compact();
+        for (String term : terms) {
+            Assert.assertEquals(term, expected.getOrDefault(term, -1).intValue(), trie.getInt(term, -1));
+        }
+        trie.add("新词");
+        Assert.assertEquals(0, trie.getInt("新词", -1));
+    }
+
+    @Test
+    public void commonPrefixSearch() {
+        List<String> terms = randomTerms(21, 2000);
+        Set<String> expected = new HashSet<>(terms);
+        DoubleArrayTrie added = new DoubleArrayTrie();
+        for (String term : terms) {
+            added.add(term);
+        }
+        DoubleArrayTrie built = DoubleArrayTrie.build(terms);
+        int[] lengths = new int[32];
+        for (String text : randomTerms(22, 500)) {
+            text = text + text.toUpperCase();
+            for (int offset = 0; offset < text.length(); offset++) {
+                List<Integer> expectedLengths = new ArrayList<>();
+                for (int end = offset + 1; end <= text.length(); end++) {
+                    if (expected.contains(text.substring(offset, end).toLowerCase())) {
+                        expectedLengths.add(end - offset);
+                    }
+                }
+                int longest = expectedLengths.isEmpty() ? 0 : expectedLengths.get(expectedLengths.size() - 1);
+                for (DoubleArrayTrie trie : new DoubleArrayTrie[]{added, built}) {
+                    int count = trie.commonPrefixSearch(text, offset, lengths);
+                    Assert.assertEquals(text + "@" + offset, expectedLengths.size(), count);
+                    for (int i = 0; i < count; i++) {
+                        Assert.assertEquals(expectedLengths.get(i).intValue(), lengths[i]);
+                    }
+                    Assert.assertEquals(longest, trie.longestMatch(text, offset));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void commonPrefixSearchStrings() {
+        DoubleArrayTrie trie = DoubleArrayTrie.build(Arrays.asList("中国", "中国人", "中国人民", "人民", "银行"));
+        Assert.assertEquals(Arrays.asList("中国", "中国人", "中国人民"), trie.commonPrefixSearch("中国人民银行", 0));
+        Assert.assertEquals(Collections.singletonList("银行"), trie.commonPrefixSearch("中国人民银行", 4));
+        Assert.assertTrue(trie.commonPrefixSearch("中国人民银行", 1).isEmpty());
+        Assert.assertEquals(4, trie.longestMatch("中国人民银行", 0));
+        Assert.assertEquals(0, trie.longestMatch("中国人民银行", 5));
+        // 缓冲区不够时,返回总数,只写入缓冲区能容纳的部分
+        int[] lengths = new int[1];
+        Assert.assertEquals(3, trie.commonPrefixSearch("中国人民银行", 0, lengths));
+        Assert.assertEquals(2, lengths[0]);
+    }
+
+    @Test
+    public void separatorInText() {
+        DoubleArrayTrie trie = DoubleArrayTrie.build(Arrays.asList("ab", "abc"));
+        Assert.assertEquals(Collections.singletonList("ab"), trie.commonPrefixSearch("ab#x", 0));
+        Assert.assertEquals(2, trie.longestMatch("ab#x", 0));
+        Assert.assertEquals(0, trie.longestMatch("#ab", 0));
+        trie.add("a");
+        Assert.assertEquals(Arrays.asList("a", "ab"), trie.commonPrefixSearch("ab#", 0));
+        Assert.assertEquals(2, trie.longestMatch("ab#", 0));
+    }
+
+    @Test
+    public void containsRange() {
+        List<String> terms = randomTerms(51, 2000);
+        Set<String> added = new HashSet<>(terms.subList(0, 1000));
+        DoubleArrayTrie trie = DoubleArrayTrie.build(added);
+        for (String term : terms) {
+            String text = "中国" + term.toUpperCase() + "人民";
+            char[] chars = text.toCharArray();
+            boolean expected = added.contains(term);
+            Assert.assertEquals(term, expected, trie.contains(text, 2, term.length()));
+            Assert.assertEquals(term, expected, trie.contains(chars, 2, term.length()));
+            if (term.length() > 1) {
+                // 前缀和多一个字符都不能匹配,除非它们本身也是term
+                String prefix = term.substring(0, term.length() - 1);
+                Assert.assertEquals(trie.contains(prefix), trie.contains(chars, 2, term.length() - 1));
+                Assert.assertEquals(trie.contains(term + "人"), trie.contains(text, 2, term.length() + 1));
+            }
+        }
+        DoubleArrayTrie prefixes = DoubleArrayTrie.build(Arrays.asList("the", "then", "豆豆鞋"));
+        Assert.assertTrue(prefixes.contains("xTHEx", 1, 3));
+        Assert.assertFalse(prefixes.contains("xthex", 1, 2));
+        Assert.assertFalse(prefixes.contains("the#", 0, 4));
+        Assert.assertFalse(prefixes.contains("the", 0, 0));
+        // String的contains会trim,范围查找不会
+        Assert.assertTrue(prefixes.contains(" 豆豆鞋 "));
+        Assert.assertFalse(prefixes.contains(" 豆豆鞋 ", 0, 4));
+        try {
+            prefixes.contains("the", 1, 3);
+            Assert.fail();
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void prefixIterator() {
+        List<String> terms = randomTerms(61, 3000);
+        DoubleArrayTrie added = new DoubleArrayTrie();
+        Map<String, Integer> values = new HashMap<>();
+        Random random = new Random(62);
+        for (String term : terms) {
+            int value = random.nextInt(100);
+            added.add(term, value);
+            values.put(term, value);
+        }
+        DoubleArrayTrie built = DoubleArrayTrie.build(terms);
+        for (String term : terms) {
+            built.add(term, values.get(term));
+        }
+        for (DoubleArrayTrie trie : new DoubleArrayTrie[]{added, built}) {
+            for (String prefix : prefixes(terms)) {
+                Assert.assertEquals(prefix, withPrefix(values.keySet(), prefix, Integer.MAX_VALUE),
+                        toList(trie.prefixIterator(prefix, Integer.MAX_VALUE)));
+                Assert.assertEquals(prefix, withPrefix(values.keySet(), prefix, 3),
+                        toList(trie.prefixIterator(prefix.toUpperCase(), 3)));
+                Assert.assertEquals(prefix, topK(values, prefix, 5), trie.topK(prefix, 5));
+            }
+        }
+        Assert.assertFalse(added.prefixIterator("", 0).hasNext());
+        Assert.assertFalse(added.prefixIterator("不存在", 10).hasNext());
+        Assert.assertFalse(new DoubleArrayTrie().prefixIterator("", 10).hasNext());
+    }
+
+    @Test
+    public void fuzzySearch() {
+        List<String> terms = randomTerms(71, 2000);
+        Set<String> expectedTerms = new TreeSet<>(terms);
+        DoubleArrayTrie added = new DoubleArrayTrie();
+        for (String term : terms) {
+            added.add(term);
+        }
+        DoubleArrayTrie built = DoubleArrayTrie.build(terms);
+        List<String> queries = new ArrayList<>(randomTerms(72, 50));
+        queries.addAll(terms.subList(0, 50));
+        queries.add("");
+        for (DoubleArrayTrie trie : new DoubleArrayTrie[]{added, built}) {
+            for (String query : queries) {
+                for (int maxEdits = 0; maxEdits <= 2; maxEdits++) {
+                    List<FuzzyMatch> expected = new ArrayList<>();
+                    for (String term : expectedTerms) {
+                        int distance = levenshtein(query, term);
+                        if (distance <= maxEdits) {
+                            expected.add(new FuzzyMatch(term, distance));
+                        }
+                    }
+                    expected.sort(Comparator.comparingInt(FuzzyMatch::getDistance));
+                    Assert.assertEquals(query + "," + maxEdits, expected, trie.fuzzySearch(" " + query.toUpperCase(), maxEdits));
+                }
+            }
+        }
+        DoubleArrayTrie trie = DoubleArrayTrie.build(Arrays.asList("豆豆鞋", "豆浆机", "欧莱雅"));
+        Assert.assertEquals(Arrays.asList(new FuzzyMatch("豆浆机", 1), new FuzzyMatch("豆豆鞋", 1)),
+                trie.fuzzySearch("豆浆鞋", 1));
+    }
+
+    @Test
+    public void fuzzySearchLongTerm() throws InterruptedException {
+        String term = longTerm(3000);
+        String query = term.substring(0, term.length() - 1) + "0";
+        DoubleArrayTrie trie = DoubleArrayTrie.build(Arrays.asList(term, term + "x", "b"));
+        // 用很小的栈运行,如果每个character递归一次就会栈溢出
+        AtomicReference<Object> result = new AtomicReference<>();
+        Thread thread = new Thread(null, () -> {
+            try {
+                result.set(trie.fuzzySearch(query, 2));
+            } catch (Throwable e) {
+                result.set(e);
+            }
+        }, "fuzzy-search", 128 * 1024);
+        thread.start();
+        thread.join();
+        if (result.get() instanceof Throwable) {
+            throw new AssertionError(result.get());
+        }
+        Assert.assertEquals(Arrays.asList(new FuzzyMatch(term, 1), new FuzzyMatch(term + "x", 2)), result.get());
+    }
+
+    @Test
+    public void supplementaryCodePoints() {
+        List<String> terms = supplementaryTerms(81, 3000);
+        Set<String> expected = new TreeSet<>(terms);
+        DoubleArrayTrie added = new DoubleArrayTrie();
+        for (String term : terms) {
+            added.add(term);
+        }
+        DoubleArrayTrie built = DoubleArrayTrie.build(terms);
+        int[] lengths = new int[16];
+        for (DoubleArrayTrie trie : new DoubleArrayTrie[]{added, built}) {
+            Assert.assertTrue(trie.isCodePointMode());
+            assertSameTerms(trie, expected, supplementaryTerms(82, 3000));
+            for (String term : terms) {
+                Assert.assertTrue(term, trie.contains(term));
+                if (Character.isLowSurrogate(term.charAt(term.length() - 1))) {
+                    // 半个surrogate pair不是term
+                    Assert.assertFalse(term, trie.contains(term.substring(0, term.length() - 1)));
+                }
+                String text = term + "\uD83D\uDE02x";
+                int count = trie.commonPrefixSearch(text, 0, lengths);
+                boolean found = false;
+                for (int index = 0; index < count; index++) {
+                    Assert.assertFalse(text, Character.isHighSurrogate(text.charAt(lengths[index] - 1)));
+                    found |= lengths[index] == term.length();
+                }
+                Assert.assertTrue(text, found);
+                Assert.assertEquals(term, term.length(), trie.longestMatch(term, 0));
+            }
+            Assert.assertEquals(new ArrayList<>(expected), toList(trie.prefixIterator("", Integer.MAX_VALUE)));
+            for (String prefix : Arrays.asList("\uD83D\uDE00", "a\uD840\uDC01", "b")) {
+                Assert.assertEquals(prefix, withPrefix(expected, prefix, Integer.MAX_VALUE),
+                        toList(trie.prefixIterator(prefix, Integer.MAX_VALUE)));
+            }
+            Assert.assertFalse(trie.prefixIterator("\uD83D", 10).hasNext());
+            for (String term : terms.subList(0, 1000)) {
+                trie.remove(term);
+            }
+            trie.compact();
+            for (String term : terms) {
+                Assert.assertEquals(term, !terms.subList(0, 1000).contains(term), trie.contains(term));
+            }
+        }
+
+        // surrogate pair只占用一个arc:root和"😀"两个节点需要寻找base值,而不是三个
+        String grinning = "\uD83D\uDE00";
+        Assert.assertEquals(2, DoubleArrayTrie.build(Arrays.asList(grinning + "a", grinning + "b")).getXCheckCount());
+        DoubleArrayTrie trie = DoubleArrayTrie.build(Arrays.asList(grinning + "abc", "\uD83D\uDE01abc", "\uD840\uDC00"));
+        Assert.assertEquals(Arrays.asList(new FuzzyMatch(grinning + "abc", 1), new FuzzyMatch("\uD83D\uDE01abc", 1)),
+                trie.fuzzySearch("\uD83D\uDE02abc", 1));
+        Assert.assertEquals(Collections.singletonList(new FuzzyMatch("\uD840\uDC00", 1)), trie.fuzzySearch("\uD840\uDC01", 1));
+        // 补充平面的字符也不区分大小写,比如Deseret字母
+        trie.add("\uD801\uDC00bc");
+        Assert.assertTrue(trie.contains("\uD801\uDC28BC"));
+        Assert.assertEquals(Collections.singletonList("\uD801\uDC28bc"), toList(trie.prefixIterator("\uD801\uDC00", 10)));
+    }
+
+    @Test
+    public void stats() {
+        DoubleArrayTrie trie = DoubleArrayTrie.build(Arrays.asList("abc", "abd", "b"));
+        TrieStats stats = trie.stats();
+        Assert.assertEquals(3, stats.getTermCount());
+        Assert.assertEquals(6, stats.getNodeCount());
+        Assert.assertArrayEquals(new int[]{0, 1, 0, 2}, stats.getDepthHistogram());
+        Assert.assertEquals(3, stats.getMaxDepth());
+        Assert.assertEquals(7.0 / 3, stats.getAverageDepth(), 1e-9);
+        Assert.assertEquals(2, stats.getMaxChildCount());
+        Assert.assertEquals(3, stats.getTailLength());
+        Assert.assertEquals(1.0, stats.getTailUtilization(), 1e-9);
+        Assert.assertTrue(stats.toString(), stats.getFillRatio() > 0 && stats.getFillRatio() <= 1);
+        Assert.assertEquals(trie.getXCheckCount(), stats.getXCheckCount());
+        Assert.assertEquals(trie.ramUsedB(), stats.getRamUsedB());
+
+        trie.add("abcde");
+        Assert.assertTrue(trie.remove("b"));
+        stats = trie.stats();
+        Assert.assertEquals(3, stats.getTermCount());
+        Assert.assertTrue(stats.toString(), stats.getTailGarbage() > 0 && stats.getTailUtilization() < 1);
+        trie.compact();
+        Assert.assertEquals(1.0, trie.stats().getTailUtilization(), 1e-9);
+
+        List<String> terms = randomTerms(91, 3000);
+        stats = DoubleArrayTrie.build(terms).stats();
+        Assert.assertEquals(new HashSet<>(terms).size(), stats.getTermCount());
+        Assert.assertEquals(stats.getTermCount(), Arrays.stream(stats.getDepthHistogram()).sum());
+
+        TrieStats empty = new DoubleArrayTrie().stats();
+        Assert.assertEquals(0, empty.getTermCount());
+        Assert.assertEquals(0, empty.getMaxDepth());
+        Assert.assertEquals(0, empty.getAverageDepth(), 1e-9);
+    }
+
+    private static int levenshtein(String one, String another) {
+        int[] previous = new int[another.length() + 1];
+        int[] row = new int[another.length() + 1];
+        for (int j = 0; j < previous.length; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= one.length(); i++) {
+            row[0] = i;
+            for (int j = 1; j <= another.length(); j++) {
+                int replace = previous[j - 1] + (one.charAt(i - 1) == another.charAt(j - 1) ? 0 : 1);
+                row[j] = Math.min(Math.min(previous[j], row[j - 1]) + 1, replace);
+            }
+            int[] swap = previous;
+            previous = row;
+            row = swap;
+        }
+        return previous[another.length()];
+    }
+
+    /**
+     * 用于测试的前缀:空字符串,每个term的前一个、两个字符,term本身,以及term加上一个字符.
+     *
+     * @param terms
+     *         terms
+     * @return 前缀
+     */
+    static Set<String> prefixes(List<String> terms) {
+        Set<String> prefixes = new LinkedHashSet<>();
+        prefixes.add("");
+        for (String term : terms.subList(0, 200)) {
+            prefixes.add(term.substring(0, 1));
+            prefixes.add(term.substring(0, Math.min(2, term.length())));
+            prefixes.add(term);
+            prefixes.add(term + "a");
+        }
+        return prefixes;
+    }
+
+    static List<String> withPrefix(Collection<String> terms, String prefix, int limit) {
+        List<String> expected = new ArrayList<>();
+        for (String term : new TreeSet<>(terms)) {
+            if (term.startsWith(prefix) && expected.size() < limit) {
+                expected.add(term);
+            }
+        }
+        return expected;
+    }
+
+    static List<String> topK(Map<String, Integer> values, String prefix, int k) {
+        List<String> expected = withPrefix(values.keySet(), prefix, Integer.MAX_VALUE);
+        expected.sort((one, another) -> Integer.compare(values.get(another), values.get(one)));
+        return expected.subList(0, Math.min(k, expected.size()));
+    }
+
+    static List<String> toList(Iterator<String> iterator) {
+        List<String> list = new ArrayList<>();
+        iterator.forEachRemaining(list::add);
+        return list;
+    }
+
     public static void main(String[] args) {
         DoubleArrayTrieTest test = new DoubleArrayTrieTest();
         test.setFile("F:/main.dic"); // 词典所在的文件
@@ -0,0 +1,62 @@
+package com.wuda.tree;
+
+import com.wuda.lang.IntArray;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class FreeCellListTest {
+
+    private static List<Integer> cells(FreeCellList list) {
+        List<Integer> cells = new ArrayList<>();
+        for (int cell = list.first(); cell != 0; cell = list.next(cell)) {
+            cells.add(cell);
+        }
+        return cells;
+    }
+
+    @Test
+    public void linkAll() {
+        IntArray check = new IntArray(10);
+        check.set(3, 1);
+        check.set(4, 1);
+        FreeCellList list = new FreeCellList(10, IntArray::new);
+        list.linkAll(check, 1, 1, 10);
+        Assert.assertEquals(Arrays.asList(2, 5, 6, 7, 8, 9), cells(list));
+        list.unlink(6);
+        list.link(3);
+        Assert.assertEquals(Arrays.asList(3, 2, 5, 7, 8, 9), cells(list));
+        Assert.assertFalse(list.contains(6));
+        check.grow(14);
+        list.grow(14);
+        list.linkAll(check, 1, 10, 14);
+        Assert.assertEquals(Arrays.asList(3, 2, 5, 7, 8, 9, 10, 11, 12, 13), cells(list));
+    }
+
+    @Test
+    public void trials() {
+        FreeCellList list = new FreeCellList(8, IntArray::new);
+        list.linkAll(new IntArray(8), 1, 1, 8);
+        // 同一个int中相邻节点的失败次数互不影响
+        for (int trial = 1; trial < FreeCellList.MAX_TRIALS; trial++) {
+            list.fail(4);
+            list.fail(5);
+        }
+        Assert.assertTrue(list.contains(4));
+        list.fail(5);
+        Assert.assertFalse(list.contains(5));
+        Assert.assertTrue(list.contains(4));
+        list.fail(4);
+        Assert.assertFalse(list.contains(4));
+        // 重新加入链表时失败次数清零
+        list.link(4);
+        for (int trial = 1; trial < FreeCellList.MAX_TRIALS; trial++) {
+            list.fail(4);
+        }
+        Assert.assertTrue(list.contains(4));
+        Assert.assertEquals(Arrays.asList(4, 2, 3, 6, 7), cells(list));
+    }
+}
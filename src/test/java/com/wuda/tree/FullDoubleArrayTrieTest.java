@@ -1,7 +1,21 @@
 package com.wuda.tree;
 
+import com.wuda.lang.DirectIntArray;
+import org.junit.Assert;
+import org.junit.Test;
+
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -102,6 +116,265 @@ public class FullDoubleArrayTrieTest {
         return doubleArrayTrie.contains(term);
     }
 
+    @Test
+    public void addAndContains() {
+        List<String> terms = DoubleArrayTrieTest.randomTerms(11, 3000);
+        FullDoubleArrayTrie trie = new FullDoubleArrayTrie();
+        for (String term : terms) {
+            trie.add(term);
+        }
+        Set<String> expected = new HashSet<>(terms);
+        for (String term : terms) {
+            Assert.assertTrue(term, trie.contains(term));
+        }
+        for (String candidate : DoubleArrayTrieTest.randomTerms(12, 3000)) {
+            Assert.assertEquals(candidate, expected.contains(candidate), trie.contains(candidate));
+        }
+        Assert.assertTrue(trie.getXCheckProbeCount() >= trie.getXCheckCount());
+    }
+
+    @Test
+    public void addAfterCompact() {
+        FullDoubleArrayTrie trie = new FullDoubleArrayTrie();
+        for (String term : Arrays.asList("the", "then", "there", "豆豆鞋", "豆浆机")) {
+            trie.add(term);
+        }
+        long added = trie.ramUsedB();
+        trie.remove("then");
+        trie.compact();
+        // compact之后释放空闲节点链表,下一次插入时重新建立
+        Assert.assertTrue(trie.ramUsedB() < added);
+        trie.add("them");
+        trie.add("豆腐");
+        for (String term : Arrays.asList("the", "there", "them", "豆豆鞋", "豆浆机", "豆腐")) {
+            Assert.assertTrue(term, trie.contains(term));
+        }
+        Assert.assertFalse(trie.contains("then"));
+    }
+
+    @Test
+    public void compactLongTerm() {
+        String term = DoubleArrayTrieTest.longTerm(20000);
+        FullDoubleArrayTrie trie = new FullDoubleArrayTrie();
+        trie.add(term);
+        trie.add("b");
+        trie.remove("b");
+        trie.compact();
+        Assert.assertTrue(trie.contains(term));
+        Assert.assertFalse(trie.contains("b"));
+    }
+
+    @Test
+    public void removeAndCompact() {
+        List<String> terms = DoubleArrayTrieTest.randomTerms(13, 3000);
+        FullDoubleArrayTrie trie = new FullDoubleArrayTrie();
+        for (String term : terms) {
+            trie.add(term);
+        }
+        Set<String> expected = new HashSet<>(terms);
+        Random random = new Random(14);
+        for (String term : terms) {
+            if (random.nextInt(3) > 0) {
+                Assert.assertEquals(term, expected.remove(term), trie.remove(term));
+                Assert.assertFalse(term, trie.contains(term));
+            }
+        }
+        Assert.assertFalse(trie.remove("不存在的term"));
+        for (String term : terms) {
+            Assert.assertEquals(term, expected.contains(term), trie.contains(term));
+        }
+        Assert.assertEquals(new ArrayList<>(new TreeSet<>(expected)),
+                DoubleArrayTrieTest.toList(trie.prefixIterator("", Integer.MAX_VALUE)));
+        Assert.assertTrue(trie.compact(0));
+        for (String term : terms) {
+            Assert.assertEquals(term, expected.contains(term), trie.contains(term));
+        }
+        List<String> more = DoubleArrayTrieTest.randomTerms(15, 500);
+        for (String term : more) {
+            trie.add(term);
+            Assert.assertTrue(term, trie.contains(term));
+        }
+    }
+
+    @Test
+    public void prefixIterator() {
+        List<String> terms = DoubleArrayTrieTest.randomTerms(17, 3000);
+        FullDoubleArrayTrie trie = new FullDoubleArrayTrie();
+        Map<String, Integer> values = new HashMap<>();
+        Random random = new Random(18);
+        for (String term : terms) {
+            int value = random.nextInt(100);
+            trie.add(term, value);
+            values.put(term, value);
+        }
+        for (String prefix : DoubleArrayTrieTest.prefixes(terms)) {
+            Assert.assertEquals(prefix, DoubleArrayTrieTest.withPrefix(values.keySet(), prefix, Integer.MAX_VALUE),
+                    DoubleArrayTrieTest.toList(trie.prefixIterator(prefix, Integer.MAX_VALUE)));
+            Assert.assertEquals(prefix, DoubleArrayTrieTest.withPrefix(values.keySet(), prefix, 3),
+                    DoubleArrayTrieTest.toList(trie.prefixIterator(prefix.toUpperCase(), 3)));
+            Assert.assertEquals(prefix, DoubleArrayTrieTest.topK(values, prefix, 5), trie.topK(prefix, 5));
+        }
+        Assert.assertFalse(trie.prefixIterator("不存在", 10).hasNext());
+        Assert.assertFalse(new FullDoubleArrayTrie().prefixIterator("", 10).hasNext());
+    }
+
+    @Test
+    public void buildParallel() {
+        List<String> terms = DoubleArrayTrieTest.randomTerms(21, 40000);
+        terms.add(" Ab ");
+        terms.add(null);
+        terms.add(" ");
+        ForkJoinPool pool = new ForkJoinPool(4);
+        FullDoubleArrayTrie trie;
+        try {
+            trie = FullDoubleArrayTrie.buildParallel(terms, pool);
+        } finally {
+            pool.shutdown();
+        }
+        Set<String> expected = new TreeSet<>();
+        for (String term : terms) {
+            if (term != null && !term.trim().isEmpty()) {
+                expected.add(term.trim().toLowerCase());
+            }
+        }
+        for (String term : expected) {
+            Assert.assertTrue(term, trie.contains(term));
+        }
+        for (String term : DoubleArrayTrieTest.randomTerms(22, 3000)) {
+            Assert.assertEquals(term, expected.contains(term), trie.contains(term));
+        }
+        Assert.assertEquals(new ArrayList<>(expected), DoubleArrayTrieTest.toList(trie.prefixIterator("", Integer.MAX_VALUE)));
+
+        // 合并之后依然可以添加和删除
+        for (String term : DoubleArrayTrieTest.randomTerms(23, 1000)) {
+            trie.add(term, term.length());
+            expected.add(term);
+        }
+        Random random = new Random(24);
+        for (String term : new ArrayList<>(expected)) {
+            if (random.nextInt(3) == 0) {
+                Assert.assertTrue(term, trie.remove(term));
+                expected.remove(term);
+            }
+        }
+        Assert.assertEquals(new ArrayList<>(expected), DoubleArrayTrieTest.toList(trie.prefixIterator("", Integer.MAX_VALUE)));
+        for (String term : DoubleArrayTrieTest.randomTerms(23, 1000)) {
+            Assert.assertEquals(term, expected.contains(term) ? term.length() : -1, trie.getInt(term, -1));
+        }
+    }
+
+    @Test
+    public void directArrays() {
+        List<String> terms = DoubleArrayTrieTest.randomTerms(25, 3000);
+        FullDoubleArrayTrie added = new FullDoubleArrayTrie(8, DirectIntArray::new);
+        for (String term : terms) {
+            added.add(term);
+        }
+        FullDoubleArrayTrie merged = FullDoubleArrayTrie.buildParallel(terms, ForkJoinPool.commonPool(), DirectIntArray::new);
+        Set<String> expected = new TreeSet<>(terms);
+        for (FullDoubleArrayTrie trie : new FullDoubleArrayTrie[]{added, merged}) {
+            Assert.assertEquals(new ArrayList<>(expected), DoubleArrayTrieTest.toList(trie.prefixIterator("", Integer.MAX_VALUE)));
+            for (String term : terms.subList(0, 1000)) {
+                trie.remove(term);
+            }
+            trie.compact();
+            for (String term : terms) {
+                Assert.assertEquals(term, !terms.subList(0, 1000).contains(term), trie.contains(term));
+            }
+        }
+    }
+
+    @Test
+    public void supplementaryCodePoints() {
+        List<String> terms = DoubleArrayTrieTest.supplementaryTerms(83, 25000);
+        Set<String> expected = new TreeSet<>(terms);
+        FullDoubleArrayTrie added = new FullDoubleArrayTrie();
+        for (String term : terms) {
+            added.add(term);
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        FullDoubleArrayTrie merged;
+        try {
+            merged = FullDoubleArrayTrie.buildParallel(terms, pool);
+        } finally {
+            pool.shutdown();
+        }
+        for (FullDoubleArrayTrie trie : new FullDoubleArrayTrie[]{added, merged}) {
+            for (String term : DoubleArrayTrieTest.supplementaryTerms(84, 3000)) {
+                Assert.assertEquals(term, expected.contains(term), trie.contains(term));
+                if (Character.isLowSurrogate(term.charAt(term.length() - 1))) {
+                    Assert.assertFalse(term, trie.contains(term.substring(0, term.length() - 1)));
+                }
+            }
+            Assert.assertEquals(new ArrayList<>(expected), DoubleArrayTrieTest.toList(trie.prefixIterator("", Integer.MAX_VALUE)));
+            String prefix = "\uD840\uDC00";
+            Assert.assertEquals(DoubleArrayTrieTest.withPrefix(expected, prefix, 5),
+                    DoubleArrayTrieTest.toList(trie.prefixIterator(prefix, 5)));
+            for (String term : terms.subList(0, 1000)) {
+                trie.remove(term);
+            }
+            trie.compact();
+            for (String term : terms.subList(0, 3000)) {
+                Assert.assertEquals(term, !terms.subList(0, 1000).contains(term), trie.contains(term));
+            }
+        }
+        FullDoubleArrayTrie trie = new FullDoubleArrayTrie();
+        trie.add("\uD801\uDC00bc");
+        Assert.assertTrue(trie.contains("\uD801\uDC28BC"));
+        Assert.assertFalse(trie.contains("\uD801bc"));
+    }
+
+    @Test
+    public void stats() {
+        FullDoubleArrayTrie trie = new FullDoubleArrayTrie();
+        trie.add("a");
+        trie.add("ab");
+        TrieStats stats = trie.stats();
+        Assert.assertEquals(2, stats.getTermCount());
+        Assert.assertArrayEquals(new int[]{0, 0, 1, 1}, stats.getDepthHistogram());
+        Assert.assertEquals(5, stats.getNodeCount());
+        Assert.assertEquals(2, stats.getMaxChildCount());
+        Assert.assertEquals(0, stats.getTailLength());
+        Assert.assertEquals(1.0, stats.getTailUtilization(), 1e-9);
+        Assert.assertEquals(trie.getRelocationCount(), stats.getRelocationCount());
+        Assert.assertEquals(trie.ramUsedB(), stats.getRamUsedB());
+
+        List<String> terms = DoubleArrayTrieTest.randomTerms(26, 3000);
+        FullDoubleArrayTrie merged = FullDoubleArrayTrie.buildParallel(terms);
+        stats = merged.stats();
+        Assert.assertEquals(new HashSet<>(terms).size(), stats.getTermCount());
+        Assert.assertTrue(stats.toString(), stats.getFillRatio() > 0 && stats.getFillRatio() <= 1);
+
+        // 没有TAIL数组,每个字符都是一个节点
+        FullDoubleArrayTrie deepTrie = new FullDoubleArrayTrie();
+        deepTrie.add(DoubleArrayTrieTest.longTerm(5000));
+        stats = deepTrie.stats();
+        Assert.assertEquals(1, stats.getTermCount());
+        Assert.assertTrue(stats.getDepthHistogram().length > 5000);
+    }
+
+    @Test
+    public void values() {
+        List<String> terms = DoubleArrayTrieTest.randomTerms(16, 3000);
+        FullDoubleArrayTrie trie = new FullDoubleArrayTrie();
+        Map<String, Integer> expected = new HashMap<>();
+        for (int index = 0; index < terms.size(); index++) {
+            String term = terms.get(index);
+            trie.add(term, index);
+            expected.put(term, index);
+        }
+        Random random = new Random(17);
+        for (String term : terms) {
+            if (random.nextBoolean() && expected.remove(term) != null) {
+                Assert.assertTrue(trie.remove(term));
+            }
+        }
+        trie.compact();
+        for (String candidate : DoubleArrayTrieTest.randomTerms(16, 6000)) {
+            Assert.assertEquals(candidate, expected.getOrDefault(candidate, -1).intValue(), trie.getInt(candidate, -1));
+        }
+    }
+
     public static void main(String[] args) {
         FullDoubleArrayTrieTest test = new FullDoubleArrayTrieTest();
         test.setFile("F:/360.dic"); // 词典所在的文件
@@ -0,0 +1,150 @@
+package com.wuda.tree;
+
+import com.wuda.lang.DirectIntArray;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class MappedDoubleArrayTrieTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String[] terms = {"豆豆鞋", "豆浆机", "bachelor", "jar", "badge", "baby", "欧莱雅润发精油", "糖衣片"};
+
+    @Test
+    public void saveAndMap() throws IOException {
+        DoubleArrayTrie trie = new DoubleArrayTrie();
+        for (String term : terms) {
+            trie.add(term);
+        }
+        Path file = folder.newFile("trie.dat").toPath();
+        trie.save(file);
+
+        MappedDoubleArrayTrie mapped = MappedDoubleArrayTrie.load(file);
+        DoubleArrayTrie loaded = DoubleArrayTrie.load(file);
+        DoubleArrayTrie offHeap = DoubleArrayTrie.load(file, DirectIntArray::new);
+        for (String term : terms) {
+            Assert.assertTrue(term, mapped.contains(term));
+            Assert.assertTrue(term, loaded.contains(term));
+            Assert.assertTrue(term, offHeap.contains(term));
+        }
+        Assert.assertTrue(mapped.contains(" JAR "));
+        for (String absent : new String[]{"豆豆", "豆豆鞋子", "ba", "bad", "babys", "ja", "x", ""}) {
+            Assert.assertFalse(absent, mapped.contains(absent));
+            Assert.assertFalse(absent, loaded.contains(absent));
+            Assert.assertFalse(absent, offHeap.contains(absent));
+        }
+        Path saved = folder.newFile("offHeap.dat").toPath();
+        offHeap.save(saved);
+        Assert.assertArrayEquals(Files.readAllBytes(file), Files.readAllBytes(saved));
+
+        loaded.add("jazz");
+        Assert.assertTrue(loaded.contains("jazz"));
+        Assert.assertFalse(mapped.contains("jazz"));
+        // 加载之后子节点链表是根据CHECK数组重新建立的
+        Assert.assertTrue(loaded.remove("badge"));
+        Assert.assertEquals(Arrays.asList("baby", "bachelor"), DoubleArrayTrieTest.toList(loaded.prefixIterator("ba", 10)));
+    }
+
+    @Test
+    public void definedCodePoints() throws IOException {
+        DoubleArrayTrie trie = new DoubleArrayTrie();
+        String alphabet = "#abcdefghijklmnopqrstuvwxyz";
+        for (int index = 0; index < alphabet.length(); index++) {
+            trie.defineCodePoint(alphabet.charAt(index), index + 1);
+        }
+        trie.add("bachelor");
+        trie.add("jar");
+        trie.add("badge");
+        Path file = folder.newFile("mapped.dat").toPath();
+        trie.save(file);
+
+        MappedDoubleArrayTrie mapped = MappedDoubleArrayTrie.load(file);
+        Assert.assertTrue(mapped.contains("bachelor"));
+        Assert.assertTrue(mapped.contains("badge"));
+        Assert.assertFalse(mapped.contains("bad"));
+        Assert.assertFalse(mapped.contains("豆豆鞋"));
+    }
+
+    @Test
+    public void values() throws IOException {
+        DoubleArrayTrie trie = new DoubleArrayTrie();
+        for (int index = 0; index < terms.length; index++) {
+            trie.add(terms[index], index + 100);
+        }
+        trie.add("bad"); // 没有值
+        Path file = folder.newFile("values.dat").toPath();
+        trie.save(file);
+
+        MappedDoubleArrayTrie mapped = MappedDoubleArrayTrie.load(file);
+        DoubleArrayTrie loaded = DoubleArrayTrie.load(file);
+        for (int index = 0; index < terms.length; index++) {
+            Assert.assertEquals(terms[index], index + 100, mapped.getInt(terms[index], -1));
+            Assert.assertEquals(terms[index], index + 100, loaded.getInt(terms[index], -1));
+        }
+        Assert.assertEquals(0, mapped.getInt("bad", -1));
+        Assert.assertEquals(-1, mapped.getInt("ba", -1));
+        Assert.assertEquals(-1, loaded.getInt("豆豆", -1));
+    }
+
+    @Test
+    public void separatorInTerm() throws IOException {
+        DoubleArrayTrie trie = new DoubleArrayTrie();
+        trie.add("a", 7);
+        trie.add("bc", 8);
+        trie.add("bd", 9);
+        Path file = folder.newFile("separator.dat").toPath();
+        trie.save(file);
+
+        MappedDoubleArrayTrie mapped = MappedDoubleArrayTrie.load(file);
+        for (String term : new String[]{"a#", "b#", "bc#", "#"}) {
+            Assert.assertFalse(term, mapped.contains(term));
+            Assert.assertEquals(term, -1, mapped.getInt(term, -1));
+        }
+        Assert.assertEquals(7, mapped.getInt("a", -1));
+        Assert.assertEquals(8, mapped.getInt("bc", -1));
+    }
+
+    @Test
+    public void supplementaryCodePoints() throws IOException {
+        List<String> terms = DoubleArrayTrieTest.supplementaryTerms(85, 2000);
+        DoubleArrayTrie trie = DoubleArrayTrie.build(terms);
+        trie.add("\uD801\uDC00bc", 7);
+        Path file = folder.newFile("supplementary.dat").toPath();
+        trie.save(file);
+
+        MappedDoubleArrayTrie mapped = MappedDoubleArrayTrie.load(file);
+        DoubleArrayTrie loaded = DoubleArrayTrie.load(file);
+        Assert.assertTrue(loaded.isCodePointMode());
+        Set<String> expected = new HashSet<>(terms);
+        for (String term : DoubleArrayTrieTest.supplementaryTerms(86, 2000)) {
+            Assert.assertEquals(term, expected.contains(term), mapped.contains(term));
+            Assert.assertEquals(term, expected.contains(term), loaded.contains(term));
+        }
+        for (String term : terms) {
+            Assert.assertTrue(term, mapped.contains(term));
+            if (Character.isLowSurrogate(term.charAt(term.length() - 1))) {
+                Assert.assertFalse(term, mapped.contains(term.substring(0, term.length() - 1)));
+            }
+        }
+        Assert.assertEquals(7, mapped.getInt("\uD801\uDC28BC", -1));
+        Assert.assertEquals(7, loaded.getInt("\uD801\uDC28BC", -1));
+    }
+
+    @Test(expected = IOException.class)
+    public void notATrieFile() throws IOException {
+        Path file = folder.newFile("other.dat").toPath();
+        Files.write(file, new byte[64]);
+        MappedDoubleArrayTrie.load(file);
+    }
+}
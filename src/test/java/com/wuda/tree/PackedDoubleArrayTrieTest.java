@@ -0,0 +1,86 @@
+package com.wuda.tree;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class PackedDoubleArrayTrieTest {
+
+    @Test
+    public void sameAsTrie() {
+        List<String> terms = DoubleArrayTrieTest.randomTerms(101, 5000);
+        DoubleArrayTrie built = DoubleArrayTrie.build(terms);
+        DoubleArrayTrie added = new DoubleArrayTrie();
+        for (int index = 0; index < terms.size(); index++) {
+            added.add(terms.get(index), index + 1);
+        }
+        for (String term : terms.subList(0, 500)) {
+            added.remove(term);
+        }
+        List<String> candidates = new ArrayList<>(terms);
+        candidates.addAll(DoubleArrayTrieTest.randomTerms(102, 3000));
+        candidates.addAll(DoubleArrayTrieTest.supplementaryTerms(103, 500));
+        candidates.addAll(Arrays.asList(null, "", " ", "a#", " ABC "));
+        int[] expectedLengths = new int[16];
+        int[] lengths = new int[16];
+        for (DoubleArrayTrie trie : Arrays.asList(built, added)) {
+            PackedDoubleArrayTrie packed = trie.freeze();
+            for (String candidate : candidates) {
+                Assert.assertEquals(candidate, trie.contains(candidate), packed.contains(candidate));
+                Assert.assertEquals(candidate, trie.getInt(candidate, -1), packed.getInt(candidate, -1));
+                if (candidate == null || candidate.isEmpty()) {
+                    continue;
+                }
+                Assert.assertEquals(candidate, trie.contains(candidate, 1, candidate.length() - 1),
+                        packed.contains(candidate, 1, candidate.length() - 1));
+                int count = trie.commonPrefixSearch(candidate, 0, expectedLengths);
+                Assert.assertEquals(candidate, count, packed.commonPrefixSearch(candidate, 0, lengths));
+                Assert.assertArrayEquals(candidate, Arrays.copyOf(expectedLengths, count), Arrays.copyOf(lengths, count));
+                Assert.assertEquals(candidate, trie.longestMatch(candidate, 0), packed.longestMatch(candidate, 0));
+            }
+        }
+    }
+
+    @Test
+    public void supplementaryCodePoints() {
+        List<String> terms = DoubleArrayTrieTest.supplementaryTerms(104, 3000);
+        PackedDoubleArrayTrie packed = DoubleArrayTrie.build(terms).freeze();
+        for (String term : terms) {
+            Assert.assertTrue(term, packed.contains(term));
+            Assert.assertEquals(term, term.length(), packed.longestMatch(term + "x", 0));
+        }
+    }
+
+    @Test
+    public void separatorInText() {
+        PackedDoubleArrayTrie packed = DoubleArrayTrie.build(Arrays.asList("ab", "abc")).freeze();
+        int[] lengths = new int[4];
+        Assert.assertEquals(1, packed.commonPrefixSearch("ab#x", 0, lengths));
+        Assert.assertEquals(2, lengths[0]);
+        Assert.assertEquals(2, packed.longestMatch("ab#x", 0));
+        Assert.assertEquals(0, packed.longestMatch("#ab", 0));
+    }
+
+    @Test
+    public void independentOfTrie() {
+        DoubleArrayTrie trie = DoubleArrayTrie.build(Arrays.asList("abc", "abd", "b"));
+        PackedDoubleArrayTrie packed = trie.freeze();
+        trie.add("xyz");
+        trie.remove("abc");
+        Assert.assertTrue(packed.contains("abc"));
+        Assert.assertFalse(packed.contains("xyz"));
+        Assert.assertFalse(new DoubleArrayTrie().freeze().contains("a"));
+    }
+
+    @Test
+    public void smallerThanPlainArrays() {
+        DoubleArrayTrie trie = DoubleArrayTrie.build(DoubleArrayTrieTest.randomTerms(105, 20000));
+        PackedDoubleArrayTrie packed = trie.freeze();
+        long plainBytes = trie.stats().getDoubleArrayLength() * 8L;
+        Assert.assertTrue(packed.toString(), packed.bitsPerCell() <= 48);
+        Assert.assertTrue(packed.toString(), packed.packedBytes() < plainBytes * 0.75);
+    }
+}
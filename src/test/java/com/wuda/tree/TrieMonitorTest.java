@@ -0,0 +1,39 @@
+package com.wuda.tree;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+public class TrieMonitorTest {
+
+    @Test
+    public void register() throws Exception {
+        DoubleArrayTrie trie = DoubleArrayTrie.build(Arrays.asList("abc", "abd", "b"));
+        TrieMonitor monitor = new TrieMonitor(trie::stats, Long.MAX_VALUE);
+        ObjectName name = monitor.register("test \"dictionary\"");
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            Assert.assertEquals(3, server.getAttribute(name, "TermCount"));
+            Assert.assertArrayEquals(new int[]{0, 1, 0, 2}, (int[]) server.getAttribute(name, "DepthHistogram"));
+
+            // 缓存的统计信息在refresh之后才会更新
+            trie.add("xyz");
+            Assert.assertEquals(3, server.getAttribute(name, "TermCount"));
+            server.invoke(name, "refresh", new Object[0], new String[0]);
+            Assert.assertEquals(4, server.getAttribute(name, "TermCount"));
+        } finally {
+            monitor.unregister();
+        }
+        Assert.assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+
+        TrieMonitor uncached = new TrieMonitor(trie::stats, 0);
+        trie.add("uvw");
+        Assert.assertEquals(5, uncached.getTermCount());
+        trie.add("rst");
+        Assert.assertEquals(6, uncached.getTermCount());
+    }
+}